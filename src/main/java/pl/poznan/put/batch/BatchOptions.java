@@ -0,0 +1,53 @@
+package pl.poznan.put.batch;
+
+import org.apache.commons.lang3.Validate;
+import org.immutables.value.Value;
+import pl.poznan.put.pdb.analysis.ParseOptions;
+
+/** Settings of a {@link BatchRunner}. */
+@Value.Immutable
+public abstract class BatchOptions {
+  /** @return An instance with all settings at default values. */
+  public static BatchOptions defaults() {
+    return ImmutableBatchOptions.builder().build();
+  }
+
+  /** @return The number of threads parsing and analysing files (default: number of CPUs). */
+  @Value.Default
+  public int workers() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * @return The maximum number of files submitted, but not yet passed to the sink (default: twice
+   *     the number of workers). It bounds the memory used by parsed models and pending results.
+   */
+  @Value.Default
+  public int maxInFlight() {
+    return 2 * workers();
+  }
+
+  /** @return The order of passing results to the sink (default: as soon as they are ready). */
+  @Value.Default
+  public ResultOrder resultOrder() {
+    return ResultOrder.COMPLETION;
+  }
+
+  /** @return True if PDB files should be parsed in strict mode (default: false). */
+  @Value.Default
+  public boolean strictMode() {
+    return false;
+  }
+
+  /** @return Filters of atoms applied while parsing (default: no filters). */
+  @Value.Default
+  public ParseOptions parseOptions() {
+    return ParseOptions.defaults();
+  }
+
+  @Value.Check
+  protected void validate() {
+    Validate.isTrue(workers() > 0, "Number of workers must be positive");
+    Validate.isTrue(maxInFlight() > 0, "Maximum number of files in flight must be positive");
+  }
+}
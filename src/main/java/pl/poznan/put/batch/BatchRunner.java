@@ -0,0 +1,221 @@
+package pl.poznan.put.batch;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.poznan.put.pdb.analysis.CifParser;
+import pl.poznan.put.pdb.analysis.PdbModel;
+import pl.poznan.put.pdb.analysis.PdbParser;
+import pl.poznan.put.utility.CompressedInput;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A runner of the same analysis over many PDB or mmCIF files. Files are parsed and analysed by a
+ * fixed number of worker threads, while the calling thread submits new files and passes results to
+ * the sink. At most {@link BatchOptions#maxInFlight()} files are submitted but not yet passed to
+ * the sink, so memory stays bounded even if the sink is slower than the workers. A failure of one
+ * file is reported in its {@link FileResult} and does not stop the batch.
+ */
+public final class BatchRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchRunner.class);
+
+  private final BatchOptions options;
+
+  /**
+   * Creates an instance with given settings.
+   *
+   * @param options Settings of the batch.
+   */
+  public BatchRunner(final BatchOptions options) {
+    super();
+    this.options = options;
+  }
+
+  /** Creates an instance with default settings. */
+  public BatchRunner() {
+    this(BatchOptions.defaults());
+  }
+
+  /**
+   * Lists structure files in a directory and all its subdirectories. Files with extensions .pdb,
+   * .ent, .cif and .mmcif are recognized, also when followed by .gz.
+   *
+   * @param directory The directory to search in.
+   * @return A sorted list of paths to structure files.
+   * @throws IOException When listing of the directory fails.
+   */
+  public static List<Path> findStructureFiles(final Path directory) throws IOException {
+    try (final Stream<Path> stream = Files.walk(directory)) {
+      return stream
+          .filter(Files::isRegularFile)
+          .filter(
+              path -> {
+                final String name = BatchRunner.uncompressedName(path);
+                return name.endsWith(".pdb")
+                    || name.endsWith(".ent")
+                    || BatchRunner.isCif(name);
+              })
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static String uncompressedName(final Path path) {
+    final String name = path.getFileName().toString().toLowerCase(Locale.US);
+    return StringUtils.removeEnd(name, ".gz");
+  }
+
+  private static boolean isCif(final String name) {
+    return name.endsWith(".cif") || name.endsWith(".mmcif");
+  }
+
+  /**
+   * Processes all structure files found in a directory.
+   *
+   * @param directory The directory to search in.
+   * @param function The analysis to apply to every model.
+   * @param sink A callback to receive results, always called on the calling thread.
+   * @param <R> The type of result of a single model.
+   * @return Statistics of the batch.
+   * @throws IOException When listing of the directory fails.
+   * @throws InterruptedException When the calling thread is interrupted while waiting for results.
+   * @see #findStructureFiles(Path)
+   */
+  public <R> BatchStatistics run(
+      final Path directory,
+      final ModelFunction<? extends R> function,
+      final Consumer<? super FileResult<R>> sink)
+      throws IOException, InterruptedException {
+    return run(BatchRunner.findStructureFiles(directory), function, sink);
+  }
+
+  /**
+   * Processes the given structure files. Files with .cif or .mmcif extension (optionally followed
+   * by .gz) are parsed as mmCIF, all others as PDB.
+   *
+   * @param files Paths to structure files.
+   * @param function The analysis to apply to every model.
+   * @param sink A callback to receive results, always called on the calling thread.
+   * @param <R> The type of result of a single model.
+   * @return Statistics of the batch.
+   * @throws InterruptedException When the calling thread is interrupted while waiting for results.
+   */
+  public <R> BatchStatistics run(
+      final List<Path> files,
+      final ModelFunction<? extends R> function,
+      final Consumer<? super FileResult<R>> sink)
+      throws InterruptedException {
+    final long start = System.nanoTime();
+    final BlockingQueue<FileResult<R>> completed = new LinkedBlockingQueue<>();
+    final Delivery<R> delivery = new Delivery<>(sink, options.resultOrder());
+    final ExecutorService executor = Executors.newFixedThreadPool(options.workers());
+
+    try {
+      for (int i = 0; i < files.size(); i++) {
+        while ((i - delivery.delivered) >= options.maxInFlight()) {
+          delivery.accept(completed.take());
+        }
+
+        final int index = i;
+        final Path path = files.get(i);
+        executor.execute(() -> completed.add(process(index, path, function)));
+      }
+
+      while (delivery.delivered < files.size()) {
+        delivery.accept(completed.take());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final long[] latencies = delivery.latencies.stream().mapToLong(Long::longValue).toArray();
+    return BatchStatistics.of(
+        latencies, delivery.failedFiles, delivery.processedModels, System.nanoTime() - start);
+  }
+
+  private <R> FileResult<R> process(
+      final int index, final Path path, final ModelFunction<? extends R> function) {
+    final long start = System.nanoTime();
+    try {
+      final List<R> results = new ArrayList<>();
+      for (final PdbModel model : parse(path)) {
+        results.add(function.apply(model));
+      }
+      return ImmutableFileResult.of(
+          index, path, results, Optional.empty(), System.nanoTime() - start);
+    } catch (final Throwable e) {
+      // errors are recorded as well, otherwise run() would wait for this result forever
+      BatchRunner.LOGGER.warn("Failed to process file: {}", path, e);
+      return ImmutableFileResult.of(
+          index, path, Collections.<R>emptyList(), Optional.of(e), System.nanoTime() - start);
+    }
+  }
+
+  private List<? extends PdbModel> parse(final Path path) throws IOException {
+    if (BatchRunner.isCif(BatchRunner.uncompressedName(path))) {
+      try (final Reader reader = CompressedInput.newReader(path)) {
+        return CifParser.parse(reader, options.parseOptions());
+      }
+    }
+    return new PdbParser(options.strictMode(), options.parseOptions()).parse(path);
+  }
+
+  /** Passes results to the sink in the requested order and counts them. */
+  private static final class Delivery<R> {
+    private final Consumer<? super FileResult<R>> sink;
+    private final ResultOrder resultOrder;
+    private final Map<Integer, FileResult<R>> pending = new HashMap<>();
+    private final List<Long> latencies = new ArrayList<>();
+    private int delivered;
+    private int failedFiles;
+    private int processedModels;
+
+    private Delivery(final Consumer<? super FileResult<R>> sink, final ResultOrder resultOrder) {
+      super();
+      this.sink = sink;
+      this.resultOrder = resultOrder;
+    }
+
+    private void accept(final FileResult<R> result) {
+      if (resultOrder == ResultOrder.COMPLETION) {
+        deliver(result);
+        return;
+      }
+
+      pending.put(result.index(), result);
+      FileResult<R> next;
+      while ((next = pending.remove(delivered)) != null) {
+        deliver(next);
+      }
+    }
+
+    private void deliver(final FileResult<R> result) {
+      delivered += 1;
+      latencies.add(result.latencyNanos());
+      if (result.isSuccess()) {
+        processedModels += result.results().size();
+      } else {
+        failedFiles += 1;
+      }
+      sink.accept(result);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package pl.poznan.put.batch;
+
+import org.immutables.value.Value;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/** Throughput, latency and failure counts of a finished batch. */
+@Value.Immutable
+public abstract class BatchStatistics {
+  /**
+   * Computes statistics out of per-file latencies.
+   *
+   * @param latencyNanos Latencies of all processed files, in nanoseconds.
+   * @param failedFiles The number of files which failed.
+   * @param processedModels The number of models analysed successfully.
+   * @param elapsedNanos Wall-clock duration of the whole batch, in nanoseconds.
+   * @return An instance of this class.
+   */
+  public static BatchStatistics of(
+      final long[] latencyNanos,
+      final int failedFiles,
+      final int processedModels,
+      final long elapsedNanos) {
+    final long[] sorted = latencyNanos.clone();
+    Arrays.sort(sorted);
+    return ImmutableBatchStatistics.builder()
+        .processedFiles(sorted.length)
+        .failedFiles(failedFiles)
+        .processedModels(processedModels)
+        .elapsedNanos(elapsedNanos)
+        .latencyP50Nanos(BatchStatistics.percentile(sorted, 0.5))
+        .latencyP90Nanos(BatchStatistics.percentile(sorted, 0.9))
+        .latencyP99Nanos(BatchStatistics.percentile(sorted, 0.99))
+        .latencyMaxNanos((sorted.length == 0) ? 0L : sorted[sorted.length - 1])
+        .build();
+  }
+
+  // the nearest-rank method
+  private static long percentile(final long[] sorted, final double fraction) {
+    if (sorted.length == 0) {
+      return 0L;
+    }
+    final int rank = (int) Math.ceil(fraction * sorted.length);
+    return sorted[Math.max(rank, 1) - 1];
+  }
+
+  /** @return The number of files processed (successfully or not). */
+  public abstract int processedFiles();
+
+  /** @return The number of files which failed to be parsed or analysed. */
+  public abstract int failedFiles();
+
+  /** @return The number of models analysed successfully. */
+  public abstract int processedModels();
+
+  /** @return Wall-clock duration of the whole batch, in nanoseconds. */
+  public abstract long elapsedNanos();
+
+  /** @return The median latency of a single file, in nanoseconds. */
+  public abstract long latencyP50Nanos();
+
+  /** @return The 90th percentile of latency of a single file, in nanoseconds. */
+  public abstract long latencyP90Nanos();
+
+  /** @return The 99th percentile of latency of a single file, in nanoseconds. */
+  public abstract long latencyP99Nanos();
+
+  /** @return The maximum latency of a single file, in nanoseconds. */
+  public abstract long latencyMaxNanos();
+
+  /** @return The number of files processed per second. */
+  public final double throughput() {
+    return (elapsedNanos() == 0L)
+        ? 0.0
+        : ((double) processedFiles() * TimeUnit.SECONDS.toNanos(1L)) / elapsedNanos();
+  }
+
+  @Override
+  public final String toString() {
+    return String.format(
+        Locale.US,
+        "files: %d, failed: %d, models: %d, throughput: %.2f files/s, "
+            + "latency p50/p90/p99/max: %d/%d/%d/%d ms",
+        processedFiles(),
+        failedFiles(),
+        processedModels(),
+        throughput(),
+        TimeUnit.NANOSECONDS.toMillis(latencyP50Nanos()),
+        TimeUnit.NANOSECONDS.toMillis(latencyP90Nanos()),
+        TimeUnit.NANOSECONDS.toMillis(latencyP99Nanos()),
+        TimeUnit.NANOSECONDS.toMillis(latencyMaxNanos()));
+  }
+}
@@ -0,0 +1,40 @@
+package pl.poznan.put.batch;
+
+import org.immutables.value.Value;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The outcome of processing a single file in a batch: either one result per model or a failure.
+ *
+ * @param <R> The type of result of a single model.
+ */
+@Value.Immutable
+public abstract class FileResult<R> {
+  /** @return The position of the file in the input list. */
+  @Value.Parameter(order = 1)
+  public abstract int index();
+
+  /** @return The path to the file. */
+  @Value.Parameter(order = 2)
+  public abstract Path path();
+
+  /** @return Results of analysis, one per model (empty if processing failed). */
+  @Value.Parameter(order = 3)
+  public abstract List<R> results();
+
+  /** @return The reason of failure, if parsing or analysis of the file failed. */
+  @Value.Parameter(order = 4)
+  public abstract Optional<Throwable> failure();
+
+  /** @return Time spent on parsing and analysis of the file, in nanoseconds. */
+  @Value.Parameter(order = 5)
+  public abstract long latencyNanos();
+
+  /** @return True if the file was processed without errors. */
+  public final boolean isSuccess() {
+    return !failure().isPresent();
+  }
+}
@@ -0,0 +1,20 @@
+package pl.poznan.put.batch;
+
+import pl.poznan.put.pdb.analysis.PdbModel;
+
+/**
+ * An analysis applied to every model of every file in a batch.
+ *
+ * @param <R> The type of result.
+ */
+@FunctionalInterface
+public interface ModelFunction<R> {
+  /**
+   * Analyses a single model.
+   *
+   * @param model A model parsed from an input file.
+   * @return The result of analysis.
+   * @throws Exception Any failure, which will be reported as a failure of the whole file.
+   */
+  R apply(PdbModel model) throws Exception;
+}
@@ -0,0 +1,9 @@
+package pl.poznan.put.batch;
+
+/** The order in which results of a batch are passed to the sink. */
+public enum ResultOrder {
+  /** Results are passed as soon as they are ready. */
+  COMPLETION,
+  /** Results are passed in the order of input files. */
+  INPUT
+}
@@ -0,0 +1,2 @@
+/** Contains classes to run the same analysis over many structure files in parallel. */
+package pl.poznan.put.batch;
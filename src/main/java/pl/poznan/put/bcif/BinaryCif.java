@@ -0,0 +1,103 @@
+package pl.poznan.put.bcif;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader and writer of BinaryCIF files. A file is a MessagePack map with a list of data blocks,
+ * each with a list of categories, each with a list of encoded columns (see
+ * https://github.com/molstar/BinaryCIF for the specification).
+ */
+public final class BinaryCif {
+  /** The version of BinaryCIF specification followed by the writer. */
+  public static final String VERSION = "0.3.0"; // NON-NLS
+
+  private static final String ENCODER = "BioCommons"; // NON-NLS
+  private static final String DATA_BLOCKS = "dataBlocks"; // NON-NLS
+  private static final String HEADER = "header"; // NON-NLS
+  private static final String CATEGORIES = "categories"; // NON-NLS
+  private static final String NAME = "name"; // NON-NLS
+  private static final String ROW_COUNT = "rowCount"; // NON-NLS
+  private static final String COLUMNS = "columns"; // NON-NLS
+
+  private BinaryCif() {
+    super();
+  }
+
+  /**
+   * Encodes data blocks into BinaryCIF.
+   *
+   * @param blocks The data blocks to encode.
+   * @return BinaryCIF content.
+   */
+  public static byte[] write(final List<BinaryCifBlock> blocks) {
+    final List<Object> encodedBlocks = new ArrayList<>();
+    for (final BinaryCifBlock block : blocks) {
+      final List<Object> encodedCategories = new ArrayList<>();
+      for (final BinaryCifCategory category : block.categories()) {
+        final List<Object> encodedColumns = new ArrayList<>();
+        for (final BinaryCifColumn column : category.columns()) {
+          encodedColumns.add(ColumnCodec.encode(column));
+        }
+
+        final Map<String, Object> encodedCategory = new LinkedHashMap<>();
+        encodedCategory.put(BinaryCif.NAME, category.name());
+        encodedCategory.put(BinaryCif.ROW_COUNT, category.rowCount());
+        encodedCategory.put(BinaryCif.COLUMNS, encodedColumns);
+        encodedCategories.add(encodedCategory);
+      }
+
+      final Map<String, Object> encodedBlock = new LinkedHashMap<>();
+      encodedBlock.put(BinaryCif.HEADER, block.header());
+      encodedBlock.put(BinaryCif.CATEGORIES, encodedCategories);
+      encodedBlocks.add(encodedBlock);
+    }
+
+    final Map<String, Object> file = new LinkedHashMap<>();
+    file.put("version", BinaryCif.VERSION);
+    file.put("encoder", BinaryCif.ENCODER);
+    file.put(BinaryCif.DATA_BLOCKS, encodedBlocks);
+    return MessagePack.encode(file);
+  }
+
+  /**
+   * Decodes BinaryCIF content.
+   *
+   * @param data BinaryCIF content.
+   * @return The list of data blocks with all columns decoded.
+   * @throws IOException When the content is not valid BinaryCIF.
+   */
+  public static List<BinaryCifBlock> read(final byte[] data) throws IOException {
+    try {
+      final Map<?, ?> file = (Map<?, ?>) MessagePack.decode(data);
+      if ((file == null) || !(file.get(BinaryCif.DATA_BLOCKS) instanceof List)) {
+        throw new IOException("Missing list of data blocks in BinaryCIF data");
+      }
+
+      final List<BinaryCifBlock> blocks = new ArrayList<>();
+      for (final Object encodedBlock : (List<?>) file.get(BinaryCif.DATA_BLOCKS)) {
+        final Map<?, ?> blockMap = (Map<?, ?>) encodedBlock;
+        final List<BinaryCifCategory> categories = new ArrayList<>();
+        for (final Object encodedCategory : (List<?>) blockMap.get(BinaryCif.CATEGORIES)) {
+          final Map<?, ?> categoryMap = (Map<?, ?>) encodedCategory;
+          final List<BinaryCifColumn> columns = new ArrayList<>();
+          for (final Object encodedColumn : (List<?>) categoryMap.get(BinaryCif.COLUMNS)) {
+            columns.add(ColumnCodec.decode((Map<?, ?>) encodedColumn));
+          }
+          categories.add(
+              ImmutableBinaryCifCategory.of(
+                  (String) categoryMap.get(BinaryCif.NAME),
+                  ((Number) categoryMap.get(BinaryCif.ROW_COUNT)).intValue(),
+                  columns));
+        }
+        blocks.add(ImmutableBinaryCifBlock.of((String) blockMap.get(BinaryCif.HEADER), categories));
+      }
+      return blocks;
+    } catch (final ClassCastException | NullPointerException | IllegalArgumentException e) {
+      throw new IOException("Malformed BinaryCIF data", e);
+    }
+  }
+}
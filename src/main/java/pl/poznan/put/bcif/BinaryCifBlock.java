@@ -0,0 +1,30 @@
+package pl.poznan.put.bcif;
+
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.Optional;
+
+/** A data block of BinaryCIF file. */
+@Value.Immutable
+public abstract class BinaryCifBlock {
+  /** @return The block header, i.e. the part after data_ in mmCIF. */
+  @Value.Parameter(order = 1)
+  public abstract String header();
+
+  /** @return The categories of this block. */
+  @Value.Parameter(order = 2)
+  public abstract List<BinaryCifCategory> categories();
+
+  /**
+   * Finds a category by its name (case-insensitive).
+   *
+   * @param categoryName The category name with the leading underscore e.g. _atom_site.
+   * @return The category or empty if there is none with this name.
+   */
+  public final Optional<BinaryCifCategory> category(final String categoryName) {
+    return categories().stream()
+        .filter(category -> category.name().equalsIgnoreCase(categoryName))
+        .findFirst();
+  }
+}
@@ -0,0 +1,43 @@
+package pl.poznan.put.bcif;
+
+import org.apache.commons.lang3.Validate;
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.Optional;
+
+/** A category of BinaryCIF data block, i.e. a table of columns with equal number of rows. */
+@Value.Immutable
+public abstract class BinaryCifCategory {
+  /** @return The category name with the leading underscore e.g. _atom_site. */
+  @Value.Parameter(order = 1)
+  public abstract String name();
+
+  /** @return The number of rows. */
+  @Value.Parameter(order = 2)
+  public abstract int rowCount();
+
+  /** @return The columns of this category. */
+  @Value.Parameter(order = 3)
+  public abstract List<BinaryCifColumn> columns();
+
+  /**
+   * Finds a column by its name (case-insensitive).
+   *
+   * @param columnName The column name, without the category prefix.
+   * @return The column or empty if there is none with this name.
+   */
+  public final Optional<BinaryCifColumn> column(final String columnName) {
+    return columns().stream()
+        .filter(column -> column.name().equalsIgnoreCase(columnName))
+        .findFirst();
+  }
+
+  @Value.Check
+  protected void validate() {
+    Validate.isTrue(
+        columns().stream().allMatch(column -> column.rowCount() == rowCount()),
+        "All columns must have %d rows",
+        rowCount());
+  }
+}
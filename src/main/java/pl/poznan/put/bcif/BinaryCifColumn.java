@@ -0,0 +1,187 @@
+package pl.poznan.put.bcif;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nullable;
+
+/**
+ * A single column of a BinaryCIF category. Values are stored as integers, floating point numbers
+ * or strings, and an optional mask marks values which are not specified ({@code .} in mmCIF) or
+ * unknown ({@code ?} in mmCIF).
+ */
+public final class BinaryCifColumn {
+  /** A mask value of a present value. */
+  public static final byte VALUE_PRESENT = 0;
+  /** A mask value of a not specified value, written as {@code .} in mmCIF. */
+  public static final byte NOT_SPECIFIED = 1;
+  /** A mask value of an unknown value, written as {@code ?} in mmCIF. */
+  public static final byte UNKNOWN = 2;
+
+  private final String name;
+  private final int rowCount;
+  @Nullable private final int[] integers;
+  @Nullable private final double[] doubles;
+  @Nullable private final String[] strings;
+  @Nullable private final byte[] mask;
+
+  private BinaryCifColumn(
+      final String name,
+      final int rowCount,
+      @Nullable final int[] integers,
+      @Nullable final double[] doubles,
+      @Nullable final String[] strings,
+      @Nullable final byte[] mask) {
+    super();
+    Validate.isTrue(
+        (mask == null) || (mask.length == rowCount), "Mask and values differ in length");
+    this.name = name;
+    this.rowCount = rowCount;
+    this.integers = integers;
+    this.doubles = doubles;
+    this.strings = strings;
+    this.mask = mask;
+  }
+
+  /**
+   * Creates a column of integers.
+   *
+   * @param name The column name, without the category prefix.
+   * @param values The values.
+   * @param mask An optional mask with one of {@link #VALUE_PRESENT}, {@link #NOT_SPECIFIED} or
+   *     {@link #UNKNOWN} for each value.
+   * @return A new column.
+   */
+  public static BinaryCifColumn ofIntegers(
+      final String name, final int[] values, @Nullable final byte[] mask) {
+    return new BinaryCifColumn(name, values.length, values, null, null, mask);
+  }
+
+  /**
+   * Creates a column of floating point numbers.
+   *
+   * @param name The column name, without the category prefix.
+   * @param values The values.
+   * @param mask An optional mask with one of {@link #VALUE_PRESENT}, {@link #NOT_SPECIFIED} or
+   *     {@link #UNKNOWN} for each value.
+   * @return A new column.
+   */
+  public static BinaryCifColumn ofDoubles(
+      final String name, final double[] values, @Nullable final byte[] mask) {
+    return new BinaryCifColumn(name, values.length, null, values, null, mask);
+  }
+
+  /**
+   * Creates a column of strings.
+   *
+   * @param name The column name, without the category prefix.
+   * @param values The values.
+   * @param mask An optional mask with one of {@link #VALUE_PRESENT}, {@link #NOT_SPECIFIED} or
+   *     {@link #UNKNOWN} for each value.
+   * @return A new column.
+   */
+  public static BinaryCifColumn ofStrings(
+      final String name, final String[] values, @Nullable final byte[] mask) {
+    return new BinaryCifColumn(name, values.length, null, null, values, mask);
+  }
+
+  /** @return The column name, without the category prefix. */
+  public String name() {
+    return name;
+  }
+
+  /** @return The number of values. */
+  public int rowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Checks if a value is present i.e. it is neither {@code .} nor {@code ?}.
+   *
+   * @param row Index of the value.
+   * @return True if the value is present.
+   */
+  public boolean isValuePresent(final int row) {
+    return (mask == null) || (mask[row] == BinaryCifColumn.VALUE_PRESENT);
+  }
+
+  /**
+   * Gets a value as it would be written in mmCIF.
+   *
+   * @param row Index of the value.
+   * @return The value as text or {@code .} or {@code ?} for masked values.
+   */
+  public String getString(final int row) {
+    if (mask != null) {
+      if (mask[row] == BinaryCifColumn.NOT_SPECIFIED) {
+        return ".";
+      }
+      if (mask[row] == BinaryCifColumn.UNKNOWN) {
+        return "?";
+      }
+    }
+    if (integers != null) {
+      return Integer.toString(integers[row]);
+    }
+    if (doubles != null) {
+      return Double.toString(doubles[row]);
+    }
+    assert strings != null;
+    return (strings[row] == null) ? "?" : strings[row];
+  }
+
+  /**
+   * Gets a value as an integer.
+   *
+   * @param row Index of the value.
+   * @return The value as an integer.
+   * @throws NumberFormatException If this is a column of strings which are not integers.
+   */
+  public int getInt(final int row) {
+    if (integers != null) {
+      return integers[row];
+    }
+    if (doubles != null) {
+      return (int) doubles[row];
+    }
+    assert strings != null;
+    return Integer.parseInt(strings[row]);
+  }
+
+  /**
+   * Gets a value as a floating point number.
+   *
+   * @param row Index of the value.
+   * @return The value as a floating point number.
+   * @throws NumberFormatException If this is a column of strings which are not numbers.
+   */
+  public double getDouble(final int row) {
+    if (integers != null) {
+      return integers[row];
+    }
+    if (doubles != null) {
+      return doubles[row];
+    }
+    assert strings != null;
+    return Double.parseDouble(strings[row]);
+  }
+
+  @Nullable
+  int[] integers() {
+    return integers;
+  }
+
+  @Nullable
+  double[] doubles() {
+    return doubles;
+  }
+
+  @Nullable
+  String[] strings() {
+    return strings;
+  }
+
+  @Nullable
+  byte[] mask() {
+    return mask;
+  }
+}
@@ -0,0 +1,539 @@
+package pl.poznan.put.bcif;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encoder and decoder of BinaryCIF columns. Decoding supports all standard encodings: ByteArray,
+ * FixedPoint, IntervalQuantization, RunLength, Delta, IntegerPacking and StringArray. Encoding
+ * tries a few pipelines of Delta, RunLength and IntegerPacking for every integer column and keeps
+ * the shortest. Floating point columns use FixedPoint with the smallest factor which preserves all
+ * values exactly, or raw 64-bit values when there is no such factor.
+ */
+final class ColumnCodec {
+  private static final int INT8 = 1;
+  private static final int INT16 = 2;
+  private static final int INT32 = 3;
+  private static final int UINT8 = 4;
+  private static final int UINT16 = 5;
+  private static final int UINT32 = 6;
+  private static final int FLOAT32 = 32;
+  private static final int FLOAT64 = 33;
+  private static final int MAX_FIXED_POINT_DIGITS = 6;
+
+  private static final String KIND = "kind"; // NON-NLS
+  private static final String DATA = "data"; // NON-NLS
+  private static final String ENCODING = "encoding"; // NON-NLS
+  private static final String SRC_TYPE = "srcType"; // NON-NLS
+  private static final String SRC_SIZE = "srcSize"; // NON-NLS
+
+  private ColumnCodec() {
+    super();
+  }
+
+  /**
+   * Encodes a column into a MessagePack-ready map.
+   *
+   * @param column The column to encode.
+   * @return A map with name, data and mask of the column.
+   */
+  static Map<String, Object> encode(final BinaryCifColumn column) {
+    final EncodedData encodedData;
+    if (column.integers() != null) {
+      encodedData = ColumnCodec.encodeIntegers(column.integers());
+    } else if (column.doubles() != null) {
+      encodedData = ColumnCodec.encodeDoubles(column.doubles());
+    } else {
+      encodedData = ColumnCodec.encodeStrings(Objects.requireNonNull(column.strings()));
+    }
+
+    EncodedData encodedMask = null;
+    final byte[] mask = column.mask();
+    if (mask != null) {
+      final int[] values = new int[mask.length];
+      boolean isMasked = false;
+      for (int i = 0; i < mask.length; i++) {
+        values[i] = mask[i];
+        isMasked |= mask[i] != BinaryCifColumn.VALUE_PRESENT;
+      }
+      if (isMasked) {
+        encodedMask = ColumnCodec.encodeIntegers(values);
+      }
+    }
+
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("name", column.name());
+    map.put(ColumnCodec.DATA, encodedData.toMap());
+    map.put("mask", (encodedMask == null) ? null : encodedMask.toMap());
+    return map;
+  }
+
+  /**
+   * Decodes a column out of a map read from MessagePack.
+   *
+   * @param map A map with name, data and mask of the column.
+   * @return The decoded column.
+   * @throws IOException When the map does not describe a valid column.
+   */
+  static BinaryCifColumn decode(final Map<?, ?> map) throws IOException {
+    final String name = (String) ColumnCodec.required(map, "name");
+    final Object values =
+        ColumnCodec.decodeData((Map<?, ?>) ColumnCodec.required(map, ColumnCodec.DATA));
+
+    byte[] mask = null;
+    final Map<?, ?> encodedMask = (Map<?, ?>) map.get("mask");
+    if (encodedMask != null) {
+      final int[] maskValues = ColumnCodec.toIntegers(ColumnCodec.decodeData(encodedMask));
+      mask = new byte[maskValues.length];
+      for (int i = 0; i < maskValues.length; i++) {
+        mask[i] = (byte) maskValues[i];
+      }
+    }
+
+    if (values instanceof int[]) {
+      return BinaryCifColumn.ofIntegers(name, (int[]) values, mask);
+    }
+    if (values instanceof double[]) {
+      return BinaryCifColumn.ofDoubles(name, (double[]) values, mask);
+    }
+    if (values instanceof String[]) {
+      return BinaryCifColumn.ofStrings(name, (String[]) values, mask);
+    }
+    throw new IOException("Column was not decoded into values: " + name);
+  }
+
+  private static Object required(final Map<?, ?> map, final String key) throws IOException {
+    final Object value = map.get(key);
+    if (value == null) {
+      throw new IOException("Missing required key in BinaryCIF data: " + key);
+    }
+    return value;
+  }
+
+  private static int intValue(final Map<?, ?> map, final String key) throws IOException {
+    return ((Number) ColumnCodec.required(map, key)).intValue();
+  }
+
+  private static double doubleValue(final Map<?, ?> map, final String key) throws IOException {
+    return ((Number) ColumnCodec.required(map, key)).doubleValue();
+  }
+
+  private static int[] toIntegers(final Object data) throws IOException {
+    if (data instanceof int[]) {
+      return (int[]) data;
+    }
+    throw new IOException("Expected integer data, but got: " + data.getClass().getSimpleName());
+  }
+
+  private static Object decodeData(final Map<?, ?> encodedData) throws IOException {
+    Object data = ColumnCodec.required(encodedData, ColumnCodec.DATA);
+    final List<?> encodings = (List<?>) ColumnCodec.required(encodedData, ColumnCodec.ENCODING);
+    for (int i = encodings.size() - 1; i >= 0; i--) {
+      data = ColumnCodec.decodeStep((Map<?, ?>) encodings.get(i), data);
+    }
+    return data;
+  }
+
+  private static Object decodeStep(final Map<?, ?> encoding, final Object data)
+      throws IOException {
+    final String kind = (String) ColumnCodec.required(encoding, ColumnCodec.KIND);
+    switch (kind) {
+      case "ByteArray":
+        return ColumnCodec.decodeByteArray((byte[]) data, ColumnCodec.intValue(encoding, "type"));
+      case "FixedPoint":
+        return ColumnCodec.decodeFixedPoint(
+            ColumnCodec.toIntegers(data), ColumnCodec.doubleValue(encoding, "factor"));
+      case "IntervalQuantization":
+        return ColumnCodec.decodeIntervalQuantization(
+            ColumnCodec.toIntegers(data),
+            ColumnCodec.doubleValue(encoding, "min"),
+            ColumnCodec.doubleValue(encoding, "max"),
+            ColumnCodec.intValue(encoding, "numSteps"));
+      case "RunLength":
+        return ColumnCodec.decodeRunLength(
+            ColumnCodec.toIntegers(data), ColumnCodec.intValue(encoding, ColumnCodec.SRC_SIZE));
+      case "Delta":
+        return ColumnCodec.decodeDelta(
+            ColumnCodec.toIntegers(data), ColumnCodec.intValue(encoding, "origin"));
+      case "IntegerPacking":
+        return ColumnCodec.decodeIntegerPacking(
+            ColumnCodec.toIntegers(data),
+            ColumnCodec.intValue(encoding, "byteCount"),
+            (Boolean) ColumnCodec.required(encoding, "isUnsigned"),
+            ColumnCodec.intValue(encoding, ColumnCodec.SRC_SIZE));
+      case "StringArray":
+        return ColumnCodec.decodeStringArray(encoding, data);
+      default:
+        throw new IOException("Unsupported BinaryCIF encoding: " + kind);
+    }
+  }
+
+  private static Object decodeByteArray(final byte[] bytes, final int type) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    switch (type) {
+      case ColumnCodec.INT8:
+      case ColumnCodec.UINT8:
+        final int[] int8 = new int[bytes.length];
+        for (int i = 0; i < int8.length; i++) {
+          int8[i] = (type == ColumnCodec.INT8) ? buffer.get() : (buffer.get() & 0xff);
+        }
+        return int8;
+      case ColumnCodec.INT16:
+      case ColumnCodec.UINT16:
+        final int[] int16 = new int[bytes.length / 2];
+        for (int i = 0; i < int16.length; i++) {
+          int16[i] = (type == ColumnCodec.INT16) ? buffer.getShort() : (buffer.getShort() & 0xffff);
+        }
+        return int16;
+      case ColumnCodec.INT32:
+      case ColumnCodec.UINT32:
+        final int[] int32 = new int[bytes.length / 4];
+        buffer.asIntBuffer().get(int32);
+        return int32;
+      case ColumnCodec.FLOAT32:
+        final double[] float32 = new double[bytes.length / 4];
+        for (int i = 0; i < float32.length; i++) {
+          float32[i] = buffer.getFloat();
+        }
+        return float32;
+      case ColumnCodec.FLOAT64:
+        final double[] float64 = new double[bytes.length / 8];
+        buffer.asDoubleBuffer().get(float64);
+        return float64;
+      default:
+        throw new IOException("Unsupported BinaryCIF data type: " + type);
+    }
+  }
+
+  private static double[] decodeFixedPoint(final int[] data, final double factor) {
+    final double[] result = new double[data.length];
+    for (int i = 0; i < data.length; i++) {
+      result[i] = data[i] / factor;
+    }
+    return result;
+  }
+
+  private static double[] decodeIntervalQuantization(
+      final int[] data, final double min, final double max, final int numSteps) {
+    final double delta = (max - min) / (numSteps - 1);
+    final double[] result = new double[data.length];
+    for (int i = 0; i < data.length; i++) {
+      result[i] = min + (delta * data[i]);
+    }
+    return result;
+  }
+
+  private static int[] decodeRunLength(final int[] data, final int srcSize) {
+    final int[] result = new int[srcSize];
+    int k = 0;
+    for (int i = 0; (i + 1) < data.length; i += 2) {
+      for (int j = 0; j < data[i + 1]; j++) {
+        result[k] = data[i];
+        k++;
+      }
+    }
+    return result;
+  }
+
+  private static int[] decodeDelta(final int[] data, final int origin) {
+    final int[] result = new int[data.length];
+    int value = origin;
+    for (int i = 0; i < data.length; i++) {
+      value += data[i];
+      result[i] = value;
+    }
+    return result;
+  }
+
+  private static int[] decodeIntegerPacking(
+      final int[] data, final int byteCount, final boolean isUnsigned, final int srcSize) {
+    final int upperLimit = ColumnCodec.upperLimit(byteCount, isUnsigned);
+    final int lowerLimit = isUnsigned ? upperLimit : (-upperLimit - 1);
+    final int[] result = new int[srcSize];
+    int j = 0;
+    for (int i = 0; i < srcSize; i++) {
+      int value = 0;
+      int t = data[j];
+      while ((t == upperLimit) || (t == lowerLimit)) {
+        value += t;
+        j++;
+        t = data[j];
+      }
+      value += t;
+      j++;
+      result[i] = value;
+    }
+    return result;
+  }
+
+  private static String[] decodeStringArray(final Map<?, ?> encoding, final Object data)
+      throws IOException {
+    final String stringData = (String) ColumnCodec.required(encoding, "stringData");
+    final Map<String, Object> encodedOffsets = new HashMap<>();
+    encodedOffsets.put(ColumnCodec.DATA, ColumnCodec.required(encoding, "offsets"));
+    encodedOffsets.put(ColumnCodec.ENCODING, ColumnCodec.required(encoding, "offsetEncoding"));
+    final Map<String, Object> encodedIndices = new HashMap<>();
+    encodedIndices.put(ColumnCodec.DATA, data);
+    encodedIndices.put(ColumnCodec.ENCODING, ColumnCodec.required(encoding, "dataEncoding"));
+
+    final int[] offsets = ColumnCodec.toIntegers(ColumnCodec.decodeData(encodedOffsets));
+    final int[] indices = ColumnCodec.toIntegers(ColumnCodec.decodeData(encodedIndices));
+
+    final String[] strings = new String[Math.max(offsets.length - 1, 0)];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = stringData.substring(offsets[i], offsets[i + 1]);
+    }
+    final String[] result = new String[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      result[i] = (indices[i] < 0) ? null : strings[indices[i]];
+    }
+    return result;
+  }
+
+  private static int upperLimit(final int byteCount, final boolean isUnsigned) {
+    if (byteCount == 1) {
+      return isUnsigned ? 0xff : Byte.MAX_VALUE;
+    }
+    return isUnsigned ? 0xffff : Short.MAX_VALUE;
+  }
+
+  private static Map<String, Object> encoding(final String kind) {
+    final Map<String, Object> encoding = new LinkedHashMap<>();
+    encoding.put(ColumnCodec.KIND, kind);
+    return encoding;
+  }
+
+  private static EncodedData encodeIntegers(final int[] values) {
+    final ByteBuffer buffer =
+        ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asIntBuffer().put(values);
+    final Map<String, Object> byteArray = ColumnCodec.encoding("ByteArray");
+    byteArray.put("type", ColumnCodec.INT32);
+    EncodedData best = new EncodedData(Collections.singletonList(byteArray), buffer.array());
+
+    for (final boolean useDelta : new boolean[] {false, true}) {
+      for (final boolean useRunLength : new boolean[] {false, true}) {
+        final List<Map<String, Object>> encodings = new ArrayList<>();
+        int[] data = values;
+        if (useDelta) {
+          final Map<String, Object> delta = ColumnCodec.encoding("Delta");
+          delta.put("origin", (data.length == 0) ? 0 : data[0]);
+          delta.put(ColumnCodec.SRC_TYPE, ColumnCodec.INT32);
+          encodings.add(delta);
+          data = ColumnCodec.encodeDelta(data);
+        }
+        if (useRunLength) {
+          final Map<String, Object> runLength = ColumnCodec.encoding("RunLength");
+          runLength.put(ColumnCodec.SRC_TYPE, ColumnCodec.INT32);
+          runLength.put(ColumnCodec.SRC_SIZE, data.length);
+          encodings.add(runLength);
+          data = ColumnCodec.encodeRunLength(data);
+        }
+
+        final EncodedData candidate = ColumnCodec.encodeIntegerPacking(encodings, data);
+        if ((candidate != null) && (candidate.data.length < best.data.length)) {
+          best = candidate;
+        }
+      }
+    }
+    return best;
+  }
+
+  private static int[] encodeDelta(final int[] values) {
+    final int[] result = new int[values.length];
+    for (int i = 1; i < values.length; i++) {
+      result[i] = values[i] - values[i - 1];
+    }
+    return result;
+  }
+
+  private static int[] encodeRunLength(final int[] values) {
+    final List<Integer> pairs = new ArrayList<>();
+    int i = 0;
+    while (i < values.length) {
+      int j = i + 1;
+      while ((j < values.length) && (values[j] == values[i])) {
+        j++;
+      }
+      pairs.add(values[i]);
+      pairs.add(j - i);
+      i = j;
+    }
+    return pairs.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  // returns null if packing would not be shorter than plain 32-bit integers
+  @Nullable
+  private static EncodedData encodeIntegerPacking(
+      final List<Map<String, Object>> encodings, final int[] values) {
+    boolean isUnsigned = true;
+    for (final int value : values) {
+      isUnsigned &= value >= 0;
+    }
+
+    final long size8 = ColumnCodec.packedSize(values, 1, isUnsigned);
+    final long size16 = ColumnCodec.packedSize(values, 2, isUnsigned);
+    final int byteCount = (size8 <= (2L * size16)) ? 1 : 2;
+    final long byteSize = (byteCount == 1) ? size8 : (2L * size16);
+    if (byteSize >= (4L * values.length)) {
+      return null;
+    }
+
+    final int upperLimit = ColumnCodec.upperLimit(byteCount, isUnsigned);
+    final int lowerLimit = -upperLimit - 1;
+    final ByteBuffer buffer = ByteBuffer.allocate((int) byteSize).order(ByteOrder.LITTLE_ENDIAN);
+    for (int value : values) {
+      if (value >= 0) {
+        while (value >= upperLimit) {
+          ColumnCodec.put(buffer, byteCount, upperLimit);
+          value -= upperLimit;
+        }
+      } else {
+        while (value <= lowerLimit) {
+          ColumnCodec.put(buffer, byteCount, lowerLimit);
+          value -= lowerLimit;
+        }
+      }
+      ColumnCodec.put(buffer, byteCount, value);
+    }
+
+    final Map<String, Object> integerPacking = ColumnCodec.encoding("IntegerPacking");
+    integerPacking.put("byteCount", byteCount);
+    integerPacking.put("isUnsigned", isUnsigned);
+    integerPacking.put(ColumnCodec.SRC_SIZE, values.length);
+    final Map<String, Object> byteArray = ColumnCodec.encoding("ByteArray");
+    if (byteCount == 1) {
+      byteArray.put("type", isUnsigned ? ColumnCodec.UINT8 : ColumnCodec.INT8);
+    } else {
+      byteArray.put("type", isUnsigned ? ColumnCodec.UINT16 : ColumnCodec.INT16);
+    }
+
+    final List<Map<String, Object>> allEncodings = new ArrayList<>(encodings);
+    allEncodings.add(integerPacking);
+    allEncodings.add(byteArray);
+    return new EncodedData(allEncodings, buffer.array());
+  }
+
+  private static long packedSize(
+      final int[] values, final int byteCount, final boolean isUnsigned) {
+    final int upperLimit = ColumnCodec.upperLimit(byteCount, isUnsigned);
+    final int lowerLimit = -upperLimit - 1;
+    long size = 0L;
+    for (final int value : values) {
+      size += (value >= 0) ? ((value / upperLimit) + 1) : ((value / lowerLimit) + 1);
+    }
+    return size;
+  }
+
+  private static void put(final ByteBuffer buffer, final int byteCount, final int value) {
+    if (byteCount == 1) {
+      buffer.put((byte) value);
+    } else {
+      buffer.putShort((short) value);
+    }
+  }
+
+  private static EncodedData encodeDoubles(final double[] values) {
+    for (int digits = 0; digits <= ColumnCodec.MAX_FIXED_POINT_DIGITS; digits++) {
+      final double factor = Math.pow(10.0, digits);
+      final int[] integers = ColumnCodec.toFixedPoint(values, factor);
+      if (integers != null) {
+        final Map<String, Object> fixedPoint = ColumnCodec.encoding("FixedPoint");
+        fixedPoint.put("factor", factor);
+        fixedPoint.put(ColumnCodec.SRC_TYPE, ColumnCodec.FLOAT64);
+
+        final EncodedData encodedIntegers = ColumnCodec.encodeIntegers(integers);
+        final List<Map<String, Object>> encodings = new ArrayList<>();
+        encodings.add(fixedPoint);
+        encodings.addAll(encodedIntegers.encodings);
+        return new EncodedData(encodings, encodedIntegers.data);
+      }
+    }
+
+    final ByteBuffer buffer =
+        ByteBuffer.allocate(values.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asDoubleBuffer().put(values);
+    final Map<String, Object> byteArray = ColumnCodec.encoding("ByteArray");
+    byteArray.put("type", ColumnCodec.FLOAT64);
+    return new EncodedData(Collections.singletonList(byteArray), buffer.array());
+  }
+
+  // returns null if any value would change after conversion to fixed point and back
+  @Nullable
+  private static int[] toFixedPoint(final double[] values, final double factor) {
+    final int[] result = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      final double scaled = values[i] * factor;
+      if (!(Math.abs(scaled) < Integer.MAX_VALUE)) {
+        return null;
+      }
+      result[i] = (int) Math.round(scaled);
+      if ((result[i] / factor) != values[i]) {
+        return null;
+      }
+    }
+    return result;
+  }
+
+  private static EncodedData encodeStrings(final String[] values) {
+    final Map<String, Integer> dictionary = new HashMap<>();
+    final StringBuilder stringData = new StringBuilder();
+    final List<Integer> offsets = new ArrayList<>();
+    offsets.add(0);
+
+    final int[] indices = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      final String value = values[i];
+      if (value == null) {
+        indices[i] = -1;
+        continue;
+      }
+      indices[i] =
+          dictionary.computeIfAbsent(
+              value,
+              k -> {
+                stringData.append(k);
+                offsets.add(stringData.length());
+                return offsets.size() - 2;
+              });
+    }
+
+    final EncodedData encodedIndices = ColumnCodec.encodeIntegers(indices);
+    final EncodedData encodedOffsets =
+        ColumnCodec.encodeIntegers(offsets.stream().mapToInt(Integer::intValue).toArray());
+    final Map<String, Object> stringArray = ColumnCodec.encoding("StringArray");
+    stringArray.put("dataEncoding", encodedIndices.encodings);
+    stringArray.put("stringData", stringData.toString());
+    stringArray.put("offsetEncoding", encodedOffsets.encodings);
+    stringArray.put("offsets", encodedOffsets.data);
+    return new EncodedData(Collections.singletonList(stringArray), encodedIndices.data);
+  }
+
+  /** Encoded values together with the list of encodings applied to them, in order. */
+  private static final class EncodedData {
+    private final List<Map<String, Object>> encodings;
+    private final byte[] data;
+
+    private EncodedData(final List<Map<String, Object>> encodings, final byte[] data) {
+      super();
+      this.encodings = encodings;
+      this.data = data;
+    }
+
+    private Map<String, Object> toMap() {
+      final Map<String, Object> map = new LinkedHashMap<>();
+      map.put(ColumnCodec.ENCODING, encodings);
+      map.put(ColumnCodec.DATA, data);
+      return map;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package pl.poznan.put.bcif;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal MessagePack codec, sufficient for BinaryCIF containers. It supports nil, booleans,
+ * integers, floating point numbers, strings, binary data, arrays and maps. Decoded integers are
+ * always {@link Long}, floating point numbers are {@link Double}, arrays are {@link List} and maps
+ * are {@link Map} with preserved order of entries.
+ */
+public final class MessagePack {
+  private MessagePack() {
+    super();
+  }
+
+  /**
+   * Serializes a value to MessagePack.
+   *
+   * @param value A value: null, {@link Boolean}, {@link Number}, {@link String}, byte array, {@link
+   *     List} or {@link Map} of any of these.
+   * @return Serialized data.
+   */
+  public static byte[] encode(@Nullable final Object value) {
+    try (final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream stream = new DataOutputStream(bytes)) {
+      MessagePack.write(stream, value);
+      stream.flush();
+      return bytes.toByteArray();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Failed to write to memory", e);
+    }
+  }
+
+  /**
+   * Deserializes a value from MessagePack.
+   *
+   * @param data Serialized data.
+   * @return The decoded value.
+   * @throws IOException When the data are malformed or use unsupported types.
+   */
+  @Nullable
+  public static Object decode(final byte[] data) throws IOException {
+    try {
+      return MessagePack.read(ByteBuffer.wrap(data));
+    } catch (final BufferUnderflowException e) {
+      throw new IOException("Unexpected end of MessagePack data", e);
+    }
+  }
+
+  private static void write(final DataOutputStream stream, @Nullable final Object value)
+      throws IOException {
+    if (value == null) {
+      stream.writeByte(0xc0);
+    } else if (value instanceof Boolean) {
+      stream.writeByte((Boolean) value ? 0xc3 : 0xc2);
+    } else if ((value instanceof Float) || (value instanceof Double)) {
+      stream.writeByte(0xcb);
+      stream.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof Number) {
+      MessagePack.writeInteger(stream, ((Number) value).longValue());
+    } else if (value instanceof String) {
+      final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+      MessagePack.writeHeader(stream, bytes.length, 0xa0, 32, 0xd9, 0xda, 0xdb);
+      stream.write(bytes);
+    } else if (value instanceof byte[]) {
+      final byte[] bytes = (byte[]) value;
+      MessagePack.writeHeader(stream, bytes.length, 0, 0, 0xc4, 0xc5, 0xc6);
+      stream.write(bytes);
+    } else if (value instanceof List) {
+      final List<?> list = (List<?>) value;
+      MessagePack.writeHeader(stream, list.size(), 0x90, 16, -1, 0xdc, 0xdd);
+      for (final Object element : list) {
+        MessagePack.write(stream, element);
+      }
+    } else if (value instanceof Map) {
+      final Map<?, ?> map = (Map<?, ?>) value;
+      MessagePack.writeHeader(stream, map.size(), 0x80, 16, -1, 0xde, 0xdf);
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        MessagePack.write(stream, entry.getKey());
+        MessagePack.write(stream, entry.getValue());
+      }
+    } else {
+      throw new IllegalArgumentException("Unsupported type: " + value.getClass());
+    }
+  }
+
+  // writes the shortest header: fixed (size below fixLimit), 8-bit, 16-bit or 32-bit size
+  private static void writeHeader(
+      final DataOutputStream stream,
+      final int size,
+      final int fixPrefix,
+      final int fixLimit,
+      final int prefix8,
+      final int prefix16,
+      final int prefix32)
+      throws IOException {
+    if (size < fixLimit) {
+      stream.writeByte(fixPrefix | size);
+    } else if ((prefix8 != -1) && (size <= 0xff)) {
+      stream.writeByte(prefix8);
+      stream.writeByte(size);
+    } else if (size <= 0xffff) {
+      stream.writeByte(prefix16);
+      stream.writeShort(size);
+    } else {
+      stream.writeByte(prefix32);
+      stream.writeInt(size);
+    }
+  }
+
+  private static void writeInteger(final DataOutputStream stream, final long value)
+      throws IOException {
+    if (value >= 0L) {
+      if (value < 0x80L) {
+        stream.writeByte((int) value);
+      } else if (value <= 0xffL) {
+        stream.writeByte(0xcc);
+        stream.writeByte((int) value);
+      } else if (value <= 0xffffL) {
+        stream.writeByte(0xcd);
+        stream.writeShort((int) value);
+      } else if (value <= 0xffffffffL) {
+        stream.writeByte(0xce);
+        stream.writeInt((int) value);
+      } else {
+        stream.writeByte(0xcf);
+        stream.writeLong(value);
+      }
+    } else if (value >= -32L) {
+      stream.writeByte((int) value);
+    } else if (value >= Byte.MIN_VALUE) {
+      stream.writeByte(0xd0);
+      stream.writeByte((int) value);
+    } else if (value >= Short.MIN_VALUE) {
+      stream.writeByte(0xd1);
+      stream.writeShort((int) value);
+    } else if (value >= Integer.MIN_VALUE) {
+      stream.writeByte(0xd2);
+      stream.writeInt((int) value);
+    } else {
+      stream.writeByte(0xd3);
+      stream.writeLong(value);
+    }
+  }
+
+  @Nullable
+  private static Object read(final ByteBuffer buffer) throws IOException {
+    final int type = buffer.get() & 0xff;
+
+    if (type <= 0x7f) {
+      return (long) type;
+    }
+    if (type >= 0xe0) {
+      return (long) (byte) type;
+    }
+    if ((type & 0xe0) == 0xa0) {
+      return MessagePack.readString(buffer, type & 0x1f);
+    }
+    if ((type & 0xf0) == 0x90) {
+      return MessagePack.readArray(buffer, type & 0x0f);
+    }
+    if ((type & 0xf0) == 0x80) {
+      return MessagePack.readMap(buffer, type & 0x0f);
+    }
+
+    switch (type) {
+      case 0xc0:
+        return null;
+      case 0xc2:
+        return false;
+      case 0xc3:
+        return true;
+      case 0xc4:
+        return MessagePack.readBinary(buffer, buffer.get() & 0xff);
+      case 0xc5:
+        return MessagePack.readBinary(buffer, buffer.getShort() & 0xffff);
+      case 0xc6:
+        return MessagePack.readBinary(buffer, MessagePack.readSize(buffer));
+      case 0xca:
+        return (double) buffer.getFloat();
+      case 0xcb:
+        return buffer.getDouble();
+      case 0xcc:
+        return (long) (buffer.get() & 0xff);
+      case 0xcd:
+        return (long) (buffer.getShort() & 0xffff);
+      case 0xce:
+        return buffer.getInt() & 0xffffffffL;
+      case 0xcf:
+      case 0xd3:
+        return buffer.getLong();
+      case 0xd0:
+        return (long) buffer.get();
+      case 0xd1:
+        return (long) buffer.getShort();
+      case 0xd2:
+        return (long) buffer.getInt();
+      case 0xd9:
+        return MessagePack.readString(buffer, buffer.get() & 0xff);
+      case 0xda:
+        return MessagePack.readString(buffer, buffer.getShort() & 0xffff);
+      case 0xdb:
+        return MessagePack.readString(buffer, MessagePack.readSize(buffer));
+      case 0xdc:
+        return MessagePack.readArray(buffer, buffer.getShort() & 0xffff);
+      case 0xdd:
+        return MessagePack.readArray(buffer, MessagePack.readSize(buffer));
+      case 0xde:
+        return MessagePack.readMap(buffer, buffer.getShort() & 0xffff);
+      case 0xdf:
+        return MessagePack.readMap(buffer, MessagePack.readSize(buffer));
+      default:
+        throw new IOException(String.format("Unsupported MessagePack type: 0x%02x", type));
+    }
+  }
+
+  private static int readSize(final ByteBuffer buffer) throws IOException {
+    final int size = buffer.getInt();
+    if (size < 0) {
+      throw new IOException("MessagePack object is too large: " + (size & 0xffffffffL));
+    }
+    return size;
+  }
+
+  private static String readString(final ByteBuffer buffer, final int length) {
+    return new String(MessagePack.readBinary(buffer, length), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBinary(final ByteBuffer buffer, final int length) {
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static List<Object> readArray(final ByteBuffer buffer, final int size)
+      throws IOException {
+    final List<Object> list = new ArrayList<>(Math.min(size, buffer.remaining()));
+    for (int i = 0; i < size; i++) {
+      list.add(MessagePack.read(buffer));
+    }
+    return list;
+  }
+
+  private static Map<Object, Object> readMap(final ByteBuffer buffer, final int size)
+      throws IOException {
+    final Map<Object, Object> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      final Object key = MessagePack.read(buffer);
+      map.put(key, MessagePack.read(buffer));
+    }
+    return map;
+  }
+}
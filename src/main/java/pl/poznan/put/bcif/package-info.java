@@ -0,0 +1,2 @@
+/** Contains classes to read and write BinaryCIF, a column-oriented binary encoding of mmCIF. */
+package pl.poznan.put.bcif;
@@ -24,7 +24,7 @@ public abstract class AngleSample {
   /** @return A mean angular value of the sample. */
   @Value.Lazy
   public Angle meanDirection() {
-    return um1().meanDirection();
+    return ImmutableAngle.of(statistics().meanDirection());
   }
 
   /**
@@ -33,13 +33,13 @@ public abstract class AngleSample {
    */
   @Value.Lazy
   public double meanResultantLength() {
-    return um1().meanResultantLength();
+    return statistics().meanResultantLength();
   }
 
   /** @return A measure of variance of the data on the circle, taking values in range [0; 1]. */
   @Value.Lazy
   public double circularVariance() {
-    return 1.0 - meanResultantLength();
+    return statistics().circularVariance();
   }
 
   /**
@@ -47,7 +47,7 @@ public abstract class AngleSample {
    */
   @Value.Lazy
   public double circularStandardDeviation() {
-    return FastMath.sqrt(-2.0 * FastMath.log(meanResultantLength()));
+    return statistics().circularStandardDeviation();
   }
 
   /**
@@ -56,25 +56,19 @@ public abstract class AngleSample {
    */
   @Value.Lazy
   public double circularDispersion() {
-    return (1.0 - cm2().meanResultantLength()) / (2.0 * FastMath.pow(meanResultantLength(), 2));
+    return statistics().circularDispersion();
   }
 
   /** @return Another measure of variance of the data. */
   @Value.Lazy
   public double skewness() {
-    return (cm2().meanResultantLength()
-            * FastMath.sin(cm2().meanDirection().subtract(meanDirection().multiply(2.0)).radians()))
-        / FastMath.sqrt(circularVariance());
+    return statistics().skewness();
   }
 
   /** @return Another measure of variance of the data. */
   @Value.Lazy
   public double kurtosis() {
-    return ((cm2().meanResultantLength()
-                * FastMath.cos(
-                    um2().meanDirection().subtract(meanDirection().multiply(2.0)).radians()))
-            - FastMath.pow(meanResultantLength(), 4))
-        / FastMath.pow(circularVariance(), 2);
+    return statistics().kurtosis();
   }
 
   /**
@@ -172,18 +166,8 @@ public abstract class AngleSample {
   }
 
   @Value.Lazy
-  protected TrigonometricMoment um1() {
-    return TrigonometricMoment.computeUncentered(data(), 1);
-  }
-
-  @Value.Lazy
-  protected TrigonometricMoment cm2() {
-    return TrigonometricMoment.computeCentered(data(), 2, meanDirection());
-  }
-
-  @Value.Lazy
-  protected TrigonometricMoment um2() {
-    return TrigonometricMoment.computeUncentered(data(), 2);
+  protected CircularStatistics statistics() {
+    return CircularStatistics.of(data().stream().mapToDouble(Angle::radians).toArray());
   }
 
   private double computeMeanDeviation(final Angle alpha) {
@@ -0,0 +1,149 @@
+package pl.poznan.put.circular.samples;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.math3.util.FastMath;
+import org.apache.commons.math3.util.MathUtils;
+import pl.poznan.put.circular.Angle;
+
+/**
+ * Circular statistics of a sample of angular values given in radians. The first and second
+ * uncentered trigonometric moments are accumulated in a single pass over the data and all
+ * statistics are derived from them, e.g. the second moment centered on the mean direction is the
+ * uncentered one rotated by twice the mean direction. The values are the same as in {@link
+ * AngleSample}, which delegates to this class.
+ */
+public final class CircularStatistics {
+  private final double cos1;
+  private final double sin1;
+  private final double cos2;
+  private final double sin2;
+
+  private CircularStatistics(
+      final double cos1, final double sin1, final double cos2, final double sin2) {
+    super();
+    this.cos1 = cos1;
+    this.sin1 = sin1;
+    this.cos2 = cos2;
+    this.sin2 = sin2;
+  }
+
+  /**
+   * Computes statistics of a sample.
+   *
+   * @param radians A non-empty array of angular values in radians.
+   * @return An object with statistics of the sample.
+   */
+  public static CircularStatistics of(final double[] radians) {
+    Validate.isTrue(radians.length > 0, "The sample must not be empty"); // NON-NLS
+
+    double c1 = 0.0;
+    double s1 = 0.0;
+    double c2 = 0.0;
+    double s2 = 0.0;
+
+    for (final double value : radians) {
+      final double cos = FastMath.cos(value);
+      final double sin = FastMath.sin(value);
+      c1 += cos;
+      s1 += sin;
+      c2 += (cos * cos) - (sin * sin);
+      s2 += 2.0 * sin * cos;
+    }
+
+    final int n = radians.length;
+    return new CircularStatistics(c1 / n, s1 / n, c2 / n, s2 / n);
+  }
+
+  /**
+   * Computes only the mean direction of a sample, without creating any objects.
+   *
+   * @param radians A non-empty array of angular values in radians.
+   * @return The mean direction in radians.
+   */
+  public static double meanDirection(final double[] radians) {
+    Validate.isTrue(radians.length > 0, "The sample must not be empty"); // NON-NLS
+
+    double c = 0.0;
+    double s = 0.0;
+    for (final double value : radians) {
+      c += FastMath.cos(value);
+      s += FastMath.sin(value);
+    }
+    return FastMath.atan2(s / radians.length, c / radians.length);
+  }
+
+  // the same range as in Angle, which is required by Angle.subtractByAbsolutes()
+  private static double normalize(final double radians) {
+    double value = radians;
+    while (value <= -FastMath.PI) {
+      value += MathUtils.TWO_PI;
+    }
+    while (value > FastMath.PI) {
+      value -= MathUtils.TWO_PI;
+    }
+    return value;
+  }
+
+  /** @return A mean angular value of the sample in radians. */
+  public double meanDirection() {
+    return FastMath.atan2(sin1, cos1);
+  }
+
+  /**
+   * @return The length of the mean direction vector in range [0; 1]. The closer it is to 1, the
+   *     less diverse are the data in the sample.
+   */
+  public double meanResultantLength() {
+    return FastMath.sqrt((cos1 * cos1) + (sin1 * sin1));
+  }
+
+  /** @return A measure of variance of the data on the circle, taking values in range [0; 1]. */
+  public double circularVariance() {
+    return 1.0 - meanResultantLength();
+  }
+
+  /**
+   * @return A measure of variance of the data on the circle, taking values in range [0; &infin;].
+   */
+  public double circularStandardDeviation() {
+    return FastMath.sqrt(-2.0 * FastMath.log(meanResultantLength()));
+  }
+
+  /**
+   * @return Another measure of variance of the data depending on the first and second central
+   *     trigonometric moment.
+   */
+  public double circularDispersion() {
+    final double length = meanResultantLength();
+    return (1.0 - secondResultantLength()) / (2.0 * length * length);
+  }
+
+  /** @return Another measure of variance of the data. */
+  public double skewness() {
+    final double doubledMean = 2.0 * meanDirection();
+    // the second moment centered on the mean direction
+    final double cos = (cos2 * FastMath.cos(doubledMean)) + (sin2 * FastMath.sin(doubledMean));
+    final double sin = (sin2 * FastMath.cos(doubledMean)) - (cos2 * FastMath.sin(doubledMean));
+    final double difference =
+        Angle.subtractByAbsolutes(
+            FastMath.atan2(sin, cos), CircularStatistics.normalize(doubledMean));
+    return (secondResultantLength() * FastMath.sin(difference))
+        / FastMath.sqrt(circularVariance());
+  }
+
+  /** @return Another measure of variance of the data. */
+  public double kurtosis() {
+    final double difference =
+        Angle.subtractByAbsolutes(
+            FastMath.atan2(sin2, cos2), CircularStatistics.normalize(2.0 * meanDirection()));
+    final double length = meanResultantLength();
+    final double variance = circularVariance();
+    return ((secondResultantLength() * FastMath.cos(difference)) - FastMath.pow(length, 4))
+        / (variance * variance);
+  }
+
+  // the same for the centered and uncentered second moment
+  private double secondResultantLength() {
+    return FastMath.sqrt((cos2 * cos2) + (sin2 * sin2));
+  }
+}
@@ -41,8 +41,10 @@ public abstract class TrigonometricMoment {
     double c = 0.0;
     double s = 0.0;
 
+    // p is an integer, so there is no need to bring the difference to [-pi; pi)
+    final double shift = theta.radians();
     for (final Angle vector : data) {
-      final double radians = vector.orderedSubtract(theta).radians();
+      final double radians = vector.radians() - shift;
       c += FastMath.cos(p * radians);
       s += FastMath.sin(p * radians);
     }
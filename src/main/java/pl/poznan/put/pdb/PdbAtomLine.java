@@ -1,8 +1,6 @@
 package pl.poznan.put.pdb;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.math3.geometry.Vector;
-import org.apache.commons.math3.geometry.euclidean.threed.Euclidean3D;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.AtomImpl;
@@ -275,9 +273,11 @@ public abstract class PdbAtomLine implements Serializable, ChainNumberICode {
    * @return Euclidean distance in 3D between two atoms.
    */
   public final double distanceTo(final PdbAtomLine other) {
-    final Vector<Euclidean3D> v1 = new Vector3D(x(), y(), z());
-    final Vector<Euclidean3D> v2 = new Vector3D(other.x(), other.y(), other.z());
-    return v1.distance(v2);
+    // the same arithmetic as Vector3D.distance(), without allocating two vectors
+    final double dx = other.x() - x();
+    final double dy = other.y() - y();
+    final double dz = other.z() - z();
+    return Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
   }
 
   /**
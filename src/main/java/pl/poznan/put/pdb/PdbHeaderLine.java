@@ -26,7 +26,9 @@ public abstract class PdbHeaderLine implements Serializable {
   // @formatter:on
   private static final String FORMAT = "HEADER    %-40s%9s   %4s              "; // NON-NLS
   private static final String RECORD_NAME = "HEADER"; // NON-NLS
-  private static final DateFormat DATE_FORMAT = new SimpleDateFormat("dd-MMM-yy", Locale.US);
+  // SimpleDateFormat is not thread-safe, so each thread gets its own instance
+  private static final ThreadLocal<DateFormat> DATE_FORMAT =
+      ThreadLocal.withInitial(() -> new SimpleDateFormat("dd-MMM-yy", Locale.US));
 
   /**
    * Parses text with HEADER line in PDB format.
@@ -47,7 +49,8 @@ public abstract class PdbHeaderLine implements Serializable {
 
     try {
       final String classification = line.substring(10, 50).trim();
-      final Date depositionDate = PdbHeaderLine.DATE_FORMAT.parse(line.substring(50, 59).trim());
+      final Date depositionDate =
+          PdbHeaderLine.DATE_FORMAT.get().parse(line.substring(50, 59).trim());
       final String idCode = line.substring(62, 66).trim();
       return ImmutablePdbHeaderLine.of(classification, depositionDate, idCode);
     } catch (final ParseException e) {
@@ -78,7 +81,7 @@ public abstract class PdbHeaderLine implements Serializable {
         Locale.US,
         PdbHeaderLine.FORMAT,
         classification(),
-        PdbHeaderLine.DATE_FORMAT.format(depositionDate()).toUpperCase(Locale.US),
+        PdbHeaderLine.DATE_FORMAT.get().format(depositionDate()).toUpperCase(Locale.US),
         idCode());
   }
 }
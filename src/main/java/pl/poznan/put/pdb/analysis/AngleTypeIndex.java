@@ -0,0 +1,46 @@
+package pl.poznan.put.pdb.analysis;
+
+import pl.poznan.put.torsion.TorsionAngleType;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps torsion angle types to their positions in a list. Angle types are mostly shared constants,
+ * so they are first looked up by identity, which avoids computing deep hash codes. Equal, but not
+ * identical instances are found as well. The index is not modified after creation, so it may be
+ * used by many threads.
+ */
+final class AngleTypeIndex {
+  private final Map<TorsionAngleType, Integer> byIdentity = new IdentityHashMap<>();
+  private final Map<TorsionAngleType, Integer> byEquality = new HashMap<>();
+
+  /**
+   * Creates an index of the list. For repeated angle types, the first position is kept.
+   *
+   * @param angleTypes The list of angle types.
+   */
+  AngleTypeIndex(final List<TorsionAngleType> angleTypes) {
+    super();
+    for (int i = 0; i < angleTypes.size(); i++) {
+      byEquality.putIfAbsent(angleTypes.get(i), i);
+    }
+    for (int i = 0; i < angleTypes.size(); i++) {
+      byIdentity.putIfAbsent(angleTypes.get(i), byEquality.get(angleTypes.get(i)));
+    }
+  }
+
+  /**
+   * @param angleType The angle type to look for.
+   * @return The first position of the angle type in the list or -1 if it is not there.
+   */
+  int indexOf(final TorsionAngleType angleType) {
+    final Integer index = byIdentity.get(angleType);
+    if (index != null) {
+      return index;
+    }
+    return byEquality.getOrDefault(angleType, -1);
+  }
+}
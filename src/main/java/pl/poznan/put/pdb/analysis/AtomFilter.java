@@ -0,0 +1,150 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.lang3.StringUtils;
+import pl.poznan.put.atom.AtomName;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A filter of atoms based on {@link ParseOptions}. It works on raw values read from the input, so
+ * that rejected atoms never become {@link pl.poznan.put.pdb.PdbAtomLine} instances. The filter
+ * remembers the first alternate location of the current residue, so a single instance must not be
+ * used for more than one model at the same time.
+ */
+final class AtomFilter {
+  private static final Set<String> WATER_NAMES =
+      Stream.of("HOH", "WAT", "DOD", "H2O", "TIP", "TIP3", "SOL") // NON-NLS
+          .collect(Collectors.toSet());
+
+  private final ParseOptions options;
+  private final boolean acceptsAll;
+  private final boolean filtersResidueNames;
+
+  @Nullable private String alternateLocationResidue;
+  @Nullable private String firstAlternateLocation;
+
+  AtomFilter(final ParseOptions options) {
+    super();
+    this.options = options;
+    acceptsAll = options.acceptsAll();
+    filtersResidueNames =
+        options.excludeWater()
+            || !options.allowedResidueNames().isEmpty()
+            || !options.deniedResidueNames().isEmpty();
+  }
+
+  private static boolean isHydrogen(final String elementSymbol, final String atomName) {
+    if (StringUtils.isNotBlank(elementSymbol)) {
+      final String element = elementSymbol.trim();
+      return "H".equalsIgnoreCase(element) || "D".equalsIgnoreCase(element);
+    }
+
+    final AtomName name = AtomName.fromString(atomName);
+    if (name != AtomName.UNKNOWN) {
+      return !name.isHeavy();
+    }
+    // hydrogen names may be prefixed with a digit e.g. 1H5'
+    return StringUtils.stripStart(atomName, "0123456789").startsWith("H");
+  }
+
+  /**
+   * Checks an ATOM or HETATM line in PDB format. Lines too short to hold the filtered columns are
+   * accepted, so that the parser can report them as usual.
+   *
+   * @param line An ATOM or HETATM line.
+   * @return True if the atom should be parsed.
+   */
+  boolean acceptsPdbLine(final String line) {
+    if (acceptsAll || (line.length() < 27)) {
+      return true;
+    }
+    if (options.excludeHetatm() && line.startsWith("HETATM")) {
+      return false;
+    }
+    if (!options.chainIdentifiers().isEmpty()
+        && !options.chainIdentifiers().contains(line.substring(21, 22))) {
+      return false;
+    }
+    if (filtersResidueNames && !acceptsResidueName(line.substring(17, 20).trim())) {
+      return false;
+    }
+    if (options.excludeHydrogens()) {
+      final String elementSymbol = (line.length() >= 78) ? line.substring(76, 78) : "";
+      if (AtomFilter.isHydrogen(elementSymbol, line.substring(12, 16).trim())) {
+        return false;
+      }
+    }
+    // the residue key is created only for atoms with an alternate location
+    return !options.firstAlternateLocationOnly()
+        || (line.charAt(16) == ' ')
+        || acceptsAlternateLocation(line.substring(16, 17), line.substring(21, 27));
+  }
+
+  /**
+   * Checks an atom given by its raw values.
+   *
+   * @param isHetatm True if the atom comes from a HETATM record.
+   * @param chainIdentifier The chain identifier.
+   * @param residueName The residue name.
+   * @param residueNumber The residue number.
+   * @param insertionCode The insertion code.
+   * @param alternateLocation The alternate location, blank if there is none.
+   * @param elementSymbol The element symbol, blank if unknown.
+   * @param atomName The atom name.
+   * @return True if the atom should be parsed.
+   */
+  boolean accepts(
+      final boolean isHetatm,
+      final String chainIdentifier,
+      final String residueName,
+      final String residueNumber,
+      final String insertionCode,
+      final String alternateLocation,
+      final String elementSymbol,
+      final String atomName) {
+    if (acceptsAll) {
+      return true;
+    }
+    if (options.excludeHetatm() && isHetatm) {
+      return false;
+    }
+    if (!options.chainIdentifiers().isEmpty()
+        && !options.chainIdentifiers().contains(chainIdentifier)) {
+      return false;
+    }
+    if (filtersResidueNames && !acceptsResidueName(residueName)) {
+      return false;
+    }
+    if (options.excludeHydrogens() && AtomFilter.isHydrogen(elementSymbol, atomName)) {
+      return false;
+    }
+    return !options.firstAlternateLocationOnly()
+        || StringUtils.isBlank(alternateLocation)
+        || acceptsAlternateLocation(
+            alternateLocation, String.join(" ", chainIdentifier, residueNumber, insertionCode));
+  }
+
+  private boolean acceptsResidueName(final String residueName) {
+    if (options.excludeWater() && AtomFilter.WATER_NAMES.contains(residueName)) {
+      return false;
+    }
+    if (!options.allowedResidueNames().isEmpty()
+        && !options.allowedResidueNames().contains(residueName)) {
+      return false;
+    }
+    return !options.deniedResidueNames().contains(residueName);
+  }
+
+  private boolean acceptsAlternateLocation(
+      final String alternateLocation, final String residueKey) {
+    if (!Objects.equals(residueKey, alternateLocationResidue)) {
+      alternateLocationResidue = residueKey;
+      firstAlternateLocation = alternateLocation;
+    }
+    return Objects.equals(alternateLocation, firstAlternateLocation);
+  }
+}
@@ -0,0 +1,54 @@
+package pl.poznan.put.pdb.analysis;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/** Items of the mmCIF _atom_site category which are needed to create atoms. */
+enum AtomSiteColumn {
+  GROUP_PDB("group_PDB"),
+  ID("id"),
+  TYPE_SYMBOL("type_symbol"),
+  LABEL_ATOM_ID("label_atom_id"),
+  LABEL_ALT_ID("label_alt_id"),
+  LABEL_COMP_ID("label_comp_id"),
+  LABEL_ASYM_ID("label_asym_id"),
+  LABEL_SEQ_ID("label_seq_id"),
+  PDBX_PDB_INS_CODE("pdbx_PDB_ins_code"),
+  CARTN_X("Cartn_x"),
+  CARTN_Y("Cartn_y"),
+  CARTN_Z("Cartn_z"),
+  OCCUPANCY("occupancy"),
+  B_ISO_OR_EQUIV("B_iso_or_equiv"),
+  PDBX_FORMAL_CHARGE("pdbx_formal_charge"),
+  AUTH_SEQ_ID("auth_seq_id"),
+  AUTH_COMP_ID("auth_comp_id"),
+  AUTH_ASYM_ID("auth_asym_id"),
+  AUTH_ATOM_ID("auth_atom_id"),
+  PDBX_PDB_MODEL_NUM("pdbx_PDB_model_num");
+
+  private static final Map<String, AtomSiteColumn> BY_ITEM =
+      Arrays.stream(AtomSiteColumn.values())
+          .collect(
+              Collectors.toMap(
+                  column -> column.item.toLowerCase(Locale.US), Function.identity()));
+
+  private final String item;
+
+  AtomSiteColumn(final String item) {
+    this.item = item;
+  }
+
+  /**
+   * Finds a column by its mmCIF item name (case-insensitive, without the category prefix).
+   *
+   * @param item The item name e.g. Cartn_x.
+   * @return The matching column or empty if this item is not used.
+   */
+  static Optional<AtomSiteColumn> fromItem(final String item) {
+    return Optional.ofNullable(AtomSiteColumn.BY_ITEM.get(item.toLowerCase(Locale.US)));
+  }
+}
@@ -0,0 +1,75 @@
+package pl.poznan.put.pdb.analysis;
+
+import pl.poznan.put.bcif.BinaryCifBlock;
+import pl.poznan.put.bcif.BinaryCifCategory;
+import pl.poznan.put.bcif.BinaryCifColumn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A reader of decoded BinaryCIF data, which passes it to {@link CifConsumer} the same way as {@link
+ * CifReader} does for text mmCIF. Only the first data block is read.
+ */
+final class BinaryCifReader {
+  private static final String ATOM_SITE = "_atom_site"; // NON-NLS
+
+  private BinaryCifReader() {
+    super();
+  }
+
+  /**
+   * Passes content of BinaryCIF data blocks to the consumer.
+   *
+   * @param blocks Decoded BinaryCIF data blocks.
+   * @param consumer The consumer to receive atoms and other records.
+   */
+  static void read(final List<BinaryCifBlock> blocks, final CifConsumer consumer) {
+    consumer.documentStart();
+    if (!blocks.isEmpty()) {
+      for (final BinaryCifCategory category : blocks.get(0).categories()) {
+        final String name = category.name().toLowerCase(Locale.US);
+        if (Objects.equals(BinaryCifReader.ATOM_SITE, name)) {
+          BinaryCifReader.readAtomSite(category, consumer);
+        } else {
+          BinaryCifReader.readCategory(name, category, consumer);
+        }
+      }
+    }
+    consumer.documentEnd();
+  }
+
+  private static void readAtomSite(final BinaryCifCategory category, final CifConsumer consumer) {
+    final BinaryCifColumn[] columns = new BinaryCifColumn[AtomSiteColumn.values().length];
+    for (final BinaryCifColumn column : category.columns()) {
+      AtomSiteColumn.fromItem(column.name())
+          .ifPresent(atomSiteColumn -> columns[atomSiteColumn.ordinal()] = column);
+    }
+
+    // the same array is reused for all rows, as the consumer does not keep it
+    final String[] row = new String[columns.length];
+    for (int i = 0; i < category.rowCount(); i++) {
+      for (int j = 0; j < columns.length; j++) {
+        row[j] = (columns[j] == null) ? null : columns[j].getString(i);
+      }
+      consumer.newAtomSite(row);
+    }
+  }
+
+  private static void readCategory(
+      final String name, final BinaryCifCategory category, final CifConsumer consumer) {
+    final List<String> items =
+        category.columns().stream().map(BinaryCifColumn::name).collect(Collectors.toList());
+    final List<String> values = new ArrayList<>(items.size());
+    for (int i = 0; i < category.rowCount(); i++) {
+      values.clear();
+      for (final BinaryCifColumn column : category.columns()) {
+        values.add(column.getString(i));
+      }
+      consumer.newCategoryRow(name, items, values);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.lang3.StringUtils;
+import pl.poznan.put.bcif.BinaryCif;
+import pl.poznan.put.bcif.BinaryCifCategory;
+import pl.poznan.put.bcif.BinaryCifColumn;
+import pl.poznan.put.bcif.ImmutableBinaryCifBlock;
+import pl.poznan.put.bcif.ImmutableBinaryCifCategory;
+import pl.poznan.put.notation.LeontisWesthof;
+import pl.poznan.put.notation.Saenger;
+import pl.poznan.put.pdb.ExperimentalTechnique;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbHeaderLine;
+import pl.poznan.put.pdb.PdbModresLine;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+import pl.poznan.put.pdb.PdbRemark465Line;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
+import pl.poznan.put.structure.QuantifiedBasePair;
+
+import javax.annotation.Nullable;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * A writer of residue collections in BinaryCIF format. Atoms are always written in _atom_site. For
+ * a {@link PdbModel}, header data, modified residues and missing residues are written as well, and
+ * for a {@link CifModel} also base pairs, so that {@link CifParser#parseBinary(byte[])} restores
+ * the same model.
+ */
+final class BinaryCifWriter {
+  private BinaryCifWriter() {
+    super();
+  }
+
+  /**
+   * Encodes a residue collection in BinaryCIF.
+   *
+   * @param collection The collection to encode.
+   * @return BinaryCIF content.
+   */
+  static byte[] write(final ResidueCollection collection) {
+    final List<BinaryCifCategory> categories = new ArrayList<>();
+    String header = "";
+
+    if (collection instanceof PdbModel) {
+      final PdbModel model = (PdbModel) collection;
+      header = model.idCode();
+
+      categories.add(BinaryCifWriter.structKeywords(model.header()));
+      categories.add(BinaryCifWriter.databasePdbRev(model.header()));
+      categories.add(BinaryCifWriter.exptl(model.experimentalData().experimentalTechniques()));
+      if (!Double.isNaN(model.resolution().resolution())) {
+        categories.add(
+            BinaryCifWriter.category(
+                "_refine",
+                1,
+                BinaryCifColumn.ofDoubles(
+                    "ls_d_res_high", new double[] {model.resolution().resolution()}, null)));
+      }
+      categories.add(
+          BinaryCifWriter.category(
+              "_struct",
+              1,
+              BinaryCifColumn.ofStrings("title", new String[] {model.title()}, null)));
+      categories.add(BinaryCifWriter.atomSite(model.atoms(), model.modelNumber()));
+      categories.add(BinaryCifWriter.modifiedResidues(model.modifiedResidues()));
+      categories.add(BinaryCifWriter.missingResidues(model.missingResidues()));
+    } else {
+      final List<PdbAtomLine> atoms =
+          collection.residues().stream()
+              .flatMap(residue -> residue.atoms().stream())
+              .collect(Collectors.toList());
+      categories.add(BinaryCifWriter.atomSite(atoms, null));
+    }
+
+    if (collection instanceof CifModel) {
+      categories.add(BinaryCifWriter.basePairs((CifModel) collection));
+    }
+
+    return BinaryCif.write(
+        Collections.singletonList(
+            ImmutableBinaryCifBlock.of(
+                header,
+                categories.stream()
+                    .filter(category -> category.rowCount() > 0)
+                    .collect(Collectors.toList()))));
+  }
+
+  private static BinaryCifCategory category(
+      final String name, final int rowCount, final BinaryCifColumn... columns) {
+    return ImmutableBinaryCifCategory.of(name, rowCount, Arrays.asList(columns));
+  }
+
+  private static <T> BinaryCifColumn strings(
+      final String name, final List<T> rows, final Function<? super T, String> getter) {
+    return BinaryCifColumn.ofStrings(name, rows.stream().map(getter).toArray(String[]::new), null);
+  }
+
+  // blank values are written as . or ? depending on the given mask value
+  private static <T> BinaryCifColumn maskedStrings(
+      final String name,
+      final List<T> rows,
+      final Function<? super T, String> getter,
+      final byte maskValue) {
+    final String[] values = rows.stream().map(getter).toArray(String[]::new);
+    final byte[] mask = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      if (StringUtils.isBlank(values[i])) {
+        mask[i] = maskValue;
+        values[i] = null;
+      }
+    }
+    return BinaryCifColumn.ofStrings(name, values, mask);
+  }
+
+  private static <T> BinaryCifColumn integers(
+      final String name, final List<T> rows, final ToIntFunction<? super T> getter) {
+    return BinaryCifColumn.ofIntegers(name, rows.stream().mapToInt(getter).toArray(), null);
+  }
+
+  private static <T> BinaryCifColumn doubles(
+      final String name, final List<T> rows, final ToDoubleFunction<? super T> getter) {
+    return BinaryCifColumn.ofDoubles(name, rows.stream().mapToDouble(getter).toArray(), null);
+  }
+
+  private static BinaryCifCategory structKeywords(final PdbHeaderLine header) {
+    return BinaryCifWriter.category(
+        "_struct_keywords",
+        1,
+        BinaryCifColumn.ofStrings("entry_id", new String[] {header.idCode()}, null),
+        BinaryCifColumn.ofStrings("pdbx_keywords", new String[] {header.classification()}, null));
+  }
+
+  private static BinaryCifCategory databasePdbRev(final PdbHeaderLine header) {
+    final String date =
+        new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(header.depositionDate());
+    return BinaryCifWriter.category(
+        "_database_PDB_rev",
+        1,
+        BinaryCifColumn.ofStrings("date_original", new String[] {date}, null));
+  }
+
+  private static BinaryCifCategory exptl(final List<ExperimentalTechnique> techniques) {
+    final List<ExperimentalTechnique> known =
+        techniques.stream()
+            .filter(technique -> technique != ExperimentalTechnique.UNKNOWN)
+            .collect(Collectors.toList());
+    return BinaryCifWriter.category(
+        "_exptl",
+        known.size(),
+        BinaryCifWriter.strings("method", known, ExperimentalTechnique::getPdbName));
+  }
+
+  private static BinaryCifCategory atomSite(
+      final List<PdbAtomLine> atoms, @Nullable final Integer modelNumber) {
+    final List<BinaryCifColumn> columns = new ArrayList<>();
+    columns.add(BinaryCifWriter.strings("group_PDB", atoms, atom -> "ATOM"));
+    columns.add(BinaryCifWriter.integers("id", atoms, PdbAtomLine::serialNumber));
+    columns.add(BinaryCifWriter.strings("auth_atom_id", atoms, PdbAtomLine::atomName));
+    columns.add(
+        BinaryCifWriter.maskedStrings(
+            "label_alt_id",
+            atoms,
+            PdbAtomLine::alternateLocation,
+            BinaryCifColumn.NOT_SPECIFIED));
+    columns.add(BinaryCifWriter.strings("auth_comp_id", atoms, PdbAtomLine::residueName));
+    columns.add(BinaryCifWriter.strings("auth_asym_id", atoms, PdbAtomLine::chainIdentifier));
+    columns.add(BinaryCifWriter.integers("auth_seq_id", atoms, PdbAtomLine::residueNumber));
+    columns.add(
+        BinaryCifWriter.maskedStrings(
+            "pdbx_PDB_ins_code", atoms, PdbAtomLine::insertionCode, BinaryCifColumn.UNKNOWN));
+    columns.add(BinaryCifWriter.doubles("Cartn_x", atoms, PdbAtomLine::x));
+    columns.add(BinaryCifWriter.doubles("Cartn_y", atoms, PdbAtomLine::y));
+    columns.add(BinaryCifWriter.doubles("Cartn_z", atoms, PdbAtomLine::z));
+    columns.add(BinaryCifWriter.doubles("occupancy", atoms, PdbAtomLine::occupancy));
+    columns.add(BinaryCifWriter.doubles("B_iso_or_equiv", atoms, PdbAtomLine::temperatureFactor));
+    columns.add(BinaryCifWriter.strings("type_symbol", atoms, PdbAtomLine::elementSymbol));
+    columns.add(
+        BinaryCifWriter.maskedStrings(
+            "pdbx_formal_charge", atoms, PdbAtomLine::charge, BinaryCifColumn.UNKNOWN));
+    if (modelNumber != null) {
+      columns.add(BinaryCifWriter.integers("pdbx_PDB_model_num", atoms, atom -> modelNumber));
+    }
+    return ImmutableBinaryCifCategory.of("_atom_site", atoms.size(), columns);
+  }
+
+  private static BinaryCifCategory modifiedResidues(final List<PdbModresLine> modres) {
+    return BinaryCifWriter.category(
+        "_pdbx_struct_mod_residue",
+        modres.size(),
+        BinaryCifWriter.strings("auth_comp_id", modres, PdbModresLine::residueName),
+        BinaryCifWriter.strings("auth_asym_id", modres, PdbModresLine::chainIdentifier),
+        BinaryCifWriter.integers("auth_seq_id", modres, PdbModresLine::residueNumber),
+        BinaryCifWriter.maskedStrings(
+            "PDB_ins_code", modres, PdbModresLine::insertionCode, BinaryCifColumn.UNKNOWN),
+        BinaryCifWriter.strings("parent_comp_id", modres, PdbModresLine::standardResidueName),
+        BinaryCifWriter.strings("details", modres, PdbModresLine::comment));
+  }
+
+  private static BinaryCifCategory missingResidues(final List<PdbRemark465Line> missing) {
+    return BinaryCifWriter.category(
+        "_pdbx_unobs_or_zero_occ_residues",
+        missing.size(),
+        BinaryCifWriter.integers("PDB_model_num", missing, PdbRemark465Line::modelNumber),
+        BinaryCifWriter.strings("auth_comp_id", missing, PdbRemark465Line::residueName),
+        BinaryCifWriter.strings("auth_asym_id", missing, PdbRemark465Line::chainIdentifier),
+        BinaryCifWriter.integers("auth_seq_id", missing, PdbRemark465Line::residueNumber),
+        BinaryCifWriter.maskedStrings(
+            "PDB_ins_code", missing, PdbRemark465Line::insertionCode, BinaryCifColumn.UNKNOWN));
+  }
+
+  private static BinaryCifCategory basePairs(final CifModel model) {
+    final List<QuantifiedBasePair> basePairs = model.basePairs();
+    // the parser derives one-letter names from residue names, so the original names are written
+    final Map<PdbResidueIdentifier, String> residueNames = new HashMap<>();
+    for (final PdbResidue residue : model.residues()) {
+      residueNames.put(residue.identifier(), residue.modifiedResidueName());
+    }
+    final Function<PdbNamedResidueIdentifier, String> residueName =
+        identifier ->
+            residueNames.getOrDefault(
+                PdbResidueIdentifier.from(identifier),
+                String.valueOf(identifier.oneLetterName()));
+
+    final int[] saenger = new int[basePairs.size()];
+    final int[] leontisWesthof = new int[basePairs.size()];
+    final byte[] saengerMask = new byte[basePairs.size()];
+    final byte[] leontisWesthofMask = new byte[basePairs.size()];
+    for (int i = 0; i < basePairs.size(); i++) {
+      final QuantifiedBasePair basePair = basePairs.get(i);
+      if (basePair.saenger() == Saenger.UNKNOWN) {
+        saengerMask[i] = BinaryCifColumn.UNKNOWN;
+      } else {
+        saenger[i] = basePair.saenger().ordinal() + 1;
+      }
+      if (basePair.leontisWesthof() == LeontisWesthof.UNKNOWN) {
+        leontisWesthofMask[i] = BinaryCifColumn.UNKNOWN;
+      } else {
+        leontisWesthof[i] = basePair.leontisWesthof().toNumber();
+      }
+    }
+
+    return BinaryCifWriter.category(
+        "_ndb_struct_na_base_pair",
+        basePairs.size(),
+        BinaryCifWriter.strings(
+            "i_auth_asym_id", basePairs, bp -> bp.basePair().left().chainIdentifier()),
+        BinaryCifWriter.integers(
+            "i_auth_seq_id", basePairs, bp -> bp.basePair().left().residueNumber()),
+        BinaryCifWriter.maskedStrings(
+            "i_PDB_ins_code",
+            basePairs,
+            bp -> bp.basePair().left().insertionCode(),
+            BinaryCifColumn.UNKNOWN),
+        BinaryCifWriter.strings(
+            "i_label_comp_id", basePairs, bp -> residueName.apply(bp.basePair().left())),
+        BinaryCifWriter.strings(
+            "j_auth_asym_id", basePairs, bp -> bp.basePair().right().chainIdentifier()),
+        BinaryCifWriter.integers(
+            "j_auth_seq_id", basePairs, bp -> bp.basePair().right().residueNumber()),
+        BinaryCifWriter.maskedStrings(
+            "j_PDB_ins_code",
+            basePairs,
+            bp -> bp.basePair().right().insertionCode(),
+            BinaryCifColumn.UNKNOWN),
+        BinaryCifWriter.strings(
+            "j_label_comp_id", basePairs, bp -> residueName.apply(bp.basePair().right())),
+        BinaryCifColumn.ofIntegers("hbond_type_28", saenger, saengerMask),
+        BinaryCifColumn.ofIntegers("hbond_type_12", leontisWesthof, leontisWesthofMask),
+        BinaryCifWriter.doubles("shear", basePairs, QuantifiedBasePair::shear),
+        BinaryCifWriter.doubles("stretch", basePairs, QuantifiedBasePair::stretch),
+        BinaryCifWriter.doubles("stagger", basePairs, QuantifiedBasePair::stagger),
+        BinaryCifWriter.doubles("buckle", basePairs, QuantifiedBasePair::buckle),
+        BinaryCifWriter.doubles("propeller", basePairs, QuantifiedBasePair::propeller),
+        BinaryCifWriter.doubles("opening", basePairs, QuantifiedBasePair::opening));
+  }
+}
@@ -0,0 +1,56 @@
+package pl.poznan.put.pdb.analysis;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A counter of residue names in chains, used to guess molecule type of every chain without building
+ * residues. A chain is given the most frequent known type among its residue names.
+ */
+final class ChainComposition {
+  private final Map<String, Map<MoleculeType, Integer>> counts = new LinkedHashMap<>();
+  private final Map<String, MoleculeType> residueTypes = new HashMap<>();
+
+  /**
+   * Counts a single residue name in a given chain.
+   *
+   * @param chainIdentifier The chain identifier.
+   * @param residueName The residue name.
+   */
+  void add(final String chainIdentifier, final String residueName) {
+    final MoleculeType moleculeType =
+        residueTypes.computeIfAbsent(
+            residueName,
+            name ->
+                ResidueTypeDetector.detectResidueType(name, Collections.emptySet())
+                    .moleculeType());
+    counts
+        .computeIfAbsent(chainIdentifier, chain -> new EnumMap<>(MoleculeType.class))
+        .merge(moleculeType, 1, Integer::sum);
+  }
+
+  /** @return True if no residue name was counted yet. */
+  boolean isEmpty() {
+    return counts.isEmpty();
+  }
+
+  /** @return A mapping between chain identifiers and molecule types, in order of appearance. */
+  Map<String, MoleculeType> moleculeTypes() {
+    final Map<String, MoleculeType> result = new LinkedHashMap<>();
+    for (final Map.Entry<String, Map<MoleculeType, Integer>> entry : counts.entrySet()) {
+      MoleculeType best = MoleculeType.UNKNOWN;
+      int bestCount = 0;
+      for (final Map.Entry<MoleculeType, Integer> typeCount : entry.getValue().entrySet()) {
+        if ((typeCount.getKey() != MoleculeType.UNKNOWN) && (typeCount.getValue() > bestCount)) {
+          best = typeCount.getKey();
+          bestCount = typeCount.getValue();
+        }
+      }
+      result.put(entry.getKey(), best);
+    }
+    return result;
+  }
+}
@@ -90,6 +90,11 @@ class CifConsumer implements MMcifConsumer {
   private static final String PDBX_UNOBS_OR_ZERO_OCC_RESIDUES =
       "_pdbx_unobs_or_zero_occ_residues"; // NON-NLS
   private static final String NDB_STRUCT_NA_BASE_PAIR = "_ndb_struct_na_base_pair"; // NON-NLS
+  private static final String STRUCT = "_struct"; // NON-NLS
+  private static final String DATABASE_PDB_REV = "_database_pdb_rev"; // NON-NLS
+  private static final String EXPTL = "_exptl"; // NON-NLS
+  private static final String STRUCT_KEYWORDS = "_struct_keywords"; // NON-NLS
+  private static final String REFINE = "_refine"; // NON-NLS
   private static final String SHEAR = "shear"; // NON-NLS
   private static final String STRETCH = "stretch"; // NON-NLS
   private static final String STAGGER = "stagger"; // NON-NLS
@@ -111,6 +116,8 @@ class CifConsumer implements MMcifConsumer {
   private double resolution = Double.NaN;
 
   private FileParsingParameters parameters = new FileParsingParameters();
+  private ParseOptions options = ParseOptions.defaults();
+  private AtomFilter atomFilter = new AtomFilter(options);
 
   private CifConsumer(final FileParsingParameters parameters) {
     super();
@@ -121,6 +128,12 @@ class CifConsumer implements MMcifConsumer {
     super();
   }
 
+  CifConsumer(final ParseOptions options) {
+    super();
+    this.options = options;
+    atomFilter = new AtomFilter(options);
+  }
+
   private static Map<String, String> convertToMap(
       final List<String> loopFields, final List<String> lineData) {
     return IntStream.range(0, loopFields.size())
@@ -128,10 +141,31 @@ class CifConsumer implements MMcifConsumer {
         .collect(Collectors.toMap(loopFields::get, lineData::get, (a, b) -> b));
   }
 
+  @Nullable
+  private static String find(
+      final List<String> items, final List<String> values, final String item) {
+    for (int i = 0; i < items.size(); i++) {
+      if (items.get(i).equalsIgnoreCase(item)) {
+        return values.get(i);
+      }
+    }
+    return null;
+  }
+
   private static double getDoubleWithDefaultNaN(final Map<String, String> map, final String key) {
     return map.containsKey(key) ? Double.parseDouble(map.get(key)) : Double.NaN;
   }
 
+  private static String value(final String[] values, final AtomSiteColumn column) {
+    return values[column.ordinal()];
+  }
+
+  private static String value(
+      final String[] values, final AtomSiteColumn authColumn, final AtomSiteColumn labelColumn) {
+    final String value = values[authColumn.ordinal()];
+    return (value != null) ? value : values[labelColumn.ordinal()];
+  }
+
   @Override
   public final void documentStart() {
     modelAtoms.clear();
@@ -144,6 +178,7 @@ class CifConsumer implements MMcifConsumer {
     classification = null;
     idCode = null;
     resolution = Double.NaN;
+    atomFilter = new AtomFilter(options);
   }
 
   @Override
@@ -153,40 +188,59 @@ class CifConsumer implements MMcifConsumer {
 
   @Override
   public final void newAtomSite(final AtomSite atomSite) {
+    final String[] values = new String[AtomSiteColumn.values().length];
+    values[AtomSiteColumn.GROUP_PDB.ordinal()] = atomSite.getGroup_PDB();
+    values[AtomSiteColumn.ID.ordinal()] = atomSite.getId();
+    values[AtomSiteColumn.TYPE_SYMBOL.ordinal()] = atomSite.getType_symbol();
+    values[AtomSiteColumn.LABEL_ATOM_ID.ordinal()] = atomSite.getLabel_atom_id();
+    values[AtomSiteColumn.LABEL_ALT_ID.ordinal()] = atomSite.getLabel_alt_id();
+    values[AtomSiteColumn.LABEL_COMP_ID.ordinal()] = atomSite.getLabel_comp_id();
+    values[AtomSiteColumn.LABEL_ASYM_ID.ordinal()] = atomSite.getLabel_asym_id();
+    values[AtomSiteColumn.LABEL_SEQ_ID.ordinal()] = atomSite.getLabel_seq_id();
+    values[AtomSiteColumn.PDBX_PDB_INS_CODE.ordinal()] = atomSite.getPdbx_PDB_ins_code();
+    values[AtomSiteColumn.CARTN_X.ordinal()] = atomSite.getCartn_x();
+    values[AtomSiteColumn.CARTN_Y.ordinal()] = atomSite.getCartn_y();
+    values[AtomSiteColumn.CARTN_Z.ordinal()] = atomSite.getCartn_z();
+    values[AtomSiteColumn.OCCUPANCY.ordinal()] = atomSite.getOccupancy();
+    values[AtomSiteColumn.B_ISO_OR_EQUIV.ordinal()] = atomSite.getB_iso_or_equiv();
+    values[AtomSiteColumn.PDBX_FORMAL_CHARGE.ordinal()] = atomSite.getPdbx_formal_charge();
+    values[AtomSiteColumn.AUTH_SEQ_ID.ordinal()] = atomSite.getAuth_seq_id();
+    values[AtomSiteColumn.AUTH_COMP_ID.ordinal()] = atomSite.getAuth_comp_id();
+    values[AtomSiteColumn.AUTH_ASYM_ID.ordinal()] = atomSite.getAuth_asym_id();
+    values[AtomSiteColumn.AUTH_ATOM_ID.ordinal()] = atomSite.getAuth_atom_id();
+    values[AtomSiteColumn.PDBX_PDB_MODEL_NUM.ordinal()] = atomSite.getPdbx_PDB_model_num();
+    newAtomSite(values);
+  }
+
+  /**
+   * Creates an atom out of raw values of a single _atom_site row.
+   *
+   * @param values Raw values indexed by {@link AtomSiteColumn#ordinal()}, null for missing items.
+   */
+  final void newAtomSite(final String[] values) {
     try {
-      final int serialNumber = Integer.parseInt(atomSite.getId());
+      final String modelNumberString = CifConsumer.value(values, AtomSiteColumn.PDBX_PDB_MODEL_NUM);
+      int modelNumber = 1;
+      if (StringUtils.isNotBlank(modelNumberString)) {
+        modelNumber = Integer.parseInt(modelNumberString);
+      }
+
+      if (!options.acceptsModel(modelNumber)) {
+        return;
+      }
+
       final String atomName =
-          (atomSite.getAuth_atom_id() != null)
-              ? atomSite.getAuth_atom_id()
-              : atomSite.getLabel_atom_id();
-      String alternateLocation = atomSite.getLabel_alt_id();
+          CifConsumer.value(values, AtomSiteColumn.AUTH_ATOM_ID, AtomSiteColumn.LABEL_ATOM_ID);
+      String alternateLocation = CifConsumer.value(values, AtomSiteColumn.LABEL_ALT_ID);
       final String residueName =
-          (atomSite.getAuth_comp_id() != null)
-              ? atomSite.getAuth_comp_id()
-              : atomSite.getLabel_comp_id();
+          CifConsumer.value(values, AtomSiteColumn.AUTH_COMP_ID, AtomSiteColumn.LABEL_COMP_ID);
       final String chainIdentifier =
-          (atomSite.getAuth_asym_id() != null)
-              ? atomSite.getAuth_asym_id()
-              : atomSite.getLabel_asym_id();
-      final int residueNumber =
-          Integer.parseInt(
-              (atomSite.getAuth_seq_id() != null)
-                  ? atomSite.getAuth_seq_id()
-                  : atomSite.getLabel_seq_id());
-      String insertionCode = atomSite.getPdbx_PDB_ins_code();
-      final double x = Double.parseDouble(atomSite.getCartn_x());
-      final double y = Double.parseDouble(atomSite.getCartn_y());
-      final double z = Double.parseDouble(atomSite.getCartn_z());
-      final double occupancy =
-          Objects.equals(".", atomSite.getOccupancy())
-              ? Double.NaN
-              : Double.parseDouble(atomSite.getOccupancy());
-      final double temperatureFactor =
-          Objects.equals(".", atomSite.getB_iso_or_equiv())
-              ? Double.NaN
-              : Double.parseDouble(atomSite.getB_iso_or_equiv());
-      final String elementSymbol = atomSite.getType_symbol();
-      String charge = atomSite.getPdbx_formal_charge();
+          CifConsumer.value(values, AtomSiteColumn.AUTH_ASYM_ID, AtomSiteColumn.LABEL_ASYM_ID);
+      final String residueNumberString =
+          CifConsumer.value(values, AtomSiteColumn.AUTH_SEQ_ID, AtomSiteColumn.LABEL_SEQ_ID);
+      String insertionCode = CifConsumer.value(values, AtomSiteColumn.PDBX_PDB_INS_CODE);
+      final String elementSymbol = CifConsumer.value(values, AtomSiteColumn.TYPE_SYMBOL);
+      String charge = CifConsumer.value(values, AtomSiteColumn.PDBX_FORMAL_CHARGE);
 
       if (Objects.equals("?", insertionCode)) {
         insertionCode = " ";
@@ -198,6 +252,34 @@ class CifConsumer implements MMcifConsumer {
         charge = " ";
       }
 
+      if (!atomFilter.accepts(
+          Objects.equals("HETATM", CifConsumer.value(values, AtomSiteColumn.GROUP_PDB)),
+          chainIdentifier,
+          residueName,
+          residueNumberString,
+          insertionCode,
+          alternateLocation,
+          StringUtils.defaultString(elementSymbol),
+          atomName)) {
+        return;
+      }
+
+      final String occupancyString = CifConsumer.value(values, AtomSiteColumn.OCCUPANCY);
+      final String temperatureFactorString =
+          CifConsumer.value(values, AtomSiteColumn.B_ISO_OR_EQUIV);
+
+      final int serialNumber = Integer.parseInt(CifConsumer.value(values, AtomSiteColumn.ID));
+      final int residueNumber = Integer.parseInt(residueNumberString);
+      final double x = Double.parseDouble(CifConsumer.value(values, AtomSiteColumn.CARTN_X));
+      final double y = Double.parseDouble(CifConsumer.value(values, AtomSiteColumn.CARTN_Y));
+      final double z = Double.parseDouble(CifConsumer.value(values, AtomSiteColumn.CARTN_Z));
+      final double occupancy =
+          Objects.equals(".", occupancyString) ? Double.NaN : Double.parseDouble(occupancyString);
+      final double temperatureFactor =
+          Objects.equals(".", temperatureFactorString)
+              ? Double.NaN
+              : Double.parseDouble(temperatureFactorString);
+
       final PdbAtomLine atomLine =
           ImmutablePdbAtomLine.of(
               serialNumber,
@@ -215,18 +297,7 @@ class CifConsumer implements MMcifConsumer {
               elementSymbol,
               charge);
 
-      final String modelNumberString = atomSite.getPdbx_PDB_model_num();
-      int modelNumber = 1;
-      if (StringUtils.isNotBlank(modelNumberString)) {
-        modelNumber = Integer.parseInt(modelNumberString);
-      }
-
-      if (!modelAtoms.containsKey(modelNumber)) {
-        modelAtoms.put(modelNumber, new ArrayList<>());
-      }
-
-      final List<PdbAtomLine> atomLines = modelAtoms.get(modelNumber);
-      atomLines.add(atomLine);
+      modelAtoms.computeIfAbsent(modelNumber, k -> new ArrayList<>()).add(atomLine);
     } catch (final NumberFormatException e) {
       CifConsumer.LOGGER.warn("Failed to parse _atom_site", e);
     }
@@ -254,20 +325,28 @@ class CifConsumer implements MMcifConsumer {
 
   @Override
   public final void setStruct(final Struct struct) {
-    title = StringUtils.upperCase(struct.getTitle());
+    newTitle(struct.getTitle());
+  }
+
+  /** @param value The value of _struct.title. */
+  private void newTitle(@Nullable final String value) {
+    title = StringUtils.upperCase(value);
   }
 
   @Override
   public final void newDatabasePDBrev(final DatabasePDBrev databasePDBrev) {
+    newDepositionDate(databasePDBrev.getDate_original());
+  }
+
+  /** @param value The value of _database_PDB_rev.date_original. */
+  private void newDepositionDate(@Nullable final String value) {
     try {
-      if (depositionDate == null) {
-        depositionDate = dateFormat.parse(databasePDBrev.getDate_original());
+      if ((depositionDate == null) && (value != null)) {
+        depositionDate = dateFormat.parse(value);
       }
     } catch (final ParseException e) {
       CifConsumer.LOGGER.warn(
-          "Failed to parse _database_PDB_rev.date_original as yyyy-MM-dd: {}",
-          databasePDBrev.getDate_original(),
-          e);
+          "Failed to parse _database_PDB_rev.date_original as yyyy-MM-dd: {}", value, e);
     }
   }
 
@@ -283,9 +362,15 @@ class CifConsumer implements MMcifConsumer {
 
   @Override
   public final void newExptl(final Exptl exptl) {
-    final ExperimentalTechnique technique = ExperimentalTechnique.fromFullName(exptl.getMethod());
+    newExperimentalMethod(exptl.getMethod());
+  }
+
+  /** @param value The value of _exptl.method. */
+  private void newExperimentalMethod(@Nullable final String value) {
+    final ExperimentalTechnique technique =
+        (value == null) ? ExperimentalTechnique.UNKNOWN : ExperimentalTechnique.fromFullName(value);
     if (technique == ExperimentalTechnique.UNKNOWN) {
-      CifConsumer.LOGGER.warn("Failed to parse _exptl.method: {}", exptl.getMethod());
+      CifConsumer.LOGGER.warn("Failed to parse _exptl.method: {}", value);
     } else {
       experimentalTechniques.add(technique);
     }
@@ -363,17 +448,31 @@ class CifConsumer implements MMcifConsumer {
 
   @Override
   public final void newStructKeywords(final StructKeywords structKeywords) {
-    idCode = structKeywords.getEntry_id();
-    classification = structKeywords.getPdbx_keywords();
+    newKeywords(structKeywords.getEntry_id(), structKeywords.getPdbx_keywords());
+  }
+
+  /**
+   * @param entryId The value of _struct_keywords.entry_id.
+   * @param keywords The value of _struct_keywords.pdbx_keywords.
+   */
+  private void newKeywords(@Nullable final String entryId, @Nullable final String keywords) {
+    idCode = entryId;
+    classification = keywords;
   }
 
   @Override
   public final void newRefine(final Refine refine) {
+    newResolution(refine.getLs_d_res_high());
+  }
+
+  /** @param value The value of _refine.ls_d_res_high. */
+  private void newResolution(@Nullable final String value) {
     try {
-      resolution = Double.parseDouble(refine.getLs_d_res_high());
+      if (value != null) {
+        resolution = Double.parseDouble(value);
+      }
     } catch (final NumberFormatException e) {
-      CifConsumer.LOGGER.warn(
-          "Failed to parse _refine.ls_d_res_high: {}", refine.getLs_d_res_high(), e);
+      CifConsumer.LOGGER.warn("Failed to parse _refine.ls_d_res_high: {}", value, e);
     }
   }
 
@@ -546,6 +645,32 @@ class CifConsumer implements MMcifConsumer {
     }
   }
 
+  /**
+   * Handles a single row of any category other than _atom_site, given as raw values.
+   *
+   * @param category The category name in lower case, with the leading underscore.
+   * @param items Item names, without the category prefix.
+   * @param values Raw values, in the same order as items.
+   */
+  final void newCategoryRow(
+      final String category, final List<String> items, final List<String> values) {
+    if (Objects.equals(CifConsumer.STRUCT, category)) {
+      newTitle(CifConsumer.find(items, values, "title"));
+    } else if (Objects.equals(CifConsumer.DATABASE_PDB_REV, category)) {
+      newDepositionDate(CifConsumer.find(items, values, "date_original"));
+    } else if (Objects.equals(CifConsumer.EXPTL, category)) {
+      newExperimentalMethod(CifConsumer.find(items, values, "method"));
+    } else if (Objects.equals(CifConsumer.STRUCT_KEYWORDS, category)) {
+      newKeywords(
+          CifConsumer.find(items, values, "entry_id"),
+          CifConsumer.find(items, values, "pdbx_keywords"));
+    } else if (Objects.equals(CifConsumer.REFINE, category)) {
+      newResolution(CifConsumer.find(items, values, "ls_d_res_high"));
+    } else {
+      newGenericData(category, items, values);
+    }
+  }
+
   @Override
   public final void setFileParsingParameters(final FileParsingParameters fileParsingParameters) {
     parameters = fileParsingParameters;
@@ -1,7 +1,6 @@
 package pl.poznan.put.pdb.analysis;
 
 import org.apache.commons.collections4.BidiMap;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.bidimap.TreeBidiMap;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
@@ -16,22 +15,32 @@ import pl.poznan.put.structure.BasePair;
 import pl.poznan.put.structure.QuantifiedBasePair;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * A converter from mmCIF to one or more PDB files. It takes care of formats' mismatches (e.g.
- * multi-character chain names in mmCIF vs single-character in PDB).
+ * multi-character chain names in mmCIF vs single-character in PDB). The result may be kept in
+ * memory (see {@link #convertToPdb(List)}) or written to temporary files.
  */
 public final class CifConverter {
   private static final Logger LOGGER = LoggerFactory.getLogger(CifConverter.class);
@@ -61,7 +70,7 @@ public final class CifConverter {
   public static ModelContainer convert(final File cifFile) throws IOException {
     final String cifContents = FileUtils.readFileToString(cifFile, Charset.defaultCharset());
     final List<CifModel> models = CifParser.parse(cifContents);
-    return CifConverter.convert(cifFile, models);
+    return CifConverter.writeFiles(cifFile, CifConverter.convertToPdb(models));
   }
 
   /**
@@ -74,34 +83,66 @@ public final class CifConverter {
   public static ModelContainer convert(final DefaultCifModel model) throws IOException {
     final File cifFile = File.createTempFile("cif2pdb", ".cif");
     FileUtils.write(cifFile, model.toCif(), Charset.defaultCharset());
+    return CifConverter.writeFiles(cifFile, CifConverter.convertToPdb(model));
+  }
 
-    if (!CifConverter.isConversionPossible(model)) {
-      return CifContainer.emptyInstance(cifFile);
-    }
-
-    List<Set<String>> chainGroups = CifConverter.groupContactingChains(model);
-    chainGroups = CifConverter.packGroups(chainGroups);
-    final Map<File, BidiMap<String, String>> fileChainMap = new HashMap<>();
-
-    for (final Set<String> chainGroup : chainGroups) {
-      final File pdbFile = File.createTempFile("cif2pdb", ".pdb");
-      final BidiMap<String, String> chainMap = new TreeBidiMap<>();
-
-      fileChainMap.put(pdbFile, chainMap);
-
-      final StringBuilder pdbBuilder = new StringBuilder();
-      CifConverter.writeHeader(model, chainMap, pdbBuilder);
-      CifConverter.writeModel(model, chainGroup, chainMap, pdbBuilder);
+  /**
+   * Converts a parsed mmCIF model into PDB content kept in memory, without creating any files.
+   * Contents for separate groups of chains are generated in parallel in the common fork-join pool.
+   *
+   * @param model A parsed mmCIF model.
+   * @return A list of (possibly) multiple PDB contents with mapped chain names. It is empty if the
+   *     model cannot be represented in PDB format.
+   * @see #convertToPdb(DefaultCifModel, Executor)
+   */
+  public static List<ConvertedPdb> convertToPdb(final DefaultCifModel model) {
+    return CifConverter.convertToPdb(model, ForkJoinPool.commonPool());
+  }
 
-      final String pdbData = pdbBuilder.toString();
-      FileUtils.write(pdbFile, pdbData, Charset.defaultCharset());
+  /**
+   * Converts a parsed mmCIF model into PDB content kept in memory, without creating any files.
+   * Chains in contact are put together and the groups are packed to fit in as few PDB contents as
+   * possible, each generated as a separate task in the {@code executor}.
+   *
+   * @param model A parsed mmCIF model.
+   * @param executor An executor to generate PDB contents.
+   * @return A list of (possibly) multiple PDB contents with mapped chain names. It is empty if the
+   *     model cannot be represented in PDB format.
+   */
+  public static List<ConvertedPdb> convertToPdb(
+      final DefaultCifModel model, final Executor executor) {
+    if (!CifConverter.isConversionPossible(model)) {
+      return Collections.emptyList();
     }
+    return CifConverter.convertToPdb(model, Collections.singletonList(model), executor);
+  }
 
-    return ImmutableCifContainer.of(cifFile, fileChainMap);
+  /**
+   * Converts RNA chains of parsed mmCIF models into PDB content kept in memory, without creating
+   * any files. Contents for separate groups of chains are generated in parallel in the common
+   * fork-join pool.
+   *
+   * @param models Parsed mmCIF models.
+   * @return A list of (possibly) multiple PDB contents with mapped chain names, each containing all
+   *     models. It is empty if there are no RNA chains or they cannot be represented in PDB format.
+   * @see #convertToPdb(List, Executor)
+   */
+  public static List<ConvertedPdb> convertToPdb(final List<? extends CifModel> models) {
+    return CifConverter.convertToPdb(models, ForkJoinPool.commonPool());
   }
 
-  private static ModelContainer convert(final File cifFile, final List<CifModel> models)
-      throws IOException {
+  /**
+   * Converts RNA chains of parsed mmCIF models into PDB content kept in memory, without creating
+   * any files. Chains are grouped according to the first model and every group is generated as a
+   * separate task in the {@code executor}.
+   *
+   * @param models Parsed mmCIF models.
+   * @param executor An executor to generate PDB contents.
+   * @return A list of (possibly) multiple PDB contents with mapped chain names, each containing all
+   *     models. It is empty if there are no RNA chains or they cannot be represented in PDB format.
+   */
+  public static List<ConvertedPdb> convertToPdb(
+      final List<? extends CifModel> models, final Executor executor) {
     final List<CifModel> rnaModels = new ArrayList<>();
 
     for (final CifModel model : models) {
@@ -113,34 +154,75 @@ public final class CifConverter {
 
     if (rnaModels.isEmpty()) {
       CifConverter.LOGGER.info("Neither model contain any RNA chain");
-      return CifContainer.emptyInstance(cifFile);
+      return Collections.emptyList();
     }
 
     for (final PdbModel model : rnaModels) {
       if (!CifConverter.isConversionPossible(model)) {
-        return CifContainer.emptyInstance(cifFile);
+        return Collections.emptyList();
       }
     }
 
-    final CifModel firstModel = rnaModels.get(0);
-    List<Set<String>> chainGroups = CifConverter.groupContactingChains(firstModel);
-    chainGroups = CifConverter.packGroups(chainGroups);
-    final Map<File, BidiMap<String, String>> fileChainMap = new HashMap<>();
+    return CifConverter.convertToPdb(rnaModels.get(0), rnaModels, executor);
+  }
 
-    for (final Set<String> chainGroup : chainGroups) {
-      final File pdbFile = File.createTempFile("cif2pdb", ".pdb");
-      final BidiMap<String, String> chainMap = new TreeBidiMap<>();
+  private static List<ConvertedPdb> convertToPdb(
+      final CifModel firstModel, final List<? extends PdbModel> models, final Executor executor) {
+    final List<Set<String>> chainGroups =
+        CifConverter.packGroups(
+            CifConverter.groupContactingChains(firstModel), CifConverter.countAtoms(firstModel));
+
+    // every group has its own chain mapping, so the groups are independent of each other
+    final List<CompletableFuture<ConvertedPdb>> futures =
+        chainGroups.stream()
+            .map(
+                chainGroup ->
+                    CompletableFuture.supplyAsync(
+                        () -> CifConverter.generatePdb(firstModel, models, chainGroup), executor))
+            .collect(Collectors.toList());
+
+    final List<ConvertedPdb> result = new ArrayList<>(futures.size());
+    for (final CompletableFuture<ConvertedPdb> future : futures) {
+      result.add(CifConverter.join(future));
+    }
+    return result;
+  }
 
-      fileChainMap.put(pdbFile, chainMap);
+  private static ConvertedPdb generatePdb(
+      final PdbModel firstModel,
+      final Iterable<? extends PdbModel> models,
+      final Collection<String> chainGroup) {
+    final BidiMap<String, String> chainMap = new TreeBidiMap<>();
+    final StringBuilder pdbBuilder = new StringBuilder();
+    CifConverter.writeHeader(firstModel, chainMap, pdbBuilder);
+    for (final PdbModel model : models) {
+      CifConverter.writeModel(model, chainGroup, chainMap, pdbBuilder);
+    }
+    return ImmutableConvertedPdb.of(pdbBuilder.toString(), chainMap);
+  }
 
-      final StringBuilder pdbBuilder = new StringBuilder();
-      CifConverter.writeHeader(firstModel, chainMap, pdbBuilder);
-      for (final PdbModel model : rnaModels) {
-        CifConverter.writeModel(model, chainGroup, chainMap, pdbBuilder);
+  private static ConvertedPdb join(final CompletableFuture<ConvertedPdb> future) {
+    try {
+      return future.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
       }
+      throw e;
+    }
+  }
 
-      final String pdbData = pdbBuilder.toString();
-      FileUtils.write(pdbFile, pdbData, Charset.defaultCharset());
+  private static ModelContainer writeFiles(
+      final File cifFile, final Iterable<ConvertedPdb> convertedPdbs) throws IOException {
+    final Map<File, BidiMap<String, String>> fileChainMap = new HashMap<>();
+
+    for (final ConvertedPdb convertedPdb : convertedPdbs) {
+      final File pdbFile = File.createTempFile("cif2pdb", ".pdb");
+      fileChainMap.put(pdbFile, convertedPdb.chainMap());
+
+      try (final OutputStream stream = new FileOutputStream(pdbFile)) {
+        convertedPdb.writeTo(stream);
+      }
     }
 
     return ImmutableCifContainer.of(cifFile, fileChainMap);
@@ -160,119 +242,126 @@ public final class CifConverter {
   }
 
   /**
-   * Merges chains which are in contact to form groups.
+   * Merges chains which are in contact to form groups. Contacts are read from base pairs of the
+   * model and merged in a disjoint-set forest, so the cost is nearly linear in the number of chains
+   * and base pairs.
    *
    * @param model A parsed mmCIF model.
    * @return A list of sets of chains' identifiers. Each set contains chains which are in contact
-   *     with each other (single linkage i.e. each chain has at least one contact in its set).
+   *     with each other (single linkage i.e. each chain has at least one contact in its set). The
+   *     groups and chains inside them are ordered by the first appearance in the model.
    */
-  private static List<Set<String>> groupContactingChains(final CifModel model) {
-    final List<Set<String>> chainGroups = CifConverter.initializeChainGroups(model);
-    final Map<String, Set<String>> chainContacts = CifConverter.initializeChainContactMap(model);
-    int i = 0;
-
-    while ((chainGroups.size() > 1) && (i < chainGroups.size())) {
-      final Set<String> groupL = chainGroups.get(i);
-      int toMerge = -1;
-
-      for (int j = i + 1; (toMerge == -1) && (j < chainGroups.size()); j++) {
-        final Set<String> groupR = chainGroups.get(j);
-
-        if (groupL.stream()
-            .filter(chainContacts::containsKey)
-            .map(chainContacts::get)
-            .anyMatch(contactsL -> CollectionUtils.containsAny(contactsL, groupR))) {
-          toMerge = j;
-        }
-      }
-
-      if (toMerge == -1) {
-        i += 1;
-      } else {
-        final Set<String> groupToMerge = chainGroups.get(toMerge);
-        groupL.addAll(groupToMerge);
-        chainGroups.remove(toMerge);
-        i = 0;
-      }
+  static List<Set<String>> groupContactingChains(final CifModel model) {
+    final List<String> chainIdentifiers =
+        model.chains().stream().map(PdbChain::identifier).collect(Collectors.toList());
+    final Map<String, Integer> chainIndices = new HashMap<>();
+    for (int i = 0; i < chainIdentifiers.size(); i++) {
+      chainIndices.put(chainIdentifiers.get(i), i);
     }
 
-    return chainGroups;
-  }
-
-  /**
-   * For each chain, create a set which contains only this chain.
-   *
-   * @param model A parsed coordinates of a mmCIF file.
-   * @return A list of sets, each containing one chain.
-   */
-  private static List<Set<String>> initializeChainGroups(final PdbModel model) {
-    return model.chains().stream()
-        .map(chain -> new HashSet<>(Collections.singleton(chain.identifier())))
-        .collect(Collectors.toList());
-  }
-
-  /**
-   * Basing on the information in the mmCIF file itself, analyze which chains are in contact. Return
-   * a mapping of chain name to a set of its contacts.
-   *
-   * @param model A parsed mmCIF model.
-   * @return A map, where chain name is a key and set of this chain's contacts is the value.
-   */
-  private static Map<String, Set<String>> initializeChainContactMap(final CifModel model) {
-    final Map<String, Set<String>> chainContacts = new HashMap<>();
-
+    final int[] parents = IntStream.range(0, chainIdentifiers.size()).toArray();
     for (final QuantifiedBasePair quantifiedBasePair : model.basePairs()) {
       final BasePair basePair = quantifiedBasePair.basePair();
-      final String left = basePair.left().chainIdentifier();
-      final String right = basePair.right().chainIdentifier();
-
-      if (!chainContacts.containsKey(left)) {
-        chainContacts.put(left, new HashSet<>());
+      final Integer left = chainIndices.get(basePair.left().chainIdentifier());
+      final Integer right = chainIndices.get(basePair.right().chainIdentifier());
+
+      // base pairs may refer to chains which were filtered out of the model
+      if ((left != null) && (right != null)) {
+        final int rootL = CifConverter.findRoot(parents, left);
+        final int rootR = CifConverter.findRoot(parents, right);
+        // the smaller index becomes the root to keep the order of first appearance
+        parents[Math.max(rootL, rootR)] = Math.min(rootL, rootR);
       }
-      chainContacts.get(left).add(right);
+    }
 
-      if (!chainContacts.containsKey(right)) {
-        chainContacts.put(right, new HashSet<>());
-      }
-      chainContacts.get(right).add(left);
+    final Map<Integer, Set<String>> chainGroups = new LinkedHashMap<>();
+    for (int i = 0; i < chainIdentifiers.size(); i++) {
+      chainGroups
+          .computeIfAbsent(CifConverter.findRoot(parents, i), root -> new LinkedHashSet<>())
+          .add(chainIdentifiers.get(i));
     }
+    return new ArrayList<>(chainGroups.values());
+  }
 
-    return chainContacts;
+  private static int findRoot(final int[] parents, final int index) {
+    int current = index;
+    while (parents[current] != current) {
+      // path halving
+      parents[current] = parents[parents[current]];
+      current = parents[current];
+    }
+    return current;
   }
 
   /**
-   * Solve bin packing problem using first-fit decreasing heuristic. In other words, put as many
-   * chains into as few separate files as possible.
+   * Packs chain groups into as few PDB files as possible, while keeping the numbers of atoms in
+   * the files balanced. The number of files starts at the minimum allowed by the limit of chain
+   * names in a single PDB file. Groups are taken in decreasing number of atoms and each is put
+   * into the least loaded file which has enough free chain names (a new file is created if no file
+   * has them).
    *
    * @param chainGroups List of chain groups. A chain group contains identifiers of chains which are
    *     in contact.
+   * @param atomCounts A mapping of chain identifier to the number of its atoms.
    * @return List of packed chain groups. A packed chain group contains one or more regular chain
    *     groups such that they can be fitted into a single PDB file.
    */
-  private static List<Set<String>> packGroups(final List<Set<String>> chainGroups) {
-    // sort chain groups in descending size order
-    chainGroups.sort((t, t1) -> -Integer.compare(t.size(), t1.size()));
-
-    final List<Set<String>> packed = new ArrayList<>();
-
-    for (final Set<String> group : chainGroups) {
-      boolean flag = true;
+  static List<Set<String>> packGroups(
+      final List<Set<String>> chainGroups, final Map<String, Integer> atomCounts) {
+    final int capacity = CifConverter.PRINTABLE_CHARS.size();
+    final int chainCount = chainGroups.stream().mapToInt(Set::size).sum();
+    final int binCount = Math.max(1, (chainCount + capacity - 1) / capacity);
+
+    final List<Set<String>> bins = new ArrayList<>();
+    final List<Integer> loads = new ArrayList<>();
+    for (int i = 0; i < binCount; i++) {
+      bins.add(new LinkedHashSet<>());
+      loads.add(0);
+    }
 
-      for (final Set<String> bin : packed) {
-        if ((bin.size() + group.size()) <= CifConverter.PRINTABLE_CHARS.size()) {
-          bin.addAll(group);
-          flag = false;
-          break;
+    final List<Set<String>> sortedGroups = new ArrayList<>(chainGroups);
+    final Map<Set<String>, Integer> groupLoads = new IdentityHashMap<>();
+    for (final Set<String> group : sortedGroups) {
+      groupLoads.put(
+          group, group.stream().mapToInt(chain -> atomCounts.getOrDefault(chain, 0)).sum());
+    }
+    // sort chain groups in descending number of atoms
+    sortedGroups.sort((t, t1) -> -Integer.compare(groupLoads.get(t), groupLoads.get(t1)));
+
+    for (final Set<String> group : sortedGroups) {
+      int best = -1;
+      for (int i = 0; i < bins.size(); i++) {
+        if (((bins.get(i).size() + group.size()) <= capacity)
+            && ((best == -1) || (loads.get(i) < loads.get(best)))) {
+          best = i;
         }
       }
 
-      if (flag) {
-        final Set<String> bin = new HashSet<>(group);
-        packed.add(bin);
+      if (best == -1) {
+        bins.add(new LinkedHashSet<>(group));
+        loads.add(groupLoads.get(group));
+      } else {
+        bins.get(best).addAll(group);
+        loads.set(best, loads.get(best) + groupLoads.get(group));
       }
     }
 
-    return packed;
+    bins.removeIf(Set::isEmpty);
+    return bins;
+  }
+
+  /**
+   * Counts atoms in every chain.
+   *
+   * @param model A PDB/mmCIF model.
+   * @return A map, where chain name is a key and the number of its atoms is the value.
+   */
+  static Map<String, Integer> countAtoms(final PdbModel model) {
+    final Map<String, Integer> atomCounts = new HashMap<>();
+    for (final PdbAtomLine atom : model.atoms()) {
+      atomCounts.merge(atom.chainIdentifier(), 1, Integer::sum);
+    }
+    return atomCounts;
   }
 
   private static void writeHeader(
@@ -0,0 +1,282 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.poznan.put.pdb.ExperimentalTechnique;
+import pl.poznan.put.pdb.ImmutablePdbExpdtaLine;
+import pl.poznan.put.pdb.ImmutablePdbHeaderLine;
+import pl.poznan.put.pdb.ImmutablePdbRemark2Line;
+import pl.poznan.put.pdb.PdbExpdtaLine;
+import pl.poznan.put.pdb.PdbHeaderLine;
+import pl.poznan.put.pdb.PdbRemark2Line;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A reader of mmCIF metadata. It keeps only a few categories (_struct, _struct_keywords, _exptl,
+ * _refine, _pdbx_database_status, _database_PDB_rev and _entity_poly) and stops as soon as the
+ * _atom_site category starts, so the coordinates are never read.
+ */
+final class CifMetadataScanner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CifMetadataScanner.class);
+
+  private static final String ATOM_SITE = "_atom_site"; // NON-NLS
+  private static final String STRUCT = "_struct"; // NON-NLS
+  private static final String STRUCT_KEYWORDS = "_struct_keywords"; // NON-NLS
+  private static final String EXPTL = "_exptl"; // NON-NLS
+  private static final String REFINE = "_refine"; // NON-NLS
+  private static final String PDBX_DATABASE_STATUS = "_pdbx_database_status"; // NON-NLS
+  private static final String DATABASE_PDB_REV = "_database_pdb_rev"; // NON-NLS
+  private static final String ENTITY_POLY = "_entity_poly"; // NON-NLS
+  private static final Set<String> CATEGORIES =
+      Stream.of(
+              CifMetadataScanner.STRUCT,
+              CifMetadataScanner.STRUCT_KEYWORDS,
+              CifMetadataScanner.EXPTL,
+              CifMetadataScanner.REFINE,
+              CifMetadataScanner.PDBX_DATABASE_STATUS,
+              CifMetadataScanner.DATABASE_PDB_REV,
+              CifMetadataScanner.ENTITY_POLY)
+          .collect(Collectors.toSet());
+
+  private final Map<String, List<Map<String, String>>> categories = new HashMap<>();
+  private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+
+  private CifMetadataScanner() {
+    super();
+  }
+
+  /**
+   * Reads metadata from mmCIF content.
+   *
+   * @param reader A source of data in mmCIF format.
+   * @return A summary of the structure.
+   * @throws IOException When reading from the source fails.
+   */
+  static StructureSummary scan(final BufferedReader reader) throws IOException {
+    final CifMetadataScanner scanner = new CifMetadataScanner();
+    scanner.read(new CifTokenizer(reader));
+    return scanner.summary();
+  }
+
+  private static String category(final String tag) {
+    final int dot = tag.indexOf('.');
+    return ((dot == -1) ? tag : tag.substring(0, dot)).toLowerCase(Locale.US);
+  }
+
+  private static String item(final String tag) {
+    final int dot = tag.indexOf('.');
+    return ((dot == -1) ? "" : tag.substring(dot + 1)).toLowerCase(Locale.US);
+  }
+
+  private static MoleculeType moleculeType(@Nullable final String entityPolyType) {
+    final String type = StringUtils.lowerCase(entityPolyType, Locale.US);
+    // this library treats all nucleic acids as RNA, just like ResidueTypeDetector does
+    if (StringUtils.contains(type, "nucleotide")) {
+      return MoleculeType.RNA;
+    }
+    if (StringUtils.contains(type, "peptide")) {
+      return MoleculeType.PROTEIN;
+    }
+    return MoleculeType.UNKNOWN;
+  }
+
+  private void read(final CifTokenizer tokenizer) throws IOException {
+    boolean dataBlockSeen = false;
+    String token;
+    while ((token = tokenizer.next()) != null) {
+      final boolean quoted = tokenizer.isQuoted();
+
+      if (CifTokenizer.isTag(token, quoted)) {
+        if (Objects.equals(CifMetadataScanner.ATOM_SITE, CifMetadataScanner.category(token))) {
+          return;
+        }
+        final String value = tokenizer.next();
+        if (value == null) {
+          return;
+        }
+        put(token, CifTokenizer.isMissing(value, tokenizer.isQuoted()) ? null : value);
+      } else if (!quoted && "loop_".equalsIgnoreCase(token)) {
+        if (!readLoop(tokenizer)) {
+          return;
+        }
+      } else if (CifTokenizer.isKeyword(token, quoted)
+          && token.toLowerCase(Locale.US).startsWith("data_")) {
+        // only the first data block is considered
+        if (dataBlockSeen) {
+          return;
+        }
+        dataBlockSeen = true;
+      }
+    }
+  }
+
+  private boolean readLoop(final CifTokenizer tokenizer) throws IOException {
+    final List<String> tags = new ArrayList<>();
+    String token;
+    while (((token = tokenizer.peek()) != null)
+        && CifTokenizer.isTag(token, tokenizer.isQuoted())) {
+      tags.add(tokenizer.next());
+    }
+
+    if (tags.isEmpty()) {
+      return true;
+    }
+
+    final String category = CifMetadataScanner.category(tags.get(0));
+    if (Objects.equals(CifMetadataScanner.ATOM_SITE, category)) {
+      return false;
+    }
+
+    final boolean isRelevant = CifMetadataScanner.CATEGORIES.contains(category);
+    final List<String> values = new ArrayList<>(tags.size());
+    while ((token = tokenizer.peek()) != null) {
+      final boolean quoted = tokenizer.isQuoted();
+      if (CifTokenizer.isTag(token, quoted) || CifTokenizer.isKeyword(token, quoted)) {
+        break;
+      }
+      tokenizer.next();
+
+      if (isRelevant) {
+        values.add(CifTokenizer.isMissing(token, quoted) ? null : token);
+        if (values.size() == tags.size()) {
+          final Map<String, String> row = new HashMap<>();
+          for (int i = 0; i < tags.size(); i++) {
+            row.put(CifMetadataScanner.item(tags.get(i)), values.get(i));
+          }
+          categories.computeIfAbsent(category, k -> new ArrayList<>()).add(row);
+          values.clear();
+        }
+      }
+    }
+    return true;
+  }
+
+  private void put(final String tag, @Nullable final String value) {
+    final String category = CifMetadataScanner.category(tag);
+    if (CifMetadataScanner.CATEGORIES.contains(category)) {
+      final List<Map<String, String>> rows =
+          categories.computeIfAbsent(category, k -> new ArrayList<>());
+      if (rows.isEmpty()) {
+        rows.add(new HashMap<>());
+      }
+      rows.get(0).put(CifMetadataScanner.item(tag), value);
+    }
+  }
+
+  private List<Map<String, String>> rows(final String category) {
+    return categories.getOrDefault(category, Collections.emptyList());
+  }
+
+  @Nullable
+  private String firstValue(final String category, final String item) {
+    return rows(category).stream()
+        .map(row -> row.get(item))
+        .filter(Objects::nonNull)
+        .findFirst()
+        .orElse(null);
+  }
+
+  private StructureSummary summary() {
+    return ImmutableStructureSummary.of(
+        header(), experimentalData(), resolution(), title(), chainMoleculeTypes());
+  }
+
+  private PdbHeaderLine header() {
+    final String classification =
+        firstValue(CifMetadataScanner.STRUCT_KEYWORDS, "pdbx_keywords"); // NON-NLS
+    final String idCode = firstValue(CifMetadataScanner.STRUCT_KEYWORDS, "entry_id"); // NON-NLS
+    return ImmutablePdbHeaderLine.of(
+        (classification != null) ? classification : "",
+        depositionDate(),
+        (idCode != null) ? idCode : "");
+  }
+
+  private Date depositionDate() {
+    String date = firstValue(CifMetadataScanner.DATABASE_PDB_REV, "date_original"); // NON-NLS
+    if (date == null) {
+      date =
+          firstValue(
+              CifMetadataScanner.PDBX_DATABASE_STATUS,
+              "recvd_initial_deposition_date"); // NON-NLS
+    }
+
+    if (date != null) {
+      try {
+        return dateFormat.parse(date);
+      } catch (final ParseException e) {
+        CifMetadataScanner.LOGGER.warn(
+            "Failed to parse deposition date as yyyy-MM-dd: {}", date, e);
+      }
+    }
+    return new Date(0L);
+  }
+
+  private PdbExpdtaLine experimentalData() {
+    final List<ExperimentalTechnique> techniques = new ArrayList<>();
+    for (final Map<String, String> row : rows(CifMetadataScanner.EXPTL)) {
+      final String method = row.get("method"); // NON-NLS
+      final ExperimentalTechnique technique = ExperimentalTechnique.fromFullName(method);
+      if (technique == ExperimentalTechnique.UNKNOWN) {
+        CifMetadataScanner.LOGGER.warn("Failed to parse _exptl.method: {}", method);
+      } else {
+        techniques.add(technique);
+      }
+    }
+    return ImmutablePdbExpdtaLine.of(
+        techniques.isEmpty()
+            ? Collections.singletonList(ExperimentalTechnique.UNKNOWN)
+            : techniques);
+  }
+
+  private PdbRemark2Line resolution() {
+    // the last valid row wins, just like in the full parser
+    double resolution = Double.NaN;
+    for (final Map<String, String> row : rows(CifMetadataScanner.REFINE)) {
+      final String value = row.get("ls_d_res_high"); // NON-NLS
+      if (value != null) {
+        try {
+          resolution = Double.parseDouble(value);
+        } catch (final NumberFormatException e) {
+          CifMetadataScanner.LOGGER.warn("Failed to parse _refine.ls_d_res_high: {}", value, e);
+        }
+      }
+    }
+    return ImmutablePdbRemark2Line.of(resolution);
+  }
+
+  private String title() {
+    final String title = firstValue(CifMetadataScanner.STRUCT, "title"); // NON-NLS
+    return (title != null) ? StringUtils.upperCase(title) : "";
+  }
+
+  private Map<String, MoleculeType> chainMoleculeTypes() {
+    final Map<String, MoleculeType> result = new LinkedHashMap<>();
+    for (final Map<String, String> row : rows(CifMetadataScanner.ENTITY_POLY)) {
+      final MoleculeType moleculeType = CifMetadataScanner.moleculeType(row.get("type"));
+      final String strandIds = row.get("pdbx_strand_id"); // NON-NLS
+      for (final String chain : StringUtils.split(StringUtils.defaultString(strandIds), ", ")) {
+        result.put(chain, moleculeType);
+      }
+    }
+    return result;
+  }
+}
@@ -1,12 +1,17 @@
 package pl.poznan.put.pdb.analysis;
 
 import org.apache.commons.io.IOUtils;
-import org.biojava.nbio.structure.io.mmcif.MMcifParser;
-import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import pl.poznan.put.bcif.BinaryCif;
+import pl.poznan.put.utility.CompressedInput;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 
 /** A parser of mmCIF format. */
@@ -23,13 +28,150 @@ public final class CifParser {
    * @throws IOException When parsing of the data fails.
    */
   public static List<CifModel> parse(final String structureContent) throws IOException {
-    final MMcifParser parser = new SimpleMMcifParser();
-    final CifConsumer consumer = new CifConsumer();
-    parser.addMMcifConsumer(consumer);
+    return CifParser.parse(structureContent, ParseOptions.defaults());
+  }
 
+  /**
+   * Parses content in mmCIF format, skipping atoms rejected by the given filters.
+   *
+   * @param structureContent A string with data in mmCIF format.
+   * @param options Filters deciding which atoms are parsed at all.
+   * @return A parsed object representing a molecular structure.
+   * @throws IOException When parsing of the data fails.
+   */
+  public static List<CifModel> parse(final String structureContent, final ParseOptions options)
+      throws IOException {
     try (final Reader reader = new StringReader(structureContent)) {
-      parser.parse(IOUtils.toBufferedReader(reader));
+      return CifParser.parse(reader, options);
     }
+  }
+
+  /**
+   * Parses a file in mmCIF format. If the file is gzip-compressed, it is decompressed on the fly.
+   *
+   * @param path Path to a file in mmCIF format.
+   * @return A parsed object representing a molecular structure.
+   * @throws IOException When reading or parsing of the file fails.
+   */
+  public static List<CifModel> parse(final Path path) throws IOException {
+    try (final Reader reader = CompressedInput.newReader(path)) {
+      return CifParser.parse(reader, ParseOptions.defaults());
+    }
+  }
+
+  /**
+   * Parses a stream of data in mmCIF format, but does not close it. If the data are
+   * gzip-compressed, they are decompressed on the fly.
+   *
+   * @param stream A stream with data in mmCIF format.
+   * @return A parsed object representing a molecular structure.
+   * @throws IOException When reading or parsing of the data fails.
+   */
+  public static List<CifModel> parse(final InputStream stream) throws IOException {
+    try (final InputStream decompressed =
+        CompressedInput.decompress(new CloseShieldInputStream(stream))) {
+      return CifParser.parse(
+          new InputStreamReader(decompressed, StandardCharsets.UTF_8), ParseOptions.defaults());
+    }
+  }
+
+  /**
+   * Parses data in mmCIF format, skipping atoms rejected by the given filters. The reader is not
+   * closed.
+   *
+   * @param reader A source of data in mmCIF format.
+   * @param options Filters deciding which atoms are parsed at all.
+   * @return A parsed object representing a molecular structure.
+   * @throws IOException When reading or parsing of the data fails.
+   */
+  public static List<CifModel> parse(final Reader reader, final ParseOptions options)
+      throws IOException {
+    final CifConsumer consumer = new CifConsumer(options);
+    CifReader.read(IOUtils.toBufferedReader(reader), consumer);
+    return consumer.getModels();
+  }
+
+  /**
+   * Parses content in BinaryCIF format.
+   *
+   * @param data BinaryCIF content.
+   * @return A parsed object representing a molecular structure.
+   * @throws IOException When the data are not valid BinaryCIF.
+   */
+  public static List<CifModel> parseBinary(final byte[] data) throws IOException {
+    return CifParser.parseBinary(data, ParseOptions.defaults());
+  }
+
+  /**
+   * Parses content in BinaryCIF format, skipping atoms rejected by the given filters. Only the
+   * first data block is read.
+   *
+   * @param data BinaryCIF content.
+   * @param options Filters deciding which atoms are parsed at all.
+   * @return A parsed object representing a molecular structure.
+   * @throws IOException When the data are not valid BinaryCIF.
+   */
+  public static List<CifModel> parseBinary(final byte[] data, final ParseOptions options)
+      throws IOException {
+    final CifConsumer consumer = new CifConsumer(options);
+    BinaryCifReader.read(BinaryCif.read(data), consumer);
     return consumer.getModels();
   }
+
+  /**
+   * Parses a file in BinaryCIF format. If the file is gzip-compressed, it is decompressed on the
+   * fly.
+   *
+   * @param path Path to a file in BinaryCIF format.
+   * @return A parsed object representing a molecular structure.
+   * @throws IOException When reading or parsing of the file fails.
+   */
+  public static List<CifModel> parseBinary(final Path path) throws IOException {
+    try (final InputStream stream = CompressedInput.open(path)) {
+      return CifParser.parseBinary(IOUtils.toByteArray(stream));
+    }
+  }
+
+  /**
+   * Reads metadata of a structure in mmCIF format without parsing any atoms.
+   *
+   * @param structureContent A string with data in mmCIF format.
+   * @return A summary of the structure.
+   * @throws IOException When reading of the data fails.
+   * @see #parseSummary(Reader)
+   */
+  public static StructureSummary parseSummary(final String structureContent) throws IOException {
+    try (final Reader reader = new StringReader(structureContent)) {
+      return CifParser.parseSummary(reader);
+    }
+  }
+
+  /**
+   * Reads metadata of a structure from a file in mmCIF format without parsing any atoms. If the
+   * file is gzip-compressed, it is decompressed on the fly.
+   *
+   * @param path Path to a file in mmCIF format.
+   * @return A summary of the structure.
+   * @throws IOException When reading of the file fails.
+   * @see #parseSummary(Reader)
+   */
+  public static StructureSummary parseSummary(final Path path) throws IOException {
+    try (final Reader reader = CompressedInput.newReader(path)) {
+      return CifParser.parseSummary(reader);
+    }
+  }
+
+  /**
+   * Reads metadata of a structure in mmCIF format without parsing any atoms. Only the _struct,
+   * _struct_keywords, _exptl, _refine, _pdbx_database_status, _database_PDB_rev and _entity_poly
+   * categories are kept and reading stops as soon as the _atom_site category starts. Molecule types
+   * of chains are taken from _entity_poly.type.
+   *
+   * @param reader A source of data in mmCIF format.
+   * @return A summary of the structure.
+   * @throws IOException When reading from the source fails.
+   */
+  public static StructureSummary parseSummary(final Reader reader) throws IOException {
+    return CifMetadataScanner.scan(IOUtils.toBufferedReader(reader));
+  }
 }
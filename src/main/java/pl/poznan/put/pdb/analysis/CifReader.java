@@ -0,0 +1,185 @@
+package pl.poznan.put.pdb.analysis;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A streaming reader of mmCIF content, which passes data straight to {@link CifConsumer}. Rows of
+ * the _atom_site loop are never turned into beans or maps: positions of the used items are mapped
+ * once per loop, values of these columns go directly to the consumer and all other values are
+ * skipped without creating strings. Only the first data block is read.
+ */
+final class CifReader {
+  private static final String ATOM_SITE = "_atom_site"; // NON-NLS
+
+  private final CifTokenizer tokenizer;
+  private final CifConsumer consumer;
+  private final List<String> pendingItems = new ArrayList<>();
+  private final List<String> pendingValues = new ArrayList<>();
+  @Nullable private String pendingCategory;
+
+  private CifReader(final CifTokenizer tokenizer, final CifConsumer consumer) {
+    super();
+    this.tokenizer = tokenizer;
+    this.consumer = consumer;
+  }
+
+  /**
+   * Reads mmCIF content and passes it to the consumer.
+   *
+   * @param reader A source of data in mmCIF format.
+   * @param consumer The consumer to receive atoms and other records.
+   * @throws IOException When reading from the source fails.
+   */
+  static void read(final BufferedReader reader, final CifConsumer consumer) throws IOException {
+    consumer.documentStart();
+    new CifReader(new CifTokenizer(reader), consumer).read();
+    consumer.documentEnd();
+  }
+
+  private static String category(final String tag) {
+    final int dot = tag.indexOf('.');
+    return ((dot == -1) ? tag : tag.substring(0, dot)).toLowerCase(Locale.US);
+  }
+
+  private static String item(final String tag) {
+    final int dot = tag.indexOf('.');
+    return (dot == -1) ? "" : tag.substring(dot + 1);
+  }
+
+  private void read() throws IOException {
+    boolean dataBlockSeen = false;
+    String token;
+    while ((token = tokenizer.next()) != null) {
+      final boolean quoted = tokenizer.isQuoted();
+
+      if (CifTokenizer.isTag(token, quoted)) {
+        final String value = tokenizer.next();
+        if (value == null) {
+          break;
+        }
+        addPair(token, value);
+      } else if (!quoted && "loop_".equalsIgnoreCase(token)) {
+        flush();
+        readLoop();
+      } else if (CifTokenizer.isKeyword(token, quoted)) {
+        flush();
+        if (token.toLowerCase(Locale.US).startsWith("data_")) {
+          // only the first data block is considered
+          if (dataBlockSeen) {
+            return;
+          }
+          dataBlockSeen = true;
+        }
+      }
+    }
+    flush();
+  }
+
+  private void addPair(final String tag, final String value) {
+    final String category = CifReader.category(tag);
+    if (!Objects.equals(category, pendingCategory)) {
+      flush();
+      pendingCategory = category;
+    }
+    pendingItems.add(CifReader.item(tag));
+    pendingValues.add(value);
+  }
+
+  private void flush() {
+    if (pendingCategory == null) {
+      return;
+    }
+
+    if (Objects.equals(CifReader.ATOM_SITE, pendingCategory)) {
+      final String[] row = new String[AtomSiteColumn.values().length];
+      for (int i = 0; i < pendingItems.size(); i++) {
+        final String value = pendingValues.get(i);
+        AtomSiteColumn.fromItem(pendingItems.get(i))
+            .ifPresent(column -> row[column.ordinal()] = value);
+      }
+      consumer.newAtomSite(row);
+    } else {
+      consumer.newCategoryRow(pendingCategory, pendingItems, pendingValues);
+    }
+
+    pendingCategory = null;
+    pendingItems.clear();
+    pendingValues.clear();
+  }
+
+  private void readLoop() throws IOException {
+    final List<String> items = new ArrayList<>();
+    String category = null;
+    String token;
+    while (((token = tokenizer.peek()) != null)
+        && CifTokenizer.isTag(token, tokenizer.isQuoted())) {
+      tokenizer.next();
+      category = CifReader.category(token);
+      items.add(CifReader.item(token));
+    }
+
+    if (category == null) {
+      return;
+    }
+
+    if (Objects.equals(CifReader.ATOM_SITE, category)) {
+      readAtomSiteLoop(items);
+    } else {
+      readGenericLoop(category, items);
+    }
+  }
+
+  private boolean hasMoreValues() throws IOException {
+    final String token = tokenizer.peek();
+    if (token == null) {
+      return false;
+    }
+    final boolean quoted = tokenizer.isQuoted();
+    return !CifTokenizer.isTag(token, quoted) && !CifTokenizer.isKeyword(token, quoted);
+  }
+
+  private void readAtomSiteLoop(final List<String> items) throws IOException {
+    // column positions are resolved once, null marks a column which is skipped
+    final AtomSiteColumn[] columns = new AtomSiteColumn[items.size()];
+    for (int i = 0; i < items.size(); i++) {
+      columns[i] = AtomSiteColumn.fromItem(items.get(i)).orElse(null);
+    }
+
+    // the same array is reused for all rows, as the consumer does not keep it
+    final String[] row = new String[AtomSiteColumn.values().length];
+    while (hasMoreValues()) {
+      for (final AtomSiteColumn column : columns) {
+        if (column == null) {
+          if (!tokenizer.skip()) {
+            return;
+          }
+        } else {
+          final String value = tokenizer.next();
+          if (value == null) {
+            return;
+          }
+          row[column.ordinal()] = value;
+        }
+      }
+      consumer.newAtomSite(row);
+    }
+  }
+
+  private void readGenericLoop(final String category, final List<String> items)
+      throws IOException {
+    final List<String> values = new ArrayList<>(items.size());
+    while (hasMoreValues()) {
+      values.add(tokenizer.next());
+      if (values.size() == items.size()) {
+        consumer.newCategoryRow(category, items, values);
+        values.clear();
+      }
+    }
+  }
+}
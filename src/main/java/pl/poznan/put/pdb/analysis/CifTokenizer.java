@@ -0,0 +1,215 @@
+package pl.poznan.put.pdb.analysis;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * A splitter of mmCIF content into tokens: data block headers, {@code loop_} keywords, tags and
+ * values. Quoted strings and semicolon-delimited text fields are returned without their delimiters,
+ * and {@link #isQuoted()} tells them apart from bare values like {@code ?} or {@code .}.
+ */
+final class CifTokenizer {
+  private final BufferedReader reader;
+
+  @Nullable private String line;
+  private int position;
+  private int begin;
+  private int end;
+  @Nullable private String textField;
+  @Nullable private String peeked;
+  private boolean peekedQuoted;
+  private boolean quoted;
+
+  CifTokenizer(final BufferedReader reader) {
+    super();
+    this.reader = reader;
+  }
+
+  private static boolean isWhitespace(final char c) {
+    return (c == ' ') || (c == '\t');
+  }
+
+  /**
+   * Checks if a token is a tag, i.e. an unquoted string starting with an underscore.
+   *
+   * @param token A token returned by this tokenizer.
+   * @param quoted The value of {@link #isQuoted()} for this token.
+   * @return True if the token is a tag.
+   */
+  static boolean isTag(final String token, final boolean quoted) {
+    return !quoted && token.startsWith("_");
+  }
+
+  /**
+   * Checks if a token is a keyword, i.e. {@code loop_}, {@code data_}, {@code save_} or similar.
+   *
+   * @param token A token returned by this tokenizer.
+   * @param quoted The value of {@link #isQuoted()} for this token.
+   * @return True if the token is a keyword.
+   */
+  static boolean isKeyword(final String token, final boolean quoted) {
+    if (quoted) {
+      return false;
+    }
+    final String lowerCase = token.toLowerCase(Locale.US);
+    return lowerCase.startsWith("data_")
+        || lowerCase.startsWith("save_")
+        || "loop_".equals(lowerCase)
+        || "global_".equals(lowerCase)
+        || "stop_".equals(lowerCase);
+  }
+
+  /**
+   * Checks if a value is missing, i.e. it is an unquoted {@code ?} or {@code .} character.
+   *
+   * @param token A token returned by this tokenizer.
+   * @param quoted The value of {@link #isQuoted()} for this token.
+   * @return True if the value is unknown or inapplicable.
+   */
+  static boolean isMissing(final String token, final boolean quoted) {
+    return !quoted && ("?".equals(token) || ".".equals(token));
+  }
+
+  /**
+   * Reads the next token.
+   *
+   * @return The next token or null if there are no more.
+   * @throws IOException When reading from the source fails.
+   */
+  @Nullable
+  String next() throws IOException {
+    if (peeked != null) {
+      final String token = peeked;
+      quoted = peekedQuoted;
+      peeked = null;
+      return token;
+    }
+    return read();
+  }
+
+  /**
+   * Reads the next token, but does not consume it.
+   *
+   * @return The next token or null if there are no more.
+   * @throws IOException When reading from the source fails.
+   */
+  @Nullable
+  String peek() throws IOException {
+    if (peeked == null) {
+      peeked = read();
+      peekedQuoted = quoted;
+    }
+    quoted = peekedQuoted;
+    return peeked;
+  }
+
+  /** @return True if the last token returned by {@link #next()} or {@link #peek()} was quoted. */
+  boolean isQuoted() {
+    return quoted;
+  }
+
+  /**
+   * Consumes the next token without creating a string out of it. It is meant for values which the
+   * caller is not interested in, e.g. unused columns of a large loop.
+   *
+   * @return True if a token was consumed, false if there are no more.
+   * @throws IOException When reading from the source fails.
+   */
+  boolean skip() throws IOException {
+    if (peeked != null) {
+      quoted = peekedQuoted;
+      peeked = null;
+      return true;
+    }
+    return advance();
+  }
+
+  @Nullable
+  private String read() throws IOException {
+    if (!advance()) {
+      return null;
+    }
+    if (textField != null) {
+      return textField;
+    }
+    assert line != null;
+    return line.substring(begin, end);
+  }
+
+  // finds the next token and stores its bounds, so that it may be either materialized or skipped
+  private boolean advance() throws IOException {
+    textField = null;
+    while (true) {
+      if ((line == null) || (position >= line.length())) {
+        line = reader.readLine();
+        position = 0;
+        if (line == null) {
+          return false;
+        }
+        if (line.startsWith(";")) {
+          textField = readTextField();
+          return true;
+        }
+      }
+
+      while ((position < line.length()) && CifTokenizer.isWhitespace(line.charAt(position))) {
+        position++;
+      }
+      if ((position >= line.length()) || (line.charAt(position) == '#')) {
+        position = line.length();
+        continue;
+      }
+
+      final char first = line.charAt(position);
+      if ((first == '\'') || (first == '"')) {
+        advanceQuoted(first);
+        return true;
+      }
+
+      begin = position;
+      while ((position < line.length()) && !CifTokenizer.isWhitespace(line.charAt(position))) {
+        position++;
+      }
+      end = position;
+      quoted = false;
+      return true;
+    }
+  }
+
+  private void advanceQuoted(final char delimiter) {
+    assert line != null;
+    begin = position + 1;
+    int i = begin;
+    // a quote closes the string only if it is followed by whitespace or the end of line
+    while (i < line.length()) {
+      if ((line.charAt(i) == delimiter)
+          && (((i + 1) == line.length()) || CifTokenizer.isWhitespace(line.charAt(i + 1)))) {
+        end = i;
+        position = i + 1;
+        quoted = true;
+        return;
+      }
+      i++;
+    }
+    end = line.length();
+    position = line.length();
+    quoted = true;
+  }
+
+  private String readTextField() throws IOException {
+    assert line != null;
+    final StringBuilder builder = new StringBuilder(line.substring(1));
+    while (true) {
+      line = reader.readLine();
+      if ((line == null) || line.startsWith(";")) {
+        break;
+      }
+      builder.append('\n').append(line);
+    }
+    position = (line == null) ? 0 : 1;
+    quoted = true;
+    return builder.toString().trim();
+  }
+}
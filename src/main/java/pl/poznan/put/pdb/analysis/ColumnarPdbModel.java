@@ -0,0 +1,697 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.lang3.Validate;
+import pl.poznan.put.atom.AtomName;
+import pl.poznan.put.pdb.ImmutablePdbAtomLine;
+import pl.poznan.put.pdb.ImmutablePdbResidueIdentifier;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbExpdtaLine;
+import pl.poznan.put.pdb.PdbHeaderLine;
+import pl.poznan.put.pdb.PdbModresLine;
+import pl.poznan.put.pdb.PdbRemark2Line;
+import pl.poznan.put.pdb.PdbRemark465Line;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * A structure which keeps its atoms in primitive columns instead of a list of objects. Coordinates
+ * and numbers are stored in arrays and all names (of atoms, residues, chains, etc.) are codes into
+ * a dictionary of distinct values. Instances of {@link PdbAtomLine} are created only when they are
+ * requested, so memory usage for large structures is several times lower than in {@link
+ * DefaultPdbModel}. Residues keep only indices of their atoms, so they do not bring all atom
+ * objects back to memory either.
+ */
+public class ColumnarPdbModel extends AbstractPdbModel {
+  private final PdbHeaderLine header;
+  private final PdbExpdtaLine experimentalData;
+  private final PdbRemark2Line resolution;
+  private final int modelNumber;
+  private final List<PdbModresLine> modifiedResidues;
+  private final List<PdbRemark465Line> missingResidues;
+  private final String title;
+  private final Set<PdbResidueIdentifier> chainTerminatedAfter;
+
+  private final int atomCount;
+  private final String[] dictionary;
+  private final int[] serialNumbers;
+  private final short[] atomNames;
+  private final short[] alternateLocations;
+  private final short[] residueNames;
+  private final short[] chainIdentifiers;
+  private final int[] residueNumbers;
+  private final short[] insertionCodes;
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] zs;
+  private final double[] occupancies;
+  private final double[] temperatureFactors;
+  private final short[] elementSymbols;
+  private final short[] charges;
+
+  private transient volatile List<PdbResidue> residues;
+  private transient volatile List<PdbChain> chains;
+  private transient volatile Map<PdbResidueIdentifier, Integer> residueIndexMap;
+
+  private ColumnarPdbModel(
+      final Builder builder,
+      final PdbHeaderLine header,
+      final PdbExpdtaLine experimentalData,
+      final PdbRemark2Line resolution,
+      final int modelNumber,
+      final List<PdbModresLine> modifiedResidues,
+      final List<PdbRemark465Line> missingResidues,
+      final String title,
+      final Set<PdbResidueIdentifier> chainTerminatedAfter) {
+    super();
+    Validate.isTrue(builder.size > 0, "Model must contain at least one atom");
+
+    this.header = header;
+    this.experimentalData = experimentalData;
+    this.resolution = resolution;
+    this.modelNumber = modelNumber;
+    this.modifiedResidues = Collections.unmodifiableList(new ArrayList<>(modifiedResidues));
+    this.missingResidues = Collections.unmodifiableList(new ArrayList<>(missingResidues));
+    this.title = title;
+    this.chainTerminatedAfter = Collections.unmodifiableSet(new HashSet<>(chainTerminatedAfter));
+
+    final int size = builder.size;
+    atomCount = size;
+    dictionary = builder.dictionary.toArray(new String[0]);
+    serialNumbers = Arrays.copyOf(builder.serialNumbers, size);
+    atomNames = Arrays.copyOf(builder.atomNames, size);
+    alternateLocations = Arrays.copyOf(builder.alternateLocations, size);
+    residueNames = Arrays.copyOf(builder.residueNames, size);
+    chainIdentifiers = Arrays.copyOf(builder.chainIdentifiers, size);
+    residueNumbers = Arrays.copyOf(builder.residueNumbers, size);
+    insertionCodes = Arrays.copyOf(builder.insertionCodes, size);
+    xs = Arrays.copyOf(builder.xs, size);
+    ys = Arrays.copyOf(builder.ys, size);
+    zs = Arrays.copyOf(builder.zs, size);
+    occupancies = Arrays.copyOf(builder.occupancies, size);
+    temperatureFactors = Arrays.copyOf(builder.temperatureFactors, size);
+    elementSymbols = Arrays.copyOf(builder.elementSymbols, size);
+    charges = Arrays.copyOf(builder.charges, size);
+  }
+
+  /**
+   * Creates a columnar copy of any structure.
+   *
+   * @param model A structure to copy.
+   * @return An instance of this class with the same atoms and headers as {@code model}.
+   */
+  public static ColumnarPdbModel of(final PdbModel model) {
+    if (model instanceof ColumnarPdbModel) {
+      return (ColumnarPdbModel) model;
+    }
+
+    final Builder builder = new Builder();
+    model.atoms().forEach(builder::add);
+    return builder.build(
+        model.header(),
+        model.experimentalData(),
+        model.resolution(),
+        model.modelNumber(),
+        model.modifiedResidues(),
+        model.missingResidues(),
+        model.title(),
+        model.chainTerminatedAfter());
+  }
+
+  @Override
+  public final PdbHeaderLine header() {
+    return header;
+  }
+
+  @Override
+  public final PdbExpdtaLine experimentalData() {
+    return experimentalData;
+  }
+
+  @Override
+  public final PdbRemark2Line resolution() {
+    return resolution;
+  }
+
+  @Override
+  public final int modelNumber() {
+    return modelNumber;
+  }
+
+  /**
+   * Gives a view of the atoms. Each call to {@link List#get(int)} creates a new {@link
+   * PdbAtomLine} from the columns.
+   *
+   * @return A read-only list of atoms.
+   */
+  @Override
+  public final List<PdbAtomLine> atoms() {
+    return new AtomView();
+  }
+
+  @Override
+  public final List<PdbModresLine> modifiedResidues() {
+    return modifiedResidues;
+  }
+
+  @Override
+  public final List<PdbRemark465Line> missingResidues() {
+    return missingResidues;
+  }
+
+  @Override
+  public final String title() {
+    return title;
+  }
+
+  @Override
+  public final Set<PdbResidueIdentifier> chainTerminatedAfter() {
+    return chainTerminatedAfter;
+  }
+
+  @Override
+  public final List<PdbChain> chains() {
+    List<PdbChain> result = chains;
+    if (result == null) {
+      result = Collections.unmodifiableList(super.chains());
+      chains = result;
+    }
+    return result;
+  }
+
+  /**
+   * Groups together atoms from the same residue, with the same rules as {@link
+   * AbstractPdbModel#residues()}. Each residue keeps indices of its atoms and creates instances of
+   * {@link PdbAtomLine} only when they are requested.
+   *
+   * @return A list of residues in the structure.
+   */
+  @Override
+  public final List<PdbResidue> residues() {
+    List<PdbResidue> result = residues;
+    if (result == null) {
+      result = Collections.unmodifiableList(assembleResidues());
+      residues = result;
+    }
+    return result;
+  }
+
+  @Override
+  public final Map<PdbResidueIdentifier, Integer> residueIndexMap() {
+    Map<PdbResidueIdentifier, Integer> result = residueIndexMap;
+    if (result == null) {
+      result = ModelAssembler.indexResidues(residues());
+      residueIndexMap = result;
+    }
+    return result;
+  }
+
+  @Override
+  public final PdbModel filteredNewInstance(final MoleculeType moleculeType) {
+    final Builder builder = new Builder();
+    filteredAtoms(moleculeType).forEach(builder::add);
+    return builder.build(
+        header,
+        experimentalData,
+        resolution,
+        modelNumber,
+        modifiedResidues,
+        filteredMissing(moleculeType),
+        title,
+        chainTerminatedAfter);
+  }
+
+  /** @return The number of atoms in this structure. */
+  public final int atomCount() {
+    return atomCount;
+  }
+
+  /**
+   * Creates an object representing a single atom.
+   *
+   * @param index Index of the atom.
+   * @return A new instance of {@link PdbAtomLine} with values taken from the columns.
+   */
+  public final PdbAtomLine atom(final int index) {
+    return ImmutablePdbAtomLine.of(
+        serialNumbers[index],
+        name(atomNames, index),
+        name(alternateLocations, index),
+        name(residueNames, index),
+        name(chainIdentifiers, index),
+        residueNumbers[index],
+        name(insertionCodes, index),
+        xs[index],
+        ys[index],
+        zs[index],
+        occupancies[index],
+        temperatureFactors[index],
+        name(elementSymbols, index),
+        name(charges, index));
+  }
+
+  /**
+   * @param index Index of the atom.
+   * @return The X coordinate of the atom.
+   */
+  public final double x(final int index) {
+    return xs[index];
+  }
+
+  /**
+   * @param index Index of the atom.
+   * @return The Y coordinate of the atom.
+   */
+  public final double y(final int index) {
+    return ys[index];
+  }
+
+  /**
+   * @param index Index of the atom.
+   * @return The Z coordinate of the atom.
+   */
+  public final double z(final int index) {
+    return zs[index];
+  }
+
+  /**
+   * @param index Index of the atom.
+   * @return The name of the atom.
+   */
+  public final String atomName(final int index) {
+    return name(atomNames, index);
+  }
+
+  /**
+   * @param index Index of the atom.
+   * @return The name of the residue to which the atom belongs.
+   */
+  public final String residueName(final int index) {
+    return name(residueNames, index);
+  }
+
+  /**
+   * @param index Index of the atom.
+   * @return The identifier of the chain to which the atom belongs.
+   */
+  public final String chainIdentifier(final int index) {
+    return name(chainIdentifiers, index);
+  }
+
+  /**
+   * @param index Index of the atom.
+   * @return The number of the residue to which the atom belongs.
+   */
+  public final int residueNumber(final int index) {
+    return residueNumbers[index];
+  }
+
+  private String name(final short[] column, final int index) {
+    return dictionary[column[index] & 0xFFFF];
+  }
+
+  // the same grouping as in ModelAssembler, but on columns, where equal codes mean equal names
+  private List<PdbResidue> assembleResidues() {
+    final Map<PdbResidueIdentifier, IndexGroup> atomGroups = new LinkedHashMap<>();
+    IndexGroup group = null;
+    for (int i = 0; i < atomCount; i++) {
+      if ((i == 0)
+          || (residueNumbers[i] != residueNumbers[i - 1])
+          || (chainIdentifiers[i] != chainIdentifiers[i - 1])
+          || (insertionCodes[i] != insertionCodes[i - 1])) {
+        final PdbResidueIdentifier identifier =
+            ImmutablePdbResidueIdentifier.of(
+                name(chainIdentifiers, i), residueNumbers[i], name(insertionCodes, i));
+        group = atomGroups.computeIfAbsent(identifier, key -> new IndexGroup());
+      }
+      group.add(i);
+    }
+
+    return ModelAssembler.assembleResidues(
+        atomGroups,
+        indexGroup -> name(residueNames, indexGroup.indices[0]),
+        (identifier, residueName, modifiedResidueName, indexGroup) ->
+            new ColumnarResidue(
+                identifier,
+                residueName,
+                modifiedResidueName,
+                Arrays.copyOf(indexGroup.indices, indexGroup.size)),
+        modifiedResidues,
+        missingResidues);
+  }
+
+  /** Indices of atoms of a single residue, while residues are being assembled. */
+  private static final class IndexGroup {
+    private int[] indices = new int[32];
+    private int size;
+
+    private void add(final int index) {
+      if (size == indices.length) {
+        indices = Arrays.copyOf(indices, size * 2);
+      }
+      indices[size] = index;
+      size += 1;
+    }
+  }
+
+  /**
+   * A residue which keeps only indices of its atoms in the columns. Its atoms are created on
+   * demand, while atom names and the detected residue type are computed once. It is equal to any
+   * other {@link PdbResidue} with the same identifier, names and atoms.
+   */
+  private final class ColumnarResidue implements PdbResidue {
+    private final PdbResidueIdentifier identifier;
+    private final String standardResidueName;
+    private final String modifiedResidueName;
+    private final int[] indices;
+
+    private volatile Set<AtomName> detectedAtomNames;
+    private volatile ResidueInformationProvider detectedResidueType;
+
+    private ColumnarResidue(
+        final PdbResidueIdentifier identifier,
+        final String standardResidueName,
+        final String modifiedResidueName,
+        final int[] indices) {
+      super();
+      this.identifier = identifier;
+      this.standardResidueName = standardResidueName;
+      this.modifiedResidueName = modifiedResidueName;
+      this.indices = indices;
+    }
+
+    @Override
+    public PdbResidueIdentifier identifier() {
+      return identifier;
+    }
+
+    @Override
+    public String standardResidueName() {
+      return standardResidueName;
+    }
+
+    @Override
+    public String modifiedResidueName() {
+      return modifiedResidueName;
+    }
+
+    @Override
+    public List<PdbAtomLine> atoms() {
+      return new ResidueAtomView(indices);
+    }
+
+    @Override
+    public boolean isMissing() {
+      return indices.length == 0;
+    }
+
+    @Override
+    public ResidueInformationProvider residueInformationProvider() {
+      ResidueInformationProvider result = detectedResidueType;
+      if (result == null) {
+        result = PdbResidue.super.residueInformationProvider();
+        detectedResidueType = result;
+      }
+      return result;
+    }
+
+    @Override
+    public Set<AtomName> atomNames() {
+      Set<AtomName> result = detectedAtomNames;
+      if (result == null) {
+        final Set<AtomName> names = EnumSet.noneOf(AtomName.class);
+        for (final int index : indices) {
+          names.add(AtomName.fromString(atomName(index)));
+        }
+        result = Collections.unmodifiableSet(names);
+        detectedAtomNames = result;
+      }
+      return result;
+    }
+
+    @Override
+    public PdbAtomLine findAtom(final AtomName atomName) {
+      for (final int index : indices) {
+        if (AtomName.fromString(atomName(index)) == atomName) {
+          return atom(index);
+        }
+      }
+      throw new IllegalArgumentException("Failed to find: " + atomName);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof PdbResidue)) {
+        return false;
+      }
+      final PdbResidue other = (PdbResidue) o;
+      return identifier.equals(other.identifier())
+          && standardResidueName.equals(other.standardResidueName())
+          && modifiedResidueName.equals(other.modifiedResidueName())
+          && atoms().equals(other.atoms());
+    }
+
+    // the same formula as in ImmutableDefaultPdbResidue
+    @Override
+    public int hashCode() {
+      int h = 5381;
+      h += (h << 5) + identifier.hashCode();
+      h += (h << 5) + standardResidueName.hashCode();
+      h += (h << 5) + modifiedResidueName.hashCode();
+      h += (h << 5) + atoms().hashCode();
+      return h;
+    }
+
+    @Override
+    public String toString() {
+      return identifier.chainIdentifier()
+          + '.'
+          + modifiedResidueName
+          + identifier.residueNumber()
+          + (Objects.equals(" ", identifier.insertionCode()) ? "" : identifier.insertionCode());
+    }
+  }
+
+  /** A read-only view creating atoms of a residue from columns on demand. */
+  private final class ResidueAtomView extends AbstractList<PdbAtomLine> implements RandomAccess {
+    private final int[] indices;
+
+    private ResidueAtomView(final int[] indices) {
+      super();
+      this.indices = indices;
+    }
+
+    @Override
+    public PdbAtomLine get(final int i) {
+      return atom(indices[i]);
+    }
+
+    @Override
+    public int size() {
+      return indices.length;
+    }
+  }
+
+  /** A read-only view creating atoms from columns on demand. */
+  private final class AtomView extends AbstractList<PdbAtomLine> implements RandomAccess {
+    @Override
+    public PdbAtomLine get(final int i) {
+      if ((i < 0) || (i >= atomCount)) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", size: " + atomCount);
+      }
+      return atom(i);
+    }
+
+    @Override
+    public int size() {
+      return atomCount;
+    }
+  }
+
+  /** A builder which accumulates atoms directly in columns. */
+  public static final class Builder {
+    // codes are stored in shorts, but are treated as unsigned values
+    private static final int MAX_DICTIONARY_SIZE = 0xFFFF + 1;
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Short> codes = new HashMap<>();
+    private int size;
+    private int[] serialNumbers = new int[16];
+    private short[] atomNames = new short[16];
+    private short[] alternateLocations = new short[16];
+    private short[] residueNames = new short[16];
+    private short[] chainIdentifiers = new short[16];
+    private int[] residueNumbers = new int[16];
+    private short[] insertionCodes = new short[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private double[] occupancies = new double[16];
+    private double[] temperatureFactors = new double[16];
+    private short[] elementSymbols = new short[16];
+    private short[] charges = new short[16];
+
+    /**
+     * Adds an atom to the model being built.
+     *
+     * @param atom An atom.
+     * @return This instance.
+     */
+    public Builder add(final PdbAtomLine atom) {
+      return add(
+          atom.serialNumber(),
+          atom.atomName(),
+          atom.alternateLocation(),
+          atom.residueName(),
+          atom.chainIdentifier(),
+          atom.residueNumber(),
+          atom.insertionCode(),
+          atom.x(),
+          atom.y(),
+          atom.z(),
+          atom.occupancy(),
+          atom.temperatureFactor(),
+          atom.elementSymbol(),
+          atom.charge());
+    }
+
+    /**
+     * Adds an atom to the model being built without creating an instance of {@link PdbAtomLine}.
+     * The meaning of parameters is the same as in {@link PdbAtomLine}.
+     *
+     * @param serialNumber Atom serial number.
+     * @param atomName Atom name.
+     * @param alternateLocation Alternate location indicator.
+     * @param residueName Residue name.
+     * @param chainIdentifier Chain identifier.
+     * @param residueNumber Residue sequence number.
+     * @param insertionCode Code for insertion of residues.
+     * @param x Coordinate X.
+     * @param y Coordinate Y.
+     * @param z Coordinate Z.
+     * @param occupancy Occupancy.
+     * @param temperatureFactor Temperature factor.
+     * @param elementSymbol Element symbol.
+     * @param charge Charge on the atom.
+     * @return This instance.
+     */
+    public Builder add(
+        final int serialNumber,
+        final String atomName,
+        final String alternateLocation,
+        final String residueName,
+        final String chainIdentifier,
+        final int residueNumber,
+        final String insertionCode,
+        final double x,
+        final double y,
+        final double z,
+        final double occupancy,
+        final double temperatureFactor,
+        final String elementSymbol,
+        final String charge) {
+      ensureCapacity();
+      serialNumbers[size] = serialNumber;
+      atomNames[size] = code(atomName);
+      alternateLocations[size] = code(alternateLocation);
+      residueNames[size] = code(residueName);
+      chainIdentifiers[size] = code(chainIdentifier);
+      residueNumbers[size] = residueNumber;
+      insertionCodes[size] = code(insertionCode);
+      xs[size] = x;
+      ys[size] = y;
+      zs[size] = z;
+      occupancies[size] = occupancy;
+      temperatureFactors[size] = temperatureFactor;
+      elementSymbols[size] = code(elementSymbol);
+      charges[size] = code(charge);
+      size += 1;
+      return this;
+    }
+
+    /**
+     * Creates the model out of atoms added so far.
+     *
+     * @param header The structure header.
+     * @param experimentalData Details about experiment used to solve the structure.
+     * @param resolution Information about the experimental resolution.
+     * @param modelNumber Model number.
+     * @param modifiedResidues The list of modified residues.
+     * @param missingResidues The list of missing residues.
+     * @param title Structure title.
+     * @param chainTerminatedAfter The set of residues, after which the chain was terminated.
+     * @return A new instance of {@link ColumnarPdbModel}.
+     */
+    public ColumnarPdbModel build(
+        final PdbHeaderLine header,
+        final PdbExpdtaLine experimentalData,
+        final PdbRemark2Line resolution,
+        final int modelNumber,
+        final List<PdbModresLine> modifiedResidues,
+        final List<PdbRemark465Line> missingResidues,
+        final String title,
+        final Set<PdbResidueIdentifier> chainTerminatedAfter) {
+      return new ColumnarPdbModel(
+          this,
+          header,
+          experimentalData,
+          resolution,
+          modelNumber,
+          modifiedResidues,
+          missingResidues,
+          title,
+          chainTerminatedAfter);
+    }
+
+    private short code(final String name) {
+      final Short code = codes.get(name);
+      if (code != null) {
+        return code;
+      }
+
+      Validate.validState(
+          dictionary.size() < Builder.MAX_DICTIONARY_SIZE, "Too many distinct names in the model");
+      final short newCode = (short) dictionary.size();
+      dictionary.add(name);
+      codes.put(name, newCode);
+      return newCode;
+    }
+
+    private void ensureCapacity() {
+      if (size < xs.length) {
+        return;
+      }
+
+      final int capacity = xs.length * 2;
+      serialNumbers = Arrays.copyOf(serialNumbers, capacity);
+      atomNames = Arrays.copyOf(atomNames, capacity);
+      alternateLocations = Arrays.copyOf(alternateLocations, capacity);
+      residueNames = Arrays.copyOf(residueNames, capacity);
+      chainIdentifiers = Arrays.copyOf(chainIdentifiers, capacity);
+      residueNumbers = Arrays.copyOf(residueNumbers, capacity);
+      insertionCodes = Arrays.copyOf(insertionCodes, capacity);
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+      zs = Arrays.copyOf(zs, capacity);
+      occupancies = Arrays.copyOf(occupancies, capacity);
+      temperatureFactors = Arrays.copyOf(temperatureFactors, capacity);
+      elementSymbols = Arrays.copyOf(elementSymbols, capacity);
+      charges = Arrays.copyOf(charges, capacity);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.collections4.BidiMap;
+import org.immutables.value.Value;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/** A single PDB file converted from mmCIF, kept in memory together with its chains' mapping. */
+@Value.Immutable
+public abstract class ConvertedPdb {
+  /** @return The content in PDB format. */
+  @Value.Parameter(order = 1)
+  public abstract String pdbContent();
+
+  /** @return The mapping of chain names, where key is the mmCIF name and value is the PDB name. */
+  @Value.Parameter(order = 2)
+  public abstract BidiMap<String, String> chainMap();
+
+  /**
+   * Checks mapping of chains to get the original mmCIF chain name from the generated PDB one.
+   *
+   * @param pdbChain Chain name in the PDB content.
+   * @return Original chain name in the mmCIF file.
+   */
+  public final String originalCifChainName(final String pdbChain) {
+    return chainMap().getKey(pdbChain);
+  }
+
+  /**
+   * Checks mapping of chains to get the generated PDB chain name from the original mmCIF one.
+   *
+   * @param cifChain Chain name in the mmCIF file.
+   * @return Chain name in the PDB content.
+   */
+  public final String convertedPdbChainName(final String cifChain) {
+    return chainMap().get(cifChain);
+  }
+
+  /**
+   * Writes the PDB content to a stream (in the default charset, like the files created by {@link
+   * CifConverter#convert(DefaultCifModel)}). The stream is not closed.
+   *
+   * @param stream The destination stream.
+   * @throws IOException When writing to the stream fails.
+   */
+  public final void writeTo(final OutputStream stream) throws IOException {
+    stream.write(pdbContent().getBytes(Charset.defaultCharset()));
+  }
+}
@@ -11,6 +11,7 @@ import pl.poznan.put.pdb.PdbResidueIdentifier;
 import pl.poznan.put.structure.QuantifiedBasePair;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** A default implementation of a structure parsed from an mmCIF file. */
@@ -91,4 +92,10 @@ public abstract class DefaultCifModel extends AbstractPdbModel implements CifMod
   public List<PdbResidue> residues() {
     return super.residues();
   }
+
+  @Override
+  @Value.Lazy
+  public Map<PdbResidueIdentifier, Integer> residueIndexMap() {
+    return ModelAssembler.indexResidues(residues());
+  }
 }
@@ -16,6 +16,7 @@ import pl.poznan.put.pdb.PdbResidueIdentifier;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** A default implementation of a structure parsed from a PDB file. */
@@ -112,6 +113,12 @@ public abstract class DefaultPdbModel extends AbstractPdbModel {
     return super.residues();
   }
 
+  @Override
+  @Value.Lazy
+  public Map<PdbResidueIdentifier, Integer> residueIndexMap() {
+    return ModelAssembler.indexResidues(residues());
+  }
+
   @Value.Check
   protected void check() {
     Validate.notEmpty(atoms());
@@ -10,7 +10,10 @@ import pl.poznan.put.pdb.ImmutablePdbResidueIdentifier;
 import pl.poznan.put.pdb.PdbAtomLine;
 import pl.poznan.put.pdb.PdbResidueIdentifier;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -66,7 +69,7 @@ public abstract class DefaultPdbResidue implements PdbResidue {
   @Override
   @Value.Lazy
   public Set<AtomName> atomNames() {
-    return PdbResidue.super.atomNames();
+    return Collections.unmodifiableSet(atomsByName().keySet());
   }
 
   @Override
@@ -75,6 +78,41 @@ public abstract class DefaultPdbResidue implements PdbResidue {
     return PdbResidue.super.hasAllHeavyAtoms();
   }
 
+  @Override
+  @Value.Lazy
+  public boolean isModified() {
+    return PdbResidue.super.isModified();
+  }
+
+  @Override
+  public final PdbAtomLine findAtom(final AtomName atomName) {
+    final PdbAtomLine atom = atomsByName().get(atomName);
+    if (atom == null) {
+      throw new IllegalArgumentException("Failed to find: " + atomName);
+    }
+    return atom;
+  }
+
+  @Override
+  public final boolean hasAtom(final AtomName atomName) {
+    return atomsByName().containsKey(atomName);
+  }
+
+  /**
+   * Maps names of atoms to atoms. Every atom name is detected once, when the map is built. If many
+   * atoms have the same name, the first one is used.
+   *
+   * @return A map of atom names to atoms in this residue.
+   */
+  @Value.Lazy
+  protected Map<AtomName, PdbAtomLine> atomsByName() {
+    final Map<AtomName, PdbAtomLine> atomsByName = new EnumMap<>(AtomName.class);
+    for (final PdbAtomLine atom : atoms()) {
+      atomsByName.putIfAbsent(atom.detectAtomName(), atom);
+    }
+    return atomsByName;
+  }
+
   @Override
   public final String toString() {
     final String chainIdentifier = identifier().chainIdentifier();
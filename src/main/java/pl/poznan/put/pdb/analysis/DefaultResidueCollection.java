@@ -1,8 +1,10 @@
 package pl.poznan.put.pdb.analysis;
 
 import org.immutables.value.Value;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
 
 import java.util.List;
+import java.util.Map;
 
 /** A container for a list of residues. */
 @Value.Immutable
@@ -10,4 +12,10 @@ public abstract class DefaultResidueCollection implements ResidueCollection {
   @Override
   @Value.Parameter(order = 1)
   public abstract List<PdbResidue> residues();
+
+  @Override
+  @Value.Lazy
+  public Map<PdbResidueIdentifier, Integer> residueIndexMap() {
+    return ModelAssembler.indexResidues(residues());
+  }
 }
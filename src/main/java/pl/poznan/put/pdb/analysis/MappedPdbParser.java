@@ -0,0 +1,174 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.poznan.put.pdb.PdbParsingException;
+import pl.poznan.put.utility.CompressedInput;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A parser of PDB format which maps the file into memory and decodes ATOM and HETATM records
+ * directly from bytes. It gives the same results as {@link PdbParser}, but it allocates far fewer
+ * objects, which makes a difference for structures with millions of atoms.
+ */
+public class MappedPdbParser {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedPdbParser.class);
+
+  private final boolean strictMode;
+  private final ParseOptions options;
+
+  /**
+   * Creates an instance with the possibility to set {@code strictMode}.
+   *
+   * @param strictMode If false, then some of the checks on PDB format conformity are relaxed.
+   */
+  public MappedPdbParser(final boolean strictMode) {
+    this(strictMode, ParseOptions.defaults());
+  }
+
+  /**
+   * Creates an instance with the possibility to set {@code strictMode} and filters of atoms.
+   *
+   * @param strictMode If false, then some of the checks on PDB format conformity are relaxed.
+   * @param options Filters deciding which atoms are decoded at all.
+   */
+  public MappedPdbParser(final boolean strictMode, final ParseOptions options) {
+    super();
+    this.strictMode = strictMode;
+    this.options = options;
+  }
+
+  /** Creates an instance with {@code strictMode} set to true. */
+  public MappedPdbParser() {
+    this(true);
+  }
+
+  private static boolean isAtomRecord(final ByteBuffer buffer, final int begin, final int end) {
+    final int length = end - begin;
+    if ((length >= 4)
+        && (buffer.get(begin) == 'A')
+        && (buffer.get(begin + 1) == 'T')
+        && (buffer.get(begin + 2) == 'O')
+        && (buffer.get(begin + 3) == 'M')) {
+      return true;
+    }
+    return (length >= 6)
+        && (buffer.get(begin) == 'H')
+        && (buffer.get(begin + 1) == 'E')
+        && (buffer.get(begin + 2) == 'T')
+        && (buffer.get(begin + 3) == 'A')
+        && (buffer.get(begin + 4) == 'T')
+        && (buffer.get(begin + 5) == 'M');
+  }
+
+  private static boolean isAscii(final ByteBuffer buffer, final int begin, final int end) {
+    for (int i = begin; i < end; i++) {
+      if (buffer.get(i) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String asString(final ByteBuffer buffer, final int begin, final int end) {
+    final byte[] bytes = new byte[end - begin];
+    for (int i = begin; i < end; i++) {
+      bytes[i - begin] = buffer.get(i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses a file in PDB format.
+   *
+   * @param path Path to a file in PDB format.
+   * @return An object representing the parsed data.
+   * @throws IOException When reading of the file fails.
+   */
+  public final List<PdbModel> parse(final Path path) throws IOException {
+    final List<PdbModel> result = new ArrayList<>();
+    parse(path, result::add);
+    result.sort(Comparator.comparingInt(PdbModel::modelNumber));
+    return result;
+  }
+
+  /**
+   * Parses a file in PDB format and hands out every model as soon as its ENDMDL line is found.
+   *
+   * @param path Path to a file in PDB format.
+   * @param consumer A callback to receive every parsed model.
+   * @throws IOException When reading of the file fails.
+   */
+  public final void parse(final Path path, final Consumer<? super PdbModel> consumer)
+      throws IOException {
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+
+      // a single mapping cannot exceed 2 GB and compressed data cannot be decoded in place, so
+      // such files are read line by line instead
+      if ((size > Integer.MAX_VALUE) || CompressedInput.isGzip(path)) {
+        try (final Reader reader = CompressedInput.newReader(path)) {
+          new PdbParser(strictMode, options).parse(reader, consumer);
+        }
+        return;
+      }
+
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+      parse(buffer, (int) size, consumer);
+    }
+  }
+
+  private void parse(
+      final ByteBuffer buffer, final int size, final Consumer<? super PdbModel> consumer) {
+    final PdbParsingContext context = new PdbParsingContext(strictMode, options);
+    final PdbAtomLineDecoder decoder = new PdbAtomLineDecoder(strictMode);
+    // without active filters no line has to be turned into a string to be checked
+    final boolean checksAtomLines = !options.acceptsAll();
+
+    int begin = 0;
+    while (begin < size) {
+      int end = begin;
+      while ((end < size) && (buffer.get(end) != '\n')) {
+        end++;
+      }
+      final int next = end + 1;
+      if ((end > begin) && (buffer.get(end - 1) == '\r')) {
+        end--;
+      }
+
+      if (MappedPdbParser.isAtomRecord(buffer, begin, end)
+          && MappedPdbParser.isAscii(buffer, begin, end)) {
+        if (!context.acceptsCurrentModel()
+            || (checksAtomLines
+                && !context.acceptsAtomLine(MappedPdbParser.asString(buffer, begin, end)))) {
+          begin = next;
+          continue;
+        }
+
+        try {
+          context.handleAtom(decoder.decode(buffer, begin, end));
+        } catch (final PdbParsingException e) {
+          MappedPdbParser.LOGGER.warn(
+              "Invalid ATOM line: {}", MappedPdbParser.asString(buffer, begin, end), e);
+        }
+      } else {
+        context.handleLine(MappedPdbParser.asString(buffer, begin, end), consumer);
+      }
+
+      begin = next;
+    }
+
+    context.emitModel(consumer);
+  }
+}
@@ -0,0 +1,233 @@
+package pl.poznan.put.pdb.analysis;
+
+import pl.poznan.put.pdb.ImmutablePdbResidueIdentifier;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbModresLine;
+import pl.poznan.put.pdb.PdbRemark465Line;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Builds residues from atoms and chains from residues in time linear in the number of atoms, and
+ * indexes residues by their identifiers. Each residue identifier is created once, for the first
+ * atom of a residue, and all lookups (of atom groups, modifications, chain terminations and
+ * residues) are done in hash maps.
+ */
+final class ModelAssembler {
+  // within a single chain, this is the same order as in ChainNumberICode.compareTo()
+  private static final Comparator<PdbResidue> NUMBER_ICODE_ORDER =
+      Comparator.comparingInt(PdbResidue::residueNumber)
+          .thenComparing(PdbResidue::insertionCode);
+
+  private ModelAssembler() {
+    super();
+  }
+
+  /**
+   * Groups together atoms from the same residue and puts missing residues in their places. Atoms
+   * with the same (chain, number, icode) belong to the same residue, even if they are not
+   * consecutive. Only residues detected as nucleotides or amino acids are kept. Chains are ordered
+   * as they first appear in atoms (chains with missing residues only go first) and residues inside
+   * every chain are sorted by number and insertion code.
+   *
+   * @param atoms The atoms of a model.
+   * @param modifiedResidues The MODRES records of a model.
+   * @param missingResidues The REMARK 465 records of a model.
+   * @return A list of residues in the model.
+   */
+  static List<PdbResidue> assembleResidues(
+      final Collection<PdbAtomLine> atoms,
+      final Collection<PdbModresLine> modifiedResidues,
+      final Collection<PdbRemark465Line> missingResidues) {
+    // group atoms by common (chain, number, icode), reusing the group of the previous atom if
+    // possible, because atoms of a residue are usually consecutive
+    final Map<PdbResidueIdentifier, List<PdbAtomLine>> atomGroups = new LinkedHashMap<>();
+    PdbAtomLine previous = null;
+    List<PdbAtomLine> group = null;
+    for (final PdbAtomLine atom : atoms) {
+      if ((previous == null) || !ModelAssembler.isSameResidue(previous, atom)) {
+        final PdbResidueIdentifier identifier =
+            ImmutablePdbResidueIdentifier.of(
+                atom.chainIdentifier(), atom.residueNumber(), atom.insertionCode());
+        group = atomGroups.computeIfAbsent(identifier, key -> new ArrayList<>());
+      }
+      group.add(atom);
+      previous = atom;
+    }
+
+    return ModelAssembler.assembleResidues(
+        atomGroups,
+        residueAtoms -> residueAtoms.get(0).residueName(),
+        ImmutableDefaultPdbResidue::of,
+        modifiedResidues,
+        missingResidues);
+  }
+
+  /**
+   * Creates residues out of already grouped atoms and puts missing residues in their places, with
+   * the same rules as {@link #assembleResidues(Collection, Collection, Collection)}.
+   *
+   * @param atomGroups Groups of atoms by residue identifier, in the order of the first atom.
+   * @param residueName A function to get the residue name of a group.
+   * @param factory A function to create a residue out of a group.
+   * @param modifiedResidues The MODRES records of a model.
+   * @param missingResidues The REMARK 465 records of a model.
+   * @param <G> The type of a group of atoms.
+   * @return A list of residues in the model.
+   */
+  static <G> List<PdbResidue> assembleResidues(
+      final Map<PdbResidueIdentifier, G> atomGroups,
+      final Function<? super G, String> residueName,
+      final ResidueFactory<? super G> factory,
+      final Collection<PdbModresLine> modifiedResidues,
+      final Collection<PdbRemark465Line> missingResidues) {
+    final Map<String, List<PdbResidue>> chainResidues = new LinkedHashMap<>();
+    for (final PdbResidueIdentifier identifier : atomGroups.keySet()) {
+      chainResidues.computeIfAbsent(identifier.chainIdentifier(), key -> new ArrayList<>());
+    }
+
+    // MODRES lines are indexed once, the first one for a residue wins
+    final Map<PdbResidueIdentifier, PdbModresLine> modifications = new HashMap<>();
+    for (final PdbModresLine modifiedResidue : modifiedResidues) {
+      modifications.putIfAbsent(PdbResidueIdentifier.from(modifiedResidue), modifiedResidue);
+    }
+
+    // create residues out of atom groups and leave only those detected as nucleotides or amino
+    // acids
+    for (final Map.Entry<PdbResidueIdentifier, G> entry : atomGroups.entrySet()) {
+      final PdbResidueIdentifier identifier = entry.getKey();
+      final G residueAtoms = entry.getValue();
+      final String name = residueName.apply(residueAtoms);
+      final PdbModresLine modification = modifications.get(identifier);
+      final String modifiedResidueName =
+          (modification == null) ? name : modification.standardResidueName();
+      final PdbResidue residue =
+          factory.create(identifier, name, modifiedResidueName, residueAtoms);
+      if (residue.residueInformationProvider().moleculeType() != MoleculeType.UNKNOWN) {
+        chainResidues.get(identifier.chainIdentifier()).add(residue);
+      }
+    }
+
+    // create residues out of information about missing residues in the headers
+    final Map<String, List<PdbResidue>> missingOnlyChains = new LinkedHashMap<>();
+    for (final PdbRemark465Line missingResidue : missingResidues) {
+      final String chainIdentifier = missingResidue.chainIdentifier();
+      final List<PdbResidue> residues =
+          chainResidues.containsKey(chainIdentifier)
+              ? chainResidues.get(chainIdentifier)
+              : missingOnlyChains.computeIfAbsent(chainIdentifier, key -> new ArrayList<>());
+      residues.add(missingResidue.toResidue());
+    }
+
+    // sorting is stable and mostly merges two sorted runs (existing and missing residues)
+    final List<PdbResidue> result = new ArrayList<>();
+    for (final List<PdbResidue> residues : missingOnlyChains.values()) {
+      residues.sort(ModelAssembler.NUMBER_ICODE_ORDER);
+      result.addAll(residues);
+    }
+    for (final List<PdbResidue> residues : chainResidues.values()) {
+      residues.sort(ModelAssembler.NUMBER_ICODE_ORDER);
+      result.addAll(residues);
+    }
+    return result;
+  }
+
+  /**
+   * Groups together residues in the same chain and splits them into separate chains after every
+   * residue in {@code chainTerminatedAfter} (and missing residues directly after it).
+   *
+   * @param residues The residues of a model.
+   * @param chainTerminatedAfter The residues followed by a TER line.
+   * @return A list of chains in the model.
+   */
+  static List<PdbChain> assembleChains(
+      final Collection<PdbResidue> residues,
+      final Set<PdbResidueIdentifier> chainTerminatedAfter) {
+    final Map<String, List<PdbResidue>> chainResidues = new LinkedHashMap<>();
+    for (final PdbResidue residue : residues) {
+      chainResidues
+          .computeIfAbsent(residue.chainIdentifier(), key -> new ArrayList<>())
+          .add(residue);
+    }
+
+    final List<PdbChain> chains = new ArrayList<>();
+    for (final Map.Entry<String, List<PdbResidue>> entry : chainResidues.entrySet()) {
+      final String chainIdentifier = entry.getKey();
+      final List<PdbResidue> residueGroup = entry.getValue();
+      final int size = residueGroup.size();
+
+      int begin = 0;
+      if (!chainTerminatedAfter.isEmpty()) {
+        for (int i = 0; i < size; i++) {
+          if (chainTerminatedAfter.contains(residueGroup.get(i).identifier())) {
+            // move `end` past all missing residues after TER line
+            int end = i + 1;
+            while ((end < size) && residueGroup.get(end).isMissing()) {
+              end++;
+            }
+            chains.add(ImmutablePdbChain.of(chainIdentifier, residueGroup.subList(begin, end)));
+            begin = end;
+          }
+        }
+      }
+
+      if (begin < size) {
+        chains.add(ImmutablePdbChain.of(chainIdentifier, residueGroup.subList(begin, size)));
+      }
+    }
+    return chains;
+  }
+
+  /**
+   * Maps identifiers of residues to their positions, keeping the first position of a repeated
+   * identifier.
+   *
+   * @param residues A list of residues.
+   * @return An unmodifiable map of residue identifiers to indices in {@code residues}.
+   */
+  static Map<PdbResidueIdentifier, Integer> indexResidues(final List<PdbResidue> residues) {
+    final Map<PdbResidueIdentifier, Integer> indices = new HashMap<>(residues.size() * 2);
+    for (int i = 0; i < residues.size(); i++) {
+      indices.putIfAbsent(residues.get(i).identifier(), i);
+    }
+    return Collections.unmodifiableMap(indices);
+  }
+
+  private static boolean isSameResidue(final PdbAtomLine previous, final PdbAtomLine atom) {
+    return (previous.residueNumber() == atom.residueNumber())
+        && Objects.equals(previous.chainIdentifier(), atom.chainIdentifier())
+        && Objects.equals(previous.insertionCode(), atom.insertionCode());
+  }
+
+  /**
+   * Creates a residue out of a group of atoms.
+   *
+   * @param <G> The type of a group of atoms.
+   */
+  @FunctionalInterface
+  interface ResidueFactory<G> {
+    /**
+     * @param identifier The residue identifier.
+     * @param residueName The residue name as read from the atoms.
+     * @param modifiedResidueName The residue name after applying MODRES records.
+     * @param atoms The group of atoms.
+     * @return A new residue.
+     */
+    PdbResidue create(
+        PdbResidueIdentifier identifier,
+        String residueName,
+        String modifiedResidueName,
+        G atoms);
+  }
+}
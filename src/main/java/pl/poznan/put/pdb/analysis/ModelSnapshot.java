@@ -0,0 +1,597 @@
+package pl.poznan.put.pdb.analysis;
+
+import pl.poznan.put.notation.BPh;
+import pl.poznan.put.notation.BR;
+import pl.poznan.put.notation.LeontisWesthof;
+import pl.poznan.put.notation.Saenger;
+import pl.poznan.put.pdb.ExperimentalTechnique;
+import pl.poznan.put.pdb.ImmutablePdbAtomLine;
+import pl.poznan.put.pdb.ImmutablePdbExpdtaLine;
+import pl.poznan.put.pdb.ImmutablePdbHeaderLine;
+import pl.poznan.put.pdb.ImmutablePdbModresLine;
+import pl.poznan.put.pdb.ImmutablePdbNamedResidueIdentifier;
+import pl.poznan.put.pdb.ImmutablePdbRemark2Line;
+import pl.poznan.put.pdb.ImmutablePdbRemark465Line;
+import pl.poznan.put.pdb.ImmutablePdbResidueIdentifier;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbExpdtaLine;
+import pl.poznan.put.pdb.PdbHeaderLine;
+import pl.poznan.put.pdb.PdbModresLine;
+import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
+import pl.poznan.put.pdb.PdbRemark2Line;
+import pl.poznan.put.pdb.PdbRemark465Line;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
+import pl.poznan.put.structure.ImmutableBasePair;
+import pl.poznan.put.structure.ImmutableQuantifiedBasePair;
+import pl.poznan.put.structure.QuantifiedBasePair;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary snapshot of parsed models, meant to store parse results and load them much
+ * faster than parsing the source file again. A snapshot starts with a magic number and a format
+ * version, followed by a dictionary of all distinct strings and then by the models. Names of
+ * atoms, residues, chains etc. are stored as indices into the dictionary. Serial and residue
+ * numbers are delta-encoded. Coordinates, occupancies and temperature factors are stored as
+ * fixed-point integers (with 3 decimal places, delta-encoded) if this loses no precision, or as
+ * 64-bit floating point numbers otherwise. Headers, MODRES and REMARK 465 records, chain
+ * terminations and, for mmCIF models, the base pairs are stored as well.
+ */
+public final class ModelSnapshot {
+  /** The current version of the snapshot format. */
+  public static final int VERSION = 1;
+
+  private static final int MAGIC = 0x42434d53; // "BCMS"
+  private static final byte KIND_PDB = 0;
+  private static final byte KIND_CIF = 1;
+  private static final byte FIXED_POINT = 0;
+  private static final byte FLOAT64 = 1;
+  private static final double FIXED_POINT_FACTOR = 1000.0;
+
+  private ModelSnapshot() {
+    super();
+  }
+
+  /**
+   * Creates a snapshot of models.
+   *
+   * @param models The models to store, usually all models parsed from a single file.
+   * @return The snapshot content.
+   */
+  public static byte[] write(final List<? extends PdbModel> models) {
+    try {
+      final Encoder encoder = new Encoder();
+      encoder.writeVarint(models.size());
+      for (final PdbModel model : models) {
+        encoder.writeModel(model);
+      }
+      return encoder.toByteArray();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Failed to write to memory", e);
+    }
+  }
+
+  /**
+   * Creates a snapshot of models and stores it in a file.
+   *
+   * @param models The models to store, usually all models parsed from a single file.
+   * @param path The path to the snapshot file.
+   * @throws IOException When writing of the file fails.
+   */
+  public static void write(final List<? extends PdbModel> models, final Path path)
+      throws IOException {
+    Files.write(path, ModelSnapshot.write(models));
+  }
+
+  /**
+   * Restores models from a snapshot. Models which were instances of {@link CifModel} are restored
+   * as {@link CifModel}, all others as {@link DefaultPdbModel}.
+   *
+   * @param data The snapshot content.
+   * @return The restored models.
+   * @throws IOException When the data are not a valid snapshot, they are truncated or corrupted or
+   *     their version is not supported.
+   */
+  public static List<PdbModel> read(final byte[] data) throws IOException {
+    try {
+      final Decoder decoder = new Decoder(ByteBuffer.wrap(data));
+      final int count = decoder.readCount(1);
+      final List<PdbModel> models = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        models.add(decoder.readModel());
+      }
+      return models;
+    } catch (final BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Snapshot data are truncated or corrupted", e);
+    } catch (final IllegalArgumentException | IllegalStateException | NullPointerException e) {
+      // restored values which pass the format checks may still be rejected by the models
+      throw new IOException("Snapshot data are corrupted", e);
+    }
+  }
+
+  /**
+   * Restores models from a snapshot file, which is read at once.
+   *
+   * @param path The path to the snapshot file.
+   * @return The restored models.
+   * @throws IOException When reading of the file fails or it is not a valid snapshot.
+   * @see #read(byte[])
+   */
+  public static List<PdbModel> read(final Path path) throws IOException {
+    return ModelSnapshot.read(Files.readAllBytes(path));
+  }
+
+  private static boolean isFixedPoint(final double[] values) {
+    for (final double value : values) {
+      final double scaled = value * ModelSnapshot.FIXED_POINT_FACTOR;
+      if (!(Math.abs(scaled) < Integer.MAX_VALUE)
+          || ((Math.round(scaled) / ModelSnapshot.FIXED_POINT_FACTOR) != value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Writes the body to memory while building the dictionary, which precedes it in the output. */
+  private static final class Encoder {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream body = new DataOutputStream(bytes);
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    private static void writeVarint(final DataOutputStream stream, final long value)
+        throws IOException {
+      long remaining = value;
+      while ((remaining & ~0x7fL) != 0L) {
+        stream.writeByte((int) ((remaining & 0x7fL) | 0x80L));
+        remaining >>>= 7;
+      }
+      stream.writeByte((int) remaining);
+    }
+
+    private byte[] toByteArray() throws IOException {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.size() + 1024);
+      final DataOutputStream stream = new DataOutputStream(output);
+      stream.writeInt(ModelSnapshot.MAGIC);
+      stream.writeInt(ModelSnapshot.VERSION);
+      Encoder.writeVarint(stream, strings.size());
+      for (final String string : strings) {
+        final byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+        Encoder.writeVarint(stream, utf8.length);
+        stream.write(utf8);
+      }
+      body.flush();
+      bytes.writeTo(stream);
+      stream.flush();
+      return output.toByteArray();
+    }
+
+    private void writeVarint(final long value) throws IOException {
+      Encoder.writeVarint(body, value);
+    }
+
+    private void writeSigned(final long value) throws IOException {
+      // zigzag encoding keeps small negative numbers short
+      writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeString(final String value) throws IOException {
+      Integer index = dictionary.get(value);
+      if (index == null) {
+        index = strings.size();
+        dictionary.put(value, index);
+        strings.add(value);
+      }
+      writeVarint(index);
+    }
+
+    private void writeDeltas(final int[] values) throws IOException {
+      int previous = 0;
+      for (final int value : values) {
+        writeSigned((long) value - previous);
+        previous = value;
+      }
+    }
+
+    private void writeDoubles(final double[] values) throws IOException {
+      if (ModelSnapshot.isFixedPoint(values)) {
+        body.writeByte(ModelSnapshot.FIXED_POINT);
+        long previous = 0L;
+        for (final double value : values) {
+          final long scaled = Math.round(value * ModelSnapshot.FIXED_POINT_FACTOR);
+          writeSigned(scaled - previous);
+          previous = scaled;
+        }
+      } else {
+        body.writeByte(ModelSnapshot.FLOAT64);
+        for (final double value : values) {
+          body.writeDouble(value);
+        }
+      }
+    }
+
+    private void writeModel(final PdbModel model) throws IOException {
+      body.writeByte((model instanceof CifModel) ? ModelSnapshot.KIND_CIF : ModelSnapshot.KIND_PDB);
+
+      final PdbHeaderLine header = model.header();
+      writeString(header.classification());
+      body.writeLong(header.depositionDate().getTime());
+      writeString(header.idCode());
+      final List<ExperimentalTechnique> techniques =
+          model.experimentalData().experimentalTechniques();
+      writeVarint(techniques.size());
+      for (final ExperimentalTechnique technique : techniques) {
+        writeString(technique.name());
+      }
+      body.writeDouble(model.resolution().resolution());
+      writeSigned(model.modelNumber());
+      writeString(model.title());
+
+      writeAtoms(model.atoms());
+
+      writeVarint(model.modifiedResidues().size());
+      for (final PdbModresLine modres : model.modifiedResidues()) {
+        writeString(modres.idCode());
+        writeString(modres.residueName());
+        writeString(modres.chainIdentifier());
+        writeSigned(modres.residueNumber());
+        writeString(modres.insertionCode());
+        writeString(modres.standardResidueName());
+        writeString(modres.comment());
+      }
+
+      writeVarint(model.missingResidues().size());
+      for (final PdbRemark465Line missing : model.missingResidues()) {
+        writeSigned(missing.modelNumber());
+        writeString(missing.residueName());
+        writeString(missing.chainIdentifier());
+        writeSigned(missing.residueNumber());
+        writeString(missing.insertionCode());
+      }
+
+      writeVarint(model.chainTerminatedAfter().size());
+      for (final PdbResidueIdentifier identifier : model.chainTerminatedAfter()) {
+        writeString(identifier.chainIdentifier());
+        writeSigned(identifier.residueNumber());
+        writeString(identifier.insertionCode());
+      }
+
+      if (model instanceof CifModel) {
+        final List<QuantifiedBasePair> basePairs = ((CifModel) model).basePairs();
+        writeVarint(basePairs.size());
+        for (final QuantifiedBasePair basePair : basePairs) {
+          writeBasePair(basePair);
+        }
+      }
+    }
+
+    private void writeAtoms(final List<PdbAtomLine> atoms) throws IOException {
+      final int size = atoms.size();
+      writeVarint(size);
+
+      final int[] serialNumbers = new int[size];
+      final int[] residueNumbers = new int[size];
+      final double[] xs = new double[size];
+      final double[] ys = new double[size];
+      final double[] zs = new double[size];
+      final double[] occupancies = new double[size];
+      final double[] temperatureFactors = new double[size];
+      for (int i = 0; i < size; i++) {
+        final PdbAtomLine atom = atoms.get(i);
+        serialNumbers[i] = atom.serialNumber();
+        residueNumbers[i] = atom.residueNumber();
+        xs[i] = atom.x();
+        ys[i] = atom.y();
+        zs[i] = atom.z();
+        occupancies[i] = atom.occupancy();
+        temperatureFactors[i] = atom.temperatureFactor();
+      }
+
+      for (final PdbAtomLine atom : atoms) {
+        writeString(atom.atomName());
+        writeString(atom.alternateLocation());
+        writeString(atom.residueName());
+        writeString(atom.chainIdentifier());
+        writeString(atom.insertionCode());
+        writeString(atom.elementSymbol());
+        writeString(atom.charge());
+      }
+      writeDeltas(serialNumbers);
+      writeDeltas(residueNumbers);
+      writeDoubles(xs);
+      writeDoubles(ys);
+      writeDoubles(zs);
+      writeDoubles(occupancies);
+      writeDoubles(temperatureFactors);
+    }
+
+    private void writeResidue(final PdbNamedResidueIdentifier identifier) throws IOException {
+      writeString(identifier.chainIdentifier());
+      writeSigned(identifier.residueNumber());
+      writeString(identifier.insertionCode());
+      writeVarint(identifier.oneLetterName());
+    }
+
+    private void writeBasePair(final QuantifiedBasePair basePair) throws IOException {
+      writeResidue(basePair.basePair().left());
+      writeResidue(basePair.basePair().right());
+      writeString(basePair.saenger().name());
+      writeString(basePair.leontisWesthof().name());
+      writeString(basePair.bph().name());
+      writeString(basePair.br().name());
+      body.writeDouble(basePair.shear());
+      body.writeDouble(basePair.stretch());
+      body.writeDouble(basePair.stagger());
+      body.writeDouble(basePair.buckle());
+      body.writeDouble(basePair.propeller());
+      body.writeDouble(basePair.opening());
+    }
+  }
+
+  /** Reads a snapshot out of a buffer holding the whole content. */
+  private static final class Decoder {
+    private final ByteBuffer buffer;
+    private final String[] dictionary;
+
+    private Decoder(final ByteBuffer buffer) throws IOException {
+      super();
+      this.buffer = buffer;
+
+      if (buffer.getInt() != ModelSnapshot.MAGIC) {
+        throw new IOException("Data are not a model snapshot");
+      }
+      final int version = buffer.getInt();
+      if (version != ModelSnapshot.VERSION) {
+        throw new IOException("Unsupported snapshot version: " + version);
+      }
+
+      dictionary = new String[readCount(1)];
+      for (int i = 0; i < dictionary.length; i++) {
+        final int length = readCount(1);
+        dictionary[i] =
+            new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+      }
+    }
+
+    private long readVarlong() throws IOException {
+      long value = 0L;
+      int shift = 0;
+      byte b;
+      do {
+        if (shift > 63) {
+          throw new IOException("Invalid variable-length number in snapshot");
+        }
+        b = buffer.get();
+        value |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private int readVarint() throws IOException {
+      final long value = readVarlong();
+      if ((value < 0L) || (value > Integer.MAX_VALUE)) {
+        throw new IOException("Invalid size or index in snapshot: " + value);
+      }
+      return (int) value;
+    }
+
+    // every element takes at least the given number of bytes, so the count is limited by the data
+    private int readCount(final int minimumBytes) throws IOException {
+      final int count = readVarint();
+      if (((long) count * minimumBytes) > buffer.remaining()) {
+        throw new IOException("Invalid count in snapshot: " + count);
+      }
+      return count;
+    }
+
+    private long readSigned() throws IOException {
+      final long value = readVarlong();
+      return (value >>> 1) ^ -(value & 1L);
+    }
+
+    private String readString() throws IOException {
+      final int index = readVarint();
+      if (index >= dictionary.length) {
+        throw new IOException("Invalid string index in snapshot: " + index);
+      }
+      return dictionary[index];
+    }
+
+    private <E extends Enum<E>> E readEnum(final Class<E> type) throws IOException {
+      try {
+        return Enum.valueOf(type, readString());
+      } catch (final IllegalArgumentException e) {
+        throw new IOException("Invalid value of " + type.getSimpleName() + " in snapshot", e);
+      }
+    }
+
+    private int[] readDeltas(final int size) throws IOException {
+      final int[] values = new int[size];
+      long previous = 0L;
+      for (int i = 0; i < size; i++) {
+        previous += readSigned();
+        values[i] = (int) previous;
+      }
+      return values;
+    }
+
+    private double[] readDoubles(final int size) throws IOException {
+      final double[] values = new double[size];
+      final byte mode = buffer.get();
+      if (mode == ModelSnapshot.FIXED_POINT) {
+        long previous = 0L;
+        for (int i = 0; i < size; i++) {
+          previous += readSigned();
+          values[i] = previous / ModelSnapshot.FIXED_POINT_FACTOR;
+        }
+      } else if (mode == ModelSnapshot.FLOAT64) {
+        if (((long) size * Double.BYTES) > buffer.remaining()) {
+          throw new IOException("Snapshot data are truncated");
+        }
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + (size * Double.BYTES));
+      } else {
+        throw new IOException("Invalid encoding of numbers in snapshot: " + mode);
+      }
+      return values;
+    }
+
+    private PdbModel readModel() throws IOException {
+      final byte kind = buffer.get();
+
+      final String classification = readString();
+      final Date depositionDate = new Date(buffer.getLong());
+      final PdbHeaderLine header =
+          ImmutablePdbHeaderLine.of(classification, depositionDate, readString());
+      final List<ExperimentalTechnique> techniques = new ArrayList<>();
+      for (int i = readCount(1); i > 0; i--) {
+        techniques.add(readEnum(ExperimentalTechnique.class));
+      }
+      final PdbExpdtaLine experimentalData = ImmutablePdbExpdtaLine.of(techniques);
+      final PdbRemark2Line resolution = ImmutablePdbRemark2Line.of(buffer.getDouble());
+      final int modelNumber = (int) readSigned();
+      final String title = readString();
+
+      final List<PdbAtomLine> atoms = readAtoms();
+
+      final List<PdbModresLine> modifiedResidues = new ArrayList<>();
+      for (int i = readCount(7); i > 0; i--) {
+        modifiedResidues.add(
+            ImmutablePdbModresLine.of(
+                readString(),
+                readString(),
+                readString(),
+                (int) readSigned(),
+                readString(),
+                readString(),
+                readString()));
+      }
+
+      final List<PdbRemark465Line> missingResidues = new ArrayList<>();
+      for (int i = readCount(5); i > 0; i--) {
+        missingResidues.add(
+            ImmutablePdbRemark465Line.of(
+                (int) readSigned(), readString(), readString(), (int) readSigned(), readString()));
+      }
+
+      final Set<PdbResidueIdentifier> chainTerminatedAfter = new LinkedHashSet<>();
+      for (int i = readCount(3); i > 0; i--) {
+        chainTerminatedAfter.add(
+            ImmutablePdbResidueIdentifier.of(readString(), (int) readSigned(), readString()));
+      }
+
+      if (kind == ModelSnapshot.KIND_PDB) {
+        return ImmutableDefaultPdbModel.of(
+            header,
+            experimentalData,
+            resolution,
+            modelNumber,
+            atoms,
+            modifiedResidues,
+            missingResidues,
+            title,
+            chainTerminatedAfter);
+      }
+      if (kind != ModelSnapshot.KIND_CIF) {
+        throw new IOException("Invalid kind of model in snapshot: " + kind);
+      }
+
+      final List<QuantifiedBasePair> basePairs = new ArrayList<>();
+      // two residues, four notations and six doubles
+      for (int i = readCount(60); i > 0; i--) {
+        basePairs.add(readBasePair());
+      }
+      return ImmutableDefaultCifModel.of(
+          header,
+          experimentalData,
+          resolution,
+          modelNumber,
+          atoms,
+          modifiedResidues,
+          missingResidues,
+          title,
+          chainTerminatedAfter,
+          basePairs);
+    }
+
+    private List<PdbAtomLine> readAtoms() throws IOException {
+      // seven names, two deltas and five numbers of at least one byte each
+      final int size = readCount(14);
+      final String[] names = new String[size * 7];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = readString();
+      }
+      final int[] serialNumbers = readDeltas(size);
+      final int[] residueNumbers = readDeltas(size);
+      final double[] xs = readDoubles(size);
+      final double[] ys = readDoubles(size);
+      final double[] zs = readDoubles(size);
+      final double[] occupancies = readDoubles(size);
+      final double[] temperatureFactors = readDoubles(size);
+
+      final List<PdbAtomLine> atoms = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        final int j = i * 7;
+        atoms.add(
+            ImmutablePdbAtomLine.of(
+                serialNumbers[i],
+                names[j],
+                names[j + 1],
+                names[j + 2],
+                names[j + 3],
+                residueNumbers[i],
+                names[j + 4],
+                xs[i],
+                ys[i],
+                zs[i],
+                occupancies[i],
+                temperatureFactors[i],
+                names[j + 5],
+                names[j + 6]));
+      }
+      return atoms;
+    }
+
+    private PdbNamedResidueIdentifier readResidue() throws IOException {
+      return ImmutablePdbNamedResidueIdentifier.of(
+          readString(), (int) readSigned(), readString(), (char) readVarint());
+    }
+
+    private QuantifiedBasePair readBasePair() throws IOException {
+      final PdbNamedResidueIdentifier left = readResidue();
+      final PdbNamedResidueIdentifier right = readResidue();
+      final Saenger saenger = readEnum(Saenger.class);
+      final LeontisWesthof leontisWesthof = readEnum(LeontisWesthof.class);
+      final BPh bph = readEnum(BPh.class);
+      final BR br = readEnum(BR.class);
+      return ImmutableQuantifiedBasePair.of(
+              ImmutableBasePair.of(left, right),
+              buffer.getDouble(),
+              buffer.getDouble(),
+              buffer.getDouble(),
+              buffer.getDouble(),
+              buffer.getDouble(),
+              buffer.getDouble())
+          .withSaenger(saenger)
+          .withLeontisWesthof(leontisWesthof)
+          .withBph(bph)
+          .withBr(br);
+    }
+  }
+}
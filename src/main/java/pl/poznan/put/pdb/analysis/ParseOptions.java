@@ -0,0 +1,80 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * Filters applied to atoms while a structure is parsed. Atoms rejected by any filter are skipped
+ * before their {@link pl.poznan.put.pdb.PdbAtomLine} is created, so they cost neither time nor
+ * memory. Empty sets mean that the given filter is not active. Use {@code
+ * ImmutableParseOptions.builder()} to create an instance.
+ */
+@Value.Immutable
+public abstract class ParseOptions {
+  /** @return An instance which does not filter out anything. */
+  public static ParseOptions defaults() {
+    return ImmutableParseOptions.builder().build();
+  }
+
+  /** @return Identifiers of chains to keep. */
+  public abstract Set<String> chainIdentifiers();
+
+  /** @return Numbers of models to keep. */
+  public abstract Set<Integer> modelNumbers();
+
+  /** @return Names of residues to keep. */
+  public abstract Set<String> allowedResidueNames();
+
+  /** @return Names of residues to skip. */
+  public abstract Set<String> deniedResidueNames();
+
+  /** @return True if HETATM records should be skipped. */
+  @Value.Default
+  public boolean excludeHetatm() {
+    return false;
+  }
+
+  /** @return True if water molecules should be skipped. */
+  @Value.Default
+  public boolean excludeWater() {
+    return false;
+  }
+
+  /** @return True if hydrogen (and deuterium) atoms should be skipped. */
+  @Value.Default
+  public boolean excludeHydrogens() {
+    return false;
+  }
+
+  /**
+   * @return True if only the first alternate location of each residue should be kept, together
+   *     with atoms without any alternate location.
+   */
+  @Value.Default
+  public boolean firstAlternateLocationOnly() {
+    return false;
+  }
+
+  /**
+   * Checks if a model of a given number should be kept.
+   *
+   * @param modelNumber The model number.
+   * @return True if the model should be kept.
+   */
+  public final boolean acceptsModel(final int modelNumber) {
+    return modelNumbers().isEmpty() || modelNumbers().contains(modelNumber);
+  }
+
+  /** @return True if none of the filters is active. */
+  public final boolean acceptsAll() {
+    return chainIdentifiers().isEmpty()
+        && modelNumbers().isEmpty()
+        && allowedResidueNames().isEmpty()
+        && deniedResidueNames().isEmpty()
+        && !excludeHetatm()
+        && !excludeWater()
+        && !excludeHydrogens()
+        && !firstAlternateLocationOnly();
+  }
+}
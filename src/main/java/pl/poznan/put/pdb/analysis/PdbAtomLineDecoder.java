@@ -0,0 +1,291 @@
+package pl.poznan.put.pdb.analysis;
+
+import pl.poznan.put.pdb.ImmutablePdbAtomLine;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbParsingException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A decoder of ATOM and HETATM records working directly on bytes. It follows the same rules as
+ * {@link PdbAtomLine#parse(String, boolean)}, but it avoids creation of intermediate strings:
+ * numbers are parsed from fixed columns and names are taken from a pool, so each distinct name is
+ * allocated only once per decoder.
+ */
+final class PdbAtomLineDecoder {
+  private static final double[] POWERS_OF_TEN = {
+    1.0e0, 1.0e1, 1.0e2, 1.0e3, 1.0e4, 1.0e5, 1.0e6, 1.0e7, 1.0e8, 1.0e9, 1.0e10, 1.0e11, 1.0e12,
+    1.0e13, 1.0e14, 1.0e15
+  };
+  // at most 15 decimal digits are always exactly representable as a double
+  private static final int MAX_DECIMAL_DIGITS = 15;
+  private static final int MAX_INTEGER_DIGITS = 9;
+
+  private final boolean strictMode;
+  private final NamePool namePool = new NamePool();
+
+  PdbAtomLineDecoder(final boolean strictMode) {
+    super();
+    this.strictMode = strictMode;
+  }
+
+  private static boolean isWhitespace(final int b) {
+    // the same set as Character.isWhitespace() for ASCII characters
+    return (b == ' ') || ((b >= 0x09) && (b <= 0x0D)) || ((b >= 0x1C) && (b <= 0x1F));
+  }
+
+  private static boolean isBlank(final ByteBuffer buffer, final int begin, final int end) {
+    for (int i = begin; i < end; i++) {
+      if (!PdbAtomLineDecoder.isWhitespace(buffer.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // the same rule as String.trim()
+  private static int trimBegin(final ByteBuffer buffer, final int begin, final int end) {
+    int i = begin;
+    while ((i < end) && ((buffer.get(i) & 0xFF) <= ' ')) {
+      i++;
+    }
+    return i;
+  }
+
+  // the same rule as String.trim()
+  private static int trimEnd(final ByteBuffer buffer, final int begin, final int end) {
+    int i = end;
+    while ((i > begin) && ((buffer.get(i - 1) & 0xFF) <= ' ')) {
+      i--;
+    }
+    return i;
+  }
+
+  private static String asString(final ByteBuffer buffer, final int begin, final int end) {
+    final byte[] bytes = new byte[end - begin];
+    for (int i = begin; i < end; i++) {
+      bytes[i - begin] = buffer.get(i);
+    }
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  private static int parseInt(final ByteBuffer buffer, final int fieldBegin, final int fieldEnd) {
+    final int begin = PdbAtomLineDecoder.trimBegin(buffer, fieldBegin, fieldEnd);
+    final int end = PdbAtomLineDecoder.trimEnd(buffer, begin, fieldEnd);
+
+    int i = begin;
+    boolean negative = false;
+    if ((i < end) && ((buffer.get(i) == '-') || (buffer.get(i) == '+'))) {
+      negative = buffer.get(i) == '-';
+      i++;
+    }
+
+    if ((i == end) || ((end - i) > PdbAtomLineDecoder.MAX_INTEGER_DIGITS)) {
+      return Integer.parseInt(PdbAtomLineDecoder.asString(buffer, begin, end));
+    }
+
+    int value = 0;
+    for (; i < end; i++) {
+      final int digit = buffer.get(i) - '0';
+      if ((digit < 0) || (digit > 9)) {
+        return Integer.parseInt(PdbAtomLineDecoder.asString(buffer, begin, end));
+      }
+      value = (value * 10) + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  private static double parseDouble(
+      final ByteBuffer buffer, final int fieldBegin, final int fieldEnd) {
+    final int begin = PdbAtomLineDecoder.trimBegin(buffer, fieldBegin, fieldEnd);
+    final int end = PdbAtomLineDecoder.trimEnd(buffer, begin, fieldEnd);
+
+    int i = begin;
+    boolean negative = false;
+    if ((i < end) && ((buffer.get(i) == '-') || (buffer.get(i) == '+'))) {
+      negative = buffer.get(i) == '-';
+      i++;
+    }
+
+    long mantissa = 0L;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean dotSeen = false;
+    for (; i < end; i++) {
+      final byte b = buffer.get(i);
+      if ((b == '.') && !dotSeen) {
+        dotSeen = true;
+      } else if ((b >= '0') && (b <= '9') && (digits < PdbAtomLineDecoder.MAX_DECIMAL_DIGITS)) {
+        mantissa = (mantissa * 10L) + (b - '0');
+        digits++;
+        if (dotSeen) {
+          fractionDigits++;
+        }
+      } else {
+        // exponents, special values or too many digits are handled by the JDK
+        return Double.parseDouble(PdbAtomLineDecoder.asString(buffer, begin, end));
+      }
+    }
+
+    if (digits == 0) {
+      return Double.parseDouble(PdbAtomLineDecoder.asString(buffer, begin, end));
+    }
+
+    // both numbers are exact, so the division is correctly rounded like Double.parseDouble()
+    final double value = mantissa / PdbAtomLineDecoder.POWERS_OF_TEN[fractionDigits];
+    return negative ? -value : value;
+  }
+
+  /**
+   * Decodes an ATOM or HETATM line stored in the buffer between {@code begin} (inclusive) and
+   * {@code end} (exclusive). The range must not contain line terminators and must consist of ASCII
+   * characters only.
+   *
+   * @param buffer The buffer with data in PDB format.
+   * @param begin Index of the first character of the line.
+   * @param end Index past the last character of the line.
+   * @return A decoded atom.
+   */
+  PdbAtomLine decode(final ByteBuffer buffer, final int begin, final int end) {
+    final int length = end - begin;
+
+    // in non-strict mode, only up to X, Y, Z fields are required, rest is
+    // optional
+    final int minLineLenth = strictMode ? 80 : 54;
+    if (length < minLineLenth) {
+      throw new PdbParsingException("PDB ATOM line is too short");
+    }
+
+    if (!isAtomRecord(buffer, begin) && !isHetatmRecord(buffer, begin)) {
+      throw new PdbParsingException("PDB line does not start with ATOM or HETATM");
+    }
+
+    try {
+      final int serialNumber = PdbAtomLineDecoder.parseInt(buffer, begin + 6, begin + 11);
+      final String atomName = trimmedName(buffer, begin + 12, begin + 16);
+      final String alternateLocation = name(buffer, begin + 16, begin + 17);
+      final String residueName = trimmedName(buffer, begin + 17, begin + 20);
+      final String chainIdentifier = name(buffer, begin + 21, begin + 22);
+      final int residueNumber = PdbAtomLineDecoder.parseInt(buffer, begin + 22, begin + 26);
+      final String insertionCode = name(buffer, begin + 26, begin + 27);
+      final double x = PdbAtomLineDecoder.parseDouble(buffer, begin + 30, begin + 38);
+      final double y = PdbAtomLineDecoder.parseDouble(buffer, begin + 38, begin + 46);
+      final double z = PdbAtomLineDecoder.parseDouble(buffer, begin + 46, begin + 54);
+
+      final double occupancy =
+          ((length >= 60) && !PdbAtomLineDecoder.isBlank(buffer, begin + 54, begin + 60))
+              ? PdbAtomLineDecoder.parseDouble(buffer, begin + 54, begin + 60)
+              : 0;
+      final double temperatureFactor =
+          ((length >= 66) && !PdbAtomLineDecoder.isBlank(buffer, begin + 60, begin + 66))
+              ? PdbAtomLineDecoder.parseDouble(buffer, begin + 60, begin + 66)
+              : 0;
+      final String elementSymbol =
+          (length >= 78) ? trimmedName(buffer, begin + 76, begin + 78) : "";
+      final String charge = (length >= 80) ? trimmedName(buffer, begin + 78, begin + 80) : "";
+
+      return ImmutablePdbAtomLine.of(
+          serialNumber,
+          atomName,
+          alternateLocation,
+          residueName,
+          chainIdentifier,
+          residueNumber,
+          insertionCode,
+          x,
+          y,
+          z,
+          occupancy,
+          temperatureFactor,
+          elementSymbol,
+          charge);
+    } catch (final NumberFormatException e) {
+      throw new PdbParsingException("Failed to parse PDB ATOM line", e);
+    }
+  }
+
+  private boolean isAtomRecord(final ByteBuffer buffer, final int begin) {
+    return (buffer.get(begin) == 'A')
+        && (buffer.get(begin + 1) == 'T')
+        && (buffer.get(begin + 2) == 'O')
+        && (buffer.get(begin + 3) == 'M')
+        && ((buffer.get(begin + 4) & 0xFF) <= ' ')
+        && ((buffer.get(begin + 5) & 0xFF) <= ' ');
+  }
+
+  private boolean isHetatmRecord(final ByteBuffer buffer, final int begin) {
+    return (buffer.get(begin) == 'H')
+        && (buffer.get(begin + 1) == 'E')
+        && (buffer.get(begin + 2) == 'T')
+        && (buffer.get(begin + 3) == 'A')
+        && (buffer.get(begin + 4) == 'T')
+        && (buffer.get(begin + 5) == 'M');
+  }
+
+  private String trimmedName(final ByteBuffer buffer, final int fieldBegin, final int fieldEnd) {
+    final int begin = PdbAtomLineDecoder.trimBegin(buffer, fieldBegin, fieldEnd);
+    final int end = PdbAtomLineDecoder.trimEnd(buffer, begin, fieldEnd);
+    return name(buffer, begin, end);
+  }
+
+  private String name(final ByteBuffer buffer, final int begin, final int end) {
+    // all names in fixed PDB columns have at most 4 characters, so they fit into a single long
+    long key = end - begin;
+    for (int i = begin; i < end; i++) {
+      key = (key << 8) | (buffer.get(i) & 0xFF);
+    }
+    return namePool.get(key, buffer, begin, end);
+  }
+
+  /** An open-addressing hash table mapping packed short names to their string instances. */
+  private static final class NamePool {
+    private long[] keys = new long[256];
+    private String[] values = new String[256];
+    private int size;
+
+    private static int hash(final long key) {
+      final long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+
+    String get(final long key, final ByteBuffer buffer, final int begin, final int end) {
+      final int mask = keys.length - 1;
+      int index = NamePool.hash(key) & mask;
+      while (values[index] != null) {
+        if (keys[index] == key) {
+          return values[index];
+        }
+        index = (index + 1) & mask;
+      }
+
+      final String value = PdbAtomLineDecoder.asString(buffer, begin, end);
+      keys[index] = key;
+      values[index] = value;
+      size += 1;
+      if ((size * 2) > keys.length) {
+        rehash();
+      }
+      return value;
+    }
+
+    private void rehash() {
+      final long[] oldKeys = keys;
+      final String[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new String[oldValues.length * 2];
+      final int mask = keys.length - 1;
+
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] != null) {
+          int index = NamePool.hash(oldKeys[i]) & mask;
+          while (values[index] != null) {
+            index = (index + 1) & mask;
+          }
+          keys[index] = oldKeys[i];
+          values[index] = oldValues[i];
+        }
+      }
+    }
+  }
+}
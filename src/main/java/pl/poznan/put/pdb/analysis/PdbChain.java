@@ -2,9 +2,11 @@ package pl.poznan.put.pdb.analysis;
 
 import org.biojava.nbio.structure.Chain;
 import org.immutables.value.Value;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
 
 import javax.annotation.Nonnull;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /** A chain in a structure. */
@@ -32,6 +34,12 @@ public abstract class PdbChain implements Comparable<PdbChain>, SingleTypedResid
   @Value.Parameter(order = 2)
   public abstract List<PdbResidue> residues();
 
+  @Override
+  @Value.Lazy
+  public Map<PdbResidueIdentifier, Integer> residueIndexMap() {
+    return ModelAssembler.indexResidues(residues());
+  }
+
   @Override
   public final int compareTo(@Nonnull final PdbChain t) {
     return identifier().compareTo(t.identifier());
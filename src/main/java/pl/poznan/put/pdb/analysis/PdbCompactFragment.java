@@ -7,10 +7,9 @@ import pl.poznan.put.torsion.TorsionAngleValue;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /** A collection of residues such that (i, i+1) are connected. */
 @Value.Immutable
@@ -19,6 +18,12 @@ public abstract class PdbCompactFragment implements SingleTypedResidueCollection
   @Value.Parameter(order = 1)
   public abstract List<PdbResidue> residues();
 
+  @Override
+  @Value.Lazy
+  public Map<PdbResidueIdentifier, Integer> residueIndexMap() {
+    return ModelAssembler.indexResidues(residues());
+  }
+
   /** @return The name of this compact fragment. */
   @Value.Default
   public String name() {
@@ -47,13 +52,44 @@ public abstract class PdbCompactFragment implements SingleTypedResidueCollection
    * @return An object containing values of torsion angles in the given residue.
    */
   public final ResidueTorsionAngles torsionAngles(final PdbResidueIdentifier identifier) {
-    return angleValues().stream()
-        .filter(angles -> Objects.equals(identifier, angles.identifier()))
-        .findFirst()
-        .orElseThrow(
-            () ->
-                new IllegalArgumentException(
-                    "Failed to find torsion angles values for residue: " + identifier));
+    final Integer index = residueIndexMap().get(identifier);
+    if (index == null) {
+      throw new IllegalArgumentException(
+          "Failed to find torsion angles values for residue: " + identifier);
+    }
+    return angleValues().get(index);
+  }
+
+  /**
+   * Computes torsion angles' values for a residue at a given position.
+   *
+   * @param residueIndex The index of residue in this fragment.
+   * @return An object containing values of torsion angles in the given residue.
+   */
+  public final ResidueTorsionAngles torsionAngles(final int residueIndex) {
+    return angleValues().get(residueIndex);
+  }
+
+  /**
+   * Finds the position of a torsion angle type in {@link #torsionAngleTable()}.
+   *
+   * @param angleType The type of torsion angle to look for.
+   * @return The index to use with {@link #angleRadians(int, int)} or -1 if no residue has it.
+   */
+  public final int angleTypeIndex(final TorsionAngleType angleType) {
+    return angleTypeColumns().indexOf(angleType);
+  }
+
+  /**
+   * Gets the value of a torsion angle, without creating an {@link pl.poznan.put.circular.Angle}.
+   *
+   * @param residueIndex The index of residue in this fragment.
+   * @param angleIndex The index of angle type as returned by {@link
+   *     #angleTypeIndex(TorsionAngleType)}.
+   * @return The value of torsion angle in radians (NaN if it is undefined).
+   */
+  public final double angleRadians(final int residueIndex, final int angleIndex) {
+    return torsionAngleTable().value(residueIndex, angleIndex);
   }
 
   @Override
@@ -72,11 +108,19 @@ public abstract class PdbCompactFragment implements SingleTypedResidueCollection
         .collect(Collectors.toSet());
   }
 
+  /** @return The values of all torsion angles in this fragment, calculated in a batch. */
+  @Value.Lazy
+  public TorsionAngleTable torsionAngleTable() {
+    return TorsionAngleTable.calculate(residues());
+  }
+
+  @Value.Lazy
+  protected AngleTypeIndex angleTypeColumns() {
+    return new AngleTypeIndex(torsionAngleTable().angleTypes());
+  }
+
   @Value.Lazy
   protected List<ResidueTorsionAngles> angleValues() {
-    return IntStream.range(0, residues().size())
-        .boxed()
-        .map(i -> ResidueTorsionAngles.calculate(residues(), i))
-        .collect(Collectors.toList());
+    return ResidueTorsionAngles.fromTable(residues(), torsionAngleTable());
   }
 }
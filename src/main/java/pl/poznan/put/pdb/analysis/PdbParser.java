@@ -1,54 +1,34 @@
 package pl.poznan.put.pdb.analysis;
 
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang3.RandomUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import pl.poznan.put.pdb.ImmutablePdbExpdtaLine;
-import pl.poznan.put.pdb.ImmutablePdbHeaderLine;
-import pl.poznan.put.pdb.ImmutablePdbRemark2Line;
-import pl.poznan.put.pdb.PdbAtomLine;
-import pl.poznan.put.pdb.PdbExpdtaLine;
-import pl.poznan.put.pdb.PdbHeaderLine;
-import pl.poznan.put.pdb.PdbModresLine;
-import pl.poznan.put.pdb.PdbParsingException;
-import pl.poznan.put.pdb.PdbRemark2Line;
-import pl.poznan.put.pdb.PdbRemark465Line;
-import pl.poznan.put.pdb.PdbResidueIdentifier;
-import pl.poznan.put.pdb.PdbTitleLine;
-
+import pl.poznan.put.utility.CompressedInput;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Date;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-/** A parser of PDB format. */
+/**
+ * A parser of PDB format. The parser keeps no state between calls, so a single instance can be
+ * used by many threads at the same time.
+ */
 public class PdbParser {
-  private static final Logger LOGGER = LoggerFactory.getLogger(PdbParser.class);
-
-  private final List<PdbModresLine> modifiedResidues = new ArrayList<>();
-  private final List<PdbRemark465Line> missingResidues = new ArrayList<>();
-  private final Collection<PdbResidueIdentifier> processedIdentifiers = new HashSet<>();
-  private final Set<PdbResidueIdentifier> chainTerminatedAfter = new HashSet<>();
-  private final Collection<Integer> endedModelNumbers = new HashSet<>();
-  private final Map<Integer, List<PdbAtomLine>> modelAtoms = new TreeMap<>();
-  private final Collection<PdbTitleLine> titleLines = new ArrayList<>();
-
   private final boolean strictMode;
-
-  private Optional<PdbHeaderLine> headerLine = Optional.empty();
-  private Optional<PdbExpdtaLine> experimentalDataLine = Optional.empty();
-  private Optional<PdbRemark2Line> resolutionLine = Optional.empty();
-  private Optional<PdbResidueIdentifier> currentIdentifier = Optional.empty();
-  private int currentModelNumber;
+  private final ParseOptions options;
 
   /**
    * Creates an instance with the possibility to set {@code strictMode}.
@@ -56,14 +36,24 @@ public class PdbParser {
    * @param strictMode If false, then some of the checks on PDB format conformity are relaxed.
    */
   public PdbParser(final boolean strictMode) {
+    this(strictMode, ParseOptions.defaults());
+  }
+
+  /**
+   * Creates an instance with the possibility to set {@code strictMode} and filters of atoms.
+   *
+   * @param strictMode If false, then some of the checks on PDB format conformity are relaxed.
+   * @param options Filters deciding which atoms are parsed at all.
+   */
+  public PdbParser(final boolean strictMode, final ParseOptions options) {
     super();
     this.strictMode = strictMode;
+    this.options = options;
   }
 
   /** Creates an instance with {@code strictMode} set to true. */
   public PdbParser() {
-    super();
-    strictMode = true;
+    this(true);
   }
 
   /**
@@ -72,176 +62,281 @@ public class PdbParser {
    * @param structureContent A string containing data in PDB format.
    * @return An object representing the parsed data.
    */
-  public final synchronized List<PdbModel> parse(final String structureContent) {
-    resetState();
-
-    for (final String line : structureContent.split("\n")) {
-      if (line.startsWith("MODEL")) {
-        handleModelLine(line);
-      } else if (line.startsWith("ATOM") || line.startsWith("HETATM")) {
-        handleAtomLine(line);
-      } else if (line.startsWith("TER   ")) {
-        handleTerLine();
-      } else if (line.startsWith("REMARK 465")) {
-        handleMissingResidueLine(line);
-      } else if (line.startsWith("MODRES")) {
-        handleModifiedResidueLine(line);
-      } else if (line.startsWith("HEADER")) {
-        handleHeaderLine(line);
-      } else if (line.startsWith("EXPDTA")) {
-        handleExperimentalDataLine(line);
-      } else if (line.startsWith("REMARK   2 RESOLUTION.")) {
-        handleResolutionLine(line);
-      } else if (line.startsWith("TITLE ")) {
-        handleTitleLine(line);
-      }
+  public final List<PdbModel> parse(final String structureContent) {
+    try (final Reader reader = new StringReader(structureContent)) {
+      return parse(reader);
+    } catch (final IOException e) {
+      // StringReader does not perform any I/O
+      throw new UncheckedIOException(e);
     }
+  }
 
-    final String titleBuilder =
-        titleLines.stream().map(PdbTitleLine::title).collect(Collectors.joining());
-
-    final List<PdbModel> result = new ArrayList<>();
+  /**
+   * Parses a file in PDB format. The file is read line by line, so its whole content is never kept
+   * in memory. If the file is gzip-compressed, it is decompressed on the fly.
+   *
+   * @param path Path to a file in PDB format.
+   * @return An object representing the parsed data.
+   * @throws IOException When reading of the file fails.
+   */
+  public final List<PdbModel> parse(final Path path) throws IOException {
+    try (final Reader reader = CompressedInput.newReader(path)) {
+      return parse(reader);
+    }
+  }
 
-    for (final Map.Entry<Integer, List<PdbAtomLine>> entry : modelAtoms.entrySet()) {
-      final int modelNumber = entry.getKey();
-      final List<PdbAtomLine> atoms = entry.getValue();
-      final PdbModel structureModel =
-          ImmutableDefaultPdbModel.of(
-              headerLine.orElse(ImmutablePdbHeaderLine.of("", new Date(0L), "")),
-              experimentalDataLine.orElse(ImmutablePdbExpdtaLine.of(Collections.emptyList())),
-              resolutionLine.orElse(ImmutablePdbRemark2Line.of(Double.NaN)),
-              modelNumber,
-              atoms,
-              modifiedResidues,
-              missingResidues,
-              titleBuilder,
-              chainTerminatedAfter);
-      result.add(structureModel);
+  /**
+   * Parses a stream of data in PDB format. The stream is read line by line, but it is not closed.
+   * If the data are gzip-compressed, they are decompressed on the fly.
+   *
+   * @param stream A stream with data in PDB format.
+   * @return An object representing the parsed data.
+   * @throws IOException When reading from the stream fails.
+   */
+  public final List<PdbModel> parse(final InputStream stream) throws IOException {
+    try (final InputStream decompressed =
+        CompressedInput.decompress(new CloseShieldInputStream(stream))) {
+      return parse(new InputStreamReader(decompressed, StandardCharsets.UTF_8));
     }
+  }
 
+  /**
+   * Parses data in PDB format and sorts the resulting models by their numbers.
+   *
+   * @param reader A source of data in PDB format.
+   * @return An object representing the parsed data.
+   * @throws IOException When reading from the source fails.
+   */
+  public final List<PdbModel> parse(final Reader reader) throws IOException {
+    final List<PdbModel> result = new ArrayList<>();
+    parse(reader, result::add);
+    result.sort(Comparator.comparingInt(PdbModel::modelNumber));
     return result;
   }
 
-  private void resetState() {
-    modifiedResidues.clear();
-    missingResidues.clear();
-    processedIdentifiers.clear();
-    chainTerminatedAfter.clear();
-    endedModelNumbers.clear();
-    modelAtoms.clear();
-    titleLines.clear();
+  /**
+   * Parses data in PDB format and hands out every model as soon as its ENDMDL line is read. Only
+   * atoms of a single model are kept in memory at a time, so this is the method of choice for large
+   * NMR ensembles or trajectories. The models are passed to the {@code consumer} in the order of
+   * their appearance in the input.
+   *
+   * @param reader A source of data in PDB format.
+   * @param consumer A callback to receive every parsed model.
+   * @throws IOException When reading from the source fails.
+   */
+  public final void parse(
+      final Reader reader, final Consumer<? super PdbModel> consumer) throws IOException {
+    final PdbParsingContext context = new PdbParsingContext(strictMode, options);
+
+    final BufferedReader bufferedReader =
+        (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+    String line;
+    while ((line = bufferedReader.readLine()) != null) {
+      context.handleLine(line, consumer);
+    }
 
-    headerLine = Optional.empty();
-    experimentalDataLine = Optional.empty();
-    currentModelNumber = 0;
-    currentIdentifier = Optional.empty();
+    context.emitModel(consumer);
   }
 
-  private void handleModelLine(final String line) {
-    endedModelNumbers.add(currentModelNumber);
-
-    final String modelNumberString =
-        (line.length() > 14) ? line.substring(10, 14).trim() : line.substring(5).trim();
-    int modelNumber = Integer.parseInt(modelNumberString);
-
-    while (endedModelNumbers.contains(modelNumber)) {
-      // model number has four digits
-      modelNumber = RandomUtils.nextInt(1, 10000);
+  /**
+   * Reads metadata of a structure in PDB format without decoding any atoms.
+   *
+   * @param structureContent A string containing data in PDB format.
+   * @return A summary of the structure.
+   * @see #parseSummary(Reader)
+   */
+  public final StructureSummary parseSummary(final String structureContent) {
+    try (final Reader reader = new StringReader(structureContent)) {
+      return parseSummary(reader);
+    } catch (final IOException e) {
+      // StringReader does not perform any I/O
+      throw new UncheckedIOException(e);
     }
-
-    currentModelNumber = modelNumber;
-
-    processedIdentifiers.clear();
-    chainTerminatedAfter.clear();
-    currentIdentifier = Optional.empty();
   }
 
-  private void handleAtomLine(final String line) {
-    try {
-      final PdbAtomLine atomLine = PdbAtomLine.parse(line, strictMode);
-      final PdbResidueIdentifier identifier = PdbResidueIdentifier.from(atomLine);
-
-      if (processedIdentifiers.contains(identifier)) {
-        PdbParser.LOGGER.warn("Duplicate residue, ignoring it: {}", identifier);
-        return;
-      }
+  /**
+   * Reads metadata of a structure from a file in PDB format without decoding any atoms. If the
+   * file is gzip-compressed, it is decompressed on the fly.
+   *
+   * @param path Path to a file in PDB format.
+   * @return A summary of the structure.
+   * @throws IOException When reading of the file fails.
+   * @see #parseSummary(Reader)
+   */
+  public final StructureSummary parseSummary(final Path path) throws IOException {
+    try (final Reader reader = CompressedInput.newReader(path)) {
+      return parseSummary(reader);
+    }
+  }
 
-      if (currentIdentifier.isPresent() && !identifier.equals(currentIdentifier.get())) {
-        processedIdentifiers.add(currentIdentifier.get());
-        currentIdentifier = Optional.of(identifier);
+  /**
+   * Reads metadata of a structure in PDB format without decoding any atoms. The header records
+   * (HEADER, TITLE, EXPDTA, REMARK 2) are parsed as usual. Molecule types of chains are guessed
+   * from residue names in SEQRES records and reading stops as soon as the coordinate section
+   * starts. If there are no SEQRES records, then residue names are taken from fixed columns of
+   * ATOM and HETATM lines of the first model.
+   *
+   * @param reader A source of data in PDB format.
+   * @return A summary of the structure.
+   * @throws IOException When reading from the source fails.
+   */
+  public final StructureSummary parseSummary(final Reader reader) throws IOException {
+    final PdbParsingContext context = new PdbParsingContext(strictMode, options);
+    final ChainComposition sequences = new ChainComposition();
+    final ChainComposition coordinates = new ChainComposition();
+
+    final BufferedReader bufferedReader =
+        (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+    String line;
+    while ((line = bufferedReader.readLine()) != null) {
+      if (line.startsWith("ATOM") || line.startsWith("HETATM")) {
+        if (!sequences.isEmpty()) {
+          break;
+        }
+        if (line.length() >= 22) {
+          coordinates.add(line.substring(21, 22), line.substring(17, 20).trim());
+        }
+      } else if (line.startsWith("MODEL")) {
+        if (!sequences.isEmpty()) {
+          break;
+        }
+      } else if (line.startsWith("ENDMDL")) {
+        break;
+      } else if (line.startsWith("SEQRES")) {
+        PdbParser.handleSequenceLine(line, sequences);
+      } else {
+        context.handleLine(line, model -> {});
       }
+    }
 
-      if (!modelAtoms.containsKey(currentModelNumber)) {
-        modelAtoms.put(currentModelNumber, new ArrayList<>());
-      }
+    return context.buildSummary(
+        sequences.isEmpty() ? coordinates.moleculeTypes() : sequences.moleculeTypes());
+  }
 
-      final List<PdbAtomLine> atomList = modelAtoms.get(currentModelNumber);
-      atomList.add(atomLine);
-    } catch (final PdbParsingException e) {
-      PdbParser.LOGGER.warn("Invalid ATOM line: {}", line, e);
+  /**
+   * Parses a string in PDB format and decodes atoms of each MODEL block in parallel.
+   *
+   * @param structureContent A string containing data in PDB format.
+   * @param executor An executor to run decoding of MODEL blocks.
+   * @return An object representing the parsed data.
+   * @see #parseParallel(Reader, Executor)
+   */
+  public final List<PdbModel> parseParallel(
+      final String structureContent, final Executor executor) {
+    try (final Reader reader = new StringReader(structureContent)) {
+      return parseParallel(reader, executor);
+    } catch (final IOException e) {
+      // StringReader does not perform any I/O
+      throw new UncheckedIOException(e);
     }
   }
 
-  private void handleTitleLine(final String line) {
-    try {
-      final PdbTitleLine titleLine = PdbTitleLine.parse(line);
-      if (((CollectionUtils.isEmpty(titleLines)) && (StringUtils.isBlank(titleLine.continuation())))
-          || (StringUtils.isNotBlank(titleLine.continuation()))) {
-        titleLines.add(titleLine);
+  /**
+   * Parses data in PDB format and decodes atoms of each MODEL block in parallel. The header records
+   * (HEADER, TITLE, MODRES, REMARK 465, etc.) and model numbers are read sequentially, then every
+   * block of ATOM, HETATM and TER lines between MODEL and ENDMDL is decoded as a separate task in
+   * the {@code executor}. The result is the same as for {@link #parse(Reader)}, including the
+   * handling of duplicate model numbers.
+   *
+   * @param reader A source of data in PDB format.
+   * @param executor An executor to run decoding of MODEL blocks.
+   * @return An object representing the parsed data.
+   * @throws IOException When reading from the source fails.
+   */
+  public final List<PdbModel> parseParallel(
+      final Reader reader, final Executor executor) throws IOException {
+    final PdbParsingContext context = new PdbParsingContext(strictMode, options);
+
+    final BufferedReader bufferedReader =
+        (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+    final List<ModelBlock> blocks = new ArrayList<>();
+    ModelBlock block = null;
+    String line;
+    while ((line = bufferedReader.readLine()) != null) {
+      if (line.startsWith("MODEL")) {
+        // atoms are collected in blocks, so the context has no model to pass on
+        block = new ModelBlock(context.handleModelLine(line, model -> {}));
+        blocks.add(block);
+      } else if (line.startsWith("ATOM")
+          || line.startsWith("HETATM")
+          || line.startsWith("TER   ")) {
+        if (block == null) {
+          block = new ModelBlock(context.currentModelNumber());
+          blocks.add(block);
+        }
+        if (context.acceptsModel(block.modelNumber)) {
+          block.lines.add(line);
+        }
+      } else if (line.startsWith("ENDMDL")) {
+        block = null;
+      } else {
+        context.handleLine(line, model -> {});
       }
-    } catch (final PdbParsingException e) {
-      PdbParser.LOGGER.warn("Invalid TITLE line: {}", line, e);
     }
-  }
 
-  private void handleTerLine() {
-    final List<PdbAtomLine> atomLines = modelAtoms.get(currentModelNumber);
-    chainTerminatedAfter.add(PdbResidueIdentifier.from(atomLines.get(atomLines.size() - 1)));
-  }
+    final List<CompletableFuture<PdbParsingContext.ModelState>> futures =
+        blocks.stream()
+            .map(
+                modelBlock ->
+                    CompletableFuture.supplyAsync(
+                        () -> PdbParser.parseBlock(context, modelBlock), executor))
+            .collect(Collectors.toList());
 
-  private void handleMissingResidueLine(final String line) {
-    try {
-      if (PdbRemark465Line.isCommentLine(line)) {
-        return;
+    final List<PdbModel> result = new ArrayList<>();
+    for (int i = 0; i < blocks.size(); i++) {
+      final PdbParsingContext.ModelState state = PdbParser.join(futures.get(i));
+      if (!state.atoms.isEmpty()) {
+        result.add(context.buildModel(blocks.get(i).modelNumber, state));
       }
-
-      final PdbRemark465Line remark465Line = PdbRemark465Line.parse(line);
-      missingResidues.add(remark465Line);
-    } catch (final PdbParsingException e) {
-      PdbParser.LOGGER.warn("Invalid REMARK 465 line: {}", line, e);
     }
+    result.sort(Comparator.comparingInt(PdbModel::modelNumber));
+    return result;
   }
 
-  private void handleModifiedResidueLine(final String line) {
-    try {
-      final PdbModresLine modresLine = PdbModresLine.parse(line);
-      modifiedResidues.add(modresLine);
-    } catch (final PdbParsingException e) {
-      PdbParser.LOGGER.warn("Invalid MODRES line: {}", line, e);
+  private static void handleSequenceLine(final String line, final ChainComposition sequences) {
+    // SEQRES has chain identifier in column 12 and residue names starting from column 20
+    if (line.length() > 19) {
+      final String chainIdentifier = line.substring(11, 12);
+      for (final String residueName : StringUtils.split(line.substring(19))) {
+        sequences.add(chainIdentifier, residueName);
+      }
     }
   }
 
-  private void handleHeaderLine(final String line) {
+  private static PdbParsingContext.ModelState join(
+      final CompletableFuture<PdbParsingContext.ModelState> future) {
     try {
-      headerLine = Optional.of(PdbHeaderLine.parse(line));
-    } catch (final PdbParsingException e) {
-      PdbParser.LOGGER.warn("Invalid HEADER line: {}", line, e);
+      return future.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
     }
   }
 
-  private void handleExperimentalDataLine(final String line) {
-    try {
-      experimentalDataLine = Optional.of(PdbExpdtaLine.parse(line));
-    } catch (final PdbParsingException e) {
-      PdbParser.LOGGER.warn("Invalid EXPDTA line: {}", line, e);
+  // only immutable settings are read from the context, so it is safe to call it concurrently
+  private static PdbParsingContext.ModelState parseBlock(
+      final PdbParsingContext context, final ModelBlock block) {
+    final PdbParsingContext.ModelState state = context.newModelState();
+    for (final String line : block.lines) {
+      if (line.startsWith("TER   ")) {
+        state.handleTer();
+      } else {
+        context.handleAtomLine(line, state);
+      }
     }
+    return state;
   }
 
-  private void handleResolutionLine(final String line) {
-    try {
-      resolutionLine = Optional.of(PdbRemark2Line.parse(line));
-    } catch (final PdbParsingException e) {
-      PdbParser.LOGGER.warn("Invalid REMARK   2 RESOLUTION. line: {}", line, e);
+  /** Raw ATOM, HETATM and TER lines of a single MODEL block. */
+  private static final class ModelBlock {
+    private final int modelNumber;
+    private final List<String> lines = new ArrayList<>();
+
+    private ModelBlock(final int modelNumber) {
+      super();
+      this.modelNumber = modelNumber;
     }
   }
 }
@@ -0,0 +1,342 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.poznan.put.pdb.ImmutablePdbExpdtaLine;
+import pl.poznan.put.pdb.ImmutablePdbHeaderLine;
+import pl.poznan.put.pdb.ImmutablePdbRemark2Line;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbExpdtaLine;
+import pl.poznan.put.pdb.PdbHeaderLine;
+import pl.poznan.put.pdb.PdbModresLine;
+import pl.poznan.put.pdb.PdbParsingException;
+import pl.poznan.put.pdb.PdbRemark2Line;
+import pl.poznan.put.pdb.PdbRemark465Line;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
+import pl.poznan.put.pdb.PdbTitleLine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * The state of a single parsing of PDB data. Each call to {@link PdbParser} methods creates its own
+ * instance, so the parser itself can be shared between threads.
+ */
+final class PdbParsingContext {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PdbParsingContext.class);
+
+  private final List<PdbModresLine> modifiedResidues = new ArrayList<>();
+  private final List<PdbRemark465Line> missingResidues = new ArrayList<>();
+  private final Collection<Integer> endedModelNumbers = new HashSet<>();
+  private final Collection<PdbTitleLine> titleLines = new ArrayList<>();
+
+  private final boolean strictMode;
+  private final ParseOptions options;
+
+  private Optional<PdbHeaderLine> headerLine = Optional.empty();
+  private Optional<PdbExpdtaLine> experimentalDataLine = Optional.empty();
+  private Optional<PdbRemark2Line> resolutionLine = Optional.empty();
+  private ModelState modelState;
+  private int currentModelNumber;
+
+  PdbParsingContext(final boolean strictMode) {
+    this(strictMode, ParseOptions.defaults());
+  }
+
+  PdbParsingContext(final boolean strictMode, final ParseOptions options) {
+    super();
+    this.strictMode = strictMode;
+    this.options = options;
+    modelState = newModelState();
+  }
+
+  /**
+   * Handles a single line of PDB data.
+   *
+   * @param line A single line of text in PDB format.
+   * @param consumer A callback to receive a model when its ENDMDL line (or the next MODEL line) is
+   *     found.
+   */
+  void handleLine(final String line, final Consumer<? super PdbModel> consumer) {
+    if (line.startsWith("MODEL")) {
+      handleModelLine(line, consumer);
+    } else if (line.startsWith("ATOM") || line.startsWith("HETATM")) {
+      if (acceptsCurrentModel()) {
+        handleAtomLine(line, modelState);
+      }
+    } else if (line.startsWith("TER   ")) {
+      modelState.handleTer();
+    } else if (line.startsWith("ENDMDL")) {
+      emitModel(consumer);
+    } else if (line.startsWith("REMARK 465")) {
+      handleMissingResidueLine(line);
+    } else if (line.startsWith("MODRES")) {
+      handleModifiedResidueLine(line);
+    } else if (line.startsWith("HEADER")) {
+      handleHeaderLine(line);
+    } else if (line.startsWith("EXPDTA")) {
+      handleExperimentalDataLine(line);
+    } else if (line.startsWith("REMARK   2 RESOLUTION.")) {
+      handleResolutionLine(line);
+    } else if (line.startsWith("TITLE ")) {
+      handleTitleLine(line);
+    }
+  }
+
+  /**
+   * Passes the current model to the {@code consumer}, unless it has no atoms.
+   *
+   * @param consumer A callback to receive the model.
+   */
+  void emitModel(final Consumer<? super PdbModel> consumer) {
+    if (modelState.atoms.isEmpty()) {
+      return;
+    }
+
+    final PdbModel structureModel = buildModel(currentModelNumber, modelState);
+    modelState.atoms.clear();
+    consumer.accept(structureModel);
+  }
+
+  /**
+   * Creates a model out of atoms collected in a given state and header records read so far.
+   *
+   * @param modelNumber The model number.
+   * @param state Atoms and chain terminations of the model.
+   * @return A new model.
+   */
+  PdbModel buildModel(final int modelNumber, final ModelState state) {
+    return ImmutableDefaultPdbModel.of(
+        header(),
+        experimentalData(),
+        resolution(),
+        modelNumber,
+        state.atoms,
+        modifiedResidues,
+        missingResidues,
+        title(),
+        state.chainTerminatedAfter);
+  }
+
+  /**
+   * Creates a summary out of header records read so far.
+   *
+   * @param chainMoleculeTypes A mapping between chain identifiers and molecule types.
+   * @return A new summary.
+   */
+  StructureSummary buildSummary(final Map<String, MoleculeType> chainMoleculeTypes) {
+    return ImmutableStructureSummary.of(
+        header(), experimentalData(), resolution(), title(), chainMoleculeTypes);
+  }
+
+  private PdbHeaderLine header() {
+    return headerLine.orElse(ImmutablePdbHeaderLine.of("", new Date(0L), ""));
+  }
+
+  private PdbExpdtaLine experimentalData() {
+    return experimentalDataLine.orElse(ImmutablePdbExpdtaLine.of(Collections.emptyList()));
+  }
+
+  private PdbRemark2Line resolution() {
+    return resolutionLine.orElse(ImmutablePdbRemark2Line.of(Double.NaN));
+  }
+
+  private String title() {
+    return titleLines.stream().map(PdbTitleLine::title).collect(Collectors.joining());
+  }
+
+  /**
+   * Handles a MODEL line by assigning a unique model number and starting a new model. If the
+   * previous model was not closed with an ENDMDL line, it is passed to the {@code consumer} first.
+   *
+   * @param line The MODEL line.
+   * @param consumer A callback to receive the previous model.
+   * @return The number assigned to the new model.
+   */
+  int handleModelLine(final String line, final Consumer<? super PdbModel> consumer) {
+    emitModel(consumer);
+    endedModelNumbers.add(currentModelNumber);
+
+    final String modelNumberString =
+        (line.length() > 14) ? line.substring(10, 14).trim() : line.substring(5).trim();
+    int modelNumber = Integer.parseInt(modelNumberString);
+
+    while (endedModelNumbers.contains(modelNumber)) {
+      // model number has four digits
+      modelNumber = RandomUtils.nextInt(1, 10000);
+    }
+
+    currentModelNumber = modelNumber;
+    modelState = newModelState();
+    return modelNumber;
+  }
+
+  /** @return An empty state for a new model. */
+  ModelState newModelState() {
+    return new ModelState(new AtomFilter(options));
+  }
+
+  /**
+   * Checks if a model of a given number should be kept.
+   *
+   * @param modelNumber The model number.
+   * @return True if atoms of the model should be parsed.
+   */
+  boolean acceptsModel(final int modelNumber) {
+    return options.acceptsModel(modelNumber);
+  }
+
+  /** @return The number of the model being parsed. */
+  int currentModelNumber() {
+    return currentModelNumber;
+  }
+
+  /**
+   * Parses an ATOM or HETATM line and adds it to a given model state. Lines rejected by the filter
+   * of the state are skipped before parsing. Invalid lines are logged and skipped.
+   *
+   * @param line The ATOM or HETATM line.
+   * @param state The model to which the atom should be added.
+   */
+  void handleAtomLine(final String line, final ModelState state) {
+    if (!state.filter.acceptsPdbLine(line)) {
+      return;
+    }
+
+    try {
+      state.handleAtom(PdbAtomLine.parse(line, strictMode));
+    } catch (final PdbParsingException e) {
+      PdbParsingContext.LOGGER.warn("Invalid ATOM line: {}", line, e);
+    }
+  }
+
+  /** @return True if atoms of the current model should be parsed. */
+  boolean acceptsCurrentModel() {
+    return options.acceptsModel(currentModelNumber);
+  }
+
+  /**
+   * Checks an ATOM or HETATM line with filters of the current model, before it is decoded.
+   *
+   * @param line An ATOM or HETATM line.
+   * @return True if the atom should be decoded and added with {@link #handleAtom(PdbAtomLine)}.
+   */
+  boolean acceptsAtomLine(final String line) {
+    return modelState.filter.acceptsPdbLine(line);
+  }
+
+  /**
+   * Adds an already decoded ATOM or HETATM record to the current model.
+   *
+   * @param atomLine An atom decoded from the input.
+   */
+  void handleAtom(final PdbAtomLine atomLine) {
+    modelState.handleAtom(atomLine);
+  }
+
+  private void handleTitleLine(final String line) {
+    try {
+      final PdbTitleLine titleLine = PdbTitleLine.parse(line);
+      if (((CollectionUtils.isEmpty(titleLines)) && (StringUtils.isBlank(titleLine.continuation())))
+          || (StringUtils.isNotBlank(titleLine.continuation()))) {
+        titleLines.add(titleLine);
+      }
+    } catch (final PdbParsingException e) {
+      PdbParsingContext.LOGGER.warn("Invalid TITLE line: {}", line, e);
+    }
+  }
+
+  private void handleMissingResidueLine(final String line) {
+    try {
+      if (PdbRemark465Line.isCommentLine(line)) {
+        return;
+      }
+
+      final PdbRemark465Line remark465Line = PdbRemark465Line.parse(line);
+      missingResidues.add(remark465Line);
+    } catch (final PdbParsingException e) {
+      PdbParsingContext.LOGGER.warn("Invalid REMARK 465 line: {}", line, e);
+    }
+  }
+
+  private void handleModifiedResidueLine(final String line) {
+    try {
+      final PdbModresLine modresLine = PdbModresLine.parse(line);
+      modifiedResidues.add(modresLine);
+    } catch (final PdbParsingException e) {
+      PdbParsingContext.LOGGER.warn("Invalid MODRES line: {}", line, e);
+    }
+  }
+
+  private void handleHeaderLine(final String line) {
+    try {
+      headerLine = Optional.of(PdbHeaderLine.parse(line));
+    } catch (final PdbParsingException e) {
+      PdbParsingContext.LOGGER.warn("Invalid HEADER line: {}", line, e);
+    }
+  }
+
+  private void handleExperimentalDataLine(final String line) {
+    try {
+      experimentalDataLine = Optional.of(PdbExpdtaLine.parse(line));
+    } catch (final PdbParsingException e) {
+      PdbParsingContext.LOGGER.warn("Invalid EXPDTA line: {}", line, e);
+    }
+  }
+
+  private void handleResolutionLine(final String line) {
+    try {
+      resolutionLine = Optional.of(PdbRemark2Line.parse(line));
+    } catch (final PdbParsingException e) {
+      PdbParsingContext.LOGGER.warn("Invalid REMARK   2 RESOLUTION. line: {}", line, e);
+    }
+  }
+
+  /** Atoms and chain terminations collected for a single model. */
+  static final class ModelState {
+    final List<PdbAtomLine> atoms = new ArrayList<>();
+    private final Collection<PdbResidueIdentifier> processedIdentifiers = new HashSet<>();
+    private final Set<PdbResidueIdentifier> chainTerminatedAfter = new HashSet<>();
+    private final AtomFilter filter;
+    private Optional<PdbResidueIdentifier> currentIdentifier = Optional.empty();
+
+    private ModelState(final AtomFilter filter) {
+      super();
+      this.filter = filter;
+    }
+
+    void handleAtom(final PdbAtomLine atomLine) {
+      final PdbResidueIdentifier identifier = PdbResidueIdentifier.from(atomLine);
+
+      if (processedIdentifiers.contains(identifier)) {
+        PdbParsingContext.LOGGER.warn("Duplicate residue, ignoring it: {}", identifier);
+        return;
+      }
+
+      if (currentIdentifier.isPresent() && !identifier.equals(currentIdentifier.get())) {
+        processedIdentifiers.add(currentIdentifier.get());
+        currentIdentifier = Optional.of(identifier);
+      }
+
+      atoms.add(atomLine);
+    }
+
+    void handleTer() {
+      if (!atoms.isEmpty()) {
+        chainTerminatedAfter.add(PdbResidueIdentifier.from(atoms.get(atoms.size() - 1)));
+      }
+    }
+  }
+}
@@ -16,7 +16,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -102,8 +102,7 @@ public interface ResidueCollection extends Serializable {
    * @return True if a given residue is part of this collection.
    */
   default boolean hasResidue(final ChainNumberICode query) {
-    final PdbResidueIdentifier queryIdentifier = PdbResidueIdentifier.from(query);
-    return residues().stream().map(PdbResidueIdentifier::from).anyMatch(queryIdentifier::equals);
+    return residueIndexMap().containsKey(PdbResidueIdentifier.from(query));
   }
 
   /**
@@ -113,11 +112,11 @@ public interface ResidueCollection extends Serializable {
    * @return The residue found in this collection of residues.
    */
   default PdbResidue findResidue(final ChainNumberICode query) {
-    final PdbResidueIdentifier queryIdentifier = PdbResidueIdentifier.from(query);
-    return residues().stream()
-        .filter(residue -> Objects.equals(PdbResidueIdentifier.from(residue), queryIdentifier))
-        .findFirst()
-        .orElseThrow(() -> new IllegalArgumentException("Failed to find residue: " + query));
+    final Integer index = residueIndexMap().get(PdbResidueIdentifier.from(query));
+    if (index == null) {
+      throw new IllegalArgumentException("Failed to find residue: " + query);
+    }
+    return residues().get(index);
   }
 
   /**
@@ -128,10 +127,23 @@ public interface ResidueCollection extends Serializable {
    */
   default int indexOf(final ChainNumberICode query) {
     final PdbResidueIdentifier identifier = PdbResidueIdentifier.from(query);
-    return IntStream.range(0, residues().size())
-        .filter(i -> PdbResidueIdentifier.from(residues().get(i)).equals(identifier))
-        .findFirst()
-        .orElseThrow(() -> new IllegalArgumentException("Failed to find residue: " + identifier));
+    final Integer index = residueIndexMap().get(identifier);
+    if (index == null) {
+      throw new IllegalArgumentException("Failed to find residue: " + identifier);
+    }
+    return index;
+  }
+
+  /**
+   * Maps identifiers of residues to their positions. It backs {@link
+   * #hasResidue(ChainNumberICode)}, {@link #findResidue(ChainNumberICode)} and {@link
+   * #indexOf(ChainNumberICode)}, so immutable implementations should compute it once and cache it.
+   *
+   * @return A map of residue identifiers to their indices in {@link #residues()}. If an identifier
+   *     repeats, the first index is used.
+   */
+  default Map<PdbResidueIdentifier, Integer> residueIndexMap() {
+    return ModelAssembler.indexResidues(residues());
   }
 
   /**
@@ -204,4 +216,16 @@ public interface ResidueCollection extends Serializable {
 
     return builder.toString();
   }
+
+  /**
+   * Generates BinaryCIF content from this instance, a binary counterpart of {@link #toCif()}. If
+   * this is a {@link PdbModel}, the header, modified residues and missing residues are also
+   * included, and if this is a {@link CifModel}, also the base pairs.
+   *
+   * @return A representation of this residue collection in BinaryCIF format.
+   * @see CifParser#parseBinary(byte[])
+   */
+  default byte[] toBinaryCif() {
+    return BinaryCifWriter.write(this);
+  }
 }
@@ -4,17 +4,20 @@ import org.immutables.value.Value;
 import pl.poznan.put.circular.Angle;
 import pl.poznan.put.circular.ImmutableAngle;
 import pl.poznan.put.pdb.PdbResidueIdentifier;
+import pl.poznan.put.torsion.ImmutableTorsionAngleValue;
 import pl.poznan.put.torsion.MasterTorsionAngleType;
 import pl.poznan.put.torsion.TorsionAngleType;
 import pl.poznan.put.torsion.TorsionAngleValue;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 /** A collection of torsion angles values for a single residue. */
 @Value.Immutable
 public abstract class ResidueTorsionAngles {
+  private static final Angle INVALID = ImmutableAngle.of(Double.NaN);
+
   /**
    * Calculates all torsion angles' values in the given residue.
    *
@@ -31,6 +34,42 @@ public abstract class ResidueTorsionAngles {
             .collect(Collectors.toList()));
   }
 
+  /**
+   * Calculates all torsion angles' values in all residues in a batch (see {@link
+   * TorsionAngleTable}). The result is the same as from {@link #calculate(List, int)} called for
+   * every index.
+   *
+   * @param residues The list of all residues.
+   * @return A list of instances of this class, one for each residue.
+   */
+  public static List<ResidueTorsionAngles> calculateAll(final List<PdbResidue> residues) {
+    return ResidueTorsionAngles.fromTable(residues, TorsionAngleTable.calculate(residues));
+  }
+
+  /**
+   * Reads torsion angles' values of every residue from a table.
+   *
+   * @param residues The list of all residues.
+   * @param table The table of values calculated for the same list of residues.
+   * @return A list of instances of this class, one for each residue.
+   */
+  static List<ResidueTorsionAngles> fromTable(
+      final List<PdbResidue> residues, final TorsionAngleTable table) {
+    final List<ResidueTorsionAngles> result = new ArrayList<>(residues.size());
+    for (int i = 0; i < residues.size(); i++) {
+      final PdbResidue residue = residues.get(i);
+      final List<TorsionAngleType> types = table.residueTypes(i);
+      final int[] columns = table.residueColumns(i);
+      final List<TorsionAngleValue> values = new ArrayList<>(types.size());
+      for (int k = 0; k < types.size(); k++) {
+        final double radians = (columns[k] < 0) ? Double.NaN : table.value(i, columns[k]);
+        values.add(ImmutableTorsionAngleValue.of(types.get(k), ImmutableAngle.of(radians)));
+      }
+      result.add(ImmutableResidueTorsionAngles.of(residue.identifier(), values));
+    }
+    return result;
+  }
+
   /** @return The residue identifier. */
   @Value.Parameter(order = 1)
   public abstract PdbResidueIdentifier identifier();
@@ -46,24 +85,52 @@ public abstract class ResidueTorsionAngles {
    * @return The value of torsion angle in this residue or NaN if none found.
    */
   public final Angle value(final TorsionAngleType type) {
-    return values().stream()
-        .filter(angle -> Objects.equals(angle.angleType(), type))
-        .map(TorsionAngleValue::value)
-        .findFirst()
-        .orElse(ImmutableAngle.of(Double.NaN));
+    final int index = indexOf(type);
+    return (index < 0) ? ResidueTorsionAngles.INVALID : values().get(index).value();
   }
 
   /**
    * Finds the value of a master torsion angle type in this collection.
    *
    * @param masterType The master torsion angle tyoe to look for.
-   * @return The value of torsion angle in this residue or NaN if none found.
+   * @return The value of the first of its angle types which is valid in this residue or NaN if
+   *     none is found.
    */
   public final Angle value(final MasterTorsionAngleType masterType) {
-    return values().stream()
-        .flatMap(angleValue -> masterType.angleTypes().stream().map(this::value))
-        .filter(Angle::isValid)
-        .findFirst()
-        .orElse(ImmutableAngle.of(Double.NaN));
+    if (!values().isEmpty()) {
+      for (final TorsionAngleType type : masterType.angleTypes()) {
+        final Angle angle = value(type);
+        if (angle.isValid()) {
+          return angle;
+        }
+      }
+    }
+    return ResidueTorsionAngles.INVALID;
+  }
+
+  /**
+   * Finds the position of a torsion angle type in this collection.
+   *
+   * @param type The type of torsion angle to look for.
+   * @return The index to use with {@link #radians(int)} or -1 if the type is not present.
+   */
+  public final int indexOf(final TorsionAngleType type) {
+    return angleTypeIndex().indexOf(type);
+  }
+
+  /**
+   * Gets the value of a torsion angle at a given position, without creating an {@link Angle}.
+   *
+   * @param angleIndex The index of angle as returned by {@link #indexOf(TorsionAngleType)}.
+   * @return The value of torsion angle in radians (NaN if it is undefined).
+   */
+  public final double radians(final int angleIndex) {
+    return values().get(angleIndex).value().radians();
+  }
+
+  @Value.Lazy
+  protected AngleTypeIndex angleTypeIndex() {
+    return new AngleTypeIndex(
+        values().stream().map(TorsionAngleValue::angleType).collect(Collectors.toList()));
   }
 }
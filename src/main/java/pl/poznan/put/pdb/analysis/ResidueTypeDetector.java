@@ -1,6 +1,5 @@
 package pl.poznan.put.pdb.analysis;
 
-import org.apache.commons.collections4.SetUtils;
 import pl.poznan.put.atom.AtomName;
 import pl.poznan.put.protein.AminoAcid;
 import pl.poznan.put.protein.ImmutableBackbone;
@@ -8,21 +7,55 @@ import pl.poznan.put.rna.ImmutableRibose;
 import pl.poznan.put.rna.Nucleotide;
 
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-/** A detector of residue type based on its name and atom content. */
+/**
+ * A detector of residue type based on its name and atom content. Known residue names are resolved
+ * with a precomputed map of aliases. Detection from atoms compares bit masks of atom names and its
+ * results are memoized in a bounded cache shared by all threads.
+ */
 public final class ResidueTypeDetector {
-  private static final Set<AtomName> RIBOSE_HEAVY_ATOMS =
-      ImmutableRibose.of().requiredAtoms().stream()
-          .filter(AtomName::isHeavy)
-          .collect(Collectors.toSet());
-  private static final Set<AtomName> BACKBONE_HEAVY_ATOMS =
-      ImmutableBackbone.of().requiredAtoms().stream()
-          .filter(AtomName::isHeavy)
-          .collect(Collectors.toSet());
+  private static final int MASK_LENGTH = (AtomName.values().length + 63) / 64;
+  private static final int MAX_CACHE_SIZE = 4096;
+
+  private static final long[] RIBOSE_HEAVY_ATOMS =
+      ResidueTypeDetector.mask(
+          ImmutableRibose.of().requiredAtoms().stream()
+              .filter(AtomName::isHeavy)
+              .collect(Collectors.toSet()));
+  private static final long[] BACKBONE_HEAVY_ATOMS =
+      ResidueTypeDetector.mask(
+          ImmutableBackbone.of().requiredAtoms().stream()
+              .filter(AtomName::isHeavy)
+              .collect(Collectors.toSet()));
+  private static final ResidueInformationProvider[] NUCLEOBASES =
+      Arrays.stream(Nucleotide.values())
+          .map(Nucleotide::nucleobase)
+          .toArray(ResidueInformationProvider[]::new);
+  private static final long[][] NUCLEOBASE_ATOMS =
+      Arrays.stream(Nucleotide.values())
+          .map(nucleotide -> ResidueTypeDetector.mask(nucleotide.nucleobase().requiredAtoms()))
+          .toArray(long[][]::new);
+  private static final ResidueInformationProvider[] SIDECHAINS =
+      Arrays.stream(AminoAcid.values())
+          .map(AminoAcid::sidechain)
+          .toArray(ResidueInformationProvider[]::new);
+  private static final long[][] SIDECHAIN_ATOMS =
+      Arrays.stream(AminoAcid.values())
+          .map(aminoAcid -> ResidueTypeDetector.mask(aminoAcid.sidechain().requiredAtoms()))
+          .toArray(long[][]::new);
+  private static final Map<String, ResidueInformationProvider> ALIASES =
+      ResidueTypeDetector.mapAliases();
+
+  private static final ConcurrentMap<CacheKey, ResidueInformationProvider> CACHE =
+      new ConcurrentHashMap<>();
 
   private ResidueTypeDetector() {
     super();
@@ -39,67 +72,129 @@ public final class ResidueTypeDetector {
    */
   public static ResidueInformationProvider detectResidueType(
       final String residueName, final Set<AtomName> atomNames) {
-    final ResidueInformationProvider provider =
-        ResidueTypeDetector.detectResidueTypeFromResidueName(residueName);
-    if (provider.moleculeType() != MoleculeType.UNKNOWN) {
+    final ResidueInformationProvider provider = ResidueTypeDetector.ALIASES.get(residueName);
+    if (provider != null) {
       return provider;
     }
-    return ResidueTypeDetector.detectResidueTypeFromAtoms(atomNames, residueName);
+
+    final CacheKey key = new CacheKey(residueName, ResidueTypeDetector.mask(atomNames));
+    final ResidueInformationProvider cached = ResidueTypeDetector.CACHE.get(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    final ResidueInformationProvider detected =
+        ResidueTypeDetector.detectResidueTypeFromAtoms(key.atomNames, residueName);
+    // the cache is bounded by starting over, unusual inputs can never exhaust memory
+    if (ResidueTypeDetector.CACHE.size() >= ResidueTypeDetector.MAX_CACHE_SIZE) {
+      ResidueTypeDetector.CACHE.clear();
+    }
+    ResidueTypeDetector.CACHE.putIfAbsent(key, detected);
+    return detected;
   }
 
-  private static ResidueInformationProvider detectResidueTypeFromResidueName(
-      final String residueName) {
-    final Stream<ResidueInformationProvider> stream =
-        Stream.concat(Arrays.stream(Nucleotide.values()), Arrays.stream(AminoAcid.values()));
-    return stream
-        .filter(provider -> provider.aliases().contains(residueName))
-        .findFirst()
-        .orElse(ImmutableInvalidResidueInformationProvider.of(residueName));
+  // the first provider with a given alias wins, nucleotides go before amino acids
+  private static Map<String, ResidueInformationProvider> mapAliases() {
+    final Map<String, ResidueInformationProvider> aliases = new HashMap<>();
+    for (final Nucleotide nucleotide : Nucleotide.values()) {
+      nucleotide.aliases().forEach(alias -> aliases.putIfAbsent(alias, nucleotide));
+    }
+    for (final AminoAcid aminoAcid : AminoAcid.values()) {
+      aminoAcid.aliases().forEach(alias -> aliases.putIfAbsent(alias, aminoAcid));
+    }
+    return Collections.unmodifiableMap(aliases);
+  }
+
+  private static long[] mask(final Collection<AtomName> atomNames) {
+    final long[] mask = new long[ResidueTypeDetector.MASK_LENGTH];
+    for (final AtomName atomName : atomNames) {
+      final int ordinal = atomName.ordinal();
+      mask[ordinal >>> 6] |= 1L << ordinal;
+    }
+    return mask;
   }
 
   private static ResidueInformationProvider detectResidueTypeFromAtoms(
-      final Set<AtomName> actual, final String residueName) {
-    if (actual.size() > 1) {
-      if (ResidueTypeDetector.isNucleotide(actual)) {
-        return Arrays.stream(Nucleotide.values())
-            .map(Nucleotide::nucleobase)
-            .max(
-                Comparator.comparingDouble(
-                    base -> ResidueTypeDetector.intersectionRatio(actual, base.requiredAtoms())))
-            .orElseThrow(
-                () ->
-                    new IllegalArgumentException(
-                        "Failed to match any nucleobase to provided atom names"));
+      final long[] actual, final String residueName) {
+    if (ResidueTypeDetector.bitCount(actual) > 1) {
+      if (ResidueTypeDetector.intersectionRatio(actual, ResidueTypeDetector.RIBOSE_HEAVY_ATOMS)
+          >= 0.5) {
+        return ResidueTypeDetector.mostSimilar(
+            actual, ResidueTypeDetector.NUCLEOBASES, ResidueTypeDetector.NUCLEOBASE_ATOMS);
       }
 
-      if (ResidueTypeDetector.isAminoAcid(actual)) {
-        return Arrays.stream(AminoAcid.values())
-            .map(AminoAcid::sidechain)
-            .max(
-                Comparator.comparingDouble(
-                    sidechain ->
-                        ResidueTypeDetector.intersectionRatio(actual, sidechain.requiredAtoms())))
-            .orElseThrow(
-                () ->
-                    new IllegalArgumentException(
-                        "Failed to match any sidechain to provided atom names"));
+      if (ResidueTypeDetector.intersectionRatio(actual, ResidueTypeDetector.BACKBONE_HEAVY_ATOMS)
+          >= 0.5) {
+        return ResidueTypeDetector.mostSimilar(
+            actual, ResidueTypeDetector.SIDECHAINS, ResidueTypeDetector.SIDECHAIN_ATOMS);
       }
     }
     return ImmutableInvalidResidueInformationProvider.of(residueName);
   }
 
-  private static boolean isNucleotide(final Set<AtomName> actual) {
-    return ResidueTypeDetector.intersectionRatio(actual, ResidueTypeDetector.RIBOSE_HEAVY_ATOMS)
-        >= 0.5;
+  // on ties, the first candidate wins; NaN (for an empty expected set) is greater than any ratio
+  private static ResidueInformationProvider mostSimilar(
+      final long[] actual,
+      final ResidueInformationProvider[] candidates,
+      final long[][] candidateAtoms) {
+    int best = 0;
+    double bestRatio = ResidueTypeDetector.intersectionRatio(actual, candidateAtoms[0]);
+    for (int i = 1; i < candidates.length; i++) {
+      final double ratio = ResidueTypeDetector.intersectionRatio(actual, candidateAtoms[i]);
+      if (Double.compare(ratio, bestRatio) > 0) {
+        best = i;
+        bestRatio = ratio;
+      }
+    }
+    return candidates[best];
   }
 
-  private static double intersectionRatio(
-      final Set<AtomName> actual, final Set<AtomName> expected) {
-    return (double) SetUtils.intersection(actual, expected).size() / expected.size();
+  private static double intersectionRatio(final long[] actual, final long[] expected) {
+    int common = 0;
+    int total = 0;
+    for (int i = 0; i < expected.length; i++) {
+      common += Long.bitCount(actual[i] & expected[i]);
+      total += Long.bitCount(expected[i]);
+    }
+    return (double) common / total;
+  }
+
+  private static int bitCount(final long[] mask) {
+    int count = 0;
+    for (final long word : mask) {
+      count += Long.bitCount(word);
+    }
+    return count;
   }
 
-  private static boolean isAminoAcid(final Set<AtomName> actual) {
-    return ResidueTypeDetector.intersectionRatio(actual, ResidueTypeDetector.BACKBONE_HEAVY_ATOMS)
-        >= 0.5;
+  /** A residue name with a bit mask of its atom names. */
+  private static final class CacheKey {
+    private final String residueName;
+    private final long[] atomNames;
+    private final int hashCode;
+
+    private CacheKey(final String residueName, final long[] atomNames) {
+      super();
+      this.residueName = residueName;
+      this.atomNames = atomNames;
+      hashCode = (31 * residueName.hashCode()) + Arrays.hashCode(atomNames);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if ((o == null) || (getClass() != o.getClass())) {
+        return false;
+      }
+      final CacheKey other = (CacheKey) o;
+      return residueName.equals(other.residueName) && Arrays.equals(atomNames, other.atomNames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
   }
 }
@@ -0,0 +1,124 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.poznan.put.utility.CompressedInput;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An on-disk cache of parsed structure files. Entries are {@link ModelSnapshot} files named after
+ * the SHA-256 hash of the source file content, so a file parsed once is later restored from its
+ * snapshot regardless of its name or location, and a modified file is always parsed again.
+ */
+public final class SnapshotCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotCache.class);
+  private static final String EXTENSION = ".snapshot"; // NON-NLS
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); // NON-NLS
+
+  private final Path directory;
+
+  /**
+   * Creates a cache storing its entries in the given directory, which is created if needed.
+   *
+   * @param directory The directory with snapshot files.
+   * @throws IOException When the directory cannot be created.
+   */
+  public SnapshotCache(final Path directory) throws IOException {
+    super();
+    this.directory = Files.createDirectories(directory);
+  }
+
+  private static String sha256(final byte[] content) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      final char[] hex = new char[digest.length * 2];
+      for (int i = 0; i < digest.length; i++) {
+        hex[i * 2] = SnapshotCache.HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+        hex[(i * 2) + 1] = SnapshotCache.HEX_DIGITS[digest[i] & 0x0f];
+      }
+      return new String(hex);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static List<? extends PdbModel> parse(final String name, final byte[] content)
+      throws IOException {
+    try (final InputStream stream =
+        CompressedInput.decompress(new ByteArrayInputStream(content))) {
+      if (name.endsWith(".bcif")) {
+        return CifParser.parseBinary(IOUtils.toByteArray(stream));
+      }
+      if (name.endsWith(".cif") || name.endsWith(".mmcif")) {
+        return CifParser.parse(stream);
+      }
+      return new PdbParser(false).parse(stream);
+    }
+  }
+
+  /**
+   * Parses a structure file or restores it from a snapshot made when a file with the same content
+   * was parsed before. Files with .bcif extension are parsed as BinaryCIF, with .cif or .mmcif as
+   * mmCIF and all others as PDB (in non-strict mode), also when the extension is followed by .gz.
+   * An unreadable snapshot is logged and replaced by a new one.
+   *
+   * @param path Path to a structure file.
+   * @return The parsed models.
+   * @throws IOException When reading or parsing of the file fails.
+   */
+  public List<PdbModel> parse(final Path path) throws IOException {
+    final byte[] content = Files.readAllBytes(path);
+    final Path snapshot =
+        directory.resolve(SnapshotCache.sha256(content) + SnapshotCache.EXTENSION);
+
+    if (Files.isRegularFile(snapshot)) {
+      try {
+        return ModelSnapshot.read(snapshot);
+      } catch (final IOException | RuntimeException e) {
+        // any failure to decode is a cache miss, the snapshot is replaced below
+        SnapshotCache.LOGGER.warn(
+            "Failed to read snapshot {}, parsing {} again", snapshot, path, e);
+      }
+    }
+
+    final String name =
+        StringUtils.removeEnd(path.getFileName().toString().toLowerCase(Locale.US), ".gz");
+    final List<? extends PdbModel> models = SnapshotCache.parse(name, content);
+    store(ModelSnapshot.write(models), snapshot);
+    return new ArrayList<>(models);
+  }
+
+  /** @return The directory with snapshot files. */
+  public Path directory() {
+    return directory;
+  }
+
+  private void store(final byte[] data, final Path snapshot) throws IOException {
+    // write to a temporary file first, so that concurrent readers never see a partial snapshot
+    final Path temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+    try {
+      Files.write(temporary, data);
+      try {
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+}
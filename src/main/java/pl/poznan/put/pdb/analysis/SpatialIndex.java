@@ -0,0 +1,441 @@
+package pl.poznan.put.pdb.analysis;
+
+import pl.poznan.put.pdb.PdbAtomLine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A cell list over atom coordinates. The space is divided into cubic cells and the atoms are stored
+ * in primitive arrays sorted by cell, so that proximity queries only visit cells close to the
+ * query point. The index is immutable, so it is safe to use it concurrently from many threads.
+ *
+ * <p>Queries return indices of atoms (or coordinates) in the order they were given when the index
+ * was built.
+ */
+public final class SpatialIndex {
+  // the grid is coarsened if it would have more cells than this many per atom
+  private static final int MAX_CELLS_PER_ATOM = 8;
+
+  private final List<PdbAtomLine> atoms;
+  private final double cellSize;
+  private final double minX;
+  private final double minY;
+  private final double minZ;
+  private final int sizeX;
+  private final int sizeY;
+  private final int sizeZ;
+  // coordinates and original indices sorted by cell, atoms of cell c are in [start[c], start[c+1])
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] zs;
+  private final int[] indices;
+  private final int[] cellStarts;
+
+  private SpatialIndex(
+      final List<PdbAtomLine> atoms,
+      final double[] x,
+      final double[] y,
+      final double[] z,
+      final double requestedCellSize) {
+    super();
+    this.atoms = atoms;
+
+    final int count = x.length;
+    double loX = Double.POSITIVE_INFINITY;
+    double loY = Double.POSITIVE_INFINITY;
+    double loZ = Double.POSITIVE_INFINITY;
+    double hiX = Double.NEGATIVE_INFINITY;
+    double hiY = Double.NEGATIVE_INFINITY;
+    double hiZ = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      loX = Math.min(loX, x[i]);
+      loY = Math.min(loY, y[i]);
+      loZ = Math.min(loZ, z[i]);
+      hiX = Math.max(hiX, x[i]);
+      hiY = Math.max(hiY, y[i]);
+      hiZ = Math.max(hiZ, z[i]);
+    }
+    if (count == 0) {
+      loX = loY = loZ = hiX = hiY = hiZ = 0.0;
+    }
+    minX = loX;
+    minY = loY;
+    minZ = loZ;
+
+    // sparse structures with small cells would waste memory on empty cells
+    double size = requestedCellSize;
+    final long maxCells = Math.max(1L, (long) count * SpatialIndex.MAX_CELLS_PER_ATOM);
+    while (SpatialIndex.cellCount(hiX - loX, hiY - loY, hiZ - loZ, size) > maxCells) {
+      size *= 2.0;
+    }
+    cellSize = size;
+    sizeX = SpatialIndex.cellsAlong(hiX - loX, size);
+    sizeY = SpatialIndex.cellsAlong(hiY - loY, size);
+    sizeZ = SpatialIndex.cellsAlong(hiZ - loZ, size);
+
+    // counting sort of atoms by cell
+    final int[] cells = new int[count];
+    cellStarts = new int[(sizeX * sizeY * sizeZ) + 1];
+    for (int i = 0; i < count; i++) {
+      cells[i] =
+          cellIndex(
+              SpatialIndex.clamp(cellX(x[i]), sizeX),
+              SpatialIndex.clamp(cellY(y[i]), sizeY),
+              SpatialIndex.clamp(cellZ(z[i]), sizeZ));
+      cellStarts[cells[i] + 1]++;
+    }
+    for (int c = 1; c < cellStarts.length; c++) {
+      cellStarts[c] += cellStarts[c - 1];
+    }
+
+    xs = new double[count];
+    ys = new double[count];
+    zs = new double[count];
+    indices = new int[count];
+    final int[] next = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+    for (int i = 0; i < count; i++) {
+      final int position = next[cells[i]]++;
+      xs[position] = x[i];
+      ys[position] = y[i];
+      zs[position] = z[i];
+      indices[position] = i;
+    }
+  }
+
+  /**
+   * Builds an index over atoms.
+   *
+   * @param atoms The list of atoms.
+   * @param cellSize The edge length of cells, best equal to the typical query radius.
+   * @return An index over coordinates of the atoms.
+   */
+  public static SpatialIndex of(final List<PdbAtomLine> atoms, final double cellSize) {
+    final int count = atoms.size();
+    final double[] x = new double[count];
+    final double[] y = new double[count];
+    final double[] z = new double[count];
+    for (int i = 0; i < count; i++) {
+      final PdbAtomLine atom = atoms.get(i);
+      x[i] = atom.x();
+      y[i] = atom.y();
+      z[i] = atom.z();
+    }
+    return SpatialIndex.of(atoms, x, y, z, cellSize);
+  }
+
+  /**
+   * Builds an index over all atoms of all residues in a collection.
+   *
+   * @param residueCollection The collection of residues.
+   * @param cellSize The edge length of cells, best equal to the typical query radius.
+   * @return An index over coordinates of the atoms, in the order of residues.
+   */
+  public static SpatialIndex of(
+      final ResidueCollection residueCollection, final double cellSize) {
+    final List<PdbAtomLine> atoms =
+        residueCollection.residues().stream()
+            .flatMap(residue -> residue.atoms().stream())
+            .collect(Collectors.toList());
+    return SpatialIndex.of(atoms, cellSize);
+  }
+
+  /**
+   * Builds an index over raw coordinates. Such an index has no atoms, so only the queries returning
+   * indices may be used.
+   *
+   * @param x The X coordinates.
+   * @param y The Y coordinates.
+   * @param z The Z coordinates.
+   * @param cellSize The edge length of cells, best equal to the typical query radius.
+   * @return An index over the coordinates.
+   */
+  public static SpatialIndex of(
+      final double[] x, final double[] y, final double[] z, final double cellSize) {
+    return SpatialIndex.of(Collections.emptyList(), x, y, z, cellSize);
+  }
+
+  private static SpatialIndex of(
+      final List<PdbAtomLine> atoms,
+      final double[] x,
+      final double[] y,
+      final double[] z,
+      final double cellSize) {
+    if ((x.length != y.length) || (x.length != z.length)) {
+      throw new IllegalArgumentException("Coordinate arrays have different lengths"); // NON-NLS
+    }
+    if (!(cellSize > 0.0) || Double.isInfinite(cellSize)) {
+      throw new IllegalArgumentException("Cell size must be positive: " + cellSize); // NON-NLS
+    }
+    return new SpatialIndex(atoms, x, y, z, cellSize);
+  }
+
+  private static double cellCount(
+      final double spanX, final double spanY, final double spanZ, final double cellSize) {
+    return (double) SpatialIndex.cellsAlong(spanX, cellSize)
+        * SpatialIndex.cellsAlong(spanY, cellSize)
+        * SpatialIndex.cellsAlong(spanZ, cellSize);
+  }
+
+  private static int cellsAlong(final double span, final double cellSize) {
+    return (int) Math.min(Integer.MAX_VALUE / 4, (long) Math.floor(span / cellSize) + 1L);
+  }
+
+  private static int clamp(final int cell, final int size) {
+    return Math.max(0, Math.min(size - 1, cell));
+  }
+
+  private static double squared(final double dx, final double dy, final double dz) {
+    return (dx * dx) + (dy * dy) + (dz * dz);
+  }
+
+  /** @return The number of indexed points. */
+  public int size() {
+    return indices.length;
+  }
+
+  /** @return The edge length of cells (larger than requested for very sparse structures). */
+  public double cellSize() {
+    return cellSize;
+  }
+
+  /**
+   * Finds all points within a distance from a given point.
+   *
+   * @param x The X coordinate of the query point.
+   * @param y The Y coordinate of the query point.
+   * @param z The Z coordinate of the query point.
+   * @param radius The maximum distance (inclusive).
+   * @return Sorted indices of points at most {@code radius} away from the query point.
+   */
+  public int[] indicesWithin(final double x, final double y, final double z, final double radius) {
+    final double radiusSquared = radius * radius;
+    final int loX = Math.max(0, cellX(x - radius));
+    final int loY = Math.max(0, cellY(y - radius));
+    final int loZ = Math.max(0, cellZ(z - radius));
+    final int hiX = Math.min(sizeX - 1, cellX(x + radius));
+    final int hiY = Math.min(sizeY - 1, cellY(y + radius));
+    final int hiZ = Math.min(sizeZ - 1, cellZ(z + radius));
+
+    int[] result = new int[16];
+    int count = 0;
+    for (int i = loX; i <= hiX; i++) {
+      for (int j = loY; j <= hiY; j++) {
+        for (int k = loZ; k <= hiZ; k++) {
+          final int cell = cellIndex(i, j, k);
+          for (int p = cellStarts[cell]; p < cellStarts[cell + 1]; p++) {
+            if (SpatialIndex.squared(xs[p] - x, ys[p] - y, zs[p] - z) <= radiusSquared) {
+              if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+              }
+              result[count++] = indices[p];
+            }
+          }
+        }
+      }
+    }
+
+    final int[] trimmed = Arrays.copyOf(result, count);
+    Arrays.sort(trimmed);
+    return trimmed;
+  }
+
+  /**
+   * Finds all atoms within a distance from a given atom (including the atom itself, if indexed).
+   *
+   * @param center The query atom.
+   * @param radius The maximum distance (inclusive).
+   * @return Atoms at most {@code radius} away from {@code center}, in the order of indexing.
+   */
+  public List<PdbAtomLine> atomsWithin(final PdbAtomLine center, final double radius) {
+    return Arrays.stream(indicesWithin(center.x(), center.y(), center.z(), radius))
+        .mapToObj(atoms::get)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Finds the nearest points to a given point. Cells are visited in growing shells around the
+   * query point until no unvisited cell can contain a closer point.
+   *
+   * @param x The X coordinate of the query point.
+   * @param y The Y coordinate of the query point.
+   * @param z The Z coordinate of the query point.
+   * @param k The number of neighbours to find.
+   * @return Indices of at most {@code k} nearest points, ordered by increasing distance (ties are
+   *     ordered by index).
+   */
+  public int[] nearest(final double x, final double y, final double z, final int k) {
+    final int limit = Math.min(k, size());
+    final int[] best = new int[limit];
+    final double[] bestDistances = new double[limit];
+    int found = 0;
+    if (limit == 0) {
+      return best;
+    }
+
+    final int centerX = cellX(x);
+    final int centerY = cellY(y);
+    final int centerZ = cellZ(z);
+    // shells closer than `minShell` are outside of the grid, those farther than `maxShell` too
+    final int minShell =
+        Math.max(
+            Math.max(SpatialIndex.gap(centerX, sizeX), SpatialIndex.gap(centerY, sizeY)),
+            SpatialIndex.gap(centerZ, sizeZ));
+    final int maxShell =
+        Math.max(
+            Math.max(SpatialIndex.span(centerX, sizeX), SpatialIndex.span(centerY, sizeY)),
+            SpatialIndex.span(centerZ, sizeZ));
+
+    for (int shell = minShell; shell <= maxShell; shell++) {
+      for (int i = Math.max(0, centerX - shell); i <= Math.min(sizeX - 1, centerX + shell); i++) {
+        for (int j = Math.max(0, centerY - shell); j <= Math.min(sizeY - 1, centerY + shell); j++) {
+          for (int l = Math.max(0, centerZ - shell);
+              l <= Math.min(sizeZ - 1, centerZ + shell);
+              l++) {
+            final int ring =
+                Math.max(
+                    Math.max(Math.abs(i - centerX), Math.abs(j - centerY)), Math.abs(l - centerZ));
+            if (ring != shell) {
+              continue;
+            }
+
+            final int cell = cellIndex(i, j, l);
+            for (int p = cellStarts[cell]; p < cellStarts[cell + 1]; p++) {
+              final double distance = SpatialIndex.squared(xs[p] - x, ys[p] - y, zs[p] - z);
+              found = SpatialIndex.insert(best, bestDistances, found, indices[p], distance);
+            }
+          }
+        }
+      }
+
+      // every point in an unvisited cell is at least `shell` cells away from the query point
+      final double reach = shell * cellSize;
+      if ((found == limit) && (bestDistances[limit - 1] <= (reach * reach))) {
+        break;
+      }
+    }
+    return best;
+  }
+
+  // the number of cells between a cell and the nearest cell of the grid along one axis
+  private static int gap(final int cell, final int size) {
+    if (cell < 0) {
+      return -cell;
+    }
+    return (cell >= size) ? (cell - size + 1) : 0;
+  }
+
+  // the number of cells between a cell and the farthest cell of the grid along one axis
+  private static int span(final int cell, final int size) {
+    return Math.max(Math.abs(cell), Math.abs(size - 1 - cell));
+  }
+
+  // insertion into a sorted array of fixed capacity, returns the new number of elements
+  private static int insert(
+      final int[] best,
+      final double[] bestDistances,
+      final int found,
+      final int index,
+      final double distance) {
+    int position = found;
+    while ((position > 0)
+        && ((bestDistances[position - 1] > distance)
+            || ((bestDistances[position - 1] == distance) && (best[position - 1] > index)))) {
+      position--;
+    }
+    if (position == best.length) {
+      return found;
+    }
+
+    final int moved = Math.min(found, best.length - 1) - position;
+    System.arraycopy(best, position, best, position + 1, moved);
+    System.arraycopy(bestDistances, position, bestDistances, position + 1, moved);
+    best[position] = index;
+    bestDistances[position] = distance;
+    return Math.min(found + 1, best.length);
+  }
+
+  /**
+   * Finds all pairs of points within a distance from each other.
+   *
+   * @param cutoff The maximum distance (inclusive).
+   * @return A flat array of pairs of indices {@code [i0, j0, i1, j1, ...]}, where each {@code i <
+   *     j} and the pairs are sorted.
+   */
+  public int[] pairsWithin(final double cutoff) {
+    final double cutoffSquared = cutoff * cutoff;
+    final int reach = (int) Math.min(Integer.MAX_VALUE / 4, (long) Math.ceil(cutoff / cellSize));
+
+    long[] pairs = new long[16];
+    int count = 0;
+    for (int i = 0; i < sizeX; i++) {
+      for (int j = 0; j < sizeY; j++) {
+        for (int k = 0; k < sizeZ; k++) {
+          final int cell = cellIndex(i, j, k);
+          if (cellStarts[cell] == cellStarts[cell + 1]) {
+            continue;
+          }
+
+          for (int ni = Math.max(0, i - reach); ni <= Math.min(sizeX - 1, i + reach); ni++) {
+            for (int nj = Math.max(0, j - reach); nj <= Math.min(sizeY - 1, j + reach); nj++) {
+              for (int nk = Math.max(0, k - reach); nk <= Math.min(sizeZ - 1, k + reach); nk++) {
+                final int other = cellIndex(ni, nj, nk);
+                // each pair of cells is visited once, from the one with smaller index
+                if (other < cell) {
+                  continue;
+                }
+
+                for (int p = cellStarts[cell]; p < cellStarts[cell + 1]; p++) {
+                  final int begin = (other == cell) ? (p + 1) : cellStarts[other];
+                  for (int q = begin; q < cellStarts[other + 1]; q++) {
+                    if (SpatialIndex.squared(xs[p] - xs[q], ys[p] - ys[q], zs[p] - zs[q])
+                        <= cutoffSquared) {
+                      if (count == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, count * 2);
+                      }
+                      final long first = Math.min(indices[p], indices[q]);
+                      final long second = Math.max(indices[p], indices[q]);
+                      pairs[count++] = (first << 32) | second;
+                    }
+                  }
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+
+    Arrays.sort(pairs, 0, count);
+    final int[] result = new int[count * 2];
+    for (int i = 0; i < count; i++) {
+      result[2 * i] = (int) (pairs[i] >>> 32);
+      result[(2 * i) + 1] = (int) pairs[i];
+    }
+    return result;
+  }
+
+  private int cellX(final double x) {
+    return SpatialIndex.toCell((x - minX) / cellSize);
+  }
+
+  private int cellY(final double y) {
+    return SpatialIndex.toCell((y - minY) / cellSize);
+  }
+
+  private int cellZ(final double z) {
+    return SpatialIndex.toCell((z - minZ) / cellSize);
+  }
+
+  // saturating conversion, so that far away query points do not overflow
+  private static int toCell(final double position) {
+    final double cell = Math.floor(position);
+    return (int) Math.max(-(Integer.MAX_VALUE / 4), Math.min(Integer.MAX_VALUE / 4, cell));
+  }
+
+  private int cellIndex(final int x, final int y, final int z) {
+    return (((x * sizeY) + y) * sizeZ) + z;
+  }
+}
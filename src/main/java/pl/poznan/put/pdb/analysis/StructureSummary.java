@@ -0,0 +1,51 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.immutables.value.Value;
+import pl.poznan.put.pdb.PdbExpdtaLine;
+import pl.poznan.put.pdb.PdbHeaderLine;
+import pl.poznan.put.pdb.PdbRemark2Line;
+
+import java.util.Map;
+
+/**
+ * Metadata of a structure: its header, experimental technique, resolution, title and the molecule
+ * type of every chain. It is read without decoding any atoms, so it is suitable for indexing of
+ * large archives.
+ */
+@Value.Immutable
+public abstract class StructureSummary {
+  /** @return The header of the structure. */
+  @Value.Parameter(order = 1)
+  public abstract PdbHeaderLine header();
+
+  /** @return The experimental technique(s) used to determine the structure. */
+  @Value.Parameter(order = 2)
+  public abstract PdbExpdtaLine experimentalData();
+
+  /** @return The resolution of the structure. */
+  @Value.Parameter(order = 3)
+  public abstract PdbRemark2Line resolution();
+
+  /** @return The title of the structure. */
+  @Value.Parameter(order = 4)
+  public abstract String title();
+
+  /** @return A mapping between chain identifiers and molecule types, in the order of appearance. */
+  @Value.Parameter(order = 5)
+  public abstract Map<String, MoleculeType> chainMoleculeTypes();
+
+  /** @return The identifier of the structure as given in its header. */
+  public final String idCode() {
+    return header().idCode();
+  }
+
+  /**
+   * Checks if any chain in the structure is of the given type.
+   *
+   * @param moleculeType The type of molecule to look for.
+   * @return True if at least one chain has the given molecule type.
+   */
+  public final boolean containsMoleculeType(final MoleculeType moleculeType) {
+    return chainMoleculeTypes().containsValue(moleculeType);
+  }
+}
@@ -0,0 +1,249 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.math3.util.FastMath;
+import org.apache.commons.math3.util.MathArrays;
+import pl.poznan.put.atom.AtomName;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.torsion.AtomBasedTorsionAngleType;
+import pl.poznan.put.torsion.TorsionAngleType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Values of torsion angles for all residues in a list, computed in a batch. Atoms of every
+ * atom-based torsion angle are resolved once to indices in a flat array of coordinates, and then
+ * all angles are computed with plain arithmetic, with results identical to {@link
+ * AtomBasedTorsionAngleType#calculate(List, int)}. Other angle types are calculated as usual.
+ */
+public final class TorsionAngleTable {
+  private final List<TorsionAngleType> angleTypes;
+  private final double[][] values;
+  private final List<List<TorsionAngleType>> residueTypes;
+  private final int[][] residueColumns;
+
+  private TorsionAngleTable(
+      final List<TorsionAngleType> angleTypes,
+      final double[][] values,
+      final List<List<TorsionAngleType>> residueTypes,
+      final int[][] residueColumns) {
+    super();
+    this.angleTypes = angleTypes;
+    this.values = values;
+    this.residueTypes = residueTypes;
+    this.residueColumns = residueColumns;
+  }
+
+  /**
+   * Calculates all torsion angles defined for residues in the list. The angle types are ordered as
+   * they first appear in {@link ResidueInformationProvider#torsionAngleTypes()} of residues.
+   *
+   * @param residues The list of residues.
+   * @return A table of torsion angles' values.
+   */
+  public static TorsionAngleTable calculate(final List<PdbResidue> residues) {
+    final List<List<TorsionAngleType>> residueTypes = TorsionAngleTable.residueTypes(residues);
+    // angle types are mostly shared constants, so most duplicates are found by identity
+    final Set<TorsionAngleType> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    final Set<TorsionAngleType> angleTypes = new LinkedHashSet<>();
+    for (final List<TorsionAngleType> types : residueTypes) {
+      for (final TorsionAngleType type : types) {
+        if (seen.add(type)) {
+          angleTypes.add(type);
+        }
+      }
+    }
+    return TorsionAngleTable.calculate(residues, new ArrayList<>(angleTypes), residueTypes);
+  }
+
+  /**
+   * Calculates the given torsion angle types for residues in the list. An angle type has a value
+   * only in residues, which define it in {@link ResidueInformationProvider#torsionAngleTypes()}.
+   *
+   * @param residues The list of residues.
+   * @param angleTypes The list of torsion angle types (columns of the table).
+   * @return A table of torsion angles' values.
+   */
+  public static TorsionAngleTable calculate(
+      final List<PdbResidue> residues, final List<TorsionAngleType> angleTypes) {
+    return TorsionAngleTable.calculate(
+        residues, angleTypes, TorsionAngleTable.residueTypes(residues));
+  }
+
+  private static List<List<TorsionAngleType>> residueTypes(final List<PdbResidue> residues) {
+    final List<List<TorsionAngleType>> residueTypes = new ArrayList<>(residues.size());
+    for (final PdbResidue residue : residues) {
+      residueTypes.add(residue.residueInformationProvider().torsionAngleTypes());
+    }
+    return residueTypes;
+  }
+
+  private static TorsionAngleTable calculate(
+      final List<PdbResidue> residues,
+      final List<TorsionAngleType> angleTypes,
+      final List<List<TorsionAngleType>> residueTypes) {
+    final int residueCount = residues.size();
+    final int typeCount = angleTypes.size();
+    final double[][] values = new double[residueCount][typeCount];
+    final int[][] residueColumns = new int[residueCount][];
+    final AngleTypeIndex columnIndex = new AngleTypeIndex(angleTypes);
+    final List<PdbAtomLine> atoms = new ArrayList<>();
+    // four atom indices for every cell or -1 if the cell is not an atom-based torsion angle
+    final int[] quadruples = new int[residueCount * typeCount * 4];
+    Arrays.fill(quadruples, -1);
+
+    for (int i = 0; i < residueCount; i++) {
+      Arrays.fill(values[i], Double.NaN);
+      final List<TorsionAngleType> types = residueTypes.get(i);
+      residueColumns[i] = new int[types.size()];
+
+      for (int k = 0; k < types.size(); k++) {
+        final TorsionAngleType angleType = types.get(k);
+        final int j = columnIndex.indexOf(angleType);
+        residueColumns[i][k] = j;
+        if (j < 0) {
+          continue;
+        }
+
+        if (angleType instanceof AtomBasedTorsionAngleType) {
+          TorsionAngleTable.resolve(
+              (AtomBasedTorsionAngleType) angleType,
+              residues,
+              i,
+              atoms,
+              quadruples,
+              ((i * typeCount) + j) * 4);
+        } else {
+          values[i][j] = angleType.calculate(residues, i).value().radians();
+        }
+      }
+    }
+
+    final int atomCount = atoms.size();
+    final double[] coordinates = new double[atomCount * 3];
+    for (int k = 0; k < atomCount; k++) {
+      final PdbAtomLine atom = atoms.get(k);
+      coordinates[3 * k] = atom.x();
+      coordinates[(3 * k) + 1] = atom.y();
+      coordinates[(3 * k) + 2] = atom.z();
+    }
+
+    for (int i = 0; i < residueCount; i++) {
+      for (int j = 0; j < typeCount; j++) {
+        final int cell = ((i * typeCount) + j) * 4;
+        if (quadruples[cell] >= 0) {
+          values[i][j] =
+              TorsionAngleTable.torsionAngle(
+                  coordinates,
+                  quadruples[cell],
+                  quadruples[cell + 1],
+                  quadruples[cell + 2],
+                  quadruples[cell + 3]);
+        }
+      }
+    }
+
+    return new TorsionAngleTable(
+        Collections.unmodifiableList(new ArrayList<>(angleTypes)),
+        values,
+        residueTypes,
+        residueColumns);
+  }
+
+  // the same rules as in AtomBasedTorsionAngleType.findAtomPairs()
+  private static void resolve(
+      final AtomBasedTorsionAngleType angleType,
+      final List<PdbResidue> residues,
+      final int currentIndex,
+      final List<PdbAtomLine> atoms,
+      final int[] quadruples,
+      final int cell) {
+    for (int k = 0; k < 4; k++) {
+      final int index = currentIndex + angleType.residueRule().get(k);
+      final AtomName atomName = angleType.atoms().get(k);
+      if ((index < 0) || (index >= residues.size()) || !residues.get(index).hasAtom(atomName)) {
+        Arrays.fill(quadruples, cell, cell + 4, -1);
+        return;
+      }
+
+      quadruples[cell + k] = atoms.size();
+      atoms.add(residues.get(index).findAtom(atomName));
+    }
+  }
+
+  // the same arithmetic as Angle.torsionAngle() on Vector3D objects
+  private static double torsionAngle(
+      final double[] coordinates, final int a, final int b, final int c, final int d) {
+    final double v1x = coordinates[3 * b] - coordinates[3 * a];
+    final double v1y = coordinates[(3 * b) + 1] - coordinates[(3 * a) + 1];
+    final double v1z = coordinates[(3 * b) + 2] - coordinates[(3 * a) + 2];
+    final double v2x = coordinates[3 * c] - coordinates[3 * b];
+    final double v2y = coordinates[(3 * c) + 1] - coordinates[(3 * b) + 1];
+    final double v2z = coordinates[(3 * c) + 2] - coordinates[(3 * b) + 2];
+    final double v3x = coordinates[3 * d] - coordinates[3 * c];
+    final double v3y = coordinates[(3 * d) + 1] - coordinates[(3 * c) + 1];
+    final double v3z = coordinates[(3 * d) + 2] - coordinates[(3 * c) + 2];
+
+    final double tmp1x = MathArrays.linearCombination(v1y, v2z, -v1z, v2y);
+    final double tmp1y = MathArrays.linearCombination(v1z, v2x, -v1x, v2z);
+    final double tmp1z = MathArrays.linearCombination(v1x, v2y, -v1y, v2x);
+    final double tmp2x = MathArrays.linearCombination(v2y, v3z, -v2z, v3y);
+    final double tmp2y = MathArrays.linearCombination(v2z, v3x, -v2x, v3z);
+    final double tmp2z = MathArrays.linearCombination(v2x, v3y, -v2y, v3x);
+    final double norm = FastMath.sqrt((v2x * v2x) + (v2y * v2y) + (v2z * v2z));
+    final double tmp3x = norm * v1x;
+    final double tmp3y = norm * v1y;
+    final double tmp3z = norm * v1z;
+
+    return FastMath.atan2(
+        MathArrays.linearCombination(tmp3x, tmp2x, tmp3y, tmp2y, tmp3z, tmp2z),
+        MathArrays.linearCombination(tmp1x, tmp2x, tmp1y, tmp2y, tmp1z, tmp2z));
+  }
+
+  /** @return The torsion angle types in columns of this table. */
+  public List<TorsionAngleType> angleTypes() {
+    return angleTypes;
+  }
+
+  /** @return The number of residues in rows of this table. */
+  public int residueCount() {
+    return values.length;
+  }
+
+  /**
+   * @param residueIndex The index of residue.
+   * @param typeIndex The index of torsion angle type in {@link #angleTypes()}.
+   * @return The value of torsion angle in radians or NaN if it is undefined.
+   */
+  public double value(final int residueIndex, final int typeIndex) {
+    return values[residueIndex][typeIndex];
+  }
+
+  /** @return A copy of all values, indexed by residue and then by angle type. */
+  public double[][] values() {
+    return Arrays.stream(values).map(double[]::clone).toArray(double[][]::new);
+  }
+
+  /**
+   * @param residueIndex The index of residue.
+   * @return The torsion angle types of the residue, as returned by {@link
+   *     ResidueInformationProvider#torsionAngleTypes()} when this table was calculated.
+   */
+  List<TorsionAngleType> residueTypes(final int residueIndex) {
+    return residueTypes.get(residueIndex);
+  }
+
+  /**
+   * @param residueIndex The index of residue.
+   * @return For every torsion angle type of the residue (in the order of {@link
+   *     ResidueInformationProvider#torsionAngleTypes()}), its index in {@link #angleTypes()} or -1.
+   */
+  int[] residueColumns(final int residueIndex) {
+    return residueColumns[residueIndex];
+  }
+}
@@ -1,13 +1,17 @@
 package pl.poznan.put.structure;
 
+import pl.poznan.put.atom.AtomName;
+import pl.poznan.put.pdb.PdbAtomLine;
 import pl.poznan.put.pdb.PdbNamedResidueIdentifier;
 import pl.poznan.put.pdb.analysis.ImmutableDefaultResidueCollection;
 import pl.poznan.put.pdb.analysis.MoleculeType;
 import pl.poznan.put.pdb.analysis.PdbResidue;
 import pl.poznan.put.pdb.analysis.ResidueCollection;
+import pl.poznan.put.pdb.analysis.SpatialIndex;
 import pl.poznan.put.structure.formats.BpSeq;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -15,6 +19,11 @@ import java.util.stream.Collectors;
 
 /** A set of methods to analyze 3D data to extract the canonical 2D structure. */
 public final class CanonicalStructureExtractor {
+  private static final List<AtomName> PAIRING_ATOMS =
+      Arrays.asList(AtomName.N1, AtomName.N3, AtomName.O2);
+  // all distance thresholds in BasePair are below 3.5 A
+  private static final double CUTOFF = 4.0;
+
   private CanonicalStructureExtractor() {
     super();
     // empty constructor
@@ -45,28 +54,97 @@ public final class CanonicalStructureExtractor {
   public static Collection<ClassifiedBasePair> basePairs(
       final ResidueCollection residueCollection) {
     final List<PdbResidue> residues = residueCollection.residues();
+    return CanonicalStructureExtractor.greedyPairs(
+        residues, CanonicalStructureExtractor.candidatePairs(residues));
+  }
+
+  /**
+   * Finds canonical base pairs by testing every pair of residues. This gives the same result as
+   * {@link #basePairs(ResidueCollection)}, but in quadratic time.
+   *
+   * @param residueCollection A collection of residues to analyze.
+   * @return A collection of canonical base pairs, each residue in at most one of them.
+   */
+  public static Collection<ClassifiedBasePair> basePairsExhaustive(
+      final ResidueCollection residueCollection) {
+    final List<PdbResidue> residues = residueCollection.residues();
     final Collection<ClassifiedBasePair> basePairs = new ArrayList<>();
     final Collection<PdbNamedResidueIdentifier> paired = new HashSet<>();
-
     for (int i = 0; i < residues.size(); i++) {
-      final PdbResidue left = residues.get(i);
-
       for (int j = i + 1; j < residues.size(); j++) {
-        final PdbResidue right = residues.get(j);
-
-        if (BasePair.isCanonicalPair(left, right)) {
-          final PdbNamedResidueIdentifier leftId = left.namedResidueIdentifer();
-          final PdbNamedResidueIdentifier rightId = right.namedResidueIdentifer();
+        CanonicalStructureExtractor.pairIfCanonical(
+            residues.get(i), residues.get(j), basePairs, paired);
+      }
+    }
+    return basePairs;
+  }
 
-          if (!paired.contains(leftId) && !paired.contains(rightId)) {
-            basePairs.add(ImmutableAnalyzedBasePair.of(ImmutableBasePair.of(leftId, rightId)));
-            paired.add(leftId);
-            paired.add(rightId);
-          }
+  /*
+   * Every canonical pair requires purine N1 close to pyrimidine N3 (A-U, C-G) or O2 (G-U). Here
+   * these atoms are put in a spatial index and only residues with any of them within a cutoff
+   * (larger than all distance thresholds in BasePair) become candidates. The candidates are
+   * sorted, so that the greedy assignment sees them in the same order as the exhaustive search.
+   */
+  private static long[] candidatePairs(final List<PdbResidue> residues) {
+    final List<PdbAtomLine> atoms = new ArrayList<>();
+    final List<Integer> owners = new ArrayList<>();
+    for (int i = 0; i < residues.size(); i++) {
+      final PdbResidue residue = residues.get(i);
+      for (final AtomName atomName : CanonicalStructureExtractor.PAIRING_ATOMS) {
+        if (residue.hasAtom(atomName)) {
+          atoms.add(residue.findAtom(atomName));
+          owners.add(i);
         }
       }
     }
 
+    final int[] atomPairs =
+        SpatialIndex.of(atoms, CanonicalStructureExtractor.CUTOFF)
+            .pairsWithin(CanonicalStructureExtractor.CUTOFF);
+    final long[] candidates = new long[atomPairs.length / 2];
+    int count = 0;
+    for (int k = 0; k < atomPairs.length; k += 2) {
+      final int left = owners.get(atomPairs[k]);
+      final int right = owners.get(atomPairs[k + 1]);
+      if (left != right) {
+        candidates[count++] =
+            CanonicalStructureExtractor.encode(Math.min(left, right), Math.max(left, right));
+      }
+    }
+    return Arrays.stream(candidates, 0, count).sorted().distinct().toArray();
+  }
+
+  private static Collection<ClassifiedBasePair> greedyPairs(
+      final List<PdbResidue> residues, final long[] candidates) {
+    final Collection<ClassifiedBasePair> basePairs = new ArrayList<>();
+    final Collection<PdbNamedResidueIdentifier> paired = new HashSet<>();
+
+    for (final long candidate : candidates) {
+      CanonicalStructureExtractor.pairIfCanonical(
+          residues.get((int) (candidate >>> 32)), residues.get((int) candidate), basePairs, paired);
+    }
     return basePairs;
   }
+
+  // the first canonical partner of a residue wins
+  private static void pairIfCanonical(
+      final PdbResidue left,
+      final PdbResidue right,
+      final Collection<ClassifiedBasePair> basePairs,
+      final Collection<PdbNamedResidueIdentifier> paired) {
+    if (BasePair.isCanonicalPair(left, right)) {
+      final PdbNamedResidueIdentifier leftId = left.namedResidueIdentifer();
+      final PdbNamedResidueIdentifier rightId = right.namedResidueIdentifer();
+
+      if (!paired.contains(leftId) && !paired.contains(rightId)) {
+        basePairs.add(ImmutableAnalyzedBasePair.of(ImmutableBasePair.of(leftId, rightId)));
+        paired.add(leftId);
+        paired.add(rightId);
+      }
+    }
+  }
+
+  private static long encode(final int left, final int right) {
+    return ((long) left << 32) | right;
+  }
 }
@@ -2,8 +2,8 @@ package pl.poznan.put.torsion;
 
 import org.immutables.value.Value;
 import pl.poznan.put.circular.Angle;
-import pl.poznan.put.circular.samples.AngleSample;
-import pl.poznan.put.circular.samples.ImmutableAngleSample;
+import pl.poznan.put.circular.ImmutableAngle;
+import pl.poznan.put.circular.samples.CircularStatistics;
 import pl.poznan.put.pdb.analysis.MoleculeType;
 import pl.poznan.put.pdb.analysis.PdbResidue;
 import pl.poznan.put.torsion.range.Range;
@@ -50,8 +50,8 @@ public abstract class AverageTorsionAngleType implements TorsionAngleType, Maste
   public abstract MoleculeType moleculeType();
 
   /**
-   * Calculates the average torsion angle value by calculating basic angle values and creating an
-   * {@link AngleSample} out of them to get the mean direction.
+   * Calculates the average torsion angle value by calculating basic angle values and getting their
+   * mean direction (see {@link CircularStatistics#meanDirection(double[])}).
    *
    * @param residues The list of residues.
    * @param currentIndex The index of current residue.
@@ -60,14 +60,14 @@ public abstract class AverageTorsionAngleType implements TorsionAngleType, Maste
   @Override
   public final TorsionAngleValue calculate(
       final List<PdbResidue> residues, final int currentIndex) {
-    final List<Angle> angles =
+    final double[] radians =
         residues.get(currentIndex).residueInformationProvider().torsionAngleTypes().stream()
             .filter(consideredBasicAngleTypes()::contains)
             .map(angleType -> angleType.calculate(residues, currentIndex))
-            .map(TorsionAngleValue::value)
-            .collect(Collectors.toList());
-    final AngleSample angleSample = ImmutableAngleSample.of(angles);
-    return ImmutableTorsionAngleValue.of(this, angleSample.meanDirection());
+            .mapToDouble(angleValue -> angleValue.value().radians())
+            .toArray();
+    return ImmutableTorsionAngleValue.of(
+        this, ImmutableAngle.of(CircularStatistics.meanDirection(radians)));
   }
 
   /** @return The list of angle types to calculate average from. */
@@ -121,20 +121,20 @@ public abstract class AverageTorsionAngleType implements TorsionAngleType, Maste
   }
 
   /**
-   * Calculates the average torsion angle value by collecting basic angle values and creating an
-   * {@link AngleSample} out of them to get the mean direction.
+   * Calculates the average torsion angle value by collecting basic angle values and getting their
+   * mean direction (see {@link CircularStatistics#meanDirection(double[])}).
    *
    * @param values The collection of torsion angle values.
    * @return The average value of torsion angles condigured for this type.
    */
   public final TorsionAngleValue calculate(final Collection<TorsionAngleValue> values) {
-    final List<Angle> angles =
+    final double[] radians =
         values.stream()
             .filter(angleValue -> consideredBasicAngleTypes().contains(angleValue.angleType()))
-            .map(TorsionAngleValue::value)
-            .collect(Collectors.toList());
-    final AngleSample angleSample = ImmutableAngleSample.of(angles);
-    return ImmutableTorsionAngleValue.of(this, angleSample.meanDirection());
+            .mapToDouble(angleValue -> angleValue.value().radians())
+            .toArray();
+    return ImmutableTorsionAngleValue.of(
+        this, ImmutableAngle.of(CircularStatistics.meanDirection(radians)));
   }
 
   @Override
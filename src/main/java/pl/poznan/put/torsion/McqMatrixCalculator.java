@@ -0,0 +1,293 @@
+package pl.poznan.put.torsion;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.math3.util.FastMath;
+import pl.poznan.put.pdb.analysis.PdbResidue;
+import pl.poznan.put.pdb.analysis.ResidueCollection;
+import pl.poznan.put.pdb.analysis.ResidueTorsionAngles;
+import pl.poznan.put.types.DistanceMatrix;
+import pl.poznan.put.types.ImmutableDistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Calculates a matrix of MCQ (mean of circular quantities) distances between all pairs of models.
+ * The MCQ of two models is the mean direction of differences (see {@link
+ * pl.poznan.put.circular.Angle#subtractByAbsolutes(double, double)}) between their torsion angles,
+ * taken for every residue and every angle from {@link AverageTorsionAngleType#consideredAngles()}
+ * which is valid in both models. Models are compared residue by residue, so they all must have the
+ * same number of residues of the molecule type.
+ *
+ * <p>Torsion angles of every model are calculated once and kept as sines and cosines, so that
+ * comparing two models needs only multiplications and additions. The matrix is symmetric and its
+ * upper triangle is divided into tiles computed in parallel.
+ */
+public final class McqMatrixCalculator {
+  // the number of models along one side of a tile
+  private static final int TILE_SIZE = 16;
+  private static final long POLL_INTERVAL_MILLIS = 100L;
+
+  private final AverageTorsionAngleType averageType;
+  private final int workers;
+
+  /**
+   * Creates an instance for given torsion angles.
+   *
+   * @param averageType The definition of MCQ (the molecule type and torsion angles to compare).
+   * @param workers The number of threads.
+   */
+  public McqMatrixCalculator(final AverageTorsionAngleType averageType, final int workers) {
+    super();
+    Validate.isTrue(workers > 0, "Number of workers must be positive"); // NON-NLS
+    this.averageType = averageType;
+    this.workers = workers;
+  }
+
+  /**
+   * Creates an instance for the main torsion angles of nucleic acids, with one thread per CPU.
+   *
+   * @see AverageTorsionAngleType#forNucleicAcid()
+   */
+  public McqMatrixCalculator() {
+    this(AverageTorsionAngleType.forNucleicAcid(), Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Calculates MCQ between two models given as sines and cosines of their torsion angles.
+   *
+   * @param first Sines and cosines of the first model (see {@link #encode(ResidueCollection)}).
+   * @param second Sines and cosines of the second model.
+   * @return The MCQ value in radians in range [0; pi] or NaN if no angle is valid in both models.
+   */
+  static double mcq(final double[] first, final double[] second) {
+    double sumSin = 0.0;
+    double sumCos = 0.0;
+    int count = 0;
+
+    for (int k = 0; k < first.length; k += 2) {
+      final double sin1 = first[k];
+      final double cos1 = first[k + 1];
+      final double sin2 = second[k];
+      final double cos2 = second[k + 1];
+      if (Double.isNaN(sin1) || Double.isNaN(sin2)) {
+        continue;
+      }
+
+      // the difference d = pi - |pi - |a - b|| is in [0; pi], so sin(d) = |sin(a - b)| and
+      // cos(d) = cos(a - b)
+      sumSin += FastMath.abs((sin1 * cos2) - (cos1 * sin2));
+      sumCos += (cos1 * cos2) + (sin1 * sin2);
+      count++;
+    }
+
+    if (count == 0) {
+      return Double.NaN;
+    }
+    return FastMath.atan2(sumSin / count, sumCos / count);
+  }
+
+  /**
+   * Calculates the MCQ distance matrix.
+   *
+   * @param names The names of models.
+   * @param models The models to compare.
+   * @return A symmetric matrix of MCQ values in radians.
+   * @throws InterruptedException When the calling thread is interrupted while waiting for results.
+   */
+  public DistanceMatrix calculate(
+      final List<String> names, final List<? extends ResidueCollection> models)
+      throws InterruptedException {
+    return calculate(names, models, (completed, total) -> {}, () -> false);
+  }
+
+  /**
+   * Calculates the MCQ distance matrix, reporting progress and allowing to stop early.
+   *
+   * @param names The names of models.
+   * @param models The models to compare.
+   * @param listener A callback to receive progress, always called on the calling thread.
+   * @param cancelled A condition checked periodically, when it becomes true the calculation stops.
+   * @return A symmetric matrix of MCQ values in radians.
+   * @throws InterruptedException When the calling thread is interrupted while waiting for results.
+   * @throws CancellationException When the calculation is stopped by {@code cancelled}.
+   */
+  public DistanceMatrix calculate(
+      final List<String> names,
+      final List<? extends ResidueCollection> models,
+      final ProgressListener listener,
+      final BooleanSupplier cancelled)
+      throws InterruptedException {
+    Validate.isTrue(
+        names.size() == models.size(),
+        "The numbers of names and models must be the same"); // NON-NLS
+
+    final int size = models.size();
+    final double[][] matrix = new double[size][size];
+    final ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+    try {
+      final double[][] encoded = new double[size][];
+      final CompletionService<double[]> encodings = new ExecutorCompletionService<>(executor);
+      for (int i = 0; i < size; i++) {
+        final int index = i;
+        encodings.submit(
+            () -> {
+              // models still waiting in the queue are skipped after cancellation
+              if (!cancelled.getAsBoolean()) {
+                encoded[index] = encode(models.get(index));
+              }
+              return encoded[index];
+            });
+      }
+      for (int i = 0; i < size; i++) {
+        McqMatrixCalculator.await(McqMatrixCalculator.poll(encodings, cancelled), cancelled);
+      }
+      McqMatrixCalculator.checkCancelled(cancelled);
+      McqMatrixCalculator.validateSizes(names, encoded);
+
+      final CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+      int tiles = 0;
+      for (int begin1 = 0; begin1 < size; begin1 += McqMatrixCalculator.TILE_SIZE) {
+        for (int begin2 = begin1; begin2 < size; begin2 += McqMatrixCalculator.TILE_SIZE) {
+          final int first = begin1;
+          final int second = begin2;
+          completionService.submit(
+              () -> McqMatrixCalculator.fillTile(encoded, matrix, first, second, cancelled));
+          tiles++;
+        }
+      }
+
+      final long total = ((long) size * (size - 1)) / 2;
+      long completed = 0L;
+      for (int i = 0; i < tiles; i++) {
+        completed +=
+            McqMatrixCalculator.await(
+                McqMatrixCalculator.poll(completionService, cancelled), cancelled);
+        listener.onProgress(completed, total);
+      }
+      McqMatrixCalculator.checkCancelled(cancelled);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return ImmutableDistanceMatrix.of(new ArrayList<>(names), matrix);
+  }
+
+  // fills cells (i, j) and (j, i) for i < j in the tile, returns the number of pairs compared
+  private static long fillTile(
+      final double[][] encoded,
+      final double[][] matrix,
+      final int begin1,
+      final int begin2,
+      final BooleanSupplier cancelled) {
+    final int end1 = Math.min(begin1 + McqMatrixCalculator.TILE_SIZE, encoded.length);
+    final int end2 = Math.min(begin2 + McqMatrixCalculator.TILE_SIZE, encoded.length);
+    long count = 0L;
+
+    for (int i = begin1; i < end1; i++) {
+      if (cancelled.getAsBoolean()) {
+        return count;
+      }
+      for (int j = Math.max(i + 1, begin2); j < end2; j++) {
+        final double mcq = McqMatrixCalculator.mcq(encoded[i], encoded[j]);
+        matrix[i][j] = mcq;
+        matrix[j][i] = mcq;
+        count++;
+      }
+    }
+    return count;
+  }
+
+  // waits for the next completed task, but never longer than one interval without a cancel check
+  private static <T> Future<T> poll(
+      final CompletionService<T> completionService, final BooleanSupplier cancelled)
+      throws InterruptedException {
+    Future<T> future = null;
+    while (future == null) {
+      McqMatrixCalculator.checkCancelled(cancelled);
+      future =
+          completionService.poll(McqMatrixCalculator.POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return future;
+  }
+
+  private static <T> T await(final Future<T> future, final BooleanSupplier cancelled)
+      throws InterruptedException {
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      McqMatrixCalculator.checkCancelled(cancelled);
+      throw new IllegalStateException("Failed to calculate MCQ", e.getCause()); // NON-NLS
+    }
+  }
+
+  private static void checkCancelled(final BooleanSupplier cancelled) {
+    if (cancelled.getAsBoolean()) {
+      throw new CancellationException("Calculation of MCQ matrix was cancelled"); // NON-NLS
+    }
+  }
+
+  private static void validateSizes(final List<String> names, final double[][] encoded) {
+    for (int i = 1; i < encoded.length; i++) {
+      if (encoded[i].length != encoded[0].length) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Models %s and %s have different numbers of residues", // NON-NLS
+                names.get(0), names.get(i)));
+      }
+    }
+  }
+
+  /**
+   * Calculates torsion angles of residues of the molecule type and stores them as pairs of sine and
+   * cosine (or two NaNs for invalid angles).
+   *
+   * @param model A model.
+   * @return An array with (sine, cosine) for every residue and every considered angle.
+   */
+  double[] encode(final ResidueCollection model) {
+    final List<PdbResidue> residues =
+        model.residues().stream()
+            .filter(
+                residue ->
+                    residue.residueInformationProvider().moleculeType()
+                        == averageType.moleculeType())
+            .collect(Collectors.toList());
+    final List<MasterTorsionAngleType> angleTypes = averageType.consideredAngles();
+    final List<ResidueTorsionAngles> torsionAngles = ResidueTorsionAngles.calculateAll(residues);
+
+    final double[] encoded = new double[residues.size() * angleTypes.size() * 2];
+    int k = 0;
+    for (final ResidueTorsionAngles residueTorsionAngles : torsionAngles) {
+      for (final MasterTorsionAngleType angleType : angleTypes) {
+        final double radians = residueTorsionAngles.value(angleType).radians();
+        encoded[k++] = FastMath.sin(radians);
+        encoded[k++] = FastMath.cos(radians);
+      }
+    }
+    return encoded;
+  }
+
+  /** A receiver of information about the progress of calculation. */
+  @FunctionalInterface
+  public interface ProgressListener {
+    /**
+     * Receives the current progress.
+     *
+     * @param completed The number of pairs of models already compared.
+     * @param total The number of all pairs of models to compare.
+     */
+    void onProgress(long completed, long total);
+  }
+}
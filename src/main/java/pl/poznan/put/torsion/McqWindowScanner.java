@@ -0,0 +1,180 @@
+package pl.poznan.put.torsion;
+
+import org.apache.commons.math3.util.FastMath;
+import pl.poznan.put.pdb.analysis.PdbCompactFragment;
+import pl.poznan.put.pdb.analysis.ResidueTorsionAngles;
+import pl.poznan.put.types.Quadruple;
+
+import java.util.List;
+
+/**
+ * Scans a longer model with a target fragment and calculates MCQ between the target and every
+ * window of the same size, i.e. between the target and {@link PdbCompactFragment#shifted(int, int)}
+ * for every possible shift. MCQ is defined as in {@link McqMatrixCalculator}.
+ *
+ * <p>Torsion angles of the model are calculated once. An angle which in a window would need atoms
+ * of a residue outside of that window (e.g. alpha of the first residue) is treated as invalid
+ * there, exactly like in a fragment created by {@link PdbCompactFragment#shifted(int, int)}. Angle
+ * types other than {@link AtomBasedTorsionAngleType} are assumed to depend only on their own
+ * residue.
+ */
+public final class McqWindowScanner {
+  private final AverageTorsionAngleType averageType;
+
+  /**
+   * Creates an instance for given torsion angles.
+   *
+   * @param averageType The definition of MCQ (the torsion angles to compare).
+   */
+  public McqWindowScanner(final AverageTorsionAngleType averageType) {
+    super();
+    this.averageType = averageType;
+  }
+
+  /**
+   * Creates an instance for the main torsion angles of nucleic acids.
+   *
+   * @see AverageTorsionAngleType#forNucleicAcid()
+   */
+  public McqWindowScanner() {
+    this(AverageTorsionAngleType.forNucleicAcid());
+  }
+
+  /**
+   * Calculates MCQ between the target and every window of the model.
+   *
+   * @param target The fragment to look for.
+   * @param model The fragment to scan, usually longer than the target.
+   * @return An array of MCQ values in radians, the i-th for the window starting at residue i (NaN
+   *     if no angle is valid in both fragments). It is empty if the model is shorter than the
+   *     target.
+   */
+  public double[] scan(final PdbCompactFragment target, final PdbCompactFragment model) {
+    final int size = target.residues().size();
+    final int windowCount = (model.residues().size() - size) + 1;
+    if (windowCount <= 0) {
+      return new double[0];
+    }
+
+    final List<MasterTorsionAngleType> masterTypes = averageType.consideredAngles();
+    final int masterCount = masterTypes.size();
+    final double[] targetSines = new double[size * masterCount];
+    final double[] targetCosines = new double[size * masterCount];
+    for (int k = 0; k < size; k++) {
+      final ResidueTorsionAngles residueTorsionAngles = target.torsionAngles(k);
+      for (int m = 0; m < masterCount; m++) {
+        final double radians = residueTorsionAngles.value(masterTypes.get(m)).radians();
+        targetSines[(k * masterCount) + m] = FastMath.sin(radians);
+        targetCosines[(k * masterCount) + m] = FastMath.cos(radians);
+      }
+    }
+
+    final Candidates candidates = new Candidates(model, masterTypes);
+    final double[] profile = new double[windowCount];
+
+    for (int shift = 0; shift < windowCount; shift++) {
+      final int end = shift + size;
+      double sumSin = 0.0;
+      double sumCos = 0.0;
+      int count = 0;
+
+      for (int k = 0; k < size; k++) {
+        final int residueIndex = shift + k;
+        for (int m = 0; m < masterCount; m++) {
+          final int cell = (k * masterCount) + m;
+          final double sin1 = targetSines[cell];
+          if (Double.isNaN(sin1)) {
+            continue;
+          }
+
+          final int candidate = candidates.find(residueIndex, m, shift, end);
+          if (candidate < 0) {
+            continue;
+          }
+
+          final double cos1 = targetCosines[cell];
+          final double sin2 = candidates.sines[candidate];
+          final double cos2 = candidates.cosines[candidate];
+          sumSin += FastMath.abs((sin1 * cos2) - (cos1 * sin2));
+          sumCos += (cos1 * cos2) + (sin1 * sin2);
+          count++;
+        }
+      }
+
+      profile[shift] = (count == 0) ? Double.NaN : FastMath.atan2(sumSin / count, sumCos / count);
+    }
+
+    return profile;
+  }
+
+  // valid torsion angles of the model which may stand for a master angle type in a window, each
+  // with the range of residues it needs, in the order of MasterTorsionAngleType.angleTypes()
+  private static final class Candidates {
+    private final int masterCount;
+    private final int[] offsets;
+    private final int[] firstResidues;
+    private final int[] lastResidues;
+    private final double[] sines;
+    private final double[] cosines;
+
+    private Candidates(
+        final PdbCompactFragment model, final List<MasterTorsionAngleType> masterTypes) {
+      super();
+      final int residueCount = model.residues().size();
+      masterCount = masterTypes.size();
+      offsets = new int[(residueCount * masterCount) + 1];
+
+      int capacity = 0;
+      for (final MasterTorsionAngleType masterType : masterTypes) {
+        capacity += masterType.angleTypes().size();
+      }
+      capacity *= residueCount;
+      firstResidues = new int[capacity];
+      lastResidues = new int[capacity];
+      sines = new double[capacity];
+      cosines = new double[capacity];
+
+      int count = 0;
+      for (int i = 0; i < residueCount; i++) {
+        final ResidueTorsionAngles residueTorsionAngles = model.torsionAngles(i);
+        for (int m = 0; m < masterCount; m++) {
+          offsets[(i * masterCount) + m] = count;
+          for (final TorsionAngleType angleType : masterTypes.get(m).angleTypes()) {
+            final int index = residueTorsionAngles.indexOf(angleType);
+            final double radians =
+                (index < 0) ? Double.NaN : residueTorsionAngles.radians(index);
+            if (Double.isNaN(radians)) {
+              continue;
+            }
+
+            firstResidues[count] = i;
+            lastResidues[count] = i;
+            if (angleType instanceof AtomBasedTorsionAngleType) {
+              final Quadruple<Integer> residueRule =
+                  ((AtomBasedTorsionAngleType) angleType).residueRule();
+              for (int k = 0; k < 4; k++) {
+                firstResidues[count] = Math.min(firstResidues[count], i + residueRule.get(k));
+                lastResidues[count] = Math.max(lastResidues[count], i + residueRule.get(k));
+              }
+            }
+            sines[count] = FastMath.sin(radians);
+            cosines[count] = FastMath.cos(radians);
+            count++;
+          }
+        }
+      }
+      offsets[residueCount * masterCount] = count;
+    }
+
+    // the first candidate which lies entirely within residues [begin; end) or -1
+    private int find(final int residueIndex, final int master, final int begin, final int end) {
+      final int cell = (residueIndex * masterCount) + master;
+      for (int c = offsets[cell]; c < offsets[cell + 1]; c++) {
+        if ((firstResidues[c] >= begin) && (lastResidues[c] < end)) {
+          return c;
+        }
+      }
+      return -1;
+    }
+  }
+}
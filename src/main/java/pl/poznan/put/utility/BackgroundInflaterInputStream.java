@@ -0,0 +1,143 @@
+package pl.poznan.put.utility;
+
+import org.apache.commons.io.IOUtils;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A stream of gzip-decompressed data, where the decompression runs on a separate thread. The thread
+ * puts chunks of decompressed data into a bounded queue, so it stays at most a few chunks ahead of
+ * the reader, while inflating and parsing overlap in time. Closing this stream stops the thread and
+ * closes the compressed source.
+ */
+final class BackgroundInflaterInputStream extends InputStream {
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final int QUEUE_CAPACITY = 16;
+  // a unique instance marking the end of data (or a failure)
+  private static final byte[] END = new byte[0];
+
+  private final BlockingQueue<byte[]> queue =
+      new ArrayBlockingQueue<>(BackgroundInflaterInputStream.QUEUE_CAPACITY);
+  private final Thread thread;
+
+  @Nullable private volatile Throwable failure;
+  private volatile boolean closed;
+
+  private byte[] chunk = new byte[0];
+  private int position;
+  private boolean finished;
+
+  BackgroundInflaterInputStream(final InputStream compressed) {
+    super();
+    thread = new Thread(() -> inflate(compressed), "gzip-inflater"); // NON-NLS
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return fill() ? (chunk[position++] & 0xFF) : -1;
+  }
+
+  @Override
+  public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+    if ((offset < 0) || (length < 0) || (length > (bytes.length - offset))) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (length == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+
+    final int count = Math.min(length, chunk.length - position);
+    System.arraycopy(chunk, position, bytes, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return chunk.length - position;
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      thread.interrupt();
+      queue.clear();
+    }
+  }
+
+  private boolean fill() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+
+    while (position >= chunk.length) {
+      if (finished) {
+        return false;
+      }
+
+      try {
+        chunk = queue.take();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for decompressed data");
+      }
+      position = 0;
+
+      if (chunk == BackgroundInflaterInputStream.END) {
+        finished = true;
+        final Throwable exception = failure;
+        if (exception != null) {
+          throw new IOException("Failed to decompress gzip data", exception);
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void inflate(final InputStream compressed) {
+    try (final InputStream stream =
+        new GZIPInputStream(compressed, BackgroundInflaterInputStream.CHUNK_SIZE)) {
+      while (!closed) {
+        final byte[] buffer = new byte[BackgroundInflaterInputStream.CHUNK_SIZE];
+        final int count = IOUtils.read(stream, buffer);
+        if (count > 0) {
+          queue.put((count == buffer.length) ? buffer : Arrays.copyOf(buffer, count));
+        }
+        if (count < buffer.length) {
+          break;
+        }
+      }
+    } catch (final InterruptedException e) {
+      // the stream was closed by the reader
+    } catch (final Throwable e) {
+      // any failure must reach the reader, otherwise it would wait for data forever
+      failure = e;
+    } finally {
+      finish();
+    }
+  }
+
+  private void finish() {
+    try {
+      if (!closed) {
+        queue.put(BackgroundInflaterInputStream.END);
+      }
+    } catch (final InterruptedException ignored) {
+      // the stream was closed by the reader
+    }
+  }
+}
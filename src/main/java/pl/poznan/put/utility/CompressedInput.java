@@ -0,0 +1,93 @@
+package pl.poznan.put.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A collection of methods to read files and streams which may be gzip-compressed. The compression
+ * is detected by the magic bytes at the beginning of data, not by the file extension. Compressed
+ * data are inflated on a separate thread, so that decompression and parsing run in parallel.
+ */
+public final class CompressedInput {
+  private static final int GZIP_MAGIC_FIRST = 0x1f;
+  private static final int GZIP_MAGIC_SECOND = 0x8b;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private CompressedInput() {
+    super();
+  }
+
+  /**
+   * Checks if a file starts with gzip magic bytes.
+   *
+   * @param path Path to the file.
+   * @return True if the file is gzip-compressed.
+   * @throws IOException When reading of the file fails.
+   */
+  public static boolean isGzip(final Path path) throws IOException {
+    try (final InputStream stream = Files.newInputStream(path)) {
+      return (stream.read() == CompressedInput.GZIP_MAGIC_FIRST)
+          && (stream.read() == CompressedInput.GZIP_MAGIC_SECOND);
+    }
+  }
+
+  /**
+   * Opens a file for reading, decompressing it on the fly if it is gzip-compressed.
+   *
+   * @param path Path to the file.
+   * @return A stream of (decompressed) file content.
+   * @throws IOException When opening of the file fails.
+   */
+  public static InputStream open(final Path path) throws IOException {
+    final InputStream stream = Files.newInputStream(path);
+    try {
+      return CompressedInput.decompress(stream);
+    } catch (final IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens a file as UTF-8 text, decompressing it on the fly if it is gzip-compressed.
+   *
+   * @param path Path to the file.
+   * @return A reader of (decompressed) file content.
+   * @throws IOException When opening of the file fails.
+   */
+  public static BufferedReader newReader(final Path path) throws IOException {
+    return new BufferedReader(
+        new InputStreamReader(CompressedInput.open(path), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Wraps a stream to decompress it on the fly if it is gzip-compressed. Otherwise, the data are
+   * passed through unchanged. Closing the returned stream closes the original one.
+   *
+   * @param stream A stream of possibly compressed data.
+   * @return A stream of decompressed data.
+   * @throws IOException When reading of the magic bytes fails.
+   */
+  public static InputStream decompress(final InputStream stream) throws IOException {
+    final InputStream buffered =
+        stream.markSupported()
+            ? stream
+            : new BufferedInputStream(stream, CompressedInput.BUFFER_SIZE);
+
+    buffered.mark(2);
+    final int first = buffered.read();
+    final int second = buffered.read();
+    buffered.reset();
+
+    return ((first == CompressedInput.GZIP_MAGIC_FIRST)
+            && (second == CompressedInput.GZIP_MAGIC_SECOND))
+        ? new BackgroundInflaterInputStream(buffered)
+        : buffered;
+  }
+}
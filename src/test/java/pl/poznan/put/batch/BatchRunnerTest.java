@@ -0,0 +1,123 @@
+package pl.poznan.put.batch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BatchRunnerTest {
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private Path prepareDirectory() throws Exception {
+    final Path directory = folder.newFolder("structures").toPath();
+    for (final String resource : new String[] {"1EHZ.pdb", "2MIY.pdb", "148L.cif"}) {
+      Files.write(
+          directory.resolve(resource),
+          ResourcesHelper.loadResource(resource).getBytes(StandardCharsets.UTF_8));
+    }
+    try (final OutputStream stream =
+        new GZIPOutputStream(Files.newOutputStream(directory.resolve("1XPO.pdb.gz")))) {
+      stream.write(ResourcesHelper.loadResource("1XPO.pdb").getBytes(StandardCharsets.UTF_8));
+    }
+    Files.write(
+        directory.resolve("README.txt"), "not a structure".getBytes(StandardCharsets.UTF_8));
+    return directory;
+  }
+
+  @Test
+  public final void testInputOrder() throws Exception {
+    final Path directory = prepareDirectory();
+    final List<Path> files = BatchRunner.findStructureFiles(directory);
+    assertThat(files.size(), is(4));
+
+    final BatchOptions options =
+        ImmutableBatchOptions.builder()
+            .workers(3)
+            .maxInFlight(2)
+            .resultOrder(ResultOrder.INPUT)
+            .build();
+    final List<FileResult<Integer>> results = new ArrayList<>();
+    final BatchStatistics statistics =
+        new BatchRunner(options).run(files, model -> model.atoms().size(), results::add);
+
+    assertThat(
+        results.stream().map(FileResult::index).collect(Collectors.toList()),
+        is(Arrays.asList(0, 1, 2, 3)));
+    assertThat(results.stream().allMatch(FileResult::isSuccess), is(true));
+    // 148L, 1EHZ, 1XPO have one model each and 2MIY has 18 models
+    assertThat(
+        results.stream().map(result -> result.results().size()).collect(Collectors.toList()),
+        is(Arrays.asList(1, 1, 1, 18)));
+
+    assertThat(statistics.processedFiles(), is(4));
+    assertThat(statistics.failedFiles(), is(0));
+    assertThat(statistics.processedModels(), is(21));
+    assertThat(statistics.latencyP50Nanos() <= statistics.latencyMaxNanos(), is(true));
+  }
+
+  @Test
+  public final void testFailureIsolation() throws Exception {
+    final Path directory = prepareDirectory();
+    final List<FileResult<String>> results = new ArrayList<>();
+    final BatchStatistics statistics =
+        new BatchRunner()
+            .run(
+                directory,
+                model -> {
+                  if ("1EHZ".equals(model.idCode())) {
+                    throw new IllegalStateException("Expected failure");
+                  }
+                  return model.idCode();
+                },
+                results::add);
+
+    assertThat(results.size(), is(4));
+    assertThat(statistics.processedFiles(), is(4));
+    assertThat(statistics.failedFiles(), is(1));
+    assertThat(statistics.processedModels(), is(20));
+
+    final List<FileResult<String>> failed =
+        results.stream().filter(result -> !result.isSuccess()).collect(Collectors.toList());
+    assertThat(failed.size(), is(1));
+    assertThat(failed.get(0).path().getFileName().toString(), is("1EHZ.pdb"));
+    assertThat(failed.get(0).results().isEmpty(), is(true));
+  }
+
+  @Test(timeout = 60000L)
+  public final void testErrorIsolation() throws Exception {
+    final Path directory = prepareDirectory();
+    final List<FileResult<String>> results = new ArrayList<>();
+    final BatchStatistics statistics =
+        new BatchRunner()
+            .run(
+                directory,
+                model -> {
+                  if ("1EHZ".equals(model.idCode())) {
+                    throw new AssertionError("Expected error");
+                  }
+                  return model.idCode();
+                },
+                results::add);
+
+    assertThat(results.size(), is(4));
+    assertThat(statistics.failedFiles(), is(1));
+
+    final List<FileResult<String>> failed =
+        results.stream().filter(result -> !result.isSuccess()).collect(Collectors.toList());
+    assertThat(failed.size(), is(1));
+    assertThat(failed.get(0).failure().get() instanceof AssertionError, is(true));
+  }
+}
@@ -0,0 +1,140 @@
+package pl.poznan.put.bcif;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BinaryCifTest {
+  @Test
+  public final void testMessagePack() throws Exception {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("nil", null);
+    map.put("bool", true);
+    map.put("small", 5);
+    map.put("negative", -1000);
+    map.put("large", 1L << 40);
+    map.put("double", 2.5);
+    map.put("string", "zażółć");
+    map.put("long string", String.join("", Collections.nCopies(300, "x")));
+    map.put("list", Arrays.asList(1, "a", Collections.emptyList()));
+
+    final Map<?, ?> decoded = (Map<?, ?>) MessagePack.decode(MessagePack.encode(map));
+    assertThat(decoded.keySet(), is(map.keySet()));
+    assertThat(decoded.get("nil"), is((Object) null));
+    assertThat(decoded.get("bool"), is(true));
+    assertThat(decoded.get("small"), is(5L));
+    assertThat(decoded.get("negative"), is(-1000L));
+    assertThat(decoded.get("large"), is(1L << 40));
+    assertThat(decoded.get("double"), is(2.5));
+    assertThat(decoded.get("string"), is("zażółć"));
+    assertThat(decoded.get("long string"), is(map.get("long string")));
+    assertThat(decoded.get("list"), is(Arrays.asList(1L, "a", Collections.emptyList())));
+
+    final byte[] binary = {1, 2, 3};
+    final byte[] decodedBinary = (byte[]) MessagePack.decode(MessagePack.encode(binary));
+    assertThat(Arrays.equals(decodedBinary, binary), is(true));
+  }
+
+  @Test
+  public final void testColumnRoundTrip() throws Exception {
+    final int[] sequential = new int[1000];
+    final int[] repeated = new int[1000];
+    final int[] large = new int[1000];
+    final double[] coordinates = new double[1000];
+    final String[] names = new String[1000];
+    final byte[] mask = new byte[1000];
+    for (int i = 0; i < 1000; i++) {
+      sequential[i] = i + 1;
+      repeated[i] = i / 100 - 5;
+      large[i] = (i % 2 == 0) ? Integer.MAX_VALUE - i : Integer.MIN_VALUE + i;
+      coordinates[i] = Math.round(Math.sin(i) * 100000.0) / 1000.0;
+      names[i] = (i % 3 == 0) ? null : ("N" + (i % 7));
+      mask[i] = (i % 3 == 0) ? BinaryCifColumn.UNKNOWN : BinaryCifColumn.VALUE_PRESENT;
+    }
+    final double[] irregular = {Math.PI, Double.NaN, -0.5, 1.0e10};
+
+    final BinaryCifCategory category =
+        ImmutableBinaryCifCategory.of(
+            "_test",
+            1000,
+            Arrays.asList(
+                BinaryCifColumn.ofIntegers("sequential", sequential, null),
+                BinaryCifColumn.ofIntegers("repeated", repeated, null),
+                BinaryCifColumn.ofIntegers("large", large, null),
+                BinaryCifColumn.ofDoubles("coordinates", coordinates, null),
+                BinaryCifColumn.ofStrings("names", names, mask)));
+    final BinaryCifCategory other =
+        ImmutableBinaryCifCategory.of(
+            "_other",
+            4,
+            Collections.singletonList(BinaryCifColumn.ofDoubles("irregular", irregular, null)));
+    final byte[] data =
+        BinaryCif.write(
+            Collections.singletonList(
+                ImmutableBinaryCifBlock.of("TEST", Arrays.asList(category, other))));
+
+    final List<BinaryCifBlock> blocks = BinaryCif.read(data);
+    assertThat(blocks.size(), is(1));
+    assertThat(blocks.get(0).header(), is("TEST"));
+
+    final BinaryCifCategory decoded = blocks.get(0).category("_test").get();
+    assertThat(decoded.rowCount(), is(1000));
+    for (int i = 0; i < 1000; i++) {
+      assertThat(decoded.column("sequential").get().getInt(i), is(sequential[i]));
+      assertThat(decoded.column("repeated").get().getInt(i), is(repeated[i]));
+      assertThat(decoded.column("large").get().getInt(i), is(large[i]));
+      assertThat(decoded.column("coordinates").get().getDouble(i), is(coordinates[i]));
+      assertThat(decoded.column("names").get().isValuePresent(i), is(names[i] != null));
+      assertThat(
+          decoded.column("names").get().getString(i), is((names[i] == null) ? "?" : names[i]));
+    }
+
+    final BinaryCifColumn decodedIrregular =
+        blocks.get(0).category("_other").get().column("irregular").get();
+    for (int i = 0; i < irregular.length; i++) {
+      assertThat(decodedIrregular.getDouble(i), is(irregular[i]));
+    }
+  }
+
+  @Test
+  public final void testIntervalQuantization() throws Exception {
+    final Map<String, Object> quantization = new LinkedHashMap<>();
+    quantization.put("kind", "IntervalQuantization");
+    quantization.put("min", 0.0);
+    quantization.put("max", 1.0);
+    quantization.put("numSteps", 11);
+    quantization.put("srcType", 32);
+    final Map<String, Object> byteArray = new LinkedHashMap<>();
+    byteArray.put("kind", "ByteArray");
+    byteArray.put("type", 4);
+    final Map<String, Object> encodedData = new LinkedHashMap<>();
+    encodedData.put("encoding", Arrays.asList(quantization, byteArray));
+    encodedData.put("data", new byte[] {0, 5, 10});
+    final Map<String, Object> column = new LinkedHashMap<>();
+    column.put("name", "value");
+    column.put("data", encodedData);
+    column.put("mask", null);
+    final Map<String, Object> category = new LinkedHashMap<>();
+    category.put("name", "_test");
+    category.put("rowCount", 3);
+    category.put("columns", Collections.singletonList(column));
+    final Map<String, Object> block = new LinkedHashMap<>();
+    block.put("header", "TEST");
+    block.put("categories", Collections.singletonList(category));
+    final Map<String, Object> file = new LinkedHashMap<>();
+    file.put("dataBlocks", Collections.singletonList(block));
+
+    final BinaryCifColumn decoded =
+        BinaryCif.read(MessagePack.encode(file)).get(0).categories().get(0).columns().get(0);
+    assertThat(decoded.getDouble(0), is(0.0));
+    assertThat(decoded.getDouble(1), is(0.5));
+    assertThat(decoded.getDouble(2), is(1.0));
+  }
+}
@@ -0,0 +1,94 @@
+package pl.poznan.put.circular.samples;
+
+import org.apache.commons.math3.util.FastMath;
+import org.junit.Test;
+import pl.poznan.put.circular.Angle;
+import pl.poznan.put.circular.ImmutableAngle;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+
+public class CircularStatisticsTest {
+  private static final double EPSILON = 1.0e-9;
+
+  // the definitions from trigonometric moments, which AngleSample used before
+  private static void assertSameAsMoments(final double[] radians) {
+    final List<Angle> data =
+        Arrays.stream(radians).mapToObj(ImmutableAngle::of).collect(Collectors.toList());
+    final TrigonometricMoment um1 = TrigonometricMoment.computeUncentered(data, 1);
+    final TrigonometricMoment um2 = TrigonometricMoment.computeUncentered(data, 2);
+    final TrigonometricMoment cm2 =
+        TrigonometricMoment.computeCentered(data, 2, um1.meanDirection());
+    final double length = um1.meanResultantLength();
+    final double variance = 1.0 - length;
+    final Angle doubledMean = um1.meanDirection().multiply(2.0);
+
+    final CircularStatistics statistics = CircularStatistics.of(radians);
+    assertThat(
+        statistics.meanDirection(),
+        closeTo(um1.meanDirection().radians(), CircularStatisticsTest.EPSILON));
+    assertThat(statistics.meanDirection(), closeTo(CircularStatistics.meanDirection(radians), 0.0));
+    assertThat(statistics.meanResultantLength(), closeTo(length, CircularStatisticsTest.EPSILON));
+    assertThat(statistics.circularVariance(), closeTo(variance, CircularStatisticsTest.EPSILON));
+    assertThat(
+        statistics.circularStandardDeviation(),
+        closeTo(FastMath.sqrt(-2.0 * FastMath.log(length)), CircularStatisticsTest.EPSILON));
+    assertThat(
+        statistics.circularDispersion(),
+        closeTo(
+            (1.0 - cm2.meanResultantLength()) / (2.0 * length * length),
+            CircularStatisticsTest.EPSILON));
+    assertThat(
+        statistics.skewness(),
+        closeTo(
+            (cm2.meanResultantLength()
+                    * FastMath.sin(cm2.meanDirection().subtract(doubledMean).radians()))
+                / FastMath.sqrt(variance),
+            CircularStatisticsTest.EPSILON));
+    assertThat(
+        statistics.kurtosis(),
+        closeTo(
+            ((cm2.meanResultantLength()
+                        * FastMath.cos(um2.meanDirection().subtract(doubledMean).radians()))
+                    - FastMath.pow(length, 4))
+                / (variance * variance),
+            CircularStatisticsTest.EPSILON));
+  }
+
+  @Test
+  public final void testSameAsMoments() {
+    final Random random = new Random(0);
+    for (int i = 0; i < 1000; i++) {
+      final double[] radians = new double[5 + random.nextInt(20)];
+      // spread around a random direction, so that no statistic is degenerate
+      final double mean = (random.nextDouble() - 0.5) * 2.0 * FastMath.PI;
+      final double spread = 0.2 + (random.nextDouble() * 2.0);
+      for (int j = 0; j < radians.length; j++) {
+        radians[j] = mean + (random.nextGaussian() * spread);
+      }
+      CircularStatisticsTest.assertSameAsMoments(radians);
+    }
+  }
+
+  @Test
+  public final void testMardiaJupp() {
+    /* Examples 1.1 and 2.1 from Mardia & Jupp "Directional Statistics". */
+    final double[] radians =
+        Arrays.stream(new double[] {43.0, 45.0, 52.0, 61.0, 75.0, 88.0, 88.0, 279.0, 357.0})
+            .map(FastMath::toRadians)
+            .toArray();
+    final CircularStatistics statistics = CircularStatistics.of(radians);
+    assertThat(FastMath.toDegrees(statistics.meanDirection()), closeTo(51.05, 1.0e-2));
+    assertThat(statistics.meanResultantLength(), closeTo(0.711, 1.0e-3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testEmptySample() {
+    CircularStatistics.of(new double[0]);
+  }
+}
@@ -0,0 +1,121 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pl.poznan.put.pdb.ImmutablePdbAtomLine;
+import pl.poznan.put.pdb.ImmutablePdbExpdtaLine;
+import pl.poznan.put.pdb.ImmutablePdbHeaderLine;
+import pl.poznan.put.pdb.ImmutablePdbNamedResidueIdentifier;
+import pl.poznan.put.pdb.ImmutablePdbRemark2Line;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.structure.ImmutableBasePair;
+import pl.poznan.put.structure.ImmutableQuantifiedBasePair;
+import pl.poznan.put.structure.QuantifiedBasePair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Measures grouping and packing of chains by {@link CifConverter} on synthetic models. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CifConverterBenchmark {
+  @Param({"80", "250", "1000"})
+  private int chainCount;
+
+  private CifModel model;
+  private List<Set<String>> chainGroups;
+  private Map<String, Integer> atomCounts;
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CifConverterBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  /**
+   * Creates a model with RNA chains named C0, C1, etc. of varying lengths (one atom per residue).
+   * Every chain forms a base pair with the next one, unless its index modulo {@code groupSize} is
+   * the last one, so the chains form groups of {@code groupSize} in contact.
+   *
+   * @param chainCount The number of chains.
+   * @param groupSize The number of consecutive chains in contact.
+   * @return A synthetic model.
+   */
+  static CifModel syntheticModel(final int chainCount, final int groupSize) {
+    final List<PdbAtomLine> atoms = new ArrayList<>();
+    final List<QuantifiedBasePair> basePairs = new ArrayList<>();
+
+    for (int i = 0; i < chainCount; i++) {
+      final String chain = "C" + i;
+      final int residueCount = 5 + ((i * 37) % 50);
+      for (int j = 1; j <= residueCount; j++) {
+        atoms.add(
+            ImmutablePdbAtomLine.of(
+                atoms.size() + 1, "P", "", "A", chain, j, "", i, j, 0.0, 1.0, 0.0, "P", ""));
+      }
+
+      if (((i % groupSize) != (groupSize - 1)) && ((i + 1) < chainCount)) {
+        basePairs.add(
+            ImmutableQuantifiedBasePair.of(
+                ImmutableBasePair.of(
+                    ImmutablePdbNamedResidueIdentifier.of(chain, 1, "", 'A'),
+                    ImmutablePdbNamedResidueIdentifier.of("C" + (i + 1), 1, "", 'A')),
+                0.0,
+                0.0,
+                0.0,
+                0.0,
+                0.0,
+                0.0));
+      }
+    }
+
+    return ImmutableDefaultCifModel.of(
+        ImmutablePdbHeaderLine.of("", new Date(0L), ""),
+        ImmutablePdbExpdtaLine.of(Collections.emptyList()),
+        ImmutablePdbRemark2Line.of(Double.NaN),
+        1,
+        atoms,
+        Collections.emptyList(),
+        Collections.emptyList(),
+        "",
+        Collections.emptyList(),
+        basePairs);
+  }
+
+  @Setup
+  public final void setUp() {
+    model = CifConverterBenchmark.syntheticModel(chainCount, 3);
+    chainGroups = CifConverter.groupContactingChains(model);
+    atomCounts = CifConverter.countAtoms(model);
+  }
+
+  @Benchmark
+  public final List<Set<String>> groupContactingChains() {
+    return CifConverter.groupContactingChains(model);
+  }
+
+  @Benchmark
+  public final List<Set<String>> packGroups() {
+    return CifConverter.packGroups(chainGroups, atomCounts);
+  }
+}
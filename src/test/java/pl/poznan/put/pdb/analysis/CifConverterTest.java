@@ -0,0 +1,111 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CifConverterTest {
+  @Test
+  public final void testConvertInMemory() throws Exception {
+    final List<CifModel> models = CifParser.parse(ResourcesHelper.loadResource("100D.cif"));
+    final List<ConvertedPdb> converted = CifConverter.convertToPdb(models);
+    assertThat(converted.size(), is(1));
+
+    final ConvertedPdb convertedPdb = converted.get(0);
+    final PdbModel model = new PdbParser(false).parse(convertedPdb.pdbContent()).get(0);
+    final PdbModel rnaModel = models.get(0).filteredNewInstance(MoleculeType.RNA);
+    assertThat(model.atoms().size(), is(rnaModel.atoms().size()));
+    for (final PdbChain chain : model.chains()) {
+      final String cifChain = convertedPdb.originalCifChainName(chain.identifier());
+      assertThat(convertedPdb.convertedPdbChainName(cifChain), is(chain.identifier()));
+    }
+
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    convertedPdb.writeTo(stream);
+    assertThat(stream.toString(Charset.defaultCharset().name()), is(convertedPdb.pdbContent()));
+  }
+
+  @Test
+  public final void testConvertToFiles() throws Exception {
+    final DefaultCifModel model =
+        (DefaultCifModel)
+            CifParser.parse(ResourcesHelper.loadResource("1a73-assembly-1.cif")).get(0);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final List<ConvertedPdb> converted;
+    try {
+      converted = CifConverter.convertToPdb(model, executor);
+    } finally {
+      executor.shutdown();
+    }
+
+    try (final ModelContainer container = CifConverter.convert(model)) {
+      final List<File> pdbFiles = container.pdbFiles();
+      assertThat(pdbFiles.size(), is(converted.size()));
+      for (final File pdbFile : pdbFiles) {
+        final String content = FileUtils.readFileToString(pdbFile, Charset.defaultCharset());
+        assertThat(
+            converted.stream().anyMatch(pdb -> pdb.pdbContent().equals(content)), is(true));
+      }
+    }
+  }
+
+  @Test
+  public final void testGroupContactingChains() {
+    final CifModel model = CifConverterBenchmark.syntheticModel(10, 3);
+    final List<Set<String>> chainGroups = CifConverter.groupContactingChains(model);
+    assertThat(
+        chainGroups,
+        is(
+            Arrays.asList(
+                new HashSet<>(Arrays.asList("C0", "C1", "C2")),
+                new HashSet<>(Arrays.asList("C3", "C4", "C5")),
+                new HashSet<>(Arrays.asList("C6", "C7", "C8")),
+                Collections.singleton("C9"))));
+  }
+
+  @Test
+  public final void testPackGroups() {
+    final CifModel model = CifConverterBenchmark.syntheticModel(200, 3);
+    final List<Set<String>> chainGroups = CifConverter.groupContactingChains(model);
+    final Map<String, Integer> atomCounts = CifConverter.countAtoms(model);
+    final List<Set<String>> packed = CifConverter.packGroups(chainGroups, atomCounts);
+    assertThat(packed.size(), is(4));
+
+    final Set<String> allChains = new HashSet<>();
+    final List<Integer> loads = new ArrayList<>();
+    for (final Set<String> bin : packed) {
+      assertThat(bin.size() <= 62, is(true));
+      allChains.addAll(bin);
+      loads.add(bin.stream().mapToInt(atomCounts::get).sum());
+    }
+    assertThat(allChains.size(), is(200));
+
+    // groups are never split and the files differ by less than the largest group
+    for (final Set<String> group : chainGroups) {
+      assertThat(packed.stream().anyMatch(bin -> bin.containsAll(group)), is(true));
+    }
+    final int largestGroup =
+        chainGroups.stream()
+            .mapToInt(group -> group.stream().mapToInt(atomCounts::get).sum())
+            .max()
+            .getAsInt();
+    assertThat((Collections.max(loads) - Collections.min(loads)) <= largestGroup, is(true));
+  }
+}
@@ -1,8 +1,13 @@
 package pl.poznan.put.pdb.analysis;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.biojava.nbio.structure.io.mmcif.MMcifParser;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.junit.rules.TemporaryFolder;
 import pl.poznan.put.pdb.ExperimentalTechnique;
 import pl.poznan.put.pdb.ImmutablePdbResidueIdentifier;
+import pl.poznan.put.pdb.PdbAtomLine;
 import pl.poznan.put.pdb.analysis.CifModel;
 import pl.poznan.put.pdb.analysis.CifParser;
 import pl.poznan.put.pdb.analysis.PdbChain;
@@ -10,12 +15,23 @@ import pl.poznan.put.pdb.analysis.PdbModel;
 import pl.poznan.put.pdb.analysis.PdbResidue;
 import pl.poznan.put.utility.ResourcesHelper;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 public class CifParserTest {
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public final void test100D() throws Exception {
     final String cif100D = ResourcesHelper.loadResource("100D.cif");
@@ -73,4 +89,128 @@ public class CifParserTest {
     assertThat(experimentalTechniques.get(1), is(ExperimentalTechnique.NEUTRON_DIFFRACTION));
     assertThat(model.resolution().resolution(), is(2.2));
   }
+
+  @Test
+  public final void testParseSummary() throws Exception {
+    for (final String resource : new String[] {"100D.cif", "148L.cif", "5A93.cif"}) {
+      final String content = ResourcesHelper.loadResource(resource);
+      final PdbModel model = CifParser.parse(content).get(0);
+      final StructureSummary summary = CifParser.parseSummary(content);
+
+      assertThat(summary.header(), is(model.header()));
+      assertThat(summary.experimentalData(), is(model.experimentalData()));
+      assertThat(summary.resolution(), is(model.resolution()));
+      assertThat(summary.title(), is(model.title()));
+    }
+
+    final StructureSummary summary100D =
+        CifParser.parseSummary(ResourcesHelper.loadResource("100D.cif"));
+    assertThat(summary100D.idCode(), is("100D"));
+    assertThat(summary100D.chainMoleculeTypes().get("A"), is(MoleculeType.RNA));
+    assertThat(summary100D.chainMoleculeTypes().get("B"), is(MoleculeType.RNA));
+
+    final StructureSummary summary148L =
+        CifParser.parseSummary(ResourcesHelper.loadResource("148L.cif"));
+    assertThat(summary148L.chainMoleculeTypes().size(), is(2));
+    assertThat(summary148L.chainMoleculeTypes().get("E"), is(MoleculeType.PROTEIN));
+    assertThat(summary148L.chainMoleculeTypes().get("S"), is(MoleculeType.PROTEIN));
+  }
+
+  @Test
+  public final void testParseOptions() throws Exception {
+    final String cif148L = ResourcesHelper.loadResource("148L.cif");
+    final List<PdbAtomLine> all = CifParser.parse(cif148L).get(0).atoms();
+
+    final ParseOptions options =
+        ImmutableParseOptions.builder().addChainIdentifiers("E").excludeWater(true).build();
+    final List<PdbAtomLine> filtered = CifParser.parse(cif148L, options).get(0).atoms();
+    assertThat(
+        filtered,
+        is(
+            all.stream()
+                .filter(atom -> "E".equals(atom.chainIdentifier()))
+                .filter(atom -> !"HOH".equals(atom.residueName()))
+                .collect(Collectors.toList())));
+  }
+
+  @Test
+  public final void testParseGzip() throws Exception {
+    final String cif148L = ResourcesHelper.loadResource("148L.cif");
+    final Path path = folder.newFile("148L.cif.gz").toPath();
+    try (final OutputStream stream = new GZIPOutputStream(Files.newOutputStream(path))) {
+      stream.write(cif148L.getBytes(StandardCharsets.UTF_8));
+    }
+
+    final List<CifModel> expected = CifParser.parse(cif148L);
+    assertThat(CifParser.parse(path), is(expected));
+    try (final InputStream stream = Files.newInputStream(path)) {
+      assertThat(CifParser.parse(stream), is(expected));
+    }
+    assertThat(CifParser.parseSummary(path), is(CifParser.parseSummary(cif148L)));
+  }
+
+  @Test
+  public final void testSameAsBioJava() throws Exception {
+    for (final String resource :
+        new String[] {"100D.cif", "148L.cif", "5A93.cif", "1a73-assembly-1.cif"}) {
+      final String content = ResourcesHelper.loadResource(resource);
+      final CifConsumer consumer = new CifConsumer();
+      final MMcifParser parser = new SimpleMMcifParser();
+      parser.addMMcifConsumer(consumer);
+      parser.parse(new BufferedReader(new StringReader(content)));
+      final List<CifModel> expected = consumer.getModels();
+
+      final List<CifModel> actual = CifParser.parse(content);
+      assertThat(actual, is(expected));
+      for (int i = 0; i < actual.size(); i++) {
+        assertThat(actual.get(i).modelNumber(), is(expected.get(i).modelNumber()));
+        assertThat(actual.get(i).header(), is(expected.get(i).header()));
+        assertThat(actual.get(i).experimentalData(), is(expected.get(i).experimentalData()));
+        assertThat(actual.get(i).resolution(), is(expected.get(i).resolution()));
+        assertThat(actual.get(i).title(), is(expected.get(i).title()));
+        assertThat(
+            actual.get(i).atoms().stream().map(PdbAtomLine::toCif).collect(Collectors.toList()),
+            is(
+                expected.get(i).atoms().stream()
+                    .map(PdbAtomLine::toCif)
+                    .collect(Collectors.toList())));
+        assertThat(actual.get(i).basePairs(), is(expected.get(i).basePairs()));
+        assertThat(actual.get(i).missingResidues(), is(expected.get(i).missingResidues()));
+        assertThat(actual.get(i).modifiedResidues(), is(expected.get(i).modifiedResidues()));
+      }
+    }
+  }
+
+  @Test
+  public final void testBinaryCifRoundTrip() throws Exception {
+    for (final String resource : new String[] {"100D.cif", "5A93.cif", "1a73-assembly-1.cif"}) {
+      final String content = ResourcesHelper.loadResource(resource);
+      for (final CifModel model : CifParser.parse(content)) {
+        final byte[] binary = model.toBinaryCif();
+        assertThat(binary.length < content.length(), is(true));
+
+        final List<CifModel> decoded = CifParser.parseBinary(binary);
+        assertThat(decoded.size(), is(1));
+        final CifModel actual = decoded.get(0);
+        assertThat(actual, is(model));
+        assertThat(actual.modelNumber(), is(model.modelNumber()));
+        assertThat(actual.header(), is(model.header()));
+        assertThat(actual.experimentalData(), is(model.experimentalData()));
+        assertThat(actual.resolution(), is(model.resolution()));
+        assertThat(actual.title(), is(model.title()));
+        assertThat(actual.basePairs(), is(model.basePairs()));
+        assertThat(actual.missingResidues(), is(model.missingResidues()));
+        assertThat(actual.modifiedResidues(), is(model.modifiedResidues()));
+        assertThat(
+            actual.atoms().stream().map(PdbAtomLine::toCif).collect(Collectors.toList()),
+            is(model.atoms().stream().map(PdbAtomLine::toCif).collect(Collectors.toList())));
+      }
+    }
+
+    final List<CifModel> models = CifParser.parse(ResourcesHelper.loadResource("100D.cif"));
+    assertThat(models.get(0).basePairs().isEmpty(), is(false));
+    final Path path = folder.newFile("100D.bcif").toPath();
+    Files.write(path, models.get(0).toBinaryCif());
+    assertThat(CifParser.parseBinary(path), is(models));
+  }
 }
@@ -0,0 +1,64 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.junit.Test;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ColumnarPdbModelTest {
+  @Test
+  public final void testSameAsDefaultModel() throws Exception {
+    final String pdb1EHZ = ResourcesHelper.loadResource("1EHZ.pdb");
+    final PdbModel model = new PdbParser().parse(pdb1EHZ).get(0);
+    final ColumnarPdbModel columnar = ColumnarPdbModel.of(model);
+
+    assertThat(columnar.atomCount(), is(model.atoms().size()));
+    assertThat(columnar.atoms(), is(model.atoms()));
+    assertThat(columnar.residues(), is(model.residues()));
+    assertThat(columnar.chains(), is(model.chains()));
+    assertThat(columnar.toPdb(), is(model.toPdb()));
+    assertThat(columnar.sequence(), is(model.sequence()));
+    assertThat(columnar.x(0), is(model.atoms().get(0).x()));
+  }
+
+  @Test
+  public final void testFilteredNewInstance() throws Exception {
+    final String pdb4A04 = ResourcesHelper.loadResource("4A04.pdb");
+    final PdbModel model = new PdbParser().parse(pdb4A04).get(0);
+    final PdbModel columnar = ColumnarPdbModel.of(model);
+
+    final PdbModel expected = model.filteredNewInstance(MoleculeType.PROTEIN);
+    final PdbModel actual = columnar.filteredNewInstance(MoleculeType.PROTEIN);
+    assertThat(actual instanceof ColumnarPdbModel, is(true));
+
+    final List<PdbChain> expectedChains = expected.chains();
+    final List<PdbChain> actualChains = actual.chains();
+    assertThat(actualChains, is(expectedChains));
+    assertThat(actual.missingResidues(), is(expected.missingResidues()));
+  }
+
+  @Test
+  public final void testResiduesDoNotKeepAtoms() throws Exception {
+    final String pdb1EHZ = ResourcesHelper.loadResource("1EHZ.pdb");
+    final PdbModel model = new PdbParser().parse(pdb1EHZ).get(0);
+    final ColumnarPdbModel columnar = ColumnarPdbModel.of(model);
+
+    final List<PdbResidue> residues = columnar.residues();
+    final PdbResidue residue = residues.get(0);
+    assertThat(residue.atoms().get(0), is(model.residues().get(0).atoms().get(0)));
+    assertThat(residue.atoms().get(0) == residue.atoms().get(0), is(false));
+
+    final WeakReference<PdbAtomLine> reference = new WeakReference<>(residue.atoms().get(0));
+    for (int i = 0; (i < 10) && (reference.get() != null); i++) {
+      System.gc();
+      Thread.sleep(10L);
+    }
+    assertThat(reference.get() == null, is(true));
+    assertThat(columnar.residues() == residues, is(true));
+  }
+}
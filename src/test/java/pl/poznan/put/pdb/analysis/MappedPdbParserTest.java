@@ -0,0 +1,110 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.junit.Test;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MappedPdbParserTest {
+  private static final String[] RESOURCES = {
+    "1EHZ.pdb", "148L.pdb", "1XPO.pdb", "2MIY.pdb", "2Z74.pdb", "3OK4.pdb", "4A04.pdb",
+    "amber.pdb", "FrabaseExport.pdb", "PKB300.pdb"
+  };
+
+  private static List<Object> allFields(final PdbAtomLine atom) {
+    return Arrays.asList(
+        atom.serialNumber(),
+        atom.atomName(),
+        atom.alternateLocation(),
+        atom.residueName(),
+        atom.chainIdentifier(),
+        atom.residueNumber(),
+        atom.insertionCode(),
+        atom.x(),
+        atom.y(),
+        atom.z(),
+        atom.occupancy(),
+        atom.temperatureFactor(),
+        atom.elementSymbol(),
+        atom.charge());
+  }
+
+  private static void assertSameModels(
+      final List<PdbModel> expected, final List<PdbModel> actual) {
+    assertThat(actual.size(), is(expected.size()));
+    for (int i = 0; i < expected.size(); i++) {
+      final PdbModel expectedModel = expected.get(i);
+      final PdbModel actualModel = actual.get(i);
+      assertThat(actualModel.header(), is(expectedModel.header()));
+      assertThat(actualModel.modifiedResidues(), is(expectedModel.modifiedResidues()));
+      assertThat(actualModel.missingResidues(), is(expectedModel.missingResidues()));
+      assertThat(actualModel.chainTerminatedAfter(), is(expectedModel.chainTerminatedAfter()));
+      assertThat(
+          actualModel.atoms().stream()
+              .map(MappedPdbParserTest::allFields)
+              .collect(Collectors.toList()),
+          is(
+              expectedModel.atoms().stream()
+                  .map(MappedPdbParserTest::allFields)
+                  .collect(Collectors.toList())));
+    }
+  }
+
+  @Test
+  public final void testSameAsPdbParser() throws Exception {
+    for (final boolean strictMode : new boolean[] {true, false}) {
+      for (final String resource : MappedPdbParserTest.RESOURCES) {
+        // duplicate model numbers are replaced with random ones, so compare in the input order
+        final Path path = ResourcesHelper.loadResourceFile(resource).toPath();
+        final List<PdbModel> expected = new ArrayList<>();
+        try (final Reader reader = Files.newBufferedReader(path)) {
+          new PdbParser(strictMode).parse(reader, expected::add);
+        }
+        final List<PdbModel> actual = new ArrayList<>();
+        new MappedPdbParser(strictMode).parse(path, actual::add);
+        MappedPdbParserTest.assertSameModels(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public final void testParseOptions() throws Exception {
+    final List<ParseOptions> optionsList =
+        Arrays.asList(
+            ImmutableParseOptions.builder().excludeWater(true).build(),
+            ImmutableParseOptions.builder().addModelNumbers(2, 3).excludeHydrogens(true).build(),
+            ImmutableParseOptions.builder()
+                .addChainIdentifiers("E")
+                .firstAlternateLocationOnly(true)
+                .build());
+
+    for (final ParseOptions options : optionsList) {
+      for (final String resource : new String[] {"1EHZ.pdb", "2MIY.pdb", "148L.pdb"}) {
+        final Path path = ResourcesHelper.loadResourceFile(resource).toPath();
+        final List<PdbModel> expected = new ArrayList<>();
+        try (final Reader reader = Files.newBufferedReader(path)) {
+          new PdbParser(false, options).parse(reader, expected::add);
+        }
+        final List<PdbModel> actual = new ArrayList<>();
+        new MappedPdbParser(false, options).parse(path, actual::add);
+        MappedPdbParserTest.assertSameModels(expected, actual);
+      }
+    }
+
+    final Path path2MIY = ResourcesHelper.loadResourceFile("2MIY.pdb").toPath();
+    final ParseOptions onlyModel2 = ImmutableParseOptions.builder().addModelNumbers(2).build();
+    final List<PdbModel> models = new MappedPdbParser(false, onlyModel2).parse(path2MIY);
+    assertThat(models.size(), is(1));
+    assertThat(models.get(0).modelNumber(), is(2));
+  }
+}
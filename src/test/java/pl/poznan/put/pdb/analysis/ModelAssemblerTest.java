@@ -0,0 +1,175 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.junit.Test;
+import pl.poznan.put.pdb.ImmutablePdbResidueIdentifier;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbRemark465Line;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ModelAssemblerTest {
+  // the implementation of AbstractPdbModel.residues() which ModelAssembler has replaced
+  private static List<PdbResidue> legacyResidues(final PdbModel model) {
+    final Map<PdbResidueIdentifier, List<PdbAtomLine>> atomGroups = new LinkedHashMap<>();
+    model
+        .atoms()
+        .forEach(
+            atom -> {
+              atomGroups.putIfAbsent(PdbResidueIdentifier.from(atom), new ArrayList<>());
+              atomGroups.get(PdbResidueIdentifier.from(atom)).add(atom);
+            });
+
+    final Stream<PdbResidue> existingResidueStream =
+        atomGroups.values().stream()
+            .map(
+                residueAtoms -> {
+                  final PdbResidueIdentifier identifier =
+                      PdbResidueIdentifier.from(residueAtoms.get(0));
+                  final String residueName = residueAtoms.get(0).residueName();
+                  final String modifiedResidueName =
+                      model.isModified(identifier)
+                          ? model.modificationDetails(identifier).standardResidueName()
+                          : residueName;
+                  return (PdbResidue)
+                      ImmutableDefaultPdbResidue.of(
+                          identifier, residueName, modifiedResidueName, residueAtoms);
+                })
+            .filter(
+                residue ->
+                    residue.residueInformationProvider().moleculeType() != MoleculeType.UNKNOWN);
+    final Stream<PdbResidue> missingResidueStream =
+        model.missingResidues().stream().map(PdbRemark465Line::toResidue);
+    final List<String> order =
+        model.atoms().stream()
+            .map(PdbAtomLine::chainIdentifier)
+            .distinct()
+            .collect(Collectors.toList());
+
+    return Stream.concat(existingResidueStream, missingResidueStream)
+        .sorted(
+            (t, t1) -> {
+              if (t.chainIdentifier().equals(t1.chainIdentifier())) {
+                return t.compareTo(t1);
+              }
+              return Integer.compare(
+                  order.indexOf(t.chainIdentifier()), order.indexOf(t1.chainIdentifier()));
+            })
+        .collect(Collectors.toList());
+  }
+
+  // the implementation of AbstractPdbModel.chains() which ModelAssembler has replaced
+  private static List<PdbChain> legacyChains(final PdbModel model) {
+    final Map<String, List<PdbResidue>> chainResidues = new LinkedHashMap<>();
+    for (final PdbResidue residue : ModelAssemblerTest.legacyResidues(model)) {
+      chainResidues.computeIfAbsent(residue.chainIdentifier(), key -> new ArrayList<>());
+      chainResidues.get(residue.chainIdentifier()).add(residue);
+    }
+
+    final List<PdbChain> chains = new ArrayList<>();
+    for (final List<PdbResidue> residueGroup : chainResidues.values()) {
+      final List<Integer> branchingPoints =
+          IntStream.range(0, residueGroup.size())
+              .filter(
+                  i ->
+                      model
+                          .chainTerminatedAfter()
+                          .contains(PdbResidueIdentifier.from(residueGroup.get(i))))
+              .boxed()
+              .collect(Collectors.toList());
+
+      int begin = 0;
+      for (final int branchingPoint : branchingPoints) {
+        int end = branchingPoint + 1;
+        while ((end < residueGroup.size()) && residueGroup.get(end).isMissing()) {
+          end++;
+        }
+        chains.add(
+            ImmutablePdbChain.of(
+                residueGroup.get(0).chainIdentifier(), residueGroup.subList(begin, end)));
+        begin = end;
+      }
+      if (begin < residueGroup.size()) {
+        chains.add(
+            ImmutablePdbChain.of(
+                residueGroup.get(0).chainIdentifier(),
+                residueGroup.subList(begin, residueGroup.size())));
+      }
+    }
+    return chains;
+  }
+
+  private static void assertSameAsLegacy(final PdbModel model) {
+    final List<PdbResidue> residues = model.residues();
+    final List<PdbResidue> expectedResidues = ModelAssemblerTest.legacyResidues(model);
+    assertThat(residues, is(expectedResidues));
+    for (int i = 0; i < residues.size(); i++) {
+      assertThat(
+          residues.get(i).modifiedResidueName(),
+          is(expectedResidues.get(i).modifiedResidueName()));
+    }
+    assertThat(model.chains(), is(ModelAssemblerTest.legacyChains(model)));
+  }
+
+  @Test
+  public final void testSameAsLegacyImplementation() throws Exception {
+    final File directory = ResourcesHelper.loadResourceFile("1EHZ.pdb").getParentFile();
+    final File[] files = Objects.requireNonNull(directory.listFiles());
+    Arrays.sort(files);
+
+    int count = 0;
+    for (final File file : files) {
+      final String name = file.getName();
+      if (name.endsWith(".pdb")) {
+        for (final PdbModel model : new PdbParser(false).parse(file.toPath())) {
+          ModelAssemblerTest.assertSameAsLegacy(model);
+          count++;
+        }
+      } else if (name.endsWith(".cif")) {
+        for (final PdbModel model : CifParser.parse(file.toPath())) {
+          ModelAssemblerTest.assertSameAsLegacy(model);
+          count++;
+        }
+      }
+    }
+    assertThat(count > 10, is(true));
+  }
+
+  @Test
+  public final void testResidueLookup() throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0);
+    final List<PdbResidue> residues = model.residues();
+    for (int i = 0; i < residues.size(); i++) {
+      final PdbResidueIdentifier identifier = PdbResidueIdentifier.from(residues.get(i));
+      assertThat(model.hasResidue(identifier), is(true));
+      assertThat(model.indexOf(identifier), is(i));
+      assertThat(model.findResidue(identifier), is(residues.get(i)));
+    }
+
+    final PdbChain chain = model.chains().get(0);
+    assertThat(chain.indexOf(chain.residues().get(10)), is(10));
+    assertThat(model.residueIndexMap().size(), is(residues.size()));
+    assertThat(model.hasResidue(ImmutablePdbResidueIdentifier.of("A", 1000, "")), is(false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testResidueLookupMissing() throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0);
+    model.findResidue(ImmutablePdbResidueIdentifier.of("A", 1000, ""));
+  }
+}
@@ -0,0 +1,175 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.poznan.put.pdb.ImmutablePdbAtomLine;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ModelSnapshotTest {
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static void assertSameModels(
+      final List<? extends PdbModel> restored, final List<? extends PdbModel> original) {
+    assertThat(restored.size(), is(original.size()));
+    for (int i = 0; i < original.size(); i++) {
+      final PdbModel expected = original.get(i);
+      final PdbModel actual = restored.get(i);
+      assertThat(actual, is(expected));
+      assertThat(actual.header(), is(expected.header()));
+      assertThat(actual.experimentalData(), is(expected.experimentalData()));
+      assertThat(actual.resolution(), is(expected.resolution()));
+      assertThat(actual.modelNumber(), is(expected.modelNumber()));
+      assertThat(actual.title(), is(expected.title()));
+      assertThat(actual.modifiedResidues(), is(expected.modifiedResidues()));
+      assertThat(actual.missingResidues(), is(expected.missingResidues()));
+      assertThat(actual.chainTerminatedAfter(), is(expected.chainTerminatedAfter()));
+      for (int j = 0; j < expected.atoms().size(); j++) {
+        assertThat(actual.atoms().get(j).toPdb(), is(expected.atoms().get(j).toPdb()));
+      }
+      if (expected instanceof CifModel) {
+        assertThat(actual, instanceOf(CifModel.class));
+        assertThat(((CifModel) actual).basePairs(), is(((CifModel) expected).basePairs()));
+      }
+    }
+  }
+
+  @Test
+  public final void testPdbRoundTrip() throws Exception {
+    final PdbParser parser = new PdbParser(false);
+    for (final String resource : new String[] {"1EHZ.pdb", "2MIY.pdb", "148L.pdb"}) {
+      final List<PdbModel> models = parser.parse(ResourcesHelper.loadResource(resource));
+      ModelSnapshotTest.assertSameModels(ModelSnapshot.read(ModelSnapshot.write(models)), models);
+    }
+  }
+
+  @Test
+  public final void testCifRoundTrip() throws Exception {
+    for (final String resource : new String[] {"100D.cif", "148L.cif", "5A93.cif"}) {
+      final List<CifModel> models = CifParser.parse(ResourcesHelper.loadResource(resource));
+      ModelSnapshotTest.assertSameModels(ModelSnapshot.read(ModelSnapshot.write(models)), models);
+    }
+
+    final List<CifModel> models = CifParser.parse(ResourcesHelper.loadResource("100D.cif"));
+    assertThat(models.get(0).basePairs().isEmpty(), is(false));
+  }
+
+  @Test
+  public final void testUnquantizedCoordinates() throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0);
+    final List<PdbAtomLine> atoms = new ArrayList<>(model.atoms());
+    atoms.set(0, ImmutablePdbAtomLine.copyOf(atoms.get(0)).withX(Math.PI).withOccupancy(1.0e-7));
+    final List<PdbModel> models =
+        Collections.singletonList(
+            ImmutableDefaultPdbModel.copyOf((DefaultPdbModel) model).withAtoms(atoms));
+
+    final List<PdbModel> restored = ModelSnapshot.read(ModelSnapshot.write(models));
+    assertThat(restored.get(0).atoms().get(0).x(), is(Math.PI));
+    assertThat(restored.get(0).atoms().get(0).occupancy(), is(1.0e-7));
+    assertThat(restored.get(0).atoms().get(1).x(), is(model.atoms().get(1).x()));
+  }
+
+  @Test(expected = IOException.class)
+  public final void testInvalidSnapshot() throws Exception {
+    ModelSnapshot.read("not a snapshot".getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test(expected = IOException.class)
+  public final void testTruncatedSnapshot() throws Exception {
+    final List<PdbModel> models =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb"));
+    final byte[] data = ModelSnapshot.write(models);
+    final byte[] truncated = new byte[data.length / 2];
+    System.arraycopy(data, 0, truncated, 0, truncated.length);
+    ModelSnapshot.read(truncated);
+  }
+
+  @Test(expected = IOException.class)
+  public final void testCorruptedDictionarySize() throws Exception {
+    final byte[] data = ModelSnapshotTest.header();
+    // a dictionary of Integer.MAX_VALUE strings in a few bytes
+    ModelSnapshot.read(ModelSnapshotTest.concat(data, new byte[] {-1, -1, -1, -1, 7, 0}));
+  }
+
+  @Test
+  public final void testCorruptedCounts() throws Exception {
+    final List<PdbModel> models =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb"));
+    final byte[] data = ModelSnapshot.write(models);
+    final Random random = new Random(0);
+    for (int i = 0; i < 200; i++) {
+      final byte[] corrupted = data.clone();
+      final int position = 8 + random.nextInt(corrupted.length - 8);
+      corrupted[position] = (byte) (0x80 | random.nextInt(0x80));
+      try {
+        ModelSnapshot.read(corrupted);
+      } catch (final IOException ignored) {
+        // the only accepted failure
+      }
+    }
+  }
+
+  @Test
+  public final void testSnapshotCache() throws Exception {
+    final File structure = folder.newFile("1EHZ.pdb");
+    FileUtils.write(structure, ResourcesHelper.loadResource("1EHZ.pdb"), StandardCharsets.UTF_8);
+    final SnapshotCache cache = new SnapshotCache(folder.newFolder("cache").toPath());
+
+    final List<PdbModel> parsed = cache.parse(structure.toPath());
+    final List<Path> snapshots = ModelSnapshotTest.listSnapshots(cache.directory());
+    assertThat(snapshots.size(), is(1));
+
+    final List<PdbModel> cached = cache.parse(structure.toPath());
+    ModelSnapshotTest.assertSameModels(cached, parsed);
+
+    // a corrupted snapshot is replaced by a new one
+    Files.write(snapshots.get(0), new byte[] {1, 2, 3});
+    ModelSnapshotTest.assertSameModels(cache.parse(structure.toPath()), parsed);
+    assertThat(ModelSnapshot.read(snapshots.get(0)).size(), is(parsed.size()));
+    assertThat(ModelSnapshotTest.listSnapshots(cache.directory()).size(), is(1));
+
+    // a snapshot with a valid header, but an impossible number of models
+    Files.write(
+        snapshots.get(0),
+        ModelSnapshotTest.concat(ModelSnapshotTest.header(), new byte[] {0, -1, -1, -1, -1, 7}));
+    ModelSnapshotTest.assertSameModels(cache.parse(structure.toPath()), parsed);
+    assertThat(ModelSnapshot.read(snapshots.get(0)).size(), is(parsed.size()));
+  }
+
+  // the magic number and the version taken from a valid snapshot
+  private static byte[] header() {
+    return Arrays.copyOf(ModelSnapshot.write(Collections.emptyList()), 8);
+  }
+
+  private static byte[] concat(final byte[] first, final byte[] second) {
+    final byte[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  private static List<Path> listSnapshots(final Path directory) throws IOException {
+    try (final Stream<Path> paths = Files.list(directory)) {
+      return paths.collect(Collectors.toList());
+    }
+  }
+}
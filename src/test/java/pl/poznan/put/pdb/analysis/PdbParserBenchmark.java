@@ -0,0 +1,60 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Compares parsing of a large PDB file with {@link PdbParser} and {@link MappedPdbParser}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PdbParserBenchmark {
+  private String content;
+  private Path path;
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PdbParserBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  @Setup
+  public final void setUp() throws IOException, URISyntaxException {
+    content = ResourcesHelper.loadResource("1XPO.pdb");
+    path = ResourcesHelper.loadResourceFile("1XPO.pdb").toPath();
+  }
+
+  @Benchmark
+  public final List<PdbModel> parseString() {
+    return new PdbParser().parse(content);
+  }
+
+  @Benchmark
+  public final List<PdbModel> parsePath() throws IOException {
+    return new PdbParser().parse(path);
+  }
+
+  @Benchmark
+  public final List<PdbModel> parseMapped() throws IOException {
+    return new MappedPdbParser().parse(path);
+  }
+}
@@ -0,0 +1,265 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PdbParserTest {
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public final void testParsePath() throws Exception {
+    final String pdb2MIY = ResourcesHelper.loadResource("2MIY.pdb");
+    final Path path = ResourcesHelper.loadResourceFile("2MIY.pdb").toPath();
+    final PdbParser parser = new PdbParser(false);
+
+    final List<PdbModel> expected = parser.parse(pdb2MIY);
+    final List<PdbModel> actual = parser.parse(path);
+    assertThat(actual.size(), is(18));
+    assertThat(actual, is(expected));
+
+    try (final InputStream stream = Files.newInputStream(path)) {
+      assertThat(parser.parse(stream), is(expected));
+    }
+  }
+
+  @Test
+  public final void testParseIncrementally() throws Exception {
+    final String pdb2MIY = ResourcesHelper.loadResource("2MIY.pdb");
+    final PdbParser parser = new PdbParser(false);
+    final List<PdbModel> models = new ArrayList<>();
+    parser.parse(new StringReader(pdb2MIY), models::add);
+
+    assertThat(models.size(), is(18));
+    for (int i = 0; i < models.size(); i++) {
+      assertThat(models.get(i).modelNumber(), is(i + 1));
+      assertThat(models.get(i).atoms().size(), is(1909));
+    }
+  }
+
+  @Test
+  public final void testParseParallel() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (final String resource : new String[] {"1EHZ.pdb", "2MIY.pdb", "FrabaseExport.pdb"}) {
+        final String content = ResourcesHelper.loadResource(resource);
+        final PdbParser parser = new PdbParser(false);
+
+        final List<PdbModel> expected = parser.parse(content);
+        final List<PdbModel> actual = parser.parseParallel(content, executor);
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+          assertThat(actual.get(i).atoms(), is(expected.get(i).atoms()));
+          assertThat(
+              actual.get(i).chainTerminatedAfter(), is(expected.get(i).chainTerminatedAfter()));
+          assertThat(actual.get(i).missingResidues(), is(expected.get(i).missingResidues()));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public final void testModelsWithoutEndmdl() throws Exception {
+    final List<String> atomLines =
+        Arrays.stream(ResourcesHelper.loadResource("1EHZ.pdb").split("\n"))
+            .filter(line -> line.startsWith("ATOM"))
+            .limit(40)
+            .collect(Collectors.toList());
+    final String content =
+        "MODEL        1\n"
+            + String.join("\n", atomLines.subList(0, 20))
+            + "\nMODEL        2\n"
+            + String.join("\n", atomLines.subList(20, 40))
+            + "\nEND\n";
+    final PdbParser parser = new PdbParser(false);
+
+    final List<PdbModel> expected = parser.parse(content);
+    assertThat(expected.size(), is(2));
+    assertThat(expected.get(0).modelNumber(), is(1));
+    assertThat(expected.get(0).atoms().size(), is(20));
+    assertThat(expected.get(1).modelNumber(), is(2));
+    assertThat(expected.get(1).atoms().size(), is(20));
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final List<PdbModel> actual = parser.parseParallel(content, executor);
+      assertThat(actual.size(), is(expected.size()));
+      for (int i = 0; i < expected.size(); i++) {
+        assertThat(actual.get(i).modelNumber(), is(expected.get(i).modelNumber()));
+        assertThat(actual.get(i).atoms(), is(expected.get(i).atoms()));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public final void testSharedBetweenThreads() throws Exception {
+    final String[] resources = {"1EHZ.pdb", "2MIY.pdb", "1XPO.pdb", "148L.pdb"};
+    final PdbParser parser = new PdbParser(false);
+    final List<String> contents = new ArrayList<>();
+    final List<List<PdbModel>> expected = new ArrayList<>();
+    for (final String resource : resources) {
+      final String content = ResourcesHelper.loadResource(resource);
+      contents.add(content);
+      expected.add(parser.parse(content));
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<List<PdbModel>>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        final String content = contents.get(i % contents.size());
+        futures.add(executor.submit(() -> parser.parse(content)));
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        final List<PdbModel> actual = futures.get(i).get();
+        final List<PdbModel> models = expected.get(i % expected.size());
+        assertThat(actual, is(models));
+        for (int j = 0; j < models.size(); j++) {
+          assertThat(actual.get(j).header(), is(models.get(j).header()));
+          assertThat(actual.get(j).title(), is(models.get(j).title()));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public final void testParseSummary() throws Exception {
+    final PdbParser parser = new PdbParser(false);
+    for (final String resource : new String[] {"1EHZ.pdb", "148L.pdb", "FrabaseExport.pdb"}) {
+      final String content = ResourcesHelper.loadResource(resource);
+      final PdbModel model = parser.parse(content).get(0);
+      final StructureSummary summary = parser.parseSummary(content);
+
+      assertThat(summary.header(), is(model.header()));
+      assertThat(summary.experimentalData(), is(model.experimentalData()));
+      assertThat(summary.resolution(), is(model.resolution()));
+      assertThat(summary.title(), is(model.title()));
+    }
+
+    // 1EHZ has SEQRES records
+    final StructureSummary summary1EHZ =
+        parser.parseSummary(ResourcesHelper.loadResource("1EHZ.pdb"));
+    assertThat(summary1EHZ.idCode(), is("1EHZ"));
+    assertThat(summary1EHZ.chainMoleculeTypes().size(), is(1));
+    assertThat(summary1EHZ.chainMoleculeTypes().get("A"), is(MoleculeType.RNA));
+
+    // FrabaseExport has only ATOM records
+    final String frabase = ResourcesHelper.loadResource("FrabaseExport.pdb");
+    final PdbModel model = parser.parse(frabase).get(0);
+    final StructureSummary summaryFrabase = parser.parseSummary(frabase);
+    for (final PdbChain chain : model.chains()) {
+      assertThat(
+          summaryFrabase.chainMoleculeTypes().get(chain.identifier()), is(chain.moleculeType()));
+    }
+  }
+
+  @Test
+  public final void testParseOptions() throws Exception {
+    final String pdb1EHZ = ResourcesHelper.loadResource("1EHZ.pdb");
+    final List<PdbAtomLine> all1EHZ = new PdbParser(false).parse(pdb1EHZ).get(0).atoms();
+
+    final ParseOptions noWater = ImmutableParseOptions.builder().excludeWater(true).build();
+    final List<PdbAtomLine> withoutWater =
+        new PdbParser(false, noWater).parse(pdb1EHZ).get(0).atoms();
+    assertThat(
+        withoutWater,
+        is(
+            all1EHZ.stream()
+                .filter(atom -> !"HOH".equals(atom.residueName()))
+                .collect(Collectors.toList())));
+
+    final ParseOptions onlyGuanines =
+        ImmutableParseOptions.builder().addAllowedResidueNames("G").excludeHetatm(true).build();
+    final List<PdbAtomLine> guanines =
+        new PdbParser(false, onlyGuanines).parse(pdb1EHZ).get(0).atoms();
+    assertThat(guanines.isEmpty(), is(false));
+    assertThat(guanines.stream().allMatch(atom -> "G".equals(atom.residueName())), is(true));
+
+    final String pdb2MIY = ResourcesHelper.loadResource("2MIY.pdb");
+    final ParseOptions modelsWithoutHydrogens =
+        ImmutableParseOptions.builder().addModelNumbers(2, 3).excludeHydrogens(true).build();
+    final PdbParser parser2MIY = new PdbParser(false, modelsWithoutHydrogens);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (final List<PdbModel> models :
+          Arrays.asList(parser2MIY.parse(pdb2MIY), parser2MIY.parseParallel(pdb2MIY, executor))) {
+        assertThat(models.size(), is(2));
+        assertThat(models.get(0).modelNumber(), is(2));
+        assertThat(models.get(1).modelNumber(), is(3));
+        for (final PdbModel model : models) {
+          assertThat(model.atoms().isEmpty(), is(false));
+          assertThat(
+              model.atoms().stream().noneMatch(atom -> "H".equals(atom.elementSymbol())),
+              is(true));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    final String pdb148L = ResourcesHelper.loadResource("148L.pdb");
+    final List<PdbAtomLine> all148L = new PdbParser(false).parse(pdb148L).get(0).atoms();
+    final ParseOptions chainWithFirstAlternateLocation =
+        ImmutableParseOptions.builder()
+            .addChainIdentifiers("E")
+            .firstAlternateLocationOnly(true)
+            .build();
+    final List<PdbAtomLine> chainE =
+        new PdbParser(false, chainWithFirstAlternateLocation).parse(pdb148L).get(0).atoms();
+    assertThat(chainE.stream().allMatch(atom -> "E".equals(atom.chainIdentifier())), is(true));
+    assertThat(chainE.stream().noneMatch(atom -> "B".equals(atom.alternateLocation())), is(true));
+    assertThat(
+        chainE.size(),
+        is(
+            (int)
+                all148L.stream()
+                    .filter(atom -> "E".equals(atom.chainIdentifier()))
+                    .filter(atom -> !"B".equals(atom.alternateLocation()))
+                    .count()));
+  }
+
+  @Test
+  public final void testParseGzip() throws Exception {
+    final String pdb1XPO = ResourcesHelper.loadResource("1XPO.pdb");
+    final Path path = folder.newFile("1XPO.pdb.gz").toPath();
+    try (final OutputStream stream = new GZIPOutputStream(Files.newOutputStream(path))) {
+      stream.write(pdb1XPO.getBytes(StandardCharsets.UTF_8));
+    }
+
+    final PdbParser parser = new PdbParser(false);
+    final List<PdbModel> expected = parser.parse(pdb1XPO);
+    assertThat(parser.parse(path), is(expected));
+    assertThat(new MappedPdbParser(false).parse(path), is(expected));
+    try (final InputStream stream = Files.newInputStream(path)) {
+      assertThat(parser.parse(stream), is(expected));
+    }
+    assertThat(parser.parseSummary(path), is(parser.parseSummary(pdb1XPO)));
+  }
+}
@@ -0,0 +1,115 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.apache.commons.collections4.SetUtils;
+import org.junit.Test;
+import pl.poznan.put.atom.AtomName;
+import pl.poznan.put.protein.AminoAcid;
+import pl.poznan.put.protein.ImmutableBackbone;
+import pl.poznan.put.rna.ImmutableRibose;
+import pl.poznan.put.rna.Nucleotide;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ResidueTypeDetectorTest {
+  private static double intersectionRatio(
+      final Set<AtomName> actual, final Set<AtomName> expected) {
+    return (double) SetUtils.intersection(actual, expected).size() / expected.size();
+  }
+
+  private static Set<AtomName> heavy(final Set<AtomName> atomNames) {
+    return atomNames.stream().filter(AtomName::isHeavy).collect(Collectors.toSet());
+  }
+
+  // the implementation which ResidueTypeDetector has replaced
+  private static ResidueInformationProvider legacyDetect(
+      final String residueName, final Set<AtomName> actual) {
+    final ResidueInformationProvider byName =
+        Stream.concat(Arrays.stream(Nucleotide.values()), Arrays.stream(AminoAcid.values()))
+            .filter(provider -> provider.aliases().contains(residueName))
+            .findFirst()
+            .orElse(null);
+    if (byName != null) {
+      return byName;
+    }
+
+    if (actual.size() > 1) {
+      final Set<AtomName> ribose =
+          ResidueTypeDetectorTest.heavy(ImmutableRibose.of().requiredAtoms());
+      if (ResidueTypeDetectorTest.intersectionRatio(actual, ribose) >= 0.5) {
+        return Arrays.stream(Nucleotide.values())
+            .map(Nucleotide::nucleobase)
+            .max(
+                Comparator.comparingDouble(
+                    base ->
+                        ResidueTypeDetectorTest.intersectionRatio(actual, base.requiredAtoms())))
+            .get();
+      }
+
+      final Set<AtomName> backbone =
+          ResidueTypeDetectorTest.heavy(ImmutableBackbone.of().requiredAtoms());
+      if (ResidueTypeDetectorTest.intersectionRatio(actual, backbone) >= 0.5) {
+        return Arrays.stream(AminoAcid.values())
+            .map(AminoAcid::sidechain)
+            .max(
+                Comparator.comparingDouble(
+                    sidechain ->
+                        ResidueTypeDetectorTest.intersectionRatio(
+                            actual, sidechain.requiredAtoms())))
+            .get();
+      }
+    }
+    return ImmutableInvalidResidueInformationProvider.of(residueName);
+  }
+
+  private static void assertSameAsLegacy(final String residueName, final Set<AtomName> atomNames) {
+    final ResidueInformationProvider expected =
+        ResidueTypeDetectorTest.legacyDetect(residueName, atomNames);
+    // twice, to check the cached result as well
+    for (int i = 0; i < 2; i++) {
+      final ResidueInformationProvider actual =
+          ResidueTypeDetector.detectResidueType(residueName, atomNames);
+      assertThat(Objects.equals(actual, expected), is(true));
+    }
+  }
+
+  @Test
+  public final void testSameAsLegacyOnResources() throws Exception {
+    final File directory = ResourcesHelper.loadResourceFile("1EHZ.pdb").getParentFile();
+    for (final File file : Objects.requireNonNull(directory.listFiles())) {
+      if (file.getName().endsWith(".pdb")) {
+        for (final PdbModel model : new PdbParser(false).parse(file.toPath())) {
+          for (final PdbResidue residue : model.residues()) {
+            ResidueTypeDetectorTest.assertSameAsLegacy(
+                residue.modifiedResidueName(), residue.atomNames());
+            // pretend that the name is unknown to force detection from atoms
+            ResidueTypeDetectorTest.assertSameAsLegacy("XYZ", residue.atomNames());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public final void testEdgeCases() {
+    ResidueTypeDetectorTest.assertSameAsLegacy("XYZ", Collections.emptySet());
+    ResidueTypeDetectorTest.assertSameAsLegacy("XYZ", EnumSet.of(AtomName.C1p));
+    ResidueTypeDetectorTest.assertSameAsLegacy("XYZ", EnumSet.allOf(AtomName.class));
+    ResidueTypeDetectorTest.assertSameAsLegacy(
+        "XYZ", ResidueTypeDetectorTest.heavy(ImmutableBackbone.of().requiredAtoms()));
+    assertThat(
+        ResidueTypeDetector.detectResidueType("A", Collections.emptySet()),
+        is((ResidueInformationProvider) Nucleotide.ADENINE));
+  }
+}
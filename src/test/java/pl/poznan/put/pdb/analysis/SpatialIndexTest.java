@@ -0,0 +1,130 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.junit.Test;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SpatialIndexTest {
+  private static double distance(
+      final double[][] points, final int i, final double x, final double y, final double z) {
+    final double dx = points[0][i] - x;
+    final double dy = points[1][i] - y;
+    final double dz = points[2][i] - z;
+    return Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
+  }
+
+  private static int[] bruteForceWithin(
+      final double[][] points, final double x, final double y, final double z, final double r) {
+    return IntStream.range(0, points[0].length)
+        .filter(i -> SpatialIndexTest.distance(points, i, x, y, z) <= r)
+        .toArray();
+  }
+
+  private static int[] bruteForceNearest(
+      final double[][] points, final double x, final double y, final double z, final int k) {
+    return IntStream.range(0, points[0].length)
+        .boxed()
+        .sorted(
+            Comparator.comparingDouble((Integer i) -> SpatialIndexTest.distance(points, i, x, y, z))
+                .thenComparing(i -> i))
+        .limit(k)
+        .mapToInt(i -> i)
+        .toArray();
+  }
+
+  private static int[] bruteForcePairs(final double[][] points, final double cutoff) {
+    final List<Integer> pairs = new ArrayList<>();
+    for (int i = 0; i < points[0].length; i++) {
+      for (int j = i + 1; j < points[0].length; j++) {
+        if (SpatialIndexTest.distance(points, i, points[0][j], points[1][j], points[2][j])
+            <= cutoff) {
+          pairs.add(i);
+          pairs.add(j);
+        }
+      }
+    }
+    return pairs.stream().mapToInt(i -> i).toArray();
+  }
+
+  private static double[][] randomPoints(final Random random, final int count, final double box) {
+    final double[][] points = new double[3][count];
+    for (int i = 0; i < count; i++) {
+      for (int j = 0; j < 3; j++) {
+        points[j][i] = (random.nextDouble() - 0.5) * box;
+      }
+    }
+    return points;
+  }
+
+  private static void assertSameAsBruteForce(
+      final double[][] points, final double cellSize, final Random random) {
+    final SpatialIndex index = SpatialIndex.of(points[0], points[1], points[2], cellSize);
+    assertThat(index.size(), is(points[0].length));
+
+    for (int i = 0; i < 50; i++) {
+      // query points also lie outside of the indexed box
+      final double x = (random.nextDouble() - 0.5) * 120.0;
+      final double y = (random.nextDouble() - 0.5) * 120.0;
+      final double z = (random.nextDouble() - 0.5) * 120.0;
+      final double radius = random.nextDouble() * 15.0;
+      final int k = random.nextInt(10);
+      assertThat(
+          index.indicesWithin(x, y, z, radius),
+          is(SpatialIndexTest.bruteForceWithin(points, x, y, z, radius)));
+      assertThat(
+          index.nearest(x, y, z, k), is(SpatialIndexTest.bruteForceNearest(points, x, y, z, k)));
+    }
+
+    for (final double cutoff : new double[] {0.0, 1.5, 4.0, 12.0}) {
+      assertThat(index.pairsWithin(cutoff), is(SpatialIndexTest.bruteForcePairs(points, cutoff)));
+    }
+  }
+
+  @Test
+  public final void testRandomPoints() {
+    final Random random = new Random(0);
+    for (final double cellSize : new double[] {0.5, 2.0, 5.0, 100.0}) {
+      SpatialIndexTest.assertSameAsBruteForce(
+          SpatialIndexTest.randomPoints(random, 300, 60.0), cellSize, random);
+    }
+    SpatialIndexTest.assertSameAsBruteForce(new double[3][0], 1.0, random);
+    SpatialIndexTest.assertSameAsBruteForce(
+        SpatialIndexTest.randomPoints(random, 1, 60.0), 1.0, random);
+  }
+
+  @Test
+  public final void testAtomsOfModel() throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0);
+    final List<PdbAtomLine> atoms = model.atoms();
+    final SpatialIndex index = SpatialIndex.of(atoms, 4.0);
+    assertThat(index.size(), is(atoms.size()));
+
+    final PdbAtomLine center = atoms.get(100);
+    final List<PdbAtomLine> expected = new ArrayList<>();
+    for (final PdbAtomLine atom : atoms) {
+      if (atom.distanceTo(center) <= 5.0) {
+        expected.add(atom);
+      }
+    }
+    assertThat(index.atomsWithin(center, 5.0), is(expected));
+    assertThat(index.nearest(center.x(), center.y(), center.z(), 1), is(new int[] {100}));
+    assertThat(
+        SpatialIndex.of(model, 4.0).size(),
+        is(model.residues().stream().mapToInt(residue -> residue.atoms().size()).sum()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testInvalidCellSize() {
+    SpatialIndex.of(new double[0], new double[0], new double[0], 0.0);
+  }
+}
@@ -16,6 +16,7 @@ import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -422,4 +423,23 @@ public class StructureModelTest {
       }
     }
   }
+
+  @Test
+  public final void testAtomIndex() throws Exception {
+    final String pdb1EHZ = ResourcesHelper.loadResource("1EHZ.pdb");
+    final PdbModel model = new PdbParser().parse(pdb1EHZ).get(0);
+
+    for (final PdbResidue residue : model.residues()) {
+      for (final AtomName atomName : AtomName.values()) {
+        final List<PdbAtomLine> matching =
+            residue.atoms().stream()
+                .filter(atom -> atom.detectAtomName() == atomName)
+                .collect(Collectors.toList());
+        assertThat(residue.hasAtom(atomName), is(!matching.isEmpty()));
+        if (!matching.isEmpty()) {
+          assertThat(residue.findAtom(atomName), is(matching.get(0)));
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,154 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pl.poznan.put.atom.AtomName;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.PdbResidueIdentifier;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares calculation of all torsion angles in 1XPO for {@link DefaultPdbResidue} (with atoms
+ * indexed by name) and for residues which find atoms by scanning the list of atoms, as it was done
+ * before the index. Also compares per-residue calculation with the batch one in {@link
+ * TorsionAngleTable}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TorsionAngleBenchmark {
+  private List<PdbResidue> residues;
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TorsionAngleBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  private static List<ResidueTorsionAngles> calculateAll(final List<PdbResidue> residues) {
+    final List<ResidueTorsionAngles> result = new ArrayList<>(residues.size());
+    for (int i = 0; i < residues.size(); i++) {
+      result.add(ResidueTorsionAngles.calculate(residues, i));
+    }
+    return result;
+  }
+
+  @Setup
+  public final void setUp() throws IOException {
+    final PdbModel model = new PdbParser().parse(ResourcesHelper.loadResource("1XPO.pdb")).get(0);
+    residues = model.residues();
+  }
+
+  // residues are created in every iteration, so that cached values are not reused
+  @Benchmark
+  public final List<ResidueTorsionAngles> indexedResidues() {
+    return TorsionAngleBenchmark.calculateAll(
+        residues.stream()
+            .map(
+                residue ->
+                    ImmutableDefaultPdbResidue.of(
+                        residue.identifier(),
+                        residue.standardResidueName(),
+                        residue.modifiedResidueName(),
+                        residue.atoms()))
+            .collect(Collectors.toList()));
+  }
+
+  // the following two reuse residues, so only the calculation of angles is measured
+  @Benchmark
+  public final List<ResidueTorsionAngles> perResidue() {
+    return TorsionAngleBenchmark.calculateAll(residues);
+  }
+
+  @Benchmark
+  public final List<ResidueTorsionAngles> batchTable() {
+    return ResidueTorsionAngles.calculateAll(residues);
+  }
+
+  @Benchmark
+  public final List<ResidueTorsionAngles> scanningResidues() {
+    return TorsionAngleBenchmark.calculateAll(
+        residues.stream().map(ScanningResidue::new).collect(Collectors.toList()));
+  }
+
+  /**
+   * A residue with cached type and atom names like {@link DefaultPdbResidue}, but which finds
+   * atoms by scanning the list and detecting names of atoms on every call.
+   */
+  private static final class ScanningResidue implements PdbResidue {
+    private static final long serialVersionUID = 1L;
+
+    private final PdbResidue residue;
+    private ResidueInformationProvider residueInformationProvider;
+    private Set<AtomName> atomNames;
+
+    private ScanningResidue(final PdbResidue residue) {
+      super();
+      this.residue = residue;
+    }
+
+    @Override
+    public PdbResidueIdentifier identifier() {
+      return residue.identifier();
+    }
+
+    @Override
+    public String standardResidueName() {
+      return residue.standardResidueName();
+    }
+
+    @Override
+    public String modifiedResidueName() {
+      return residue.modifiedResidueName();
+    }
+
+    @Override
+    public List<PdbAtomLine> atoms() {
+      return residue.atoms();
+    }
+
+    @Override
+    public ResidueInformationProvider residueInformationProvider() {
+      if (residueInformationProvider == null) {
+        residueInformationProvider = PdbResidue.super.residueInformationProvider();
+      }
+      return residueInformationProvider;
+    }
+
+    @Override
+    public Set<AtomName> atomNames() {
+      if (atomNames == null) {
+        atomNames = PdbResidue.super.atomNames();
+      }
+      return atomNames;
+    }
+
+    @Override
+    public PdbAtomLine findAtom(final AtomName atomName) {
+      return atoms().stream()
+          .filter(atom -> atom.detectAtomName() == atomName)
+          .findFirst()
+          .orElseThrow(() -> new IllegalArgumentException("Failed to find: " + atomName));
+    }
+  }
+}
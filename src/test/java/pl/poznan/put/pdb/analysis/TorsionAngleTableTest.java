@@ -0,0 +1,140 @@
+package pl.poznan.put.pdb.analysis;
+
+import org.junit.Test;
+import pl.poznan.put.circular.Angle;
+import pl.poznan.put.pdb.ImmutablePdbResidueIdentifier;
+import pl.poznan.put.protein.AminoAcidTorsionAngle;
+import pl.poznan.put.rna.NucleotideTorsionAngle;
+import pl.poznan.put.torsion.TorsionAngleType;
+import pl.poznan.put.torsion.TorsionAngleValue;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TorsionAngleTableTest {
+  private static void assertSameAsPerResidue(final List<PdbResidue> residues) {
+    final List<ResidueTorsionAngles> actual = ResidueTorsionAngles.calculateAll(residues);
+    assertThat(actual.size(), is(residues.size()));
+
+    for (int i = 0; i < residues.size(); i++) {
+      final ResidueTorsionAngles expected = ResidueTorsionAngles.calculate(residues, i);
+      assertThat(actual.get(i).identifier(), is(expected.identifier()));
+      assertThat(actual.get(i).values().size(), is(expected.values().size()));
+
+      // Angle.equals() has a tolerance and NaN is never equal, so radians are compared exactly
+      for (int j = 0; j < expected.values().size(); j++) {
+        final TorsionAngleValue expectedValue = expected.values().get(j);
+        final TorsionAngleValue actualValue = actual.get(i).values().get(j);
+        assertThat(actualValue.angleType(), is(expectedValue.angleType()));
+        assertThat(actualValue.value().radians(), is(expectedValue.value().radians()));
+      }
+    }
+  }
+
+  @Test
+  public final void testSameAsPerResidueCalculation() throws Exception {
+    final File directory = ResourcesHelper.loadResourceFile("1EHZ.pdb").getParentFile();
+    final File[] files = Objects.requireNonNull(directory.listFiles());
+    Arrays.sort(files);
+
+    int count = 0;
+    for (final File file : files) {
+      final String name = file.getName();
+      final List<? extends PdbModel> models;
+      if (name.endsWith(".pdb")) {
+        models = new PdbParser(false).parse(file.toPath());
+      } else if (name.endsWith(".cif")) {
+        models = CifParser.parse(file.toPath());
+      } else {
+        continue;
+      }
+
+      for (final PdbModel model : models) {
+        TorsionAngleTableTest.assertSameAsPerResidue(model.residues());
+        for (final PdbChain chain : model.chains()) {
+          TorsionAngleTableTest.assertSameAsPerResidue(chain.residues());
+        }
+        count++;
+      }
+    }
+    assertThat(count > 10, is(true));
+  }
+
+  @Test
+  public final void testFragmentTable() throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0);
+    final PdbCompactFragment fragment = ImmutablePdbCompactFragment.of(model.residues());
+    final TorsionAngleTable table = fragment.torsionAngleTable();
+    assertThat(table.residueCount(), is(model.residues().size()));
+
+    final TorsionAngleType alpha = NucleotideTorsionAngle.ALPHA.angleTypes().get(0);
+    final int column = table.angleTypes().indexOf(alpha);
+    assertThat(column >= 0, is(true));
+    // the first nucleotide has no preceding O3'
+    assertThat(Double.isNaN(table.value(0, column)), is(true));
+    for (int i = 1; i < table.residueCount(); i++) {
+      final PdbResidue residue = model.residues().get(i);
+      assertThat(
+          table.value(i, column),
+          is(fragment.torsionAngles(residue.identifier()).value(alpha).radians()));
+    }
+    assertThat(table.values()[5][column], is(table.value(5, column)));
+  }
+
+  @Test
+  public final void testIndexedLookup() throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0);
+    final PdbCompactFragment fragment = ImmutablePdbCompactFragment.of(model.residues());
+    final TorsionAngleType chi = NucleotideTorsionAngle.CHI.angleTypes().get(0);
+    final int column = fragment.angleTypeIndex(chi);
+
+    for (int i = 0; i < model.residues().size(); i++) {
+      final PdbResidue residue = model.residues().get(i);
+      final ResidueTorsionAngles angles = fragment.torsionAngles(residue.identifier());
+      assertThat(fragment.torsionAngles(i), is(angles));
+
+      // the same as the former linear search
+      for (final TorsionAngleValue angleValue : angles.values()) {
+        final TorsionAngleType type = angleValue.angleType();
+        final int index = angles.indexOf(type);
+        assertThat(angles.values().get(index).angleType(), is(type));
+        assertThat(angles.radians(index), is(angles.value(type).radians()));
+        assertThat(
+            fragment.angleRadians(i, fragment.angleTypeIndex(type)),
+            is(angles.value(type).radians()));
+      }
+
+      final int index = angles.indexOf(chi);
+      final double expected = (index < 0) ? Double.NaN : angles.radians(index);
+      assertThat(fragment.angleRadians(i, column), is(expected));
+      final double master =
+          NucleotideTorsionAngle.CHI.angleTypes().stream()
+              .map(angles::value)
+              .filter(Angle::isValid)
+              .mapToDouble(Angle::radians)
+              .findFirst()
+              .orElse(Double.NaN);
+      assertThat(angles.value(NucleotideTorsionAngle.CHI).radians(), is(master));
+    }
+
+    final ResidueTorsionAngles first = fragment.torsionAngles(0);
+    assertThat(first.indexOf(AminoAcidTorsionAngle.PHI.angleTypes().get(0)), is(-1));
+    assertThat(first.value(AminoAcidTorsionAngle.PHI).isValid(), is(false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testMissingResidue() throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0);
+    ImmutablePdbCompactFragment.of(model.residues())
+        .torsionAngles(ImmutablePdbResidueIdentifier.of("A", 1000, ""));
+  }
+}
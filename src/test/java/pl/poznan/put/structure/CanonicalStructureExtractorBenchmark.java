@@ -0,0 +1,85 @@
+package pl.poznan.put.structure;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pl.poznan.put.pdb.ImmutablePdbAtomLine;
+import pl.poznan.put.pdb.PdbAtomLine;
+import pl.poznan.put.pdb.analysis.DefaultPdbModel;
+import pl.poznan.put.pdb.analysis.MoleculeType;
+import pl.poznan.put.pdb.analysis.PdbModel;
+import pl.poznan.put.pdb.analysis.PdbParser;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the neighbour search in {@link CanonicalStructureExtractor#basePairs} with testing all
+ * pairs of residues on a large RNA (tRNA from 1EHZ repeated 40 times side by side in a single
+ * chain, over 3000 nucleotides).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CanonicalStructureExtractorBenchmark {
+  private static final int COPIES = 40;
+  private static final double SHIFT = 100.0;
+
+  private PdbModel model;
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(CanonicalStructureExtractorBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+
+  @Setup
+  public final void setUp() throws IOException {
+    final PdbModel trna =
+        new PdbParser()
+            .parse(ResourcesHelper.loadResource("1EHZ.pdb"))
+            .get(0)
+            .filteredNewInstance(MoleculeType.RNA);
+
+    final List<PdbAtomLine> atoms = new ArrayList<>();
+    for (int i = 0; i < CanonicalStructureExtractorBenchmark.COPIES; i++) {
+      for (final PdbAtomLine atom : trna.atoms()) {
+        atoms.add(
+            ImmutablePdbAtomLine.copyOf(atom)
+                .withResidueNumber(atom.residueNumber() + (i * 100))
+                .withSerialNumber(atoms.size() + 1)
+                .withX(atom.x() + (i * CanonicalStructureExtractorBenchmark.SHIFT)));
+      }
+    }
+    model = DefaultPdbModel.of(atoms);
+  }
+
+  @Benchmark
+  public final Collection<ClassifiedBasePair> neighbourSearch() {
+    return CanonicalStructureExtractor.basePairs(model);
+  }
+
+  @Benchmark
+  public final Collection<ClassifiedBasePair> exhaustive() {
+    return CanonicalStructureExtractor.basePairsExhaustive(model);
+  }
+}
@@ -0,0 +1,52 @@
+package pl.poznan.put.structure;
+
+import org.junit.Test;
+import pl.poznan.put.pdb.analysis.CifParser;
+import pl.poznan.put.pdb.analysis.PdbModel;
+import pl.poznan.put.pdb.analysis.PdbParser;
+import pl.poznan.put.structure.formats.BpSeq;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CanonicalStructureExtractorTest {
+  @Test
+  public final void testSameAsExhaustiveSearch() throws Exception {
+    final File directory = ResourcesHelper.loadResourceFile("1EHZ.pdb").getParentFile();
+    final File[] files = Objects.requireNonNull(directory.listFiles());
+    Arrays.sort(files);
+
+    final List<PdbModel> models = new ArrayList<>();
+    for (final File file : files) {
+      final String name = file.getName();
+      if (name.endsWith(".pdb")) {
+        models.addAll(new PdbParser(false).parse(file.toPath()));
+      } else if (name.endsWith(".cif")) {
+        models.addAll(CifParser.parse(file.toPath()));
+      }
+    }
+
+    int pairCount = 0;
+    for (final PdbModel model : models) {
+      final Collection<ClassifiedBasePair> basePairs =
+          CanonicalStructureExtractor.basePairs(model);
+      assertThat(basePairs, is(CanonicalStructureExtractor.basePairsExhaustive(model)));
+      assertThat(
+          BpSeq.fromBasePairs(model.namedResidueIdentifiers(), basePairs),
+          is(
+              BpSeq.fromBasePairs(
+                  model.namedResidueIdentifiers(),
+                  CanonicalStructureExtractor.basePairsExhaustive(model))));
+      pairCount += basePairs.size();
+    }
+    assertThat(pairCount > 100, is(true));
+  }
+}
@@ -0,0 +1,173 @@
+package pl.poznan.put.torsion;
+
+import org.junit.Test;
+import pl.poznan.put.circular.Angle;
+import pl.poznan.put.circular.samples.ImmutableAngleSample;
+import pl.poznan.put.pdb.analysis.MoleculeType;
+import pl.poznan.put.pdb.analysis.PdbModel;
+import pl.poznan.put.pdb.analysis.PdbParser;
+import pl.poznan.put.pdb.analysis.PdbResidue;
+import pl.poznan.put.pdb.analysis.ResidueCollection;
+import pl.poznan.put.pdb.analysis.ResidueTorsionAngles;
+import pl.poznan.put.types.DistanceMatrix;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+
+public class McqMatrixCalculatorTest {
+  // the straightforward definition: mean direction of differences between valid angles
+  private static double expectedMcq(
+      final AverageTorsionAngleType averageType, final PdbModel first, final PdbModel second) {
+    final List<ResidueTorsionAngles> angles1 = McqMatrixCalculatorTest.torsionAngles(first);
+    final List<ResidueTorsionAngles> angles2 = McqMatrixCalculatorTest.torsionAngles(second);
+    final List<Angle> deltas = new ArrayList<>();
+
+    for (int i = 0; i < angles1.size(); i++) {
+      for (final MasterTorsionAngleType angleType : averageType.consideredAngles()) {
+        final Angle angle1 = angles1.get(i).value(angleType);
+        final Angle angle2 = angles2.get(i).value(angleType);
+        if (angle1.isValid() && angle2.isValid()) {
+          deltas.add(angle1.subtract(angle2));
+        }
+      }
+    }
+    return deltas.isEmpty()
+        ? Double.NaN
+        : ImmutableAngleSample.of(deltas).meanDirection().radians();
+  }
+
+  private static List<ResidueTorsionAngles> torsionAngles(final PdbModel model) {
+    final List<PdbResidue> residues =
+        model.residues().stream()
+            .filter(
+                residue -> residue.residueInformationProvider().moleculeType() == MoleculeType.RNA)
+            .collect(Collectors.toList());
+    return ResidueTorsionAngles.calculateAll(residues);
+  }
+
+  private static List<PdbModel> models() throws Exception {
+    final List<PdbModel> models =
+        new PdbParser(false).parse(ResourcesHelper.loadResource("2MIY.pdb"));
+    // twice, to have more than one tile
+    final List<PdbModel> result = new ArrayList<>(models);
+    result.addAll(models);
+    return result;
+  }
+
+  private static List<String> names(final int count) {
+    final List<String> names = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      names.add(String.valueOf(i));
+    }
+    return names;
+  }
+
+  @Test
+  public final void testSameAsDefinition() throws Exception {
+    final List<PdbModel> models = McqMatrixCalculatorTest.models();
+    final AverageTorsionAngleType averageType = AverageTorsionAngleType.forNucleicAcid();
+    final List<String> names = McqMatrixCalculatorTest.names(models.size());
+
+    for (final int workers : new int[] {1, 4}) {
+      final DistanceMatrix distanceMatrix =
+          new McqMatrixCalculator(averageType, workers).calculate(names, models);
+      final double[][] matrix = distanceMatrix.matrix();
+      assertThat(distanceMatrix.names(), is(names));
+      assertThat(matrix.length, is(models.size()));
+
+      for (int i = 0; i < models.size(); i++) {
+        assertThat(matrix[i][i], is(0.0));
+        for (int j = i + 1; j < models.size(); j++) {
+          assertThat(matrix[i][j], is(matrix[j][i]));
+          assertThat(
+              matrix[i][j],
+              closeTo(
+                  McqMatrixCalculatorTest.expectedMcq(averageType, models.get(i), models.get(j)),
+                  1.0e-9));
+        }
+      }
+    }
+  }
+
+  @Test
+  public final void testProgress() throws Exception {
+    final List<PdbModel> models = McqMatrixCalculatorTest.models();
+    final AtomicLong completed = new AtomicLong();
+    final AtomicLong total = new AtomicLong();
+
+    new McqMatrixCalculator(AverageTorsionAngleType.forNucleicAcid(), 2)
+        .calculate(
+            McqMatrixCalculatorTest.names(models.size()),
+            models,
+            (done, all) -> {
+              assertThat(done > completed.get(), is(true));
+              completed.set(done);
+              total.set(all);
+            },
+            () -> false);
+
+    final long expected = ((long) models.size() * (models.size() - 1)) / 2;
+    assertThat(completed.get(), is(expected));
+    assertThat(total.get(), is(expected));
+  }
+
+  @Test(expected = CancellationException.class)
+  public final void testCancelled() throws Exception {
+    final List<PdbModel> models = McqMatrixCalculatorTest.models();
+    new McqMatrixCalculator(AverageTorsionAngleType.forNucleicAcid(), 2)
+        .calculate(
+            McqMatrixCalculatorTest.names(models.size()),
+            models,
+            (done, all) -> {},
+            () -> true);
+  }
+
+  @Test(expected = CancellationException.class, timeout = 60000L)
+  public final void testCancelledWhileEncoding() throws Exception {
+    // a model which cannot be encoded until the calculation is stopped
+    final CountDownLatch latch = new CountDownLatch(1);
+    final ResidueCollection blocked =
+        () -> {
+          try {
+            latch.await();
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return Collections.emptyList();
+        };
+    final long deadline = System.currentTimeMillis() + 500L;
+
+    new McqMatrixCalculator(AverageTorsionAngleType.forNucleicAcid(), 2)
+        .calculate(
+            McqMatrixCalculatorTest.names(2),
+            Arrays.asList(blocked, blocked),
+            (done, all) -> {},
+            () -> System.currentTimeMillis() > deadline);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testDifferentSizes() throws Exception {
+    final List<PdbModel> models = new ArrayList<>();
+    models.add(new PdbParser(false).parse(ResourcesHelper.loadResource("1EHZ.pdb")).get(0));
+    models.add(new PdbParser(false).parse(ResourcesHelper.loadResource("2MIY.pdb")).get(0));
+    new McqMatrixCalculator().calculate(McqMatrixCalculatorTest.names(2), models);
+  }
+
+  @Test
+  public final void testEmpty() throws Exception {
+    final DistanceMatrix matrix =
+        new McqMatrixCalculator().calculate(Collections.emptyList(), Collections.emptyList());
+    assertThat(matrix.matrix().length, is(0));
+  }
+}
@@ -0,0 +1,89 @@
+package pl.poznan.put.torsion;
+
+import org.junit.Test;
+import pl.poznan.put.circular.Angle;
+import pl.poznan.put.circular.samples.ImmutableAngleSample;
+import pl.poznan.put.pdb.analysis.ImmutablePdbCompactFragment;
+import pl.poznan.put.pdb.analysis.MoleculeType;
+import pl.poznan.put.pdb.analysis.PdbCompactFragment;
+import pl.poznan.put.pdb.analysis.PdbModel;
+import pl.poznan.put.pdb.analysis.PdbParser;
+import pl.poznan.put.utility.ResourcesHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+
+public class McqWindowScannerTest {
+  private static PdbCompactFragment fragment(final String resource) throws Exception {
+    final PdbModel model =
+        new PdbParser(false).parse(ResourcesHelper.loadResource(resource)).get(0);
+    return ImmutablePdbCompactFragment.of(
+        model.residues().stream()
+            .filter(
+                residue -> residue.residueInformationProvider().moleculeType() == MoleculeType.RNA)
+            .collect(Collectors.toList()));
+  }
+
+  // the straightforward way: create every window and calculate its torsion angles from scratch
+  private static double expectedMcq(
+      final AverageTorsionAngleType averageType,
+      final PdbCompactFragment target,
+      final PdbCompactFragment model,
+      final int shift) {
+    final int size = target.residues().size();
+    final PdbCompactFragment window = model.shifted(shift, size);
+    final List<Angle> deltas = new ArrayList<>();
+
+    for (int k = 0; k < size; k++) {
+      for (final MasterTorsionAngleType angleType : averageType.consideredAngles()) {
+        final Angle angle1 = target.torsionAngles(k).value(angleType);
+        final Angle angle2 = window.torsionAngles(k).value(angleType);
+        if (angle1.isValid() && angle2.isValid()) {
+          deltas.add(angle1.subtract(angle2));
+        }
+      }
+    }
+    return deltas.isEmpty()
+        ? Double.NaN
+        : ImmutableAngleSample.of(deltas).meanDirection().radians();
+  }
+
+  @Test
+  public final void testSameAsShifted() throws Exception {
+    final PdbCompactFragment target = McqWindowScannerTest.fragment("2MIY.pdb");
+    final PdbCompactFragment model = McqWindowScannerTest.fragment("1EHZ.pdb");
+    final AverageTorsionAngleType averageType = AverageTorsionAngleType.forNucleicAcid();
+
+    final double[] profile = new McqWindowScanner(averageType).scan(target, model);
+    assertThat(profile.length, is((model.residues().size() - target.residues().size()) + 1));
+    for (int shift = 0; shift < profile.length; shift++) {
+      assertThat(
+          profile[shift],
+          closeTo(McqWindowScannerTest.expectedMcq(averageType, target, model, shift), 1.0e-9));
+    }
+  }
+
+  @Test
+  public final void testWindowOfItself() throws Exception {
+    final PdbCompactFragment model = McqWindowScannerTest.fragment("1EHZ.pdb");
+    final PdbCompactFragment target = model.shifted(30, 10);
+
+    final double[] profile = new McqWindowScanner().scan(target, model);
+    assertThat(profile[30], is(0.0));
+    for (int shift = 0; shift < profile.length; shift++) {
+      assertThat(profile[shift] >= 0.0, is(true));
+    }
+  }
+
+  @Test
+  public final void testTargetLongerThanModel() throws Exception {
+    final PdbCompactFragment model = McqWindowScannerTest.fragment("1EHZ.pdb");
+    final PdbCompactFragment target = model.shifted(0, 10);
+    assertThat(new McqWindowScanner().scan(model, target).length, is(0));
+  }
+}
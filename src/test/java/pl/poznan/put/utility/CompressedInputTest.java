@@ -0,0 +1,101 @@
+package pl.poznan.put.utility;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CompressedInputTest {
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static byte[] gzip(final byte[] data) throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (final OutputStream stream = new GZIPOutputStream(buffer)) {
+      stream.write(data);
+    }
+    return buffer.toByteArray();
+  }
+
+  @Test
+  public final void testOpenCompressed() throws Exception {
+    final byte[] content =
+        ResourcesHelper.loadResource("1XPO.pdb").getBytes(StandardCharsets.UTF_8);
+    final Path path = folder.newFile("1XPO.pdb.gz").toPath();
+    Files.write(path, CompressedInputTest.gzip(content));
+
+    assertThat(CompressedInput.isGzip(path), is(true));
+    try (final InputStream stream = CompressedInput.open(path)) {
+      assertThat(Arrays.equals(IOUtils.toByteArray(stream), content), is(true));
+    }
+  }
+
+  @Test
+  public final void testOpenUncompressed() throws Exception {
+    final byte[] content =
+        ResourcesHelper.loadResource("1EHZ.pdb").getBytes(StandardCharsets.UTF_8);
+    final Path path = folder.newFile("1EHZ.pdb").toPath();
+    Files.write(path, content);
+
+    assertThat(CompressedInput.isGzip(path), is(false));
+    try (final InputStream stream = CompressedInput.open(path)) {
+      assertThat(Arrays.equals(IOUtils.toByteArray(stream), content), is(true));
+    }
+  }
+
+  @Test
+  public final void testCloseEarly() throws Exception {
+    // much more data than the queue can hold, so the inflater thread blocks until closed
+    final byte[] content = new byte[16 * 1024 * 1024];
+    try (final InputStream stream =
+        CompressedInput.decompress(new ByteArrayInputStream(CompressedInputTest.gzip(content)))) {
+      assertThat(stream.read(), is(0));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public final void testCorrupted() throws Exception {
+    final byte[] compressed = CompressedInputTest.gzip(new byte[1024 * 1024]);
+    final byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+    try (final InputStream stream =
+        CompressedInput.decompress(new ByteArrayInputStream(truncated))) {
+      IOUtils.toByteArray(stream);
+    }
+  }
+
+  @Test(expected = IOException.class, timeout = 60000L)
+  public final void testSourceFailsUnchecked() throws Exception {
+    final byte[] compressed = CompressedInputTest.gzip(new byte[1024 * 1024]);
+    final InputStream source =
+        new FilterInputStream(new ByteArrayInputStream(compressed)) {
+          private int count;
+
+          @Override
+          public int read(final byte[] bytes, final int offset, final int length)
+              throws IOException {
+            count++;
+            if (count > 2) {
+              throw new IllegalStateException("Expected failure");
+            }
+            return super.read(bytes, offset, Math.min(length, 64));
+          }
+        };
+    try (final InputStream stream = CompressedInput.decompress(source)) {
+      IOUtils.toByteArray(stream);
+    }
+  }
+}